@@ -17,6 +17,7 @@ package org.teavm.classlib.impl;
 
 import java.util.ServiceLoader;
 import org.teavm.classlib.impl.unicode.CLDRReader;
+import org.teavm.classlib.impl.unicode.CLDRReportWriter;
 import org.teavm.model.MethodReference;
 import org.teavm.vm.spi.TeaVMHost;
 import org.teavm.vm.spi.TeaVMPlugin;
@@ -30,6 +31,7 @@ public class JCLPlugin implements TeaVMPlugin {
     public void install(TeaVMHost host) {
         host.add(new EnumDependencySupport());
         host.add(new EnumTransformer());
+        host.add(new StringConcatenationTransformer());
         host.add(new ClassLookupDependencySupport());
         host.add(new NewInstanceDependencySupport());
         host.add(new ObjectEnrichRenderer());
@@ -41,6 +43,8 @@ public class JCLPlugin implements TeaVMPlugin {
         JavacSupport javacSupport = new JavacSupport();
         host.add(javacSupport);
 
-        host.registerService(CLDRReader.class, new CLDRReader(host.getProperties(), host.getClassLoader()));
+        CLDRReader cldrReader = new CLDRReader(host.getProperties(), host.getClassLoader());
+        host.registerService(CLDRReader.class, cldrReader);
+        host.add(new CLDRReportWriter(cldrReader, host.getProperties()));
     }
 }
@@ -0,0 +1,118 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.impl;
+
+import java.util.*;
+import org.teavm.model.*;
+import org.teavm.model.instructions.AssignInstruction;
+import org.teavm.model.util.DefinitionExtractor;
+import org.teavm.model.util.UsageExtractor;
+
+/**
+ * <p>Tells where each variable of a program is defined and where it is used, for transformers that have to
+ * follow a value through the program. A definition is either {@link Phi} or {@link Instruction}, as well
+ * as a usage. Parameters have no definition.</p>
+ *
+ * @author Alexey Andreev
+ */
+class ProgramUsages {
+    private Program program;
+    private Object[] definitions;
+    private List<List<Object>> usages = new ArrayList<>();
+
+    ProgramUsages(Program program) {
+        this.program = program;
+        definitions = new Object[program.variableCount()];
+        for (int i = 0; i < program.variableCount(); ++i) {
+            usages.add(new ArrayList<Object>());
+        }
+        DefinitionExtractor defExtractor = new DefinitionExtractor();
+        UsageExtractor useExtractor = new UsageExtractor();
+        for (int i = 0; i < program.basicBlockCount(); ++i) {
+            BasicBlock block = program.basicBlockAt(i);
+            for (Phi phi : block.getPhis()) {
+                definitions[phi.getReceiver().getIndex()] = phi;
+                for (Incoming incoming : phi.getIncomings()) {
+                    usages.get(incoming.getValue().getIndex()).add(phi);
+                }
+            }
+            for (Instruction insn : block.getInstructions()) {
+                insn.acceptVisitor(defExtractor);
+                for (Variable var : defExtractor.getDefinedVariables()) {
+                    definitions[var.getIndex()] = insn;
+                }
+                insn.acceptVisitor(useExtractor);
+                for (Variable var : useExtractor.getUsedVariables()) {
+                    usages.get(var.getIndex()).add(insn);
+                }
+            }
+        }
+        removeDeadCopies();
+    }
+
+    public Object getDefinition(Variable var) {
+        return definitions[var.getIndex()];
+    }
+
+    public List<Object> getUsages(Variable var) {
+        return usages.get(var.getIndex());
+    }
+
+    /**
+     * Removes usages by phis and assignments whose results are never used. Parser produces such phis
+     * for every local variable slot, so they often join unrelated values that happen to share a slot.
+     */
+    private void removeDeadCopies() {
+        boolean[] live = new boolean[program.variableCount()];
+        Deque<Variable> stack = new ArrayDeque<>();
+        for (int i = 0; i < usages.size(); ++i) {
+            for (Object usage : usages.get(i)) {
+                if (!(usage instanceof Phi) && !(usage instanceof AssignInstruction)) {
+                    live[i] = true;
+                    stack.push(program.variableAt(i));
+                    break;
+                }
+            }
+        }
+        while (!stack.isEmpty()) {
+            Object definition = definitions[stack.pop().getIndex()];
+            List<Variable> sources = new ArrayList<>();
+            if (definition instanceof Phi) {
+                for (Incoming incoming : ((Phi)definition).getIncomings()) {
+                    sources.add(incoming.getValue());
+                }
+            } else if (definition instanceof AssignInstruction) {
+                sources.add(((AssignInstruction)definition).getAssignee());
+            }
+            for (Variable source : sources) {
+                if (!live[source.getIndex()]) {
+                    live[source.getIndex()] = true;
+                    stack.push(source);
+                }
+            }
+        }
+        for (List<Object> variableUsages : usages) {
+            for (Iterator<Object> iter = variableUsages.iterator(); iter.hasNext();) {
+                Object usage = iter.next();
+                Variable receiver = usage instanceof Phi ? ((Phi)usage).getReceiver()
+                        : usage instanceof AssignInstruction ? ((AssignInstruction)usage).getReceiver() : null;
+                if (receiver != null && !live[receiver.getIndex()]) {
+                    iter.remove();
+                }
+            }
+        }
+    }
+}
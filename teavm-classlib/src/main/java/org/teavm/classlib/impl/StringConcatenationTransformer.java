@@ -0,0 +1,268 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.impl;
+
+import java.util.*;
+import org.teavm.common.Graph;
+import org.teavm.model.*;
+import org.teavm.model.instructions.*;
+import org.teavm.model.util.ProgramUtils;
+
+/**
+ * <p>Replaces chains of <code>StringBuilder</code> calls, that javac generates for string concatenation,
+ * by calls to <code>StringConcatenation</code>, which builds the string natively without a buffer. A chain
+ * starts with creation of a builder and ends with its <code>toString</code>, and the builder must not be used
+ * in any other way. Calls of a chain either follow each other in a single basic block, or are linked by
+ * <code>append</code> results, as in <code>a + (c ? b : d)</code>. In the latter case a call must not
+ * be repeated without its predecessor, so that a builder in a loop is left as is.</p>
+ *
+ * @author Alexey Andreev
+ */
+public class StringConcatenationTransformer implements ClassHolderTransformer {
+    private static final String BUILDER = "java.lang.StringBuilder";
+    private static final String CONCATENATION = "java.lang.StringConcatenation";
+    private static final ValueType BUILDER_TYPE = ValueType.object(BUILDER);
+    private static final ValueType OBJECT_TYPE = ValueType.object("java.lang.Object");
+    private static final MethodDescriptor TO_STRING = new MethodDescriptor("toString", String.class);
+    private static final MethodReference EMPTY = new MethodReference(CONCATENATION, "empty", OBJECT_TYPE);
+    private static final MethodReference START = new MethodReference(CONCATENATION, "start",
+            ValueType.object("java.lang.String"), OBJECT_TYPE);
+    private static final MethodReference BUILD = new MethodReference(CONCATENATION, "build", OBJECT_TYPE,
+            ValueType.object("java.lang.String"));
+    private static final Map<MethodDescriptor, MethodReference> APPENDS = new HashMap<>();
+
+    static {
+        Class<?>[] types = { String.class, Object.class, boolean.class, char.class, int.class, long.class,
+                float.class, double.class };
+        for (Class<?> type : types) {
+            APPENDS.put(new MethodDescriptor("append", type, StringBuilder.class), new MethodReference(
+                    CONCATENATION, "append", OBJECT_TYPE, ValueType.parse(type), OBJECT_TYPE));
+        }
+    }
+
+    @Override
+    public void transformClass(ClassHolder cls, ClassReaderSource innerSource) {
+        if (innerSource.get(CONCATENATION) == null) {
+            return;
+        }
+        for (MethodHolder method : cls.getMethods()) {
+            if (method.getProgram() != null) {
+                new ProgramTransformation(method.getProgram()).transform();
+            }
+        }
+    }
+
+    private static class ProgramTransformation {
+        private Program program;
+        private ProgramUsages usages;
+        private Graph cfg;
+
+        ProgramTransformation(Program program) {
+            this.program = program;
+        }
+
+        void transform() {
+            List<ConstructInstruction> constructions = new ArrayList<>();
+            for (int i = 0; i < program.basicBlockCount(); ++i) {
+                for (Instruction insn : program.basicBlockAt(i).getInstructions()) {
+                    if (insn instanceof ConstructInstruction
+                            && ((ConstructInstruction)insn).getType().equals(BUILDER)) {
+                        constructions.add((ConstructInstruction)insn);
+                    }
+                }
+            }
+            if (constructions.isEmpty()) {
+                return;
+            }
+            usages = new ProgramUsages(program);
+            for (ConstructInstruction construction : constructions) {
+                List<InvokeInstruction> chain = findChain(construction);
+                if (chain != null) {
+                    replace(construction, chain);
+                }
+            }
+        }
+
+        /**
+         * Returns calls on the builder in order of their execution, or <code>null</code> if the builder is
+         * used in any other way, or the order can't be told.
+         */
+        private List<InvokeInstruction> findChain(ConstructInstruction construction) {
+            // Calls are grouped by the instruction that produced the builder they are called on, which is
+            // either construction or append
+            Map<Instruction, List<InvokeInstruction>> groups = new HashMap<>();
+            Map<Variable, Instruction> origins = new HashMap<>();
+            Deque<Variable> stack = new ArrayDeque<>();
+            origins.put(construction.getReceiver(), construction);
+            stack.push(construction.getReceiver());
+            int callCount = 0;
+            while (!stack.isEmpty()) {
+                Variable var = stack.pop();
+                Instruction origin = origins.get(var);
+                for (Object usage : usages.getUsages(var)) {
+                    if (usage instanceof AssignInstruction) {
+                        Variable alias = ((AssignInstruction)usage).getReceiver();
+                        origins.put(alias, origin);
+                        stack.push(alias);
+                        continue;
+                    }
+                    if (!(usage instanceof InvokeInstruction) || !isChainCall((InvokeInstruction)usage, var)) {
+                        return null;
+                    }
+                    InvokeInstruction invoke = (InvokeInstruction)usage;
+                    List<InvokeInstruction> group = groups.get(origin);
+                    if (group == null) {
+                        group = new ArrayList<>();
+                        groups.put(origin, group);
+                    }
+                    group.add(invoke);
+                    ++callCount;
+                    if (APPENDS.containsKey(invoke.getMethod().getDescriptor()) && invoke.getReceiver() != null) {
+                        origins.put(invoke.getReceiver(), invoke);
+                        stack.push(invoke.getReceiver());
+                    }
+                }
+            }
+            List<InvokeInstruction> chain = new ArrayList<>();
+            Instruction origin = construction;
+            while (origin != null) {
+                List<InvokeInstruction> group = groups.get(origin);
+                if (group == null || !isExecutedOnce(group, origin)) {
+                    return null;
+                }
+                final List<Instruction> instructions = group.get(0).getBasicBlock().getInstructions();
+                Collections.sort(group, new Comparator<InvokeInstruction>() {
+                    @Override
+                    public int compare(InvokeInstruction o1, InvokeInstruction o2) {
+                        return Integer.compare(instructions.indexOf(o1), instructions.indexOf(o2));
+                    }
+                });
+                origin = null;
+                for (int i = 0; i < group.size(); ++i) {
+                    InvokeInstruction invoke = group.get(i);
+                    boolean constructor = invoke.getType() == InvocationType.SPECIAL;
+                    if (constructor != chain.isEmpty()) {
+                        return null;
+                    }
+                    if (groups.containsKey(invoke) || invoke.getMethod().getDescriptor().equals(TO_STRING)) {
+                        // Chain goes on with the builder that this call returns, or ends with the string
+                        if (i != group.size() - 1) {
+                            return null;
+                        }
+                        origin = groups.containsKey(invoke) ? invoke : null;
+                    }
+                    chain.add(invoke);
+                }
+            }
+            if (chain.size() != callCount || !chain.get(chain.size() - 1).getMethod().getDescriptor()
+                    .equals(TO_STRING)) {
+                return null;
+            }
+            return chain;
+        }
+
+        private boolean isChainCall(InvokeInstruction invoke, Variable builder) {
+            if (invoke.getInstance() != builder || invoke.getArguments().contains(builder)
+                    || !invoke.getMethod().getClassName().equals(BUILDER)) {
+                return false;
+            }
+            MethodDescriptor desc = invoke.getMethod().getDescriptor();
+            if (invoke.getType() == InvocationType.SPECIAL) {
+                return desc.getName().equals("<init>") && (desc.parameterCount() == 0
+                        || desc.parameterCount() == 1 && (desc.parameterType(0).equals(ValueType.INTEGER)
+                        || desc.parameterType(0).isObject("java.lang.String")));
+            }
+            return APPENDS.containsKey(desc) || desc.equals(TO_STRING);
+        }
+
+        /**
+         * Checks that calls of a group, all of them in a single basic block, run at most once after the
+         * given instruction, which produced the builder they are called on.
+         */
+        private boolean isExecutedOnce(List<InvokeInstruction> group, Instruction origin) {
+            BasicBlock block = group.get(0).getBasicBlock();
+            for (InvokeInstruction invoke : group) {
+                if (invoke.getBasicBlock() != block) {
+                    return false;
+                }
+            }
+            BasicBlock originBlock = origin.getBasicBlock();
+            if (originBlock == block) {
+                return true;
+            }
+            // The block must not be reached again without passing through the origin
+            if (cfg == null) {
+                cfg = ProgramUtils.buildControlFlowGraphWithTryCatch(program);
+            }
+            boolean[] visited = new boolean[cfg.size()];
+            visited[originBlock.getIndex()] = true;
+            Deque<Integer> stack = new ArrayDeque<>();
+            stack.push(block.getIndex());
+            while (!stack.isEmpty()) {
+                for (int next : cfg.outgoingEdges(stack.pop())) {
+                    if (next == block.getIndex()) {
+                        return false;
+                    }
+                    if (!visited[next]) {
+                        visited[next] = true;
+                        stack.push(next);
+                    }
+                }
+            }
+            return true;
+        }
+
+        private void replace(ConstructInstruction construction, List<InvokeInstruction> chain) {
+            // Builder variables are kept defined, since dead phis may still refer to them
+            NullConstantInstruction nullConstant = new NullConstantInstruction();
+            nullConstant.setReceiver(construction.getReceiver());
+            replace(construction, nullConstant);
+            Variable string = null;
+            for (InvokeInstruction invoke : chain) {
+                InvokeInstruction replacement = new InvokeInstruction();
+                replacement.setType(InvocationType.SPECIAL);
+                MethodDescriptor desc = invoke.getMethod().getDescriptor();
+                if (invoke.getType() == InvocationType.SPECIAL) {
+                    if (desc.parameterCount() == 1 && desc.parameterType(0).isObject("java.lang.String")) {
+                        replacement.setMethod(START);
+                        replacement.getArguments().add(invoke.getArguments().get(0));
+                    } else {
+                        replacement.setMethod(EMPTY);
+                    }
+                    replacement.setReceiver(program.createVariable());
+                } else if (desc.equals(TO_STRING)) {
+                    replacement.setMethod(BUILD);
+                    replacement.getArguments().add(string);
+                    replacement.setReceiver(invoke.getReceiver());
+                } else {
+                    replacement.setMethod(APPENDS.get(desc));
+                    replacement.getArguments().add(string);
+                    replacement.getArguments().add(invoke.getArguments().get(0));
+                    replacement.setReceiver(invoke.getReceiver() != null ? invoke.getReceiver()
+                            : program.createVariable());
+                }
+                string = replacement.getReceiver();
+                replace(invoke, replacement);
+            }
+        }
+
+        private void replace(Instruction insn, Instruction replacement) {
+            replacement.setLocation(insn.getLocation());
+            List<Instruction> instructions = insn.getBasicBlock().getInstructions();
+            instructions.set(instructions.indexOf(insn), replacement);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.impl.unicode;
+
+import java.io.*;
+
+/**
+ * <p>Converts CLDR JSON files into the index that {@link CLDRReader} reads, and stores it into the given
+ * directory of class library's classes.</p>
+ *
+ * @author Alexey Andreev
+ */
+public final class CLDRIndexBuilder {
+    private CLDRIndexBuilder() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: classes-directory");
+            System.exit(1);
+        }
+        File file = new File(args[0], CLDRReader.INDEX_RESOURCE);
+        file.getParentFile().mkdirs();
+        CLDRReader reader = new CLDRReader(CLDRIndexBuilder.class.getClassLoader());
+        try (OutputStream output = new BufferedOutputStream(new FileOutputStream(file))) {
+            reader.writeIndex(output);
+        }
+    }
+}
@@ -15,21 +15,32 @@
  */
 package org.teavm.classlib.impl.unicode;
 
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.*;
+import java.nio.charset.Charset;
 import java.util.*;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
+import java.util.zip.*;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 
 /**
+ * <p>Reads CLDR data of locales listed in <code>java.util.Locale.available</code> property. Data is taken from
+ * {@link #INDEX_RESOURCE} that is built from CLDR JSON files by {@link CLDRIndexBuilder} along with the class
+ * library. The index keeps every locale in a separate record, so data of other locales is skipped without
+ * being parsed. When the index is missing, JSON files are parsed instead.</p>
+ *
+ * <p>Supplemental data (likely subtags and week data) is restricted to available languages and countries
+ * as well. The reader keeps track of excluded data, so that {@link CLDRReportWriter} could estimate how much
+ * generated code was saved.</p>
  *
  * @author Alexey Andreev
  */
 public class CLDRReader {
+    public static final String INDEX_RESOURCE = "org/teavm/classlib/impl/unicode/cldr-index.bin";
+    private static final String JSON_RESOURCE = "org/teavm/classlib/impl/unicode/cldr-json.zip";
+    private static final int INDEX_MAGIC = 0x434C4452;
+    private static final int INDEX_VERSION = 1;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
     private static String[] weekdayKeys = { "sun", "mon", "tue", "wed", "thu", "fri", "sat" };
     private Map<String, CLDRLocale> knownLocales = new LinkedHashMap<>();
     private Map<String, Integer> minDaysMap = new LinkedHashMap<>();
@@ -38,7 +49,11 @@ public class CLDRReader {
     private Set<String> availableLocales = new LinkedHashSet<>();
     private Set<String> availableLanguages = new LinkedHashSet<>();
     private Set<String> availableCountries = new LinkedHashSet<>();
+    private Map<String, Integer> excludedLocales = new LinkedHashMap<>();
+    private int excludedSupplementalEntries;
+    private int excludedSupplementalSize;
     private boolean initialized;
+    private boolean unrestricted;
     private Properties properties;
     private ClassLoader classLoader;
 
@@ -47,12 +62,39 @@ public class CLDRReader {
         this.classLoader = classLoader;
     }
 
+    /**
+     * <p>Creates a reader that reads JSON files of all locales, including names of all languages and
+     * countries. Only intended to build the index.</p>
+     */
+    CLDRReader(ClassLoader classLoader) {
+        this(new Properties(), classLoader);
+        unrestricted = true;
+    }
+
     private synchronized void ensureInitialized() {
         if (!initialized) {
             initialized = true;
-            findAvailableLocales(properties);
-            readCLDR(classLoader);
+            if (unrestricted) {
+                readCLDR(classLoader);
+            } else {
+                findAvailableLocales(properties);
+                if (!readIndex(classLoader)) {
+                    readCLDR(classLoader);
+                }
+                restrictSupplementalData();
+            }
+        }
+    }
+
+    public synchronized boolean isInitialized() {
+        return initialized;
+    }
+
+    private boolean isLocaleIncluded(String localeName) {
+        if (localeName.equals("supplemental")) {
+            return false;
         }
+        return unrestricted || localeName.equals("root") || availableLocales.contains(localeName);
     }
 
     private void findAvailableLocales(Properties properties) {
@@ -74,8 +116,7 @@ public class CLDRReader {
     }
 
     private void readCLDR(ClassLoader classLoader) {
-        try (ZipInputStream input = new ZipInputStream(classLoader.getResourceAsStream(
-                "org/teavm/classlib/impl/unicode/cldr-json.zip"))) {
+        try (ZipInputStream input = new ZipInputStream(classLoader.getResourceAsStream(JSON_RESOURCE))) {
             while (true) {
                 ZipEntry entry = input.getNextEntry();
                 if (entry == null) {
@@ -96,7 +137,7 @@ public class CLDRReader {
                 if (localeName.startsWith("/")) {
                     localeName = localeName.substring(1);
                 }
-                if (!localeName.equals("root") && !availableLocales.contains(localeName)) {
+                if (!isLocaleIncluded(localeName)) {
                     continue;
                 }
                 CLDRLocale localeInfo = knownLocales.get(localeName);
@@ -112,7 +153,7 @@ public class CLDRReader {
                         readCountries(localeName, localeInfo, input);
                         break;
                     case "ca-gregorian.json": {
-                        JsonObject root = (JsonObject)new JsonParser().parse(new InputStreamReader(input));
+                        JsonObject root = (JsonObject)new JsonParser().parse(new InputStreamReader(input, UTF8));
                         readEras(localeName, localeInfo, root);
                         readAmPms(localeName, localeInfo, root);
                         readMonths(localeName, localeInfo, root);
@@ -132,24 +173,24 @@ public class CLDRReader {
     }
 
     private void readLanguages(String localeCode, CLDRLocale locale, InputStream input) {
-        JsonObject root = (JsonObject)new JsonParser().parse(new InputStreamReader(input));
+        JsonObject root = (JsonObject)new JsonParser().parse(new InputStreamReader(input, UTF8));
         JsonObject languagesJson = root.get("main").getAsJsonObject().get(localeCode).getAsJsonObject()
                 .get("localeDisplayNames").getAsJsonObject().get("languages").getAsJsonObject();
         for (Map.Entry<String, JsonElement> property : languagesJson.entrySet()) {
             String language = property.getKey();
-            if (availableLanguages.contains(language)) {
+            if (unrestricted || availableLanguages.contains(language)) {
                 locale.languages.put(language, property.getValue().getAsString());
             }
         }
     }
 
     private void readCountries(String localeCode, CLDRLocale locale, InputStream input) {
-        JsonObject root = (JsonObject)new JsonParser().parse(new InputStreamReader(input));
+        JsonObject root = (JsonObject)new JsonParser().parse(new InputStreamReader(input, UTF8));
         JsonObject countriesJson = root.get("main").getAsJsonObject().get(localeCode).getAsJsonObject()
                 .get("localeDisplayNames").getAsJsonObject().get("territories").getAsJsonObject();
         for (Map.Entry<String, JsonElement> property : countriesJson.entrySet()) {
             String country = property.getKey();
-            if (availableCountries.contains(country)) {
+            if (unrestricted || availableCountries.contains(country)) {
                 locale.territories.put(country, property.getValue().getAsString());
             }
         }
@@ -246,7 +287,7 @@ public class CLDRReader {
     }
 
     private void readWeekData(InputStream input) {
-        JsonObject root = (JsonObject)new JsonParser().parse(new InputStreamReader(input));
+        JsonObject root = (JsonObject)new JsonParser().parse(new InputStreamReader(input, UTF8));
         JsonObject weekJson = root.get("supplemental").getAsJsonObject().get("weekData").getAsJsonObject();
         JsonObject minDaysJson = weekJson.get("minDays").getAsJsonObject();
         for (Map.Entry<String, JsonElement> property : minDaysJson.entrySet()) {
@@ -259,7 +300,7 @@ public class CLDRReader {
     }
 
     private void readLikelySubtags(InputStream input) {
-        JsonObject root = (JsonObject)new JsonParser().parse(new InputStreamReader(input));
+        JsonObject root = (JsonObject)new JsonParser().parse(new InputStreamReader(input, UTF8));
         JsonObject likelySubtagsJson = root.get("supplemental").getAsJsonObject().get("likelySubtags")
                 .getAsJsonObject();
         for (Map.Entry<String, JsonElement> property : likelySubtagsJson.entrySet()) {
@@ -267,6 +308,296 @@ public class CLDRReader {
         }
     }
 
+    private void restrictSupplementalData() {
+        Set<String> countries = new HashSet<>(availableCountries);
+        countries.add("001");
+        for (Iterator<Map.Entry<String, String>> iter = likelySubtags.entrySet().iterator(); iter.hasNext();) {
+            Map.Entry<String, String> entry = iter.next();
+            if (availableLanguages.contains(entry.getKey())) {
+                String subtags = entry.getValue();
+                countries.add(subtags.substring(subtags.lastIndexOf('_') + 1));
+            } else {
+                iter.remove();
+                ++excludedSupplementalEntries;
+                excludedSupplementalSize += estimateEntrySize(entry.getKey(), estimateResourceSize(entry.getValue()));
+            }
+        }
+        restrictWeekData(minDaysMap, countries);
+        restrictWeekData(firstDayMap, countries);
+    }
+
+    private void restrictWeekData(Map<String, Integer> weekData, Set<String> countries) {
+        for (Iterator<Map.Entry<String, Integer>> iter = weekData.entrySet().iterator(); iter.hasNext();) {
+            Map.Entry<String, Integer> entry = iter.next();
+            if (!countries.contains(entry.getKey())) {
+                iter.remove();
+                ++excludedSupplementalEntries;
+                excludedSupplementalSize += estimateEntrySize(entry.getKey(), String.valueOf(entry.getValue()).length()
+                        + 10);
+            }
+        }
+    }
+
+    /**
+     * <p>Writes data of all locales into the index. The reader must be created by
+     * {@link #CLDRReader(ClassLoader)}.</p>
+     */
+    void writeIndex(OutputStream stream) throws IOException {
+        ensureInitialized();
+        Set<String> languages = new HashSet<>();
+        Set<String> countries = new HashSet<>();
+        for (String localeName : knownLocales.keySet()) {
+            int countryIndex = localeName.indexOf('-');
+            if (countryIndex > 0) {
+                languages.add(localeName.substring(0, countryIndex));
+                countries.add(localeName.substring(countryIndex + 1));
+            } else {
+                languages.add(localeName);
+            }
+        }
+
+        DataOutputStream output = new DataOutputStream(stream);
+        output.writeInt(INDEX_MAGIC);
+        output.writeInt(INDEX_VERSION);
+        writeIntMap(output, minDaysMap);
+        writeIntMap(output, firstDayMap);
+        writeStringMap(output, likelySubtags);
+        List<byte[]> records = new ArrayList<>();
+        output.writeInt(knownLocales.size());
+        for (Map.Entry<String, CLDRLocale> entry : knownLocales.entrySet()) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            try (DataOutputStream recordOutput = new DataOutputStream(new DeflaterOutputStream(buffer))) {
+                writeLocale(recordOutput, entry.getValue());
+            }
+            byte[] record = buffer.toByteArray();
+            records.add(record);
+            output.writeUTF(entry.getKey());
+            output.writeInt(estimateLocaleSize(entry.getKey(), entry.getValue(), languages, countries));
+            output.writeInt(record.length);
+        }
+        for (byte[] record : records) {
+            output.write(record);
+        }
+        output.flush();
+    }
+
+    private boolean readIndex(ClassLoader classLoader) {
+        InputStream stream = classLoader.getResourceAsStream(INDEX_RESOURCE);
+        if (stream == null) {
+            return false;
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(stream))) {
+            if (input.readInt() != INDEX_MAGIC || input.readInt() != INDEX_VERSION) {
+                return false;
+            }
+            readIntMap(input, minDaysMap);
+            readIntMap(input, firstDayMap);
+            readStringMap(input, likelySubtags);
+            int localeCount = input.readInt();
+            String[] localeNames = new String[localeCount];
+            int[] estimatedSizes = new int[localeCount];
+            int[] recordSizes = new int[localeCount];
+            for (int i = 0; i < localeCount; ++i) {
+                localeNames[i] = input.readUTF();
+                estimatedSizes[i] = input.readInt();
+                recordSizes[i] = input.readInt();
+            }
+            for (int i = 0; i < localeCount; ++i) {
+                if (!isLocaleIncluded(localeNames[i])) {
+                    skipFully(input, recordSizes[i]);
+                    excludedLocales.put(localeNames[i], estimatedSizes[i]);
+                    continue;
+                }
+                byte[] record = new byte[recordSizes[i]];
+                input.readFully(record);
+                try (DataInputStream recordInput = new DataInputStream(new InflaterInputStream(
+                        new ByteArrayInputStream(record)))) {
+                    knownLocales.put(localeNames[i], readLocale(recordInput));
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading CLDR index", e);
+        }
+        return true;
+    }
+
+    private static void skipFully(DataInputStream input, int count) throws IOException {
+        while (count > 0) {
+            int skipped = input.skipBytes(count);
+            if (skipped <= 0) {
+                throw new EOFException();
+            }
+            count -= skipped;
+        }
+    }
+
+    private static void writeLocale(DataOutputStream output, CLDRLocale locale) throws IOException {
+        writeStringMap(output, locale.languages);
+        writeStringMap(output, locale.territories);
+        writeStrings(output, locale.eras);
+        writeStrings(output, locale.dayPeriods);
+        writeStrings(output, locale.months);
+        writeStrings(output, locale.shortMonths);
+        writeStrings(output, locale.weekdays);
+        writeStrings(output, locale.shortWeekdays);
+        writeFormats(output, locale.dateFormats);
+        writeFormats(output, locale.timeFormats);
+        writeFormats(output, locale.dateTimeFormats);
+    }
+
+    private CLDRLocale readLocale(DataInputStream input) throws IOException {
+        CLDRLocale locale = new CLDRLocale();
+        Map<String, String> languages = new LinkedHashMap<>();
+        readStringMap(input, languages);
+        for (Map.Entry<String, String> entry : languages.entrySet()) {
+            if (availableLanguages.contains(entry.getKey())) {
+                locale.languages.put(entry.getKey(), entry.getValue());
+            }
+        }
+        Map<String, String> territories = new LinkedHashMap<>();
+        readStringMap(input, territories);
+        for (Map.Entry<String, String> entry : territories.entrySet()) {
+            if (availableCountries.contains(entry.getKey())) {
+                locale.territories.put(entry.getKey(), entry.getValue());
+            }
+        }
+        locale.eras = readStrings(input);
+        locale.dayPeriods = readStrings(input);
+        locale.months = readStrings(input);
+        locale.shortMonths = readStrings(input);
+        locale.weekdays = readStrings(input);
+        locale.shortWeekdays = readStrings(input);
+        locale.dateFormats = readFormats(input);
+        locale.timeFormats = readFormats(input);
+        locale.dateTimeFormats = readFormats(input);
+        return locale;
+    }
+
+    private static void writeStrings(DataOutputStream output, String[] strings) throws IOException {
+        if (strings == null) {
+            output.writeInt(-1);
+            return;
+        }
+        output.writeInt(strings.length);
+        for (String string : strings) {
+            output.writeUTF(string);
+        }
+    }
+
+    private static String[] readStrings(DataInputStream input) throws IOException {
+        int count = input.readInt();
+        if (count < 0) {
+            return null;
+        }
+        String[] strings = new String[count];
+        for (int i = 0; i < count; ++i) {
+            strings[i] = input.readUTF();
+        }
+        return strings;
+    }
+
+    private static void writeFormats(DataOutputStream output, CLDRDateFormats formats) throws IOException {
+        output.writeBoolean(formats != null);
+        if (formats != null) {
+            output.writeUTF(formats.getShortFormat());
+            output.writeUTF(formats.getMediumFormat());
+            output.writeUTF(formats.getLongFormat());
+            output.writeUTF(formats.getFullFormat());
+        }
+    }
+
+    private static CLDRDateFormats readFormats(DataInputStream input) throws IOException {
+        if (!input.readBoolean()) {
+            return null;
+        }
+        return new CLDRDateFormats(input.readUTF(), input.readUTF(), input.readUTF(), input.readUTF());
+    }
+
+    private static void writeStringMap(DataOutputStream output, Map<String, String> map) throws IOException {
+        output.writeInt(map.size());
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            output.writeUTF(entry.getKey());
+            output.writeUTF(entry.getValue());
+        }
+    }
+
+    private static void readStringMap(DataInputStream input, Map<String, String> map) throws IOException {
+        int count = input.readInt();
+        for (int i = 0; i < count; ++i) {
+            String key = input.readUTF();
+            map.put(key, input.readUTF());
+        }
+    }
+
+    private static void writeIntMap(DataOutputStream output, Map<String, Integer> map) throws IOException {
+        output.writeInt(map.size());
+        for (Map.Entry<String, Integer> entry : map.entrySet()) {
+            output.writeUTF(entry.getKey());
+            output.writeInt(entry.getValue());
+        }
+    }
+
+    private static void readIntMap(DataInputStream input, Map<String, Integer> map) throws IOException {
+        int count = input.readInt();
+        for (int i = 0; i < count; ++i) {
+            String key = input.readUTF();
+            map.put(key, input.readInt());
+        }
+    }
+
+    /**
+     * <p>Estimates how many bytes data of a locale would take in generated code if all locales of the index
+     * were available. Estimates follow the way metadata resources are rendered, i.e. every string is wrapped
+     * into an object with <code>value</code> property.</p>
+     */
+    private static int estimateLocaleSize(String localeName, CLDRLocale locale, Set<String> languages,
+            Set<String> countries) {
+        int size = 0;
+        for (Map.Entry<String, String> entry : locale.languages.entrySet()) {
+            if (languages.contains(entry.getKey())) {
+                size += estimateEntrySize(entry.getKey(), estimateResourceSize(entry.getValue()));
+            }
+        }
+        for (Map.Entry<String, String> entry : locale.territories.entrySet()) {
+            if (countries.contains(entry.getKey())) {
+                size += estimateEntrySize(entry.getKey(), estimateResourceSize(entry.getValue()));
+            }
+        }
+        for (String[] strings : Arrays.asList(locale.eras, locale.dayPeriods, locale.months, locale.shortMonths,
+                locale.weekdays, locale.shortWeekdays)) {
+            if (strings != null) {
+                for (String string : strings) {
+                    size += estimateResourceSize(string) + 1;
+                }
+            }
+        }
+        for (CLDRDateFormats formats : Arrays.asList(locale.dateFormats, locale.timeFormats,
+                locale.dateTimeFormats)) {
+            if (formats != null) {
+                size += estimateEntrySize("shortFormat", estimateStringSize(formats.getShortFormat()))
+                        + estimateEntrySize("mediumFormat", estimateStringSize(formats.getMediumFormat()))
+                        + estimateEntrySize("longFormat", estimateStringSize(formats.getLongFormat()))
+                        + estimateEntrySize("fullFormat", estimateStringSize(formats.getFullFormat()));
+            }
+        }
+        // Every locale is a key in eleven maps: names of languages and countries, six kinds of date symbols
+        // and three kinds of date formats
+        size += 11 * estimateEntrySize(localeName, 2);
+        return size;
+    }
+
+    private static int estimateEntrySize(String key, int valueSize) {
+        return estimateStringSize(key) + valueSize + 2;
+    }
+
+    private static int estimateResourceSize(String value) {
+        return estimateStringSize(value) + 10;
+    }
+
+    private static int estimateStringSize(String string) {
+        return string.getBytes(UTF8).length + 2;
+    }
+
     private int getNumericDay(String day) {
         switch (day) {
             case "sun":
@@ -322,4 +653,23 @@ public class CLDRReader {
         ensureInitialized();
         return Collections.unmodifiableMap(likelySubtags);
     }
+
+    /**
+     * <p>Gets locales that were skipped since they are not available, along with estimated sizes of their
+     * data in generated code. Sizes are only known when data is read from the index.</p>
+     */
+    public Map<String, Integer> getExcludedLocales() {
+        ensureInitialized();
+        return Collections.unmodifiableMap(excludedLocales);
+    }
+
+    public int getExcludedSupplementalEntries() {
+        ensureInitialized();
+        return excludedSupplementalEntries;
+    }
+
+    public int getExcludedSupplementalSize() {
+        ensureInitialized();
+        return excludedSupplementalSize;
+    }
 }
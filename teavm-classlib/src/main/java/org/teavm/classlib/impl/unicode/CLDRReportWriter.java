@@ -0,0 +1,82 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.impl.unicode;
+
+import java.io.*;
+import java.util.Map;
+import java.util.Properties;
+import org.teavm.javascript.RenderingContext;
+import org.teavm.model.ClassReader;
+import org.teavm.vm.BuildTarget;
+import org.teavm.vm.spi.RendererListener;
+
+/**
+ * <p>Writes a report on locale data that was left out of generated code, since it is not needed for
+ * locales listed in <code>java.util.Locale.available</code> property. The report is written into a file of
+ * build target named by <code>java.util.Locale.report</code> property, nothing is written when the property
+ * is not set.</p>
+ *
+ * @author Alexey Andreev
+ */
+public class CLDRReportWriter implements RendererListener {
+    public static final String REPORT_PROPERTY = "java.util.Locale.report";
+    private CLDRReader reader;
+    private Properties properties;
+    private BuildTarget buildTarget;
+
+    public CLDRReportWriter(CLDRReader reader, Properties properties) {
+        this.reader = reader;
+        this.properties = properties;
+    }
+
+    @Override
+    public void begin(RenderingContext context, BuildTarget buildTarget) throws IOException {
+        this.buildTarget = buildTarget;
+    }
+
+    @Override
+    public void beforeClass(ClassReader cls) throws IOException {
+    }
+
+    @Override
+    public void afterClass(ClassReader cls) throws IOException {
+    }
+
+    @Override
+    public void complete() throws IOException {
+        String fileName = properties.getProperty(REPORT_PROPERTY);
+        if (fileName == null) {
+            return;
+        }
+        try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(buildTarget.createResource(fileName),
+                "UTF-8"))) {
+            if (!reader.isInitialized()) {
+                writer.println("Generated code does not contain locale data");
+                return;
+            }
+            writer.println("Included locales: " + reader.getKnownLocales().keySet());
+            int total = 0;
+            for (Map.Entry<String, Integer> entry : reader.getExcludedLocales().entrySet()) {
+                writer.println("Excluded locale " + entry.getKey() + ": ~" + entry.getValue() + " bytes");
+                total += entry.getValue();
+            }
+            writer.println("Excluded likely subtags and week data: " + reader.getExcludedSupplementalEntries() +
+                    " entries, ~" + reader.getExcludedSupplementalSize() + " bytes");
+            total += reader.getExcludedSupplementalSize();
+            writer.println("Total saved: ~" + total + " bytes");
+        }
+    }
+}
@@ -15,13 +15,19 @@
  */
 package org.teavm.classlib.impl.unicode;
 
-import java.util.Arrays;
-
 /**
  *
  * @author Alexey Andreev
  */
 public class UnicodeHelper {
+    /**
+     * <p>Character classes are stored in blocks of <code>1 &lt;&lt; CLASS_BLOCK_SHIFT</code> code points.
+     * Identical blocks are stored once, and a code point's class is found by looking up its block in the
+     * index first.</p>
+     */
+    public static final int CLASS_BLOCK_SHIFT = 7;
+    public static final int CLASS_BLOCK_MASK = (1 << CLASS_BLOCK_SHIFT) - 1;
+
     static char hexDigit(int value) {
         return value < 10 ? (char)('0' + value) : (char)('A' + value);
     }
@@ -30,18 +36,6 @@ public class UnicodeHelper {
         return digit <= '9' ? digit - '0' : digit - 'A' + 10;
     }
 
-    public static class Range {
-        public final int start;
-        public final int end;
-        public final byte[] data;
-
-        public Range(int start, int end, byte[] data) {
-            this.start = start;
-            this.end = end;
-            this.data = data;
-        }
-    }
-
     public static String encodeIntByte(int[] data) {
         char[] chars = new char[data.length / 2 * 5];
         int j = 0;
@@ -97,7 +91,7 @@ public class UnicodeHelper {
             byte b = bytes[i];
             if (i < bytes.length - 1 && b == bytes[i + 1]) {
                 int count = 0;
-                while (count < 16384 && i < bytes.length && bytes[i + count] == b) {
+                while (count < 16384 && i + count < bytes.length && bytes[i + count] == b) {
                     ++count;
                 }
                 i += count;
@@ -119,12 +113,26 @@ public class UnicodeHelper {
         return sb.toString();
     }
 
-    public static Range[] extractRle(String encoded) {
-        Range[] ranges = new Range[16384];
-        byte[] buffer = new byte[16384];
+    public static byte[] decompressRle(String encoded) {
+        int length = 0;
+        for (int i = 0; i < encoded.length(); ++i) {
+            byte b = decodeByte(encoded.charAt(i));
+            if (b == 64) {
+                ++i;
+                int pos = 1;
+                for (int j = 0; j < 3; ++j) {
+                    length += pos * decodeByte(encoded.charAt(++i));
+                    pos *= 0x40;
+                }
+            } else if (b >= 32) {
+                length += decodeByte(encoded.charAt(++i));
+            } else {
+                ++length;
+            }
+        }
+
+        byte[] data = new byte[length];
         int index = 0;
-        int rangeIndex = 0;
-        int codePoint = 0;
         for (int i = 0; i < encoded.length(); ++i) {
             byte b = decodeByte(encoded.charAt(i));
             int count;
@@ -133,8 +141,7 @@ public class UnicodeHelper {
                 count = 0;
                 int pos = 1;
                 for (int j = 0; j < 3; ++j) {
-                    byte digit = decodeByte(encoded.charAt(++i));
-                    count |= pos * digit;
+                    count += pos * decodeByte(encoded.charAt(++i));
                     pos *= 0x40;
                 }
             } else if (b >= 32) {
@@ -143,23 +150,65 @@ public class UnicodeHelper {
             } else {
                 count = 1;
             }
-            if (b != 0 || count < 128) {
-                if (index + count >= buffer.length) {
-                    ranges[rangeIndex++] = new Range(codePoint, codePoint + index, Arrays.copyOf(buffer, index));
-                    codePoint += index + count;
-                    index = 0;
-                }
-                while (count-- > 0) {
-                    buffer[index++] = b;
-                }
-            } else {
-                if (index > 0) {
-                    ranges[rangeIndex++] = new Range(codePoint, codePoint + index, Arrays.copyOf(buffer, index));
-                }
-                codePoint += index + count;
-                index = 0;
+            while (count-- > 0) {
+                data[index++] = b;
+            }
+        }
+        return data;
+    }
+
+    /**
+     * <p>Encodes a sequence of unsigned bytes as pairs of values and lengths of their runs. Unlike
+     * {@link #compressRle(byte[])}, this encoding is not limited to small values, but it is only compact
+     * when the sequence consists of a few long runs.</p>
+     */
+    public static String encodeRuns(byte[] data) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < data.length;) {
+            int value = data[i] & 0xFF;
+            int count = 1;
+            while (i + count < data.length && data[i + count] == data[i]) {
+                ++count;
+            }
+            i += count;
+            encodeVarInt(sb, value);
+            encodeVarInt(sb, count);
+        }
+        return sb.toString();
+    }
+
+    public static byte[] decodeRuns(String encoded, int length) {
+        byte[] data = new byte[length];
+        int index = 0;
+        int[] position = new int[1];
+        while (position[0] < encoded.length()) {
+            byte value = (byte)decodeVarInt(encoded, position);
+            int count = decodeVarInt(encoded, position);
+            while (count-- > 0) {
+                data[index++] = value;
+            }
+        }
+        return data;
+    }
+
+    private static void encodeVarInt(StringBuilder sb, int value) {
+        while (value >= 32) {
+            sb.append(encodeByte((byte)(32 | (value & 31))));
+            value >>>= 5;
+        }
+        sb.append(encodeByte((byte)value));
+    }
+
+    private static int decodeVarInt(String encoded, int[] position) {
+        int value = 0;
+        int shift = 0;
+        while (true) {
+            byte digit = decodeByte(encoded.charAt(position[0]++));
+            value |= (digit & 31) << shift;
+            if (digit < 32) {
+                return value;
             }
+            shift += 5;
         }
-        return Arrays.copyOf(ranges, rangeIndex);
     }
-}
\ No newline at end of file
+}
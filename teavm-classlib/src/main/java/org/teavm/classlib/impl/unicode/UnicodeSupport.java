@@ -15,26 +15,29 @@
  */
 package org.teavm.classlib.impl.unicode;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.*;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.teavm.common.IntegerArray;
 
 /**
+ * <p>Provides Unicode tables to native generators. The tables are computed from <code>UnicodeData.txt</code>
+ * by {@link UnicodeTableBuilder} when the class library is built and stored as {@link #TABLES_RESOURCE}.
+ * When the resource is missing, for example when the class library is run right from IDE, the tables are
+ * computed from <code>UnicodeData.txt</code> on first use.</p>
  *
  * @author Alexey Andreev
  */
 public class UnicodeSupport {
+    public static final String TABLES_RESOURCE = "unicode-tables.bin";
+    private static final int TABLES_VERSION = 1;
     private static AtomicBoolean filled = new AtomicBoolean();
     private static volatile CountDownLatch latch = new CountDownLatch(1);
     private static int[] digitValues;
-    private static byte[] classes;
+    private static byte[] classIndex;
+    private static byte[] classBlocks;
     private static Map<String, Byte> classMap = new HashMap<>();
 
     static {
@@ -70,11 +73,12 @@ public class UnicodeSupport {
         classMap.put("Pf", Character.FINAL_QUOTE_PUNCTUATION);
     }
 
-    private static void parseUnicodeData() {
+    static void parseUnicodeData() {
         IntegerArray digitValues = new IntegerArray(4096);
-        IntegerArray classes = new IntegerArray(65536);
+        byte[] classes = new byte[Character.MAX_CODE_POINT + 1];
         try (BufferedReader reader = new BufferedReader(new InputStreamReader(UnicodeHelper.class
-                .getResourceAsStream("UnicodeData.txt")))) {
+                .getResourceAsStream("UnicodeData.txt"), "UTF-8"))) {
+            int rangeStart = -1;
             while (true) {
                 String line = reader.readLine();
                 if (line == null) {
@@ -85,16 +89,22 @@ public class UnicodeSupport {
                 }
                 String[] fields = splitLine(line);
                 int charCode = parseHex(fields[0]);
-                while (classes.size() < charCode) {
-                    classes.add(0);
-                }
                 if (!fields[6].isEmpty()) {
                     int digit = Integer.parseInt(fields[6]);
                     digitValues.add(charCode);
                     digitValues.add(digit);
                 }
                 Byte charClass = classMap.get(fields[2]);
-                classes.add(charClass != null ? charClass.intValue() : 0);
+                byte classValue = charClass != null ? charClass.byteValue() : 0;
+                if (fields[1].endsWith(", First>")) {
+                    rangeStart = charCode;
+                    continue;
+                }
+                if (fields[1].endsWith(", Last>") && rangeStart >= 0) {
+                    Arrays.fill(classes, rangeStart, charCode, classValue);
+                    rangeStart = -1;
+                }
+                classes[charCode] = classValue;
             }
         } catch (IOException e) {
             throw new RuntimeException("Error reading unicode data", e);
@@ -117,9 +127,69 @@ public class UnicodeSupport {
             letterDigitValues.add(i - '\uFF41' + 10);
         }
         UnicodeSupport.digitValues = mergePairs(digitValues.getAll(), letterDigitValues.getAll());
-        UnicodeSupport.classes = new byte[classes.size()];
-        for (int i = 0; i < classes.size(); ++i) {
-            UnicodeSupport.classes[i] = (byte)classes.get(i);
+        buildClassTables(classes);
+    }
+
+    private static void buildClassTables(byte[] classes) {
+        int blockSize = 1 << UnicodeHelper.CLASS_BLOCK_SHIFT;
+        byte[] index = new byte[classes.length >> UnicodeHelper.CLASS_BLOCK_SHIFT];
+        Map<ByteBuffer, Integer> blockMap = new HashMap<>();
+        ByteArrayOutputStream blocks = new ByteArrayOutputStream();
+        for (int i = 0; i < index.length; ++i) {
+            int offset = i << UnicodeHelper.CLASS_BLOCK_SHIFT;
+            ByteBuffer key = ByteBuffer.wrap(classes, offset, blockSize);
+            Integer block = blockMap.get(key);
+            if (block == null) {
+                block = blockMap.size();
+                if (block > 0xFF) {
+                    throw new IllegalStateException("Too many distinct blocks of character classes");
+                }
+                blockMap.put(key, block);
+                blocks.write(classes, offset, blockSize);
+            }
+            index[i] = (byte)block.intValue();
+        }
+        classIndex = index;
+        classBlocks = blocks.toByteArray();
+    }
+
+    static void writeTables(OutputStream stream) throws IOException {
+        DataOutputStream output = new DataOutputStream(stream);
+        output.writeInt(TABLES_VERSION);
+        output.writeInt(digitValues.length);
+        for (int value : digitValues) {
+            output.writeInt(value);
+        }
+        output.writeInt(classIndex.length);
+        output.write(classIndex);
+        output.writeInt(classBlocks.length);
+        output.write(classBlocks);
+        output.flush();
+    }
+
+    private static boolean readTables() {
+        InputStream stream = UnicodeSupport.class.getResourceAsStream(TABLES_RESOURCE);
+        if (stream == null) {
+            return false;
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(stream))) {
+            if (input.readInt() != TABLES_VERSION) {
+                return false;
+            }
+            int[] digitValues = new int[input.readInt()];
+            for (int i = 0; i < digitValues.length; ++i) {
+                digitValues[i] = input.readInt();
+            }
+            byte[] classIndex = new byte[input.readInt()];
+            input.readFully(classIndex);
+            byte[] classBlocks = new byte[input.readInt()];
+            input.readFully(classBlocks);
+            UnicodeSupport.digitValues = digitValues;
+            UnicodeSupport.classIndex = classIndex;
+            UnicodeSupport.classBlocks = classBlocks;
+            return true;
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading unicode tables", e);
         }
     }
 
@@ -176,7 +246,9 @@ public class UnicodeSupport {
 
     private static void ensureUnicodeData() {
         if (filled.compareAndSet(false, true)) {
-            parseUnicodeData();
+            if (!readTables()) {
+                parseUnicodeData();
+            }
             latch.countDown();
             latch = null;
         } else {
@@ -197,8 +269,17 @@ public class UnicodeSupport {
         return digitValues;
     }
 
-    public static byte[] getClasses() {
+    /**
+     * <p>Returns the first level of character class table. For every block of code points it contains
+     * an unsigned number of block in {@link #getClassBlocks()}.</p>
+     */
+    public static byte[] getClassIndex() {
+        ensureUnicodeData();
+        return classIndex;
+    }
+
+    public static byte[] getClassBlocks() {
         ensureUnicodeData();
-        return classes;
+        return classBlocks;
     }
 }
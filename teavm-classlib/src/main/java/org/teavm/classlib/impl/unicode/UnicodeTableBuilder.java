@@ -0,0 +1,43 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.impl.unicode;
+
+import java.io.*;
+
+/**
+ * <p>Computes Unicode tables from <code>UnicodeData.txt</code> and stores them into the given directory of
+ * class library's classes, so that compiler does not have to parse the whole database again.</p>
+ *
+ * @author Alexey Andreev
+ */
+public final class UnicodeTableBuilder {
+    private UnicodeTableBuilder() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: classes-directory");
+            System.exit(1);
+        }
+        String packagePath = UnicodeTableBuilder.class.getPackage().getName().replace('.', '/');
+        File file = new File(new File(args[0], packagePath), UnicodeSupport.TABLES_RESOURCE);
+        file.getParentFile().mkdirs();
+        UnicodeSupport.parseUnicodeData();
+        try (OutputStream output = new BufferedOutputStream(new FileOutputStream(file))) {
+            UnicodeSupport.writeTables(output);
+        }
+    }
+}
@@ -45,8 +45,11 @@ public class CharacterNativeGenerator implements Generator, DependencyPlugin {
             case "obtainDigitMapping":
                 generateObtainDigitMapping(writer);
                 break;
-            case "obtainClasses":
-                generateObtainClasses(writer);
+            case "obtainClassIndex":
+                generateObtainClassIndex(writer);
+                break;
+            case "obtainClassBlocks":
+                generateObtainClassBlocks(writer);
                 break;
         }
     }
@@ -55,7 +58,8 @@ public class CharacterNativeGenerator implements Generator, DependencyPlugin {
     public void methodAchieved(DependencyAgent agent, MethodDependency method) {
         switch (method.getReference().getName()) {
             case "obtainDigitMapping":
-            case "obtainClasses":
+            case "obtainClassIndex":
+            case "obtainClassBlocks":
                 method.getResult().propagate(agent.getType("java.lang.String"));
                 break;
         }
@@ -68,8 +72,15 @@ public class CharacterNativeGenerator implements Generator, DependencyPlugin {
         writer.append(");").softNewLine();
     }
 
-    private void generateObtainClasses(SourceWriter writer) throws IOException {
-        String str = UnicodeHelper.compressRle(UnicodeSupport.getClasses());
+    private void generateObtainClassIndex(SourceWriter writer) throws IOException {
+        String str = UnicodeHelper.encodeRuns(UnicodeSupport.getClassIndex());
+        writer.append("return $rt_str(");
+        splitString(writer, str);
+        writer.append(");").softNewLine();
+    }
+
+    private void generateObtainClassBlocks(SourceWriter writer) throws IOException {
+        String str = UnicodeHelper.compressRle(UnicodeSupport.getClassBlocks());
         writer.append("return $rt_str(");
         splitString(writer, str);
         writer.append(");").softNewLine();
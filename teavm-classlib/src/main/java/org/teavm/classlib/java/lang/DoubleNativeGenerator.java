@@ -17,20 +17,36 @@ package org.teavm.classlib.java.lang;
 
 import java.io.IOException;
 import org.teavm.codegen.SourceWriter;
+import org.teavm.dependency.DependencyAgent;
+import org.teavm.dependency.DependencyPlugin;
+import org.teavm.dependency.MethodDependency;
 import org.teavm.javascript.ni.Generator;
 import org.teavm.javascript.ni.GeneratorContext;
 import org.teavm.javascript.ni.Injector;
 import org.teavm.javascript.ni.InjectorContext;
+import org.teavm.model.FieldReference;
 import org.teavm.model.MethodReference;
 
 /**
  *
  * @author Alexey Andreev
  */
-public class DoubleNativeGenerator implements Generator, Injector {
+public class DoubleNativeGenerator implements Generator, Injector, DependencyPlugin {
+    @Override
+    public void methodAchieved(DependencyAgent agent, MethodDependency method) {
+        switch (method.getReference().getName()) {
+            case "toString":
+                method.getResult().propagate(agent.getType("java.lang.String"));
+                break;
+        }
+    }
+
     @Override
     public void generate(GeneratorContext context, SourceWriter writer, MethodReference methodRef) throws IOException {
         switch (methodRef.getName()) {
+            case "toString":
+                generateToString(context, writer);
+                break;
             case "isNaN":
                 generateIsNaN(context, writer);
                 break;
@@ -46,6 +62,12 @@ public class DoubleNativeGenerator implements Generator, Injector {
             case "getNaN":
                 context.getWriter().append("NaN");
                 break;
+            case "parseNative":
+                context.getWriter().append("parseFloat(");
+                context.writeExpr(context.getArgument(0));
+                context.getWriter().append('.').appendField(new FieldReference("java.lang.String", "nativeString"))
+                        .append(")");
+                break;
         }
     }
 
@@ -58,4 +80,96 @@ public class DoubleNativeGenerator implements Generator, Injector {
         writer.append("return (isFinite(").append(context.getParameterName(1)).append(")").ws().append("?")
                 .ws().append("0").ws().append(":").ws().append("1").append(");").softNewLine();
     }
+
+    private void generateToString(GeneratorContext context, SourceWriter writer) throws IOException {
+        String value = context.getParameterName(1);
+        generateSpecialValues(writer, value);
+        // Engine gives the shortest digits that round-trip, though Java never prints less than two of them
+        writer.append("var s").ws().append("=").ws().append("v.toExponential();").softNewLine();
+        writer.append("if").ws().append("(s.indexOf('e')").ws().append("===").ws().append("1)").ws()
+                .append("{").indent().softNewLine();
+        writer.append("s").ws().append("=").ws().append("v.toExponential(1);").softNewLine();
+        generateRoundHalfEven(writer);
+        writer.outdent().append("}").softNewLine();
+        generateJavaFormat(writer);
+    }
+
+    /**
+     * Writes code that returns Java representation of NaN, infinities and zeros, and otherwise
+     * leaves sign of the given value in <code>sign</code> variable and its absolute value in <code>v</code>.
+     */
+    static void generateSpecialValues(SourceWriter writer, String value) throws IOException {
+        writer.append("if").ws().append("(" + value).ws().append("!==").ws().append(value + ")").ws().append("{")
+                .indent().softNewLine();
+        writer.append("return $rt_str(\"NaN\");").softNewLine();
+        writer.outdent().append("}").softNewLine();
+        writer.append("if").ws().append("(" + value).ws().append("===").ws().append("0)").ws().append("{").indent()
+                .softNewLine();
+        writer.append("return $rt_str(1").ws().append("/").ws().append(value).ws().append("<").ws().append("0")
+                .ws().append("?").ws().append("\"-0.0\"").ws().append(":").ws().append("\"0.0\");").softNewLine();
+        writer.outdent().append("}").softNewLine();
+        writer.append("var sign").ws().append("=").ws().append(value).ws().append("<").ws().append("0").ws()
+                .append("?").ws().append("\"-\"").ws().append(":").ws().append("\"\";").softNewLine();
+        writer.append("var v").ws().append("=").ws().append("Math.abs(" + value + ");").softNewLine();
+        writer.append("if").ws().append("(v").ws().append("===").ws().append("Infinity)").ws().append("{")
+                .indent().softNewLine();
+        writer.append("return $rt_str(sign").ws().append("+").ws().append("\"Infinity\");").softNewLine();
+        writer.outdent().append("}").softNewLine();
+    }
+
+    /**
+     * Writes code that fixes digits in <code>s</code> variable, produced by <code>toExponential</code> with
+     * explicit number of digits, when <code>v</code> lies exactly between two decimals. JavaScript takes the
+     * larger one, while Java takes the one that ends with even digit.
+     */
+    static void generateRoundHalfEven(SourceWriter writer) throws IOException {
+        writer.append("var last").ws().append("=").ws().append("s.indexOf('e')").ws().append("-").ws()
+                .append("1;").softNewLine();
+        writer.append("var next").ws().append("=").ws().append("v.toExponential(last);").softNewLine();
+        writer.append("if").ws().append("((s.charCodeAt(last)").ws().append("&").ws().append("1)").ws()
+                .append("!==").ws().append("0").ws().append("&&").ws().append("next.charAt(last").ws().append("+")
+                .ws().append("1)").ws().append("===").ws().append("'5'").ws().append("&&").ws()
+                .append("parseFloat(next)").ws().append("===").ws().append("v)").ws().append("{").indent()
+                .softNewLine();
+        writer.append("s").ws().append("=").ws().append("s.substring(0,").ws().append("last)").ws().append("+")
+                .ws().append("String.fromCharCode(s.charCodeAt(last)").ws().append("-").ws().append("1)").ws()
+                .append("+").ws().append("s.substring(last").ws().append("+").ws().append("1);").softNewLine();
+        writer.outdent().append("}").softNewLine();
+    }
+
+    /**
+     * Writes code that takes decimal digits and exponent from <code>s</code> variable, written in exponential
+     * notation of JavaScript, and returns string in format of Java, that prints numbers from
+     * <code>10<sup>-3</sup></code> to <code>10<sup>7</sup></code> in plain notation and others
+     * in computerized scientific notation, always keeping at least one digit after decimal point.
+     */
+    static void generateJavaFormat(SourceWriter writer) throws IOException {
+        writer.append("var e").ws().append("=").ws().append("s.indexOf('e');").softNewLine();
+        writer.append("var exp").ws().append("=").ws().append("parseInt(s.substring(e").ws().append("+").ws()
+                .append("1),").ws().append("10);").softNewLine();
+        writer.append("var digits").ws().append("=").ws().append("s.charAt(0)").ws().append("+").ws()
+                .append("s.substring(2,").ws().append("e).replace(/0+$/,").ws().append("\"\");").softNewLine();
+        writer.append("if").ws().append("(exp").ws().append("<").ws().append("-3").ws().append("||").ws()
+                .append("exp").ws().append(">=").ws().append("7)").ws().append("{").indent().softNewLine();
+        writer.append("return $rt_str(sign").ws().append("+").ws().append("digits.charAt(0)").ws().append("+")
+                .ws().append("\".\"").ws().append("+").ws().append("(digits.length").ws().append(">").ws()
+                .append("1").ws().append("?").ws().append("digits.substring(1)").ws().append(":").ws()
+                .append("\"0\")").ws().append("+").ws().append("\"E\"").ws().append("+").ws().append("exp);")
+                .softNewLine();
+        writer.outdent().append("}").softNewLine();
+        writer.append("if").ws().append("(exp").ws().append("<").ws().append("0)").ws().append("{").indent()
+                .softNewLine();
+        writer.append("return $rt_str(sign").ws().append("+").ws().append("\"0.00\".substring(0,").ws()
+                .append("1").ws().append("-").ws().append("exp)").ws().append("+").ws().append("digits);")
+                .softNewLine();
+        writer.outdent().append("}").softNewLine();
+        writer.append("while").ws().append("(digits.length").ws().append("<=").ws().append("exp").ws()
+                .append("+").ws().append("1)").ws().append("{").indent().softNewLine();
+        writer.append("digits").ws().append("+=").ws().append("\"0\";").softNewLine();
+        writer.outdent().append("}").softNewLine();
+        writer.append("return $rt_str(sign").ws().append("+").ws().append("digits.substring(0,").ws()
+                .append("exp").ws().append("+").ws().append("1)").ws().append("+").ws().append("\".\"").ws()
+                .append("+").ws().append("digits.substring(exp").ws().append("+").ws().append("1));")
+                .softNewLine();
+    }
 }
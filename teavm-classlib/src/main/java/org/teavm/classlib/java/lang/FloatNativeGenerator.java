@@ -17,6 +17,9 @@ package org.teavm.classlib.java.lang;
 
 import java.io.IOException;
 import org.teavm.codegen.SourceWriter;
+import org.teavm.dependency.DependencyAgent;
+import org.teavm.dependency.DependencyPlugin;
+import org.teavm.dependency.MethodDependency;
 import org.teavm.javascript.ni.Generator;
 import org.teavm.javascript.ni.GeneratorContext;
 import org.teavm.javascript.ni.Injector;
@@ -27,16 +30,31 @@ import org.teavm.model.MethodReference;
  *
  * @author Alexey Andreev
  */
-public class FloatNativeGenerator implements Generator, Injector {
+public class FloatNativeGenerator implements Generator, Injector, DependencyPlugin {
+    @Override
+    public void methodAchieved(DependencyAgent agent, MethodDependency method) {
+        switch (method.getReference().getName()) {
+            case "toString":
+                method.getResult().propagate(agent.getType("java.lang.String"));
+                break;
+        }
+    }
+
     @Override
     public void generate(GeneratorContext context, SourceWriter writer, MethodReference methodRef) throws IOException {
         switch (methodRef.getName()) {
+            case "toString":
+                generateToString(context, writer);
+                break;
             case "isNaN":
                 generateIsNaN(context, writer);
                 break;
             case "isInfinite":
                 generateIsInfinite(context, writer);
                 break;
+            case "round":
+                generateRound(context, writer);
+                break;
         }
     }
 
@@ -58,4 +76,38 @@ public class FloatNativeGenerator implements Generator, Injector {
         writer.append("return (isFinite(").append(context.getParameterName(1)).append(")").ws().append("?")
                 .ws().append("0").ws().append(":").ws().append("1").append(");").softNewLine();
     }
+
+    private void generateFround(SourceWriter writer) throws IOException {
+        writer.append("var fround").ws().append("=").ws().append("Math.fround").ws().append("||").ws()
+                .append("function(x)").ws().append("{").indent().softNewLine();
+        writer.append("var array").ws().append("=").ws().append("new Float32Array(1);").softNewLine();
+        writer.append("array[0]").ws().append("=").ws().append("x;").softNewLine();
+        writer.append("return array[0];").softNewLine();
+        writer.outdent().append("};").softNewLine();
+    }
+
+    private void generateRound(GeneratorContext context, SourceWriter writer) throws IOException {
+        generateFround(writer);
+        writer.append("return fround(").append(context.getParameterName(1)).append(");").softNewLine();
+    }
+
+    private void generateToString(GeneratorContext context, SourceWriter writer) throws IOException {
+        // Floats are not rounded to single precision by arithmetic, so round the value first
+        generateFround(writer);
+        String value = context.getParameterName(1);
+        writer.append(value).ws().append("=").ws().append("fround(" + value + ");").softNewLine();
+        DoubleNativeGenerator.generateSpecialValues(writer, value);
+        // Look for the shortest digits that round to the same float, though Java never prints less than two
+        writer.append("var s;").softNewLine();
+        writer.append("for").ws().append("(var i").ws().append("=").ws().append("1;").ws().append("i").ws()
+                .append("<").ws().append("9;").ws().append("++i)").ws().append("{").indent().softNewLine();
+        writer.append("s").ws().append("=").ws().append("v.toExponential(i);").softNewLine();
+        writer.append("if").ws().append("(fround(parseFloat(s))").ws().append("===").ws().append("v)").ws()
+                .append("{").indent().softNewLine();
+        writer.append("break;").softNewLine();
+        writer.outdent().append("}").softNewLine();
+        writer.outdent().append("}").softNewLine();
+        DoubleNativeGenerator.generateRoundHalfEven(writer);
+        DoubleNativeGenerator.generateJavaFormat(writer);
+    }
 }
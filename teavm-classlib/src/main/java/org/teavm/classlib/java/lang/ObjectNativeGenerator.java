@@ -33,7 +33,7 @@ public class ObjectNativeGenerator implements Generator, Injector, DependencyPlu
     public void generate(GeneratorContext context, SourceWriter writer, MethodReference methodRef) throws IOException {
         switch (methodRef.getDescriptor().getName()) {
             case "<init>":
-                generateInit(context, writer);
+                // Identity is assigned lazily by $rt_objectId, so there is nothing to initialize
                 break;
             case "hashCode":
             case "identity":
@@ -72,10 +72,6 @@ public class ObjectNativeGenerator implements Generator, Injector, DependencyPlu
         }
     }
 
-    private void generateInit(GeneratorContext context, SourceWriter writer) throws IOException {
-        writer.append(context.getParameterName(0)).append(".$id = $rt_nextId();").softNewLine();
-    }
-
     private void generateGetClass(InjectorContext context) throws IOException {
         SourceWriter writer = context.getWriter();
         writer.append("$rt_cls(");
@@ -90,7 +86,7 @@ public class ObjectNativeGenerator implements Generator, Injector, DependencyPlu
     }
 
     private void generateHashCode(GeneratorContext context, SourceWriter writer) throws IOException {
-        writer.append("return ").append(context.getParameterName(0)).append(".$id;").softNewLine();
+        writer.append("return $rt_objectId(").append(context.getParameterName(0)).append(");").softNewLine();
     }
 
     private void generateClone(GeneratorContext context, SourceWriter writer) throws IOException {
@@ -100,6 +96,7 @@ public class ObjectNativeGenerator implements Generator, Injector, DependencyPlu
         writer.append("if (!" + obj + ".hasOwnProperty(field)) {").softNewLine().indent();
         writer.append("continue;").softNewLine().outdent().append("}").softNewLine();
         writer.append("copy[field] = " + obj + "[field];").softNewLine().outdent().append("}").softNewLine();
+        writer.append("copy.$id = 0;").softNewLine();
         writer.append("return copy;").softNewLine();
     }
 
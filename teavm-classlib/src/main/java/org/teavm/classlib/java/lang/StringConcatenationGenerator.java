@@ -0,0 +1,68 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.lang;
+
+import java.io.IOException;
+import org.teavm.codegen.SourceWriter;
+import org.teavm.javascript.ni.Injector;
+import org.teavm.javascript.ni.InjectorContext;
+import org.teavm.model.FieldReference;
+import org.teavm.model.MethodReference;
+import org.teavm.model.ValueType;
+
+/**
+ *
+ * @author Alexey Andreev
+ */
+public class StringConcatenationGenerator implements Injector {
+    @Override
+    public void generate(InjectorContext context, MethodReference methodRef) throws IOException {
+        SourceWriter writer = context.getWriter();
+        switch (methodRef.getName()) {
+            case "empty":
+                writer.append("\"\"");
+                break;
+            case "unwrap":
+                context.writeExpr(context.getArgument(0));
+                writer.append('.').appendField(new FieldReference("java.lang.String", "nativeString"));
+                break;
+            case "concat":
+                writer.append("(");
+                context.writeExpr(context.getArgument(0));
+                writer.ws().append("+").ws().append("(");
+                context.writeExpr(context.getArgument(1));
+                writer.append("))");
+                break;
+            case "append":
+            case "appendNumber":
+                writer.append("(");
+                context.writeExpr(context.getArgument(0));
+                writer.ws().append("+").ws();
+                if (methodRef.getDescriptor().parameterType(1).equals(ValueType.CHARACTER)) {
+                    writer.append("String.fromCharCode(");
+                    context.writeExpr(context.getArgument(1));
+                    writer.append(")");
+                } else {
+                    // Engine prints integers exactly the way Java does
+                    writer.append("(");
+                    context.writeExpr(context.getArgument(1));
+                    writer.append(")");
+                }
+                writer.append(")");
+                break;
+        }
+    }
+}
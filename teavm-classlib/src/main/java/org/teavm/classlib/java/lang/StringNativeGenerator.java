@@ -16,9 +16,12 @@
 package org.teavm.classlib.java.lang;
 
 import java.io.IOException;
+import org.teavm.codegen.SourceWriter;
 import org.teavm.dependency.DependencyAgent;
 import org.teavm.dependency.DependencyPlugin;
 import org.teavm.dependency.MethodDependency;
+import org.teavm.javascript.ni.Generator;
+import org.teavm.javascript.ni.GeneratorContext;
 import org.teavm.javascript.ni.Injector;
 import org.teavm.javascript.ni.InjectorContext;
 import org.teavm.model.MethodReference;
@@ -27,7 +30,7 @@ import org.teavm.model.MethodReference;
  *
  * @author Alexey Andreev
  */
-public class StringNativeGenerator implements Injector, DependencyPlugin {
+public class StringNativeGenerator implements Generator, Injector, DependencyPlugin {
     @Override
     public void methodAchieved(DependencyAgent agent, MethodDependency method) {
         switch (method.getReference().getName()) {
@@ -37,12 +40,116 @@ public class StringNativeGenerator implements Injector, DependencyPlugin {
         }
     }
 
+    @Override
+    public void generate(GeneratorContext context, SourceWriter writer, MethodReference methodRef)
+            throws IOException {
+        switch (methodRef.getName()) {
+            case "fromCharArray":
+                generateFromCharArray(context, writer);
+                break;
+            case "fromCodePoint":
+                generateFromCodePoint(context, writer);
+                break;
+            case "getChars":
+                generateGetChars(context, writer);
+                break;
+            case "hashCode":
+                generateHashCode(context, writer);
+                break;
+        }
+    }
+
     @Override
     public void generate(InjectorContext context, MethodReference methodRef) throws IOException {
         switch (methodRef.getName()) {
             case "wrap":
                 context.writeExpr(context.getArgument(0));
                 break;
+            case "emptyNativeString":
+                context.getWriter().append("\"\"");
+                break;
+            case "length":
+                context.writeExpr(context.getArgument(0));
+                context.getWriter().append(".length");
+                break;
+            case "charAt":
+                nativeMethod(context, "charCodeAt");
+                break;
+            case "indexOf":
+                nativeMethod(context, "indexOf");
+                break;
+            case "lastIndexOf":
+                nativeMethod(context, "lastIndexOf");
+                break;
+            case "substring":
+                nativeMethod(context, "substring");
+                break;
+            case "concat":
+                context.getWriter().append("(");
+                context.writeExpr(context.getArgument(0));
+                context.getWriter().ws().append("+").ws();
+                context.writeExpr(context.getArgument(1));
+                context.getWriter().append(")");
+                break;
         }
     }
+
+    private void nativeMethod(InjectorContext context, String name) throws IOException {
+        SourceWriter writer = context.getWriter();
+        context.writeExpr(context.getArgument(0));
+        writer.append('.').append(name).append('(');
+        for (int i = 1; i < context.argumentCount(); ++i) {
+            if (i > 1) {
+                writer.append(',').ws();
+            }
+            context.writeExpr(context.getArgument(i));
+        }
+        writer.append(')');
+    }
+
+    private void generateFromCharArray(GeneratorContext context, SourceWriter writer) throws IOException {
+        String offset = context.getParameterName(2);
+        writer.append("return $rt_charsToString(").append(context.getParameterName(1)).append(".data,").ws()
+                .append(offset).append(",").ws().append("(" + offset + " + " + context.getParameterName(3) + ")")
+                .ws().append("|").ws().append("0);").softNewLine();
+    }
+
+    private void generateFromCodePoint(GeneratorContext context, SourceWriter writer) throws IOException {
+        String codePoint = context.getParameterName(1);
+        writer.append("if").ws().append("(" + codePoint + " < 0x10000)").ws().append("{").indent().softNewLine();
+        writer.append("return String.fromCharCode(" + codePoint + ");").softNewLine();
+        writer.outdent().append("}").softNewLine();
+        writer.append(codePoint).ws().append("=").ws().append("(" + codePoint + " - 0x10000)").ws().append("|")
+                .ws().append("0;").softNewLine();
+        writer.append("return String.fromCharCode(0xD800").ws().append("|").ws()
+                .append("(" + codePoint + " >> 10),").ws().append("0xDC00").ws().append("|").ws()
+                .append("(" + codePoint + " & 0x3FF));").softNewLine();
+    }
+
+    private void generateGetChars(GeneratorContext context, SourceWriter writer) throws IOException {
+        String str = context.getParameterName(1);
+        String srcBegin = context.getParameterName(2);
+        String srcEnd = context.getParameterName(3);
+        String dst = context.getParameterName(4);
+        String dstBegin = context.getParameterName(5);
+        writer.append("var data").ws().append("=").ws().append(dst).append(".data;").softNewLine();
+        writer.append("while").ws().append("(" + srcBegin + " < " + srcEnd + ")").ws().append("{").indent()
+                .softNewLine();
+        writer.append("data[" + dstBegin + "++]").ws().append("=").ws()
+                .append(str).append(".charCodeAt(" + srcBegin + "++);").softNewLine();
+        writer.outdent().append("}").softNewLine();
+    }
+
+    private void generateHashCode(GeneratorContext context, SourceWriter writer) throws IOException {
+        String str = context.getParameterName(1);
+        writer.append("var hash").ws().append("=").ws().append("0;").softNewLine();
+        writer.append("for").ws().append("(var i").ws().append("=").ws().append("0;").ws()
+                .append("i < " + str + ".length;").ws().append("i").ws().append("=").ws()
+                .append("(i + 1)").ws().append("|").ws().append("0)").ws().append("{").indent().softNewLine();
+        writer.append("hash").ws().append("=").ws().append("(31").ws().append("*").ws().append("hash").ws()
+                .append("+").ws().append(str).append(".charCodeAt(i))").ws().append("|").ws().append("0;")
+                .softNewLine();
+        writer.outdent().append("}").softNewLine();
+        writer.append("return hash;").softNewLine();
+    }
 }
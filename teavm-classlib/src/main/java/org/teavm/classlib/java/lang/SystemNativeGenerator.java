@@ -48,7 +48,7 @@ public class SystemNativeGenerator implements Generator, DependencyPlugin {
                         .ws().append('=').ws().append(context.getParameterName(1)).append(";").softNewLine();
                 break;
             case "identityHashCode":
-                writer.append("return ").append(context.getParameterName(1)).append(".$id;").softNewLine();
+                writer.append("return $rt_objectId(").append(context.getParameterName(1)).append(");").softNewLine();
                 break;
         }
     }
@@ -93,7 +93,8 @@ public class TCharacter extends TObject implements TComparable<TCharacter> {
     public static final int SIZE = 16;
     static final int ERROR = 0xFFFFFFFF;
     private static int[] digitMapping;
-    private static UnicodeHelper.Range[] classMapping;
+    private static byte[] classIndex;
+    private static byte[] classBlocks;
     private char value;
     private static TCharacter[] characterCache = new TCharacter[128];
 
@@ -283,7 +284,7 @@ public class TCharacter extends TObject implements TComparable<TCharacter> {
     }
 
     public static boolean isDigit(int codePoint) {
-        return getNumericValue(codePoint) >= 0;
+        return getType(codePoint) == DECIMAL_DIGIT_NUMBER;
     }
 
     private static int[] getDigitMapping() {
@@ -297,16 +298,19 @@ public class TCharacter extends TObject implements TComparable<TCharacter> {
     @PluggableDependency(CharacterNativeGenerator.class)
     private static native String obtainDigitMapping();
 
-    private static UnicodeHelper.Range[] getClasses() {
-        if (classMapping == null) {
-            classMapping = UnicodeHelper.extractRle(obtainClasses());
-        }
-        return classMapping;
+    private static void initClasses() {
+        classIndex = UnicodeHelper.decodeRuns(obtainClassIndex(), (MAX_CODE_POINT + 1) >>
+                UnicodeHelper.CLASS_BLOCK_SHIFT);
+        classBlocks = UnicodeHelper.decompressRle(obtainClassBlocks());
     }
 
     @GeneratedBy(CharacterNativeGenerator.class)
     @PluggableDependency(CharacterNativeGenerator.class)
-    private static native String obtainClasses();
+    private static native String obtainClassIndex();
+
+    @GeneratedBy(CharacterNativeGenerator.class)
+    @PluggableDependency(CharacterNativeGenerator.class)
+    private static native String obtainClassBlocks();
 
     public static int toChars(int codePoint, char[] dst, int dstIndex) {
         if (codePoint >= UTF16Helper.SUPPLEMENTARY_PLANE) {
@@ -388,21 +392,15 @@ public class TCharacter extends TObject implements TComparable<TCharacter> {
     }
 
     public static int getType(int codePoint) {
-        UnicodeHelper.Range[] classes = getClasses();
-        int l = 0;
-        int u = classes.length - 1;
-        while (l <= u) {
-            int i = (l + u) / 2;
-            UnicodeHelper.Range range = classes[i];
-            if (codePoint >= range.end) {
-                l = i + 1;
-            } else if (codePoint < range.start) {
-                u = i - 1;
-            } else {
-                return range.data[codePoint - range.start];
-            }
+        if (codePoint < MIN_CODE_POINT || codePoint > MAX_CODE_POINT) {
+            return UNASSIGNED;
+        }
+        if (classBlocks == null) {
+            initClasses();
         }
-        return 0;
+        int block = classIndex[codePoint >> UnicodeHelper.CLASS_BLOCK_SHIFT] & 0xFF;
+        int offset = codePoint & UnicodeHelper.CLASS_BLOCK_MASK;
+        return classBlocks[(block << UnicodeHelper.CLASS_BLOCK_SHIFT) | offset];
     }
 
     public static boolean isLowerCase(char ch) {
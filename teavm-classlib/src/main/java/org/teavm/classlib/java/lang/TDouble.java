@@ -15,6 +15,7 @@
  */
 package org.teavm.classlib.java.lang;
 
+import org.teavm.dependency.PluggableDependency;
 import org.teavm.javascript.ni.GeneratedBy;
 import org.teavm.javascript.ni.InjectedBy;
 import org.teavm.javascript.ni.Rename;
@@ -68,127 +69,87 @@ public class TDouble extends TNumber implements TComparable<TDouble> {
         return new TDouble(d);
     }
 
-    public static TString toString(double d) {
-        return TString.wrap(new TStringBuilder().append(d).toString());
-    }
+    @GeneratedBy(DoubleNativeGenerator.class)
+    @PluggableDependency(DoubleNativeGenerator.class)
+    public static native TString toString(double d);
 
     public static TDouble valueOf(TString string) {
         return valueOf(parseDouble(string));
     }
 
     public static double parseDouble(TString string) throws TNumberFormatException {
-        // TODO: parse infinite and different radix
+        // TODO: parse hexadecimal form
         string = string.trim();
-        boolean negative = false;
+        if (!isDecimal(string)) {
+            throw new TNumberFormatException();
+        }
+        return parseNative(string);
+    }
+
+    /**
+     * Tells whether the given trimmed string matches Java's grammar of decimal floating-point numbers,
+     * including <code>NaN</code> and <code>Infinity</code>. Engine's <code>parseFloat</code> reads any such
+     * string exactly the way Java does, ignoring type suffix, and is correctly rounded.
+     */
+    static boolean isDecimal(TString string) {
+        int length = string.length();
         int index = 0;
-        if (string.charAt(index) == '-') {
-            ++index;
-            negative = true;
-        } else if (string.charAt(index) == '+') {
+        if (index < length && (string.charAt(index) == '-' || string.charAt(index) == '+')) {
             ++index;
         }
-        char c = string.charAt(index);
-        if (c < '0' || c > '9') {
-            throw new TNumberFormatException();
+        if (index < length && (string.charAt(index) == 'N' || string.charAt(index) == 'I')) {
+            return length - index == 3 && string.endsWith(TString.wrap("NaN")) ||
+                    length - index == 8 && string.endsWith(TString.wrap("Infinity"));
         }
-        long mantissa = 0;
-        int exp = 0;
-        while (string.charAt(index) == '0') {
-            if (++index == string.length()) {
-                return 0;
-            }
+        int start = index;
+        index = skipDigits(string, index);
+        boolean hasDigits = index > start;
+        if (index < length && string.charAt(index) == '.') {
+            start = ++index;
+            index = skipDigits(string, index);
+            hasDigits |= index > start;
         }
-        while (index < string.length()) {
-            c = string.charAt(index);
-            if (c < '0' || c > '9') {
-                break;
-            }
-            if (mantissa < 1E17) {
-                mantissa = mantissa * 10 + (c - '0');
-            } else {
-                ++exp;
-            }
-            ++index;
+        if (!hasDigits) {
+            return false;
         }
-        if (index < string.length() && string.charAt(index) == '.') {
+        if (index < length && (string.charAt(index) == 'e' || string.charAt(index) == 'E')) {
             ++index;
-            boolean hasOneDigit = false;
-            while (index < string.length()) {
-                c = string.charAt(index);
-                if (c < '0' || c > '9') {
-                    break;
-                }
-                if (mantissa < 1E17) {
-                    mantissa = mantissa * 10 + (c - '0');
-                    --exp;
-                }
+            if (index < length && (string.charAt(index) == '-' || string.charAt(index) == '+')) {
                 ++index;
-                hasOneDigit = true;
             }
-            if (!hasOneDigit) {
-                throw new TNumberFormatException();
+            start = index;
+            index = skipDigits(string, index);
+            if (index == start) {
+                return false;
             }
         }
-        if (index < string.length()) {
-            c = string.charAt(index);
-            if (c != 'e' && c != 'E') {
-                throw new TNumberFormatException();
-            }
-            ++index;
-            boolean negativeExp = false;
-            if (string.charAt(index) == '-') {
-                ++index;
-                negativeExp = true;
-            } else if (string.charAt(index) == '+') {
-                ++index;
-            }
-            int numExp = 0;
-            boolean hasOneDigit = false;
-            while (index < string.length()) {
-                c = string.charAt(index);
-                if (c < '0' || c > '9') {
+        if (index < length) {
+            switch (string.charAt(index)) {
+                case 'f':
+                case 'F':
+                case 'd':
+                case 'D':
+                    ++index;
                     break;
-                }
-                numExp = 10 * numExp + (c - '0');
-                hasOneDigit = true;
-                ++index;
             }
-            if (!hasOneDigit) {
-                throw new TNumberFormatException();
-            }
-            if (negativeExp) {
-                numExp = -numExp;
-            }
-            exp += numExp;
-        }
-        if (exp > 308 || exp == 308 && mantissa > 17976931348623157L) {
-            return !negative ? POSITIVE_INFINITY : NEGATIVE_INFINITY;
         }
-        if (negative) {
-            mantissa = -mantissa;
-        }
-        return mantissa * decimalExponent(exp);
+        return index == length;
     }
 
-    private static double decimalExponent(int n) {
-        double d;
-        if (n < 0) {
-            d = 0.1;
-            n = -n;
-        } else {
-            d = 10;
-        }
-        double result = 1;
-        while (n != 0) {
-            if (n % 2 != 0) {
-                result *= d;
+    private static int skipDigits(TString string, int index) {
+        while (index < string.length()) {
+            char c = string.charAt(index);
+            if (c < '0' || c > '9') {
+                break;
             }
-            d *= d;
-            n /= 2;
+            ++index;
         }
-        return result;
+        return index;
     }
 
+    @InjectedBy(DoubleNativeGenerator.class)
+    static native double parseNative(TString string);
+
     @Override
     @Rename("toString")
     public TString toString0() {
@@ -15,6 +15,7 @@
  */
 package org.teavm.classlib.java.lang;
 
+import org.teavm.dependency.PluggableDependency;
 import org.teavm.javascript.ni.GeneratedBy;
 import org.teavm.javascript.ni.Rename;
 
@@ -71,9 +72,9 @@ public class TFloat extends TNumber implements TComparable<TFloat> {
         return new TFloat(d);
     }
 
-    public static TString toString(float d) {
-        return TString.wrap(new TStringBuilder().append(d).toString());
-    }
+    @GeneratedBy(FloatNativeGenerator.class)
+    @PluggableDependency(FloatNativeGenerator.class)
+    public static native TString toString(float d);
 
     @Override
     @Rename("toString")
@@ -104,116 +105,143 @@ public class TFloat extends TNumber implements TComparable<TFloat> {
     private static native float getNaN();
 
     public static float parseFloat(TString string) throws TNumberFormatException {
-        // TODO: parse infinite and different radix
+        // TODO: parse hexadecimal form
         string = string.trim();
-        boolean negative = false;
-        int index = 0;
-        if (string.charAt(index) == '-') {
-            ++index;
-            negative = true;
-        } else if (string.charAt(index) == '+') {
-            ++index;
-        }
-        char c = string.charAt(index);
-        if (c < '0' || c > '9') {
+        if (!TDouble.isDecimal(string)) {
             throw new TNumberFormatException();
         }
-        int mantissa = 0;
-        int exp = 0;
-        while (string.charAt(index) == '0') {
-            if (++index == string.length()) {
-                return 0;
+        double value = TDouble.parseNative(string);
+        float result = round(value);
+        if (result != value && !TDouble.isInfinite(value)) {
+            // Rounding the decimal to double first is only wrong when the double lands exactly in the middle
+            // between two floats, while the decimal itself does not. The tie is decided by the decimal then.
+            double nearest = isInfinite(result) ? (value > 0 ? 0x1p128 : -0x1p128) : result;
+            double other = 2 * value - nearest;
+            if (other != nearest && round(other) == other && (other + nearest) / 2 == value) {
+                int comparison = compareDecimal(string, TMath.abs(value));
+                if (value < 0) {
+                    comparison = -comparison;
+                }
+                if (comparison != 0) {
+                    result = round(comparison > 0 ? TMath.max(other, nearest) : TMath.min(other, nearest));
+                }
             }
         }
-        while (index < string.length()) {
-            c = string.charAt(index);
-            if (c < '0' || c > '9') {
-                break;
-            }
-            if (mantissa < 1E8) {
-                mantissa = mantissa * 10 + (c - '0');
-            } else {
-                ++exp;
-            }
+        return result;
+    }
+
+    @GeneratedBy(FloatNativeGenerator.class)
+    private static native float round(double value);
+
+    /**
+     * Compares the absolute value of a decimal number, that matches {@link TDouble#isDecimal(TString)},
+     * with a positive double exactly.
+     *
+     * @return a negative number, zero or a positive number when the decimal is less than, equal to or greater
+     * than the double respectively.
+     */
+    private static int compareDecimal(TString string, double value) {
+        // Digits of the decimal without leading zeros, its value is digits * 10^exponent
+        int length = string.length();
+        int index = 0;
+        if (string.charAt(index) == '-' || string.charAt(index) == '+') {
             ++index;
         }
-        if (index < string.length() && string.charAt(index) == '.') {
-            ++index;
-            boolean hasOneDigit = false;
-            while (index < string.length()) {
-                c = string.charAt(index);
-                if (c < '0' || c > '9') {
-                    break;
+        char[] digits = new char[length];
+        int digitCount = 0;
+        int exponent = 0;
+        boolean fraction = false;
+        for (; index < length; ++index) {
+            char c = string.charAt(index);
+            if (c == '.') {
+                fraction = true;
+            } else if (c >= '0' && c <= '9') {
+                if (digitCount > 0 || c != '0') {
+                    digits[digitCount++] = c;
                 }
-                if (mantissa < 1E38) {
-                    mantissa = mantissa * 10 + (c - '0');
-                    --exp;
+                if (fraction) {
+                    --exponent;
                 }
-                ++index;
-                hasOneDigit = true;
-            }
-            if (!hasOneDigit) {
-                throw new TNumberFormatException();
+            } else {
+                break;
             }
         }
-        if (index < string.length()) {
-            c = string.charAt(index);
-            if (c != 'e' && c != 'E') {
-                throw new TNumberFormatException();
-            }
+        if (index < length && (string.charAt(index) == 'e' || string.charAt(index) == 'E')) {
             ++index;
-            boolean negativeExp = false;
-            if (string.charAt(index) == '-') {
-                ++index;
-                negativeExp = true;
-            } else if (string.charAt(index) == '+') {
-                ++index;
-            }
-            int numExp = 0;
-            boolean hasOneDigit = false;
-            while (index < string.length()) {
-                c = string.charAt(index);
-                if (c < '0' || c > '9') {
-                    break;
-                }
-                numExp = 10 * numExp + (c - '0');
-                hasOneDigit = true;
-                ++index;
-            }
-            if (!hasOneDigit) {
-                throw new TNumberFormatException();
+            boolean negative = false;
+            if (string.charAt(index) == '-' || string.charAt(index) == '+') {
+                negative = string.charAt(index++) == '-';
             }
-            if (negativeExp) {
-                numExp = -numExp;
+            int explicitExponent = 0;
+            while (index < length && string.charAt(index) >= '0' && string.charAt(index) <= '9') {
+                // Saturate, the value of such decimal is far from any float anyway
+                explicitExponent = TMath.min(explicitExponent * 10 + (string.charAt(index++) - '0'), 100000);
             }
-            exp += numExp;
+            exponent += negative ? -explicitExponent : explicitExponent;
         }
-        if (exp > 38 || exp == 38 && mantissa > 34028234) {
-            return !negative ? POSITIVE_INFINITY : NEGATIVE_INFINITY;
+
+        // The double is m * 2^e, where m is an integer below 2^53, then it's expanded as
+        // m * 5^-e * 10^e for negative e and as m * 2^e otherwise
+        int binaryExponent = 0;
+        while (value != TMath.floor(value)) {
+            value *= 2;
+            --binaryExponent;
         }
-        if (negative) {
-            mantissa = -mantissa;
+        while (value >= 0x1p53) {
+            value /= 2;
+            ++binaryExponent;
+        }
+        char[] valueDigits = new char[200];
+        int valueLength = 0;
+        while (value > 0) {
+            double quotient = TMath.floor(value / 10);
+            valueDigits[valueLength++] = (char)(value - quotient * 10);
+            value = quotient;
+        }
+        int valueExponent = 0;
+        for (; binaryExponent > 0; --binaryExponent) {
+            valueLength = multiplyDigits(valueDigits, valueLength, 2);
+        }
+        for (; binaryExponent < 0; ++binaryExponent) {
+            valueLength = multiplyDigits(valueDigits, valueLength, 5);
+            --valueExponent;
         }
-        return mantissa * decimalExponent(exp);
-    }
 
-    private static float decimalExponent(int n) {
-        float d;
-        if (n < 0) {
-            d = 0.1f;
-            n = -n;
-        } else {
-            d = 10;
+        if (digitCount == 0 || valueLength == 0) {
+            return digitCount - valueLength;
         }
-        float result = 1;
-        while (n != 0) {
-            if (n % 2 != 0) {
-                result *= d;
+        int magnitude = digitCount + exponent;
+        int valueMagnitude = valueLength + valueExponent;
+        if (magnitude != valueMagnitude) {
+            return magnitude - valueMagnitude;
+        }
+        for (int i = 0; i < TMath.max(digitCount, valueLength); ++i) {
+            int digit = i < digitCount ? digits[i] - '0' : 0;
+            int valueDigit = i < valueLength ? valueDigits[valueLength - i - 1] : 0;
+            if (digit != valueDigit) {
+                return digit - valueDigit;
             }
-            d *= d;
-            n /= 2;
         }
-        return result;
+        return 0;
+    }
+
+    /**
+     * Multiplies a number, represented by its decimal digits from the least significant one, by a small factor.
+     *
+     * @return new number of digits.
+     */
+    private static int multiplyDigits(char[] digits, int length, int factor) {
+        int carry = 0;
+        for (int i = 0; i < length; ++i) {
+            int product = digits[i] * factor + carry;
+            digits[i] = (char)(product % 10);
+            carry = product / 10;
+        }
+        while (carry > 0) {
+            digits[length++] = (char)(carry % 10);
+            carry /= 10;
+        }
+        return length;
     }
 
     public static TFloat valueOf(TString s) throws TNumberFormatException {
@@ -78,12 +78,16 @@ public class TInteger extends TNumber implements TComparable<TInteger> {
                 index = 1;
                 break;
         }
-        int value = 0;
         if (index == s.length()) {
             throw new TNumberFormatException();
         }
+        // Value is accumulated as negative, since MIN_VALUE has no positive counterpart
+        int limit = negative ? MIN_VALUE : -MAX_VALUE;
+        int multiplicationLimit = limit / radix;
+        int value = 0;
         while (index < s.length()) {
-            int digit = TCharacter.getNumericValue(s.charAt(index++));
+            char c = s.charAt(index++);
+            int digit = c >= '0' && c <= '9' ? c - '0' : TCharacter.getNumericValue(c);
             if (digit < 0) {
                 throw new TNumberFormatException(TString.wrap("String contains invalid digits: " + s));
             }
@@ -91,15 +95,16 @@ public class TInteger extends TNumber implements TComparable<TInteger> {
                 throw new TNumberFormatException(TString.wrap("String contains digits out of radix " + radix +
                         ": " + s));
             }
-            value = radix * value + digit;
-            if (value < 0) {
-                if (index == s.length() && value == MIN_VALUE && negative) {
-                    return MIN_VALUE;
-                }
+            if (value < multiplicationLimit) {
+                throw new TNumberFormatException(TString.wrap("The value is too big for int type: " + s));
+            }
+            value *= radix;
+            if (value < limit + digit) {
                 throw new TNumberFormatException(TString.wrap("The value is too big for int type: " + s));
             }
+            value -= digit;
         }
-        return negative ? -value : value;
+        return negative ? value : -value;
     }
 
     public static int parseInt(TString s) throws TNumberFormatException {
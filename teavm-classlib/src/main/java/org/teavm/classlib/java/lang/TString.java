@@ -24,10 +24,15 @@ import org.teavm.classlib.java.util.THashMap;
 import org.teavm.classlib.java.util.TMap;
 import org.teavm.classlib.java.util.regex.TPattern;
 import org.teavm.dependency.PluggableDependency;
+import org.teavm.javascript.ni.GeneratedBy;
 import org.teavm.javascript.ni.InjectedBy;
 import org.teavm.javascript.ni.Rename;
 
 /**
+ * <p>String is backed by a native JavaScript string, which is kept in the {@link #nativeString} field.
+ * This allows to pass strings to and from JavaScript without copying and makes most of
+ * operations run in native code. Primitive operations on the underlying string are
+ * provided by {@link StringNativeGenerator}.</p>
  *
  * @author Alexey Andreev <konsoletyper@gmail.com>
  */
@@ -37,30 +42,24 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
             return o1.compareToIgnoreCase(o2);
         }
     };
-    private char[] characters;
+    private Object nativeString;
     private transient int hashCode;
     private static TMap<TString, TString> pool = new THashMap<>();
 
     public TString() {
-        this.characters = new char[0];
+        this.nativeString = emptyNativeString();
     }
 
     public TString(TString other) {
-        characters = other.characters;
+        nativeString = other.nativeString;
     }
 
     public TString(char[] characters) {
-        this.characters = new char[characters.length];
-        for (int i = 0; i < characters.length; ++i) {
-            this.characters[i] = characters[i];
-        }
+        this.nativeString = fromCharArray(characters, 0, characters.length);
     }
 
     public TString(char[] value, int offset, int count) {
-        this.characters = new char[count];
-        for (int i = 0; i < count; ++i) {
-            this.characters[i] = value[i + offset];
-        }
+        this.nativeString = fromCharArray(value, offset, count);
     }
 
     public TString(byte[] bytes, int offset, int length, TString charsetName) throws TUnsupportedEncodingException {
@@ -84,7 +83,7 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
     }
 
     public TString(int[] codePoints, int offset, int count) {
-        characters = new char[count * 2];
+        char[] characters = new char[count * 2];
         int charCount = 0;
         for (int i = 0; i < count; ++i) {
             int codePoint = codePoints[offset++];
@@ -95,14 +94,11 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
                 characters[charCount++] = (char)codePoint;
             }
         }
-        if (charCount < characters.length) {
-            characters = TArrays.copyOf(characters, charCount);
-        }
+        nativeString = fromCharArray(characters, 0, charCount);
     }
 
     private void initWithBytes(byte[] bytes, int offset, int length, Charset charset) {
         TStringBuilder sb = new TStringBuilder(bytes.length * 2);
-        this.characters = new char[sb.length()];
         ByteBuffer source = new ByteBuffer(bytes, offset, offset + length);
         char[] destChars = new char[TMath.max(8, TMath.min(length * 2, 1024))];
         CharBuffer dest = new CharBuffer(destChars, 0, destChars.length);
@@ -111,8 +107,9 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
             sb.append(destChars, 0, dest.position());
             dest.rewind(0);
         }
-        characters = new char[sb.length()];
+        char[] characters = new char[sb.length()];
         sb.getChars(0, sb.length(), characters, 0);
+        nativeString = fromCharArray(characters, 0, characters.length);
     }
 
     public TString(TStringBuilder sb) {
@@ -121,10 +118,10 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
 
     @Override
     public char charAt(int index) {
-        if (index < 0 || index >= characters.length) {
+        if (index < 0 || index >= length()) {
             throw new TStringIndexOutOfBoundsException();
         }
-        return characters[index];
+        return charAt(nativeString, index);
     }
 
     public int codePointAt(int index) {
@@ -145,11 +142,11 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
 
     @Override
     public int length() {
-        return characters.length;
+        return length(nativeString);
     }
 
     public boolean isEmpty() {
-        return characters.length == 0;
+        return length() == 0;
     }
 
     public void getChars(int srcBegin, int srcEnd, char[] dst, int dstBegin) {
@@ -157,17 +154,15 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
                 dstBegin + (srcEnd - srcBegin) > dst.length) {
             throw new TIndexOutOfBoundsException();
         }
-        while (srcBegin < srcEnd) {
-            dst[dstBegin++] = charAt(srcBegin++);
-        }
+        getChars(nativeString, srcBegin, srcEnd, dst, dstBegin);
     }
 
     public boolean contentEquals(TStringBuffer buffer) {
-        if (characters.length != buffer.length()) {
+        if (length() != buffer.length()) {
             return false;
         }
-        for (int i = 0; i < characters.length; ++i) {
-            if (characters[i] != buffer.charAt(i)) {
+        for (int i = 0; i < buffer.length(); ++i) {
+            if (charAt(i) != buffer.charAt(i)) {
                 return false;
             }
         }
@@ -178,11 +173,11 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
         if (this == charSeq) {
             return true;
         }
-        if (characters.length != charSeq.length()) {
+        if (length() != charSeq.length()) {
             return false;
         }
-        for (int i = 0; i < characters.length; ++i) {
-            if (characters[i] != charSeq.charAt(i)) {
+        for (int i = 0; i < charSeq.length(); ++i) {
+            if (charAt(i) != charSeq.charAt(i)) {
                 return false;
             }
         }
@@ -286,24 +281,10 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
     }
 
     public int indexOf(int ch, int fromIndex) {
-        if (ch < UTF16Helper.SUPPLEMENTARY_PLANE) {
-            char bmpChar = (char)ch;
-            for (int i = fromIndex; i < characters.length; ++i) {
-                if (characters[i] == bmpChar) {
-                    return i;
-                }
-            }
-            return -1;
-        } else {
-            char hi = UTF16Helper.highSurrogate(ch);
-            char lo = UTF16Helper.lowSurrogate(ch);
-            for (int i = fromIndex; i < characters.length - 1; ++i) {
-                if (characters[i] == hi && characters[i + 1] == lo) {
-                    return i;
-                }
-            }
+        if (ch < 0 || ch > TCharacter.MAX_CODE_POINT) {
             return -1;
         }
+        return indexOf(nativeString, fromCodePoint(ch), fromIndex);
     }
 
     public int indexOf(int ch) {
@@ -311,24 +292,10 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
     }
 
     public int lastIndexOf(int ch, int fromIndex) {
-        if (ch < UTF16Helper.SUPPLEMENTARY_PLANE) {
-            char bmpChar = (char)ch;
-            for (int i = fromIndex; i >= 0; --i) {
-                if (characters[i] == bmpChar) {
-                    return i;
-                }
-            }
-            return -1;
-        } else {
-            char hi = UTF16Helper.highSurrogate(ch);
-            char lo = UTF16Helper.lowSurrogate(ch);
-            for (int i = fromIndex; i >= 1; --i) {
-                if (characters[i] == lo && characters[i - 1] == hi) {
-                    return i - 1;
-                }
-            }
+        if (fromIndex < 0 || ch < 0 || ch > TCharacter.MAX_CODE_POINT) {
             return -1;
         }
+        return lastIndexOf(nativeString, fromCodePoint(ch), TMath.min(fromIndex, length() - 1));
     }
 
     public int lastIndexOf(int ch) {
@@ -336,17 +303,7 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
     }
 
     public int indexOf(TString str, int fromIndex) {
-        int toIndex = length() - str.length();
-        outer:
-        for (int i = fromIndex; i <= toIndex; ++i) {
-            for (int j = 0; j < str.length(); ++j) {
-                if (charAt(i + j) != str.charAt(j)) {
-                    continue outer;
-                }
-            }
-            return i;
-        }
-        return -1;
+        return indexOf(nativeString, str.nativeString, fromIndex);
     }
 
     public int indexOf(TString str) {
@@ -354,17 +311,11 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
     }
 
     public int lastIndexOf(TString str, int fromIndex) {
-        fromIndex = Math.min(fromIndex, length() - str.length());
-        outer:
-        for (int i = fromIndex; i >= 0; --i) {
-            for (int j = 0; j < str.length(); ++j) {
-                if (charAt(i + j) != str.charAt(j)) {
-                    continue outer;
-                }
-            }
-            return i;
+        fromIndex = TMath.min(fromIndex, length() - str.length());
+        if (fromIndex < 0) {
+            return -1;
         }
-        return -1;
+        return lastIndexOf(nativeString, str.nativeString, fromIndex);
     }
 
     public int lastIndexOf(TString str) {
@@ -372,10 +323,13 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
     }
 
     public TString substring(int beginIndex, int endIndex) {
-        if (beginIndex > endIndex) {
+        if (beginIndex < 0 || beginIndex > endIndex || endIndex > length()) {
             throw new TIndexOutOfBoundsException();
         }
-        return new TString(characters, beginIndex, endIndex - beginIndex);
+        if (beginIndex == 0 && endIndex == length()) {
+            return this;
+        }
+        return fromNative(substring(nativeString, beginIndex, endIndex));
     }
 
     public TString substring(int beginIndex) {
@@ -391,15 +345,7 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
         if (str.isEmpty()) {
             return this;
         }
-        char[] buffer = new char[length() + str.length()];
-        int index = 0;
-        for (int i = 0; i < length(); ++i) {
-            buffer[index++] = charAt(i);
-        }
-        for (int i = 0; i < str.length(); ++i) {
-            buffer[index++] = str.charAt(i);
-        }
-        return new TString(buffer);
+        return fromNative(concat(nativeString, str.nativeString));
     }
 
     public TString replace(char oldChar, char newChar) {
@@ -414,16 +360,7 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
     }
 
     public boolean contains(TCharSequence s) {
-        outer:
-        for (int i = 0; i < length(); ++i) {
-            for (int j = 0; j < s.length(); ++j) {
-                if (charAt(i + j) != s.charAt(j)) {
-                    continue outer;
-                }
-            }
-            return true;
-        }
-        return false;
+        return indexOf(TString.wrap(s.toString())) >= 0;
     }
 
     public TString replace(TCharSequence target, TCharSequence replacement) {
@@ -464,10 +401,8 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
     }
 
     public char[] toCharArray() {
-        char[] array = new char[characters.length];
-        for (int i = 0; i < array.length; ++i) {
-            array[i] = characters[i];
-        }
+        char[] array = new char[length()];
+        getChars(nativeString, 0, array.length, array, 0);
         return array;
     }
 
@@ -496,7 +431,7 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
     }
 
     public static TString valueOf(char c) {
-        return new TString(new char[] { c });
+        return fromNative(fromCodePoint(c));
     }
 
     public static TString valueOf(int i) {
@@ -524,15 +459,8 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
             return false;
         }
         TString str = (TString)other;
-        if (str.length() != length()) {
-            return false;
-        }
-        for (int i = 0; i < str.length(); ++i) {
-            if (charAt(i) != str.charAt(i)) {
-                return false;
-            }
-        }
-        return true;
+        // Both fields contain native strings, which are compared by value
+        return nativeString == str.nativeString;
     }
 
     public boolean equalsIgnoreCase(TString other) {
@@ -570,7 +498,7 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
         int resultLength = 0;
         byte[] destArray = new byte[TMath.max(16, TMath.min(length() * 2, 4096))];
         ByteBuffer dest = new ByteBuffer(destArray);
-        CharBuffer src = new CharBuffer(characters);
+        CharBuffer src = new CharBuffer(toCharArray());
         while (!src.end()) {
             charset.encode(src, dest);
             if (resultLength + dest.position() > result.length) {
@@ -587,9 +515,7 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
     @Override
     public int hashCode() {
         if (hashCode == 0) {
-            for (char c : characters) {
-                hashCode = 31 * hashCode + c;
-            }
+            hashCode = hashCode(nativeString);
         }
         return hashCode;
     }
@@ -598,10 +524,50 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
     @PluggableDependency(StringNativeGenerator.class)
     public static native TString wrap(String str);
 
+    static TString fromNative(Object nativeString) {
+        TString result = new TString();
+        result.nativeString = nativeString;
+        return result;
+    }
+
+    @InjectedBy(StringNativeGenerator.class)
+    private static native Object emptyNativeString();
+
+    @GeneratedBy(StringNativeGenerator.class)
+    private static native Object fromCharArray(char[] chars, int offset, int count);
+
+    @GeneratedBy(StringNativeGenerator.class)
+    private static native Object fromCodePoint(int codePoint);
+
+    @InjectedBy(StringNativeGenerator.class)
+    private static native int length(Object nativeString);
+
+    @InjectedBy(StringNativeGenerator.class)
+    private static native char charAt(Object nativeString, int index);
+
+    @GeneratedBy(StringNativeGenerator.class)
+    private static native void getChars(Object nativeString, int srcBegin, int srcEnd, char[] dst, int dstBegin);
+
+    @InjectedBy(StringNativeGenerator.class)
+    private static native int indexOf(Object nativeString, Object str, int fromIndex);
+
+    @InjectedBy(StringNativeGenerator.class)
+    private static native int lastIndexOf(Object nativeString, Object str, int fromIndex);
+
+    @InjectedBy(StringNativeGenerator.class)
+    private static native Object substring(Object nativeString, int beginIndex, int endIndex);
+
+    @InjectedBy(StringNativeGenerator.class)
+    private static native Object concat(Object nativeString, Object str);
+
+    @GeneratedBy(StringNativeGenerator.class)
+    private static native int hashCode(Object nativeString);
+
     public TString toLowerCase() {
         if (isEmpty()) {
             return this;
         }
+        char[] characters = toCharArray();
         int[] codePoints = new int[characters.length];
         int codePointCount = 0;
         for (int i = 0; i < characters.length; ++i) {
@@ -621,6 +587,7 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
         if (isEmpty()) {
             return this;
         }
+        char[] characters = toCharArray();
         int[] codePoints = new int[characters.length];
         int codePointCount = 0;
         for (int i = 0; i < characters.length; ++i) {
@@ -15,6 +15,9 @@
  */
 package org.teavm.classlib.java.lang;
 
+import org.teavm.javascript.ni.Remove;
+import org.teavm.javascript.ni.Rename;
+
 /**
  *
  * @author Alexey Andreev
@@ -215,4 +218,18 @@ public class TStringBuilder extends TAbstractStringBuilder implements TAppendabl
         super.reverse();
         return this;
     }
+
+    // Both are declared here, since bridges that javac generates otherwise call methods of the superclass
+    // by their original names, which no longer exist after renaming
+    @Override
+    @Rename("toString")
+    public TString toString0() {
+        return new TString(buffer, 0, length());
+    }
+
+    @Remove
+    @Override
+    public String toString() {
+        return super.toString();
+    }
 }
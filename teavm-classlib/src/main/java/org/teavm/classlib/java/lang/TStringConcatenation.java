@@ -0,0 +1,92 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.lang;
+
+import org.teavm.javascript.ni.InjectedBy;
+
+/**
+ * <p>Builds strings in place of <code>StringBuilder</code>, for chains of <code>append</code> calls that end
+ * with <code>toString</code>. Such chains are replaced by calls to this class in
+ * {@link org.teavm.classlib.impl.StringConcatenationTransformer}. A string is kept as a native JavaScript
+ * string while it is being built, so that each part is appended by native concatenation, which engines
+ * perform without copying, and the result is wrapped without copying as well.</p>
+ *
+ * @author Alexey Andreev
+ */
+final class TStringConcatenation {
+    private TStringConcatenation() {
+    }
+
+    @InjectedBy(StringConcatenationGenerator.class)
+    static native Object empty();
+
+    static Object start(TString string) {
+        // Replaces StringBuilder(String) constructor, which does not accept null
+        if (string == null) {
+            throw new TNullPointerException();
+        }
+        return unwrap(string);
+    }
+
+    static Object append(Object string, TString part) {
+        return concat(string, unwrap(part != null ? part : TString.wrap("null")));
+    }
+
+    static Object append(Object string, TObject part) {
+        return append(string, TString.valueOf(part));
+    }
+
+    static Object append(Object string, boolean part) {
+        return append(string, TString.valueOf(part));
+    }
+
+    @InjectedBy(StringConcatenationGenerator.class)
+    static native Object append(Object string, char part);
+
+    @InjectedBy(StringConcatenationGenerator.class)
+    static native Object append(Object string, int part);
+
+    static Object append(Object string, long part) {
+        // Integers below 2^53 are exact in double, and engine prints them the same way as Java does
+        double number = part;
+        if (number > -9007199254740992.0 && number < 9007199254740992.0) {
+            return appendNumber(string, number);
+        }
+        // Not a StringBuilder, since it would be replaced by this method again
+        return append(string, TString.wrap(new TAbstractStringBuilder(20).append(part).toString()));
+    }
+
+    static Object append(Object string, float part) {
+        return append(string, TFloat.toString(part));
+    }
+
+    static Object append(Object string, double part) {
+        return append(string, TDouble.toString(part));
+    }
+
+    static TString build(Object string) {
+        return TString.fromNative(string);
+    }
+
+    @InjectedBy(StringConcatenationGenerator.class)
+    private static native Object appendNumber(Object string, double part);
+
+    @InjectedBy(StringConcatenationGenerator.class)
+    private static native Object unwrap(TString string);
+
+    @InjectedBy(StringConcatenationGenerator.class)
+    private static native Object concat(Object string, Object part);
+}
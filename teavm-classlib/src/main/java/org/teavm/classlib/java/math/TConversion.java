@@ -197,14 +197,7 @@ class TConversion {
                 // divide the array of digits by bigRadix and convert
                 // remainders
                 // to characters collecting them in the char array
-                long result11 = 0;
-                for (int i1 = tempLen - 1; i1 >= 0; i1--) {
-                    long temp1 = (result11 << 32) + (temp[i1] & 0xFFFFFFFFL);
-                    long res = divideLongByBillion(temp1);
-                    temp[i1] = (int) res;
-                    result11 = (int) (res >> 32);
-                }
-                int resDigit = (int) result11;
+                int resDigit = TDivision.divideArrayByInt(temp, temp, tempLen, 1000000000);
                 int previous = currentChar;
                 do {
                     result[--currentChar] = (char) (0x0030 + (resDigit % 10));
@@ -376,29 +369,6 @@ class TConversion {
         return result1.toString();
     }
 
-    static long divideLongByBillion(long a) {
-        long quot;
-        long rem;
-
-        if (a >= 0) {
-            long bLong = 1000000000L;
-            quot = (a / bLong);
-            rem = (a % bLong);
-        } else {
-            /*
-             * Make the dividend positive shifting it right by 1 bit then get
-             * the quotient an remainder and correct them properly
-             */
-            long aPos = a >>> 1;
-            long bPos = 1000000000L >>> 1;
-            quot = aPos / bPos;
-            rem = aPos % bPos;
-            // double the remainder and add 1 if 'a' is odd
-            rem = (rem << 1) + (a & 1);
-        }
-        return (rem << 32) | (quot & 0xFFFFFFFFL);
-    }
-
     /** @see TBigInteger#doubleValue() */
     static double bigInteger2Double(TBigInteger val) {
         // val.bitLength() < 64
@@ -79,6 +79,8 @@ class TDivision {
             System.arraycopy(b, 0, normB, 0, bLength);
         }
         int firstDivisorDigit = normB[normBLength - 1];
+        double firstDivisor = TMultiplication.unsigned(firstDivisorDigit);
+        int[] digit = new int[1];
         // Step D2: set the quotient index
         int i = quotLength - 1;
         int j = aLength;
@@ -90,42 +92,30 @@ class TDivision {
                 // set guessDigit to the largest unsigned int value
                 guessDigit = -1;
             } else {
-                long product = (((normA[j] & 0xffffffffL) << 32) + (normA[j - 1] & 0xffffffffL));
-                long res = TDivision.divideLongByInt(product, firstDivisorDigit);
-                guessDigit = (int) res; // the quotient of divideLongByInt
-                int rem = (int) (res >> 32); // the remainder of
-                                             // divideLongByInt
+                double rem = divideLongByInt(TMultiplication.unsigned(normA[j]), normA[j - 1], firstDivisor,
+                        digit, 0);
+                guessDigit = digit[0];
                 // decrease guessDigit by 1 while leftHand > rightHand
                 if (guessDigit != 0) {
-                    long leftHand = 0;
-                    long rightHand = 0;
-                    boolean rOverflowed = false;
-                    guessDigit++; // to have the proper value in the loop
-                                  // below
-                    do {
-                        guessDigit--;
-                        if (rOverflowed) {
+                    while (true) {
+                        // leftHand is guessDigit * normB[normBLength - 2], its lower half is put to digit[0]
+                        double leftHand = TMultiplication.multAddAdd(guessDigit, normB[normBLength - 2], 0, 0,
+                                digit, 0);
+                        // rightHand is rem * 2^32 + normA[j - 2]
+                        if (leftHand < rem || leftHand == rem && TMultiplication.unsigned(digit[0]) <=
+                                TMultiplication.unsigned(normA[j - 2])) {
                             break;
                         }
-                        // leftHand always fits in an unsigned long
-                        leftHand = (guessDigit & 0xffffffffL) * (normB[normBLength - 2] & 0xffffffffL);
-                        /*
-                         * rightHand can overflow; in this case the loop
-                         * condition will be true in the next step of the loop
-                         */
-                        rightHand = ((long) rem << 32) + (normA[j - 2] & 0xffffffffL);
-                        long longR = (rem & 0xffffffffL) + (firstDivisorDigit & 0xffffffffL);
+                        guessDigit--;
+                        rem += firstDivisor;
                         /*
-                         * checks that longR does not fit in an unsigned int;
-                         * this ensures that rightHand will overflow unsigned
-                         * long in the next step
+                         * when rem does not fit in an unsigned int, rightHand
+                         * is greater than any leftHand
                          */
-                        if (Integer.numberOfLeadingZeros((int) (longR >>> 32)) < 32) {
-                            rOverflowed = true;
-                        } else {
-                            rem = (int) longR;
+                        if (rem >= TMultiplication.TWO_POWER_32) {
+                            break;
                         }
-                    } while (((leftHand ^ 0x8000000000000000L) > (rightHand ^ 0x8000000000000000L)));
+                    }
                 }
             }
             // Step D4: multiply normB by guessDigit and subtract the production
@@ -136,11 +126,13 @@ class TDivision {
                 if (borrow != 0) {
                     // Step D6: compensating addition
                     guessDigit--;
-                    long carry = 0;
+                    int carry = 0;
                     for (int k = 0; k < normBLength; k++) {
-                        carry += (normA[j - normBLength + k] & 0xffffffffL) + (normB[k] & 0xffffffffL);
-                        normA[j - normBLength + k] = (int) carry;
-                        carry >>>= 32;
+                        int x = normA[j - normBLength + k];
+                        int y = normB[k];
+                        int sum = x + y + carry;
+                        carry = ((x & y) | ((x | y) & ~sum)) >>> 31;
+                        normA[j - normBLength + k] = sum;
                     }
                 }
             }
@@ -178,45 +170,12 @@ class TDivision {
      * @return remainder
      */
     static int divideArrayByInt(int dest[], int src[], final int srcLength, final int divisor) {
-
-        long rem = 0;
-        long bLong = divisor & 0xffffffffL;
-
+        double rem = 0;
+        double unsignedDivisor = TMultiplication.unsigned(divisor);
         for (int i = srcLength - 1; i >= 0; i--) {
-            long temp = (rem << 32) | (src[i] & 0xffffffffL);
-            long quot;
-            if (temp >= 0) {
-                quot = (temp / bLong);
-                rem = (temp % bLong);
-            } else {
-                /*
-                 * make the dividend positive shifting it right by 1 bit then
-                 * get the quotient an remainder and correct them properly
-                 */
-                long aPos = temp >>> 1;
-                long bPos = divisor >>> 1;
-                quot = aPos / bPos;
-                rem = aPos % bPos;
-                // double the remainder and add 1 if a is odd
-                rem = (rem << 1) + (temp & 1);
-                if ((divisor & 1) != 0) {
-                    // the divisor is odd
-                    if (quot <= rem) {
-                        rem -= quot;
-                    } else {
-                        if (quot - rem <= bLong) {
-                            rem += bLong - quot;
-                            quot -= 1;
-                        } else {
-                            rem += (bLong << 1) - quot;
-                            quot -= 2;
-                        }
-                    }
-                }
-            }
-            dest[i] = (int) (quot & 0xffffffffL);
+            rem = divideLongByInt(rem, src[i], unsignedDivisor, dest, i);
         }
-        return (int) rem;
+        return TMultiplication.lowBits(rem);
     }
 
     /**
@@ -232,15 +191,14 @@ class TDivision {
      * @return remainder
      */
     static int remainderArrayByInt(int src[], final int srcLength, final int divisor) {
-
-        long result = 0;
-
+        double result = 0;
+        double unsignedDivisor = TMultiplication.unsigned(divisor);
         for (int i = srcLength - 1; i >= 0; i--) {
-            long temp = (result << 32) + (src[i] & 0xffffffffL);
-            long res = divideLongByInt(temp, divisor);
-            result = (int) (res >> 32);
+            int digit = src[i];
+            result = (result * 65536 + (digit >>> 16)) % unsignedDivisor;
+            result = (result * 65536 + (digit & 0xFFFF)) % unsignedDivisor;
         }
-        return (int) result;
+        return TMultiplication.lowBits(result);
     }
 
     /**
@@ -258,50 +216,31 @@ class TDivision {
     }
 
     /**
-     * Divides an unsigned long a by an unsigned int b. It is supposed that the
-     * most significant bit of b is set to 1, i.e. b < 0
+     * Divides an unsigned value {@code high * 2^32 + low} by an unsigned
+     * divisor, which must be greater than {@code high}. The division is
+     * performed by doubles in two steps, each of them bringing down 16 bits
+     * of {@code low}, so that every intermediate result is exact.
      *
-     * @param a
-     *            the dividend
-     * @param b
-     *            the divisor
-     * @return the long value containing the unsigned integer remainder in the
-     *         left half and the unsigned integer quotient in the right half
+     * @param high
+     *            the higher 32 bits of the dividend as an integral value
+     * @param low
+     *            the lower 32 bits of the dividend
+     * @param divisor
+     *            the divisor as an integral value in range
+     *            [1, 2<sup>32</sup>)
+     * @param quot
+     *            the array to store the quotient to
+     * @param index
+     *            the index of the element to store the quotient to
+     * @return the remainder as an integral value
      */
-    static long divideLongByInt(long a, int b) {
-        long quot;
-        long rem;
-        long bLong = b & 0xffffffffL;
-
-        if (a >= 0) {
-            quot = (a / bLong);
-            rem = (a % bLong);
-        } else {
-            /*
-             * Make the dividend positive shifting it right by 1 bit then get
-             * the quotient an remainder and correct them properly
-             */
-            long aPos = a >>> 1;
-            long bPos = b >>> 1;
-            quot = aPos / bPos;
-            rem = aPos % bPos;
-            // double the remainder and add 1 if a is odd
-            rem = (rem << 1) + (a & 1);
-            if ((b & 1) != 0) { // the divisor is odd
-                if (quot <= rem) {
-                    rem -= quot;
-                } else {
-                    if (quot - rem <= bLong) {
-                        rem += bLong - quot;
-                        quot -= 1;
-                    } else {
-                        rem += (bLong << 1) - quot;
-                        quot -= 2;
-                    }
-                }
-            }
-        }
-        return (rem << 32) | (quot & 0xffffffffL);
+    static double divideLongByInt(double high, int low, double divisor, int[] quot, int index) {
+        double part = high * 65536 + (low >>> 16);
+        double quotHigh = Math.floor(part / divisor);
+        part = (part - quotHigh * divisor) * 65536 + (low & 0xFFFF);
+        double quotLow = Math.floor(part / divisor);
+        quot[index] = TMultiplication.lowBits(quotHigh * 65536 + quotLow);
+        return part - quotLow * divisor;
     }
 
     /**
@@ -357,20 +296,26 @@ class TDivision {
      * @return the carry element of subtraction
      */
     static int multiplyAndSubtract(int a[], int start, int b[], int bLen, int c) {
-        long carry0 = 0;
-        long carry1 = 0;
+        double carry0 = 0;
+        int carry1 = 0;
 
         for (int i = 0; i < bLen; i++) {
-            carry0 = TMultiplication.unsignedMultAddAdd(b[i], c, (int) carry0, 0);
-            carry1 = (a[start + i] & 0xffffffffL) - (carry0 & 0xffffffffL) + carry1;
-            a[start + i] = (int) carry1;
-            carry1 >>= 32; // -1 or 0
-            carry0 >>>= 32;
-        }
-
-        carry1 = (a[start + bLen] & 0xffffffffL) - carry0 + carry1;
-        a[start + bLen] = (int) carry1;
-        return (int) (carry1 >> 32); // -1 or 0
+            int x = a[start + i];
+            // the lower half of the product is put to a[start + i] and then subtracted from x
+            carry0 = TMultiplication.multAddAdd(b[i], c, 0, carry0, a, start + i);
+            int y = a[start + i];
+            int diff = x - y + carry1;
+            carry1 = ((~x & y) | (~(x ^ y) & diff)) >> 31; // -1 or 0
+            a[start + i] = diff;
+        }
+
+        double diff = TMultiplication.unsigned(a[start + bLen]) - carry0 + carry1;
+        if (diff < 0) {
+            a[start + bLen] = TMultiplication.lowBits(diff + TMultiplication.TWO_POWER_32);
+            return -1;
+        }
+        a[start + bLen] = TMultiplication.lowBits(diff);
+        return 0;
     }
 
     /**
@@ -820,23 +765,26 @@ class TDivision {
         /* res + m*modulus_digits */
         int[] modulus_digits = modulus.digits;
         int modulusLen = modulus.numberLength;
-        long outerCarry = 0;
+        double outerCarry = 0;
 
         for (int i = 0; i < modulusLen; i++) {
-            long innnerCarry = 0;
-            int m = (int) TMultiplication.unsignedMultAddAdd(res[i], n2, 0, 0);
+            double innnerCarry = 0;
+            int m = TMultiplication.multiplyLow(res[i], n2);
             for (int j = 0; j < modulusLen; j++) {
-                innnerCarry = TMultiplication.unsignedMultAddAdd(m, modulus_digits[j], res[i + j], (int) innnerCarry);
-                res[i + j] = (int) innnerCarry;
-                innnerCarry >>>= 32;
+                innnerCarry = TMultiplication.multAddAdd(m, modulus_digits[j], res[i + j], innnerCarry, res, i + j);
             }
 
-            outerCarry += (res[i + modulusLen] & 0xFFFFFFFFL) + innnerCarry;
-            res[i + modulusLen] = (int) outerCarry;
-            outerCarry >>>= 32;
+            outerCarry += TMultiplication.unsigned(res[i + modulusLen]) + innnerCarry;
+            if (outerCarry >= TMultiplication.TWO_POWER_32) {
+                res[i + modulusLen] = TMultiplication.lowBits(outerCarry - TMultiplication.TWO_POWER_32);
+                outerCarry = 1;
+            } else {
+                res[i + modulusLen] = TMultiplication.lowBits(outerCarry);
+                outerCarry = 0;
+            }
         }
 
-        res[modulusLen << 1] = (int) outerCarry;
+        res[modulusLen << 1] = TMultiplication.lowBits(outerCarry);
 
         /* res / r */
         for (int j = 0; j < modulusLen + 1; j++) {
@@ -51,8 +51,8 @@ class TElementary {
         for (i = size - 1; (i >= 0) && (a[i] == b[i]); i--) {
             // do nothing
         }
-        return ((i < 0) ? TBigInteger.EQUALS : (a[i] & 0xFFFFFFFFL) < (b[i] & 0xFFFFFFFFL) ? TBigInteger.LESS
-                : TBigInteger.GREATER);
+        return ((i < 0) ? TBigInteger.EQUALS : (a[i] ^ Integer.MIN_VALUE) < (b[i] ^ Integer.MIN_VALUE)
+                ? TBigInteger.LESS : TBigInteger.GREATER);
     }
 
     /** @see TBigInteger#add(TBigInteger) */
@@ -117,38 +117,42 @@ class TElementary {
      */
     private static void add(int res[], int a[], int aSize, int b[], int bSize) {
         // PRE: a.length < max(aSize, bSize)
+        // the carry is found from the sign bits of the addends and the sum, which avoids longs
 
         int i;
-        long carry = (a[0] & 0xFFFFFFFFL) + (b[0] & 0xFFFFFFFFL);
-
-        res[0] = (int) carry;
-        carry >>= 32;
+        int carry = 0;
 
         if (aSize >= bSize) {
-            for (i = 1; i < bSize; i++) {
-                carry += (a[i] & 0xFFFFFFFFL) + (b[i] & 0xFFFFFFFFL);
-                res[i] = (int) carry;
-                carry >>= 32;
+            for (i = 0; i < bSize; i++) {
+                int x = a[i];
+                int y = b[i];
+                int sum = x + y + carry;
+                carry = ((x & y) | ((x | y) & ~sum)) >>> 31;
+                res[i] = sum;
             }
             for (; i < aSize; i++) {
-                carry += a[i] & 0xFFFFFFFFL;
-                res[i] = (int) carry;
-                carry >>= 32;
+                int x = a[i];
+                int sum = x + carry;
+                carry = (x & ~sum) >>> 31;
+                res[i] = sum;
             }
         } else {
-            for (i = 1; i < aSize; i++) {
-                carry += (a[i] & 0xFFFFFFFFL) + (b[i] & 0xFFFFFFFFL);
-                res[i] = (int) carry;
-                carry >>= 32;
+            for (i = 0; i < aSize; i++) {
+                int x = a[i];
+                int y = b[i];
+                int sum = x + y + carry;
+                carry = ((x & y) | ((x | y) & ~sum)) >>> 31;
+                res[i] = sum;
             }
             for (; i < bSize; i++) {
-                carry += b[i] & 0xFFFFFFFFL;
-                res[i] = (int) carry;
-                carry >>= 32;
+                int y = b[i];
+                int sum = y + carry;
+                carry = (y & ~sum) >>> 31;
+                res[i] = sum;
             }
         }
         if (carry != 0) {
-            res[i] = (int) carry;
+            res[i] = carry;
         }
     }
 
@@ -207,18 +211,22 @@ class TElementary {
      */
     private static void subtract(int res[], int a[], int aSize, int b[], int bSize) {
         // PRE: a[] >= b[]
+        // the borrow is found from the sign bits of the operands and the difference, which avoids longs
         int i;
-        long borrow = 0;
+        int borrow = 0;
 
         for (i = 0; i < bSize; i++) {
-            borrow += (a[i] & 0xFFFFFFFFL) - (b[i] & 0xFFFFFFFFL);
-            res[i] = (int) borrow;
-            borrow >>= 32; // -1 or 0
+            int x = a[i];
+            int y = b[i];
+            int diff = x - y + borrow;
+            borrow = ((~x & y) | (~(x ^ y) & diff)) >> 31; // -1 or 0
+            res[i] = diff;
         }
         for (; i < aSize; i++) {
-            borrow += a[i] & 0xFFFFFFFFL;
-            res[i] = (int) borrow;
-            borrow >>= 32; // -1 or 0
+            int x = a[i];
+            int diff = x + borrow;
+            borrow = (~x & diff) >> 31; // -1 or 0
+            res[i] = diff;
         }
     }
 
@@ -260,14 +268,15 @@ class TElementary {
      * @return a possible generated carry (0 or 1)
      */
     static int inplaceAdd(int a[], final int aSize, final int addend) {
-        long carry = addend & 0xFFFFFFFFL;
+        int carry = addend;
 
         for (int i = 0; (carry != 0) && (i < aSize); i++) {
-            carry += a[i] & 0xFFFFFFFFL;
-            a[i] = (int) carry;
-            carry >>= 32;
+            int x = a[i];
+            int sum = x + carry;
+            carry = ((x & carry) | ((x | carry) & ~sum)) >>> 31;
+            a[i] = sum;
         }
-        return (int) carry;
+        return carry;
     }
 
     /**
@@ -305,31 +314,36 @@ class TElementary {
      */
     private static void inverseSubtract(int res[], int a[], int aSize, int b[], int bSize) {
         int i;
-        long borrow = 0;
+        int borrow = 0;
         if (aSize < bSize) {
             for (i = 0; i < aSize; i++) {
-                borrow += (b[i] & 0xFFFFFFFFL) - (a[i] & 0xFFFFFFFFL);
-                res[i] = (int) borrow;
-                borrow >>= 32; // -1 or 0
+                int x = b[i];
+                int y = a[i];
+                int diff = x - y + borrow;
+                borrow = ((~x & y) | (~(x ^ y) & diff)) >> 31; // -1 or 0
+                res[i] = diff;
             }
             for (; i < bSize; i++) {
-                borrow += b[i] & 0xFFFFFFFFL;
-                res[i] = (int) borrow;
-                borrow >>= 32; // -1 or 0
+                int x = b[i];
+                int diff = x + borrow;
+                borrow = (~x & diff) >> 31; // -1 or 0
+                res[i] = diff;
             }
         } else {
             for (i = 0; i < bSize; i++) {
-                borrow += (b[i] & 0xFFFFFFFFL) - (a[i] & 0xFFFFFFFFL);
-                res[i] = (int) borrow;
-                borrow >>= 32; // -1 or 0
+                int x = b[i];
+                int y = a[i];
+                int diff = x - y + borrow;
+                borrow = ((~x & y) | (~(x ^ y) & diff)) >> 31; // -1 or 0
+                res[i] = diff;
             }
             for (; i < aSize; i++) {
-                borrow -= a[i] & 0xFFFFFFFFL;
-                res[i] = (int) borrow;
-                borrow >>= 32; // -1 or 0
+                int y = a[i];
+                int diff = borrow - y;
+                borrow = (y | diff) >> 31; // -1 or 0
+                res[i] = diff;
             }
         }
-
     }
 
     /**
@@ -424,8 +438,8 @@ class TElementary {
             for (i = aSize - 1; i >= 0 && a[i] == b[i]; i--) {
                 // do nothing
             }
-            return i < 0 ? TBigInteger.EQUALS : ((a[i] & 0xFFFFFFFFL) < (b[i] & 0xFFFFFFFFL) ? TBigInteger.LESS
-                    : TBigInteger.GREATER);
+            return i < 0 ? TBigInteger.EQUALS : ((a[i] ^ Integer.MIN_VALUE) < (b[i] ^ Integer.MIN_VALUE)
+                    ? TBigInteger.LESS : TBigInteger.GREATER);
         }
     }
 
@@ -31,6 +31,9 @@ class TMultiplication {
      */
     static final int whenUseKaratsuba = 63; // an heuristic value
 
+    /** The base of digits, 2<sup>32</sup>. */
+    static final double TWO_POWER_32 = 4294967296.0;
+
     /**
      * An array with powers of ten that fit in the type {@code int}.
      * ({@code 10^0,10^1,...,10^9})
@@ -228,12 +231,11 @@ class TMultiplication {
         int resSign = (a.sign != b.sign) ? -1 : 1;
         // A special case when both numbers don't exceed int
         if (resLength == 2) {
-            long val = unsignedMultAddAdd(a.digits[0], b.digits[0], 0, 0);
-            int valueLo = (int)val;
-            int valueHi = (int)(val >>> 32);
-            return ((valueHi == 0)
-            ? new TBigInteger(resSign, valueLo)
-            : new TBigInteger(resSign, 2, new int[]{valueLo, valueHi}));
+            int[] val = new int[2];
+            val[1] = lowBits(multAddAdd(a.digits[0], b.digits[0], 0, 0, val, 0));
+            return ((val[1] == 0)
+            ? new TBigInteger(resSign, val[0])
+            : new TBigInteger(resSign, 2, val));
         }
         int[] aDigits = a.digits;
         int[] bDigits = b.digits;
@@ -264,14 +266,12 @@ class TMultiplication {
         }
 
         for(int i = 0; i < aLen; i++){
-            long carry = 0;
+            double carry = 0;
             int aI = a[i];
             for (int j = 0; j < bLen; j++){
-               carry = unsignedMultAddAdd(aI, b[j], t[i+j], (int)carry);
-               t[i+j] = (int) carry;
-               carry >>>= 32;
+               carry = multAddAdd(aI, b[j], t[i+j], carry, t, i+j);
              }
-             t[i+bLen] = (int) carry;
+             t[i+bLen] = lowBits(carry);
         }
     }
 
@@ -284,13 +284,11 @@ class TMultiplication {
      * @return the top digit of production
      */
     private static int multiplyByInt(int res[], int a[], final int aSize, final int factor) {
-        long carry = 0;
+        double carry = 0;
         for (int i = 0; i < aSize; i++) {
-            carry = unsignedMultAddAdd(a[i], factor, (int)carry, 0);
-            res[i] = (int)carry;
-            carry >>>= 32;
+            carry = multAddAdd(a[i], factor, 0, carry, res, i);
         }
-        return (int)carry;
+        return lowBits(carry);
     }
 
 
@@ -320,12 +318,11 @@ class TMultiplication {
         int[] aDigits = val.digits;
 
         if (aNumberLength == 1) {
-            long res = unsignedMultAddAdd(aDigits[0], factor, 0, 0);
-            int resLo = (int)res;
-            int resHi = (int)(res >>> 32);
-            return ((resHi == 0)
-            ? new TBigInteger(resSign, resLo)
-            : new TBigInteger(resSign, 2, new int[]{resLo, resHi}));
+            int[] res = new int[2];
+            res[1] = lowBits(multAddAdd(aDigits[0], factor, 0, 0, res, 0));
+            return ((res[1] == 0)
+            ? new TBigInteger(resSign, res[0])
+            : new TBigInteger(resSign, 2, res));
         }
         // Common case
         int resLength = aNumberLength + 1;
@@ -367,29 +364,30 @@ class TMultiplication {
      *  @param aLen The length of the number to square.
      */
     static int[] square(int[] a, int aLen, int[] res) {
-        long carry;
+        double carry;
 
         for(int i = 0; i < aLen; i++){
             carry = 0;
             for (int j = i+1; j < aLen; j++){
-                carry = unsignedMultAddAdd(a[i], a[j], res[i+j], (int)carry);
-                res[i+j] = (int) carry;
-                carry >>>= 32;
+                carry = multAddAdd(a[i], a[j], res[i+j], carry, res, i+j);
             }
-            res[i+aLen] = (int) carry;
+            res[i+aLen] = lowBits(carry);
         }
 
         TBitLevel.shiftLeftOneBit(res, res, aLen << 1);
 
         carry = 0;
         for(int i = 0, index = 0; i < aLen; i++, index++){
-            carry = unsignedMultAddAdd(a[i], a[i], res[index],(int)carry);
-            res[index] = (int) carry;
-            carry >>>= 32;
+            carry = multAddAdd(a[i], a[i], res[index], carry, res, index);
             index++;
-            carry += res[index] & 0xFFFFFFFFL;
-            res[index] = (int)carry;
-            carry >>>= 32;
+            carry += unsigned(res[index]);
+            if (carry >= TWO_POWER_32) {
+                res[index] = lowBits(carry - TWO_POWER_32);
+                carry = 1;
+            } else {
+                res[index] = lowBits(carry);
+                carry = 0;
+            }
         }
         return res;
     }
@@ -490,21 +488,61 @@ class TMultiplication {
     }
 
     /**
-     * Computes the value unsigned ((uint)a*(uint)b + (uint)c + (uint)d). This
-     * method could improve the readability and performance of the code.
+     * Computes the value unsigned ((uint)a*(uint)b + (uint)c + carry), stores
+     * its lower 32 bits to {@code res[index]} and returns its higher 32 bits.
+     * The value is computed by doubles, splitting {@code b} into 16-bit
+     * halves, so that every intermediate result stays below 2<sup>53</sup>
+     * and is exact. Unlike {@code long} arithmetic, which has to be emulated
+     * in JavaScript, this maps directly to the engine's numbers.
      *
      * @param a
-     *            parameter 1
+     *            the first factor
      * @param b
-     *            parameter 2
+     *            the second factor
      * @param c
-     *            parameter 3
-     * @param d
-     *            parameter 4
-     * @return value of expression
+     *            the first addend
+     * @param carry
+     *            the second addend, an integral value in range
+     *            [0, 2<sup>32</sup>)
+     * @param res
+     *            the array to store the lower 32 bits to
+     * @param index
+     *            the index of the element to store the lower 32 bits to
+     * @return the higher 32 bits as an integral value in range
+     *         [0, 2<sup>32</sup>)
+     */
+    static double multAddAdd(int a, int b, int c, double carry, int[] res, int index) {
+        double x = unsigned(a);
+        double low = x * (b & 0xFFFF) + unsigned(c) + carry;
+        double high = x * (b >>> 16);
+        double highTop = Math.floor(high / 65536);
+        double value = low + (high - highTop * 65536) * 65536;
+        double valueTop = Math.floor(value / TWO_POWER_32);
+        res[index] = lowBits(value - valueTop * TWO_POWER_32);
+        return valueTop + highTop;
+    }
+
+    /**
+     * Computes the lower 32 bits of the product of two {@code int} values
+     * without relying on the product being exact as a double.
+     */
+    static int multiplyLow(int a, int b) {
+        return (a & 0xFFFF) * b + (((a >>> 16) * b) << 16);
+    }
+
+    /**
+     * Returns the value of a digit interpreted as an unsigned integer.
+     */
+    static double unsigned(int digit) {
+        return digit >= 0 ? digit : digit + TWO_POWER_32;
+    }
+
+    /**
+     * Returns the digit that holds an integral value in range
+     * [0, 2<sup>32</sup>) as an unsigned integer.
      */
-    static long unsignedMultAddAdd(int a, int b, int c, int d) {
-        return (a & 0xFFFFFFFFL) * (b & 0xFFFFFFFFL) + (c & 0xFFFFFFFFL) + (d & 0xFFFFFFFFL);
+    static int lowBits(double value) {
+        return (int)(value - 2147483648.0) ^ Integer.MIN_VALUE;
     }
 
 }
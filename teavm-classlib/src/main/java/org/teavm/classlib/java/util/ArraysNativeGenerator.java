@@ -0,0 +1,74 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.util;
+
+import java.io.IOException;
+import org.teavm.codegen.SourceWriter;
+import org.teavm.dependency.DependencyAgent;
+import org.teavm.dependency.DependencyPlugin;
+import org.teavm.dependency.MethodDependency;
+import org.teavm.javascript.ni.Generator;
+import org.teavm.javascript.ni.GeneratorContext;
+import org.teavm.model.MethodDescriptor;
+import org.teavm.model.MethodReference;
+
+/**
+ *
+ * @author Alexey Andreev
+ */
+public class ArraysNativeGenerator implements Generator, DependencyPlugin {
+    @Override
+    public void generate(GeneratorContext context, SourceWriter writer, MethodReference methodRef) throws IOException {
+        switch (methodRef.getName()) {
+            case "sortNative":
+                generateSort(context, writer, methodRef);
+                break;
+        }
+    }
+
+    @Override
+    public void methodAchieved(DependencyAgent agent, MethodDependency method) {
+        switch (method.getReference().getName()) {
+            case "sortNative":
+                agent.linkMethod(getFallbackSort(method.getReference()), method.getStack()).use();
+                break;
+        }
+    }
+
+    private void generateSort(GeneratorContext context, SourceWriter writer, MethodReference methodRef)
+            throws IOException {
+        String array = context.getParameterName(1);
+        String fromIndex = context.getParameterName(2);
+        String toIndex = context.getParameterName(3);
+        // Typed arrays sort numbers in the same order as Java does, including -0.0 and NaN. Some engines
+        // don't support typed arrays or lack TypedArray.prototype.sort
+        writer.append("var data").ws().append("=").ws().append(array).append(".data;").softNewLine();
+        writer.append("if").ws().append("(typeof data.subarray").ws().append("===").ws().append("'function'")
+                .ws().append("&&").ws().append("typeof data.sort").ws().append("===").ws()
+                .append("'function')").ws().append("{").indent().softNewLine();
+        writer.append("data.subarray(").append(fromIndex).append(",").ws().append(toIndex).append(").sort();")
+                .softNewLine();
+        writer.outdent().append("}").ws().append("else").ws().append("{").indent().softNewLine();
+        writer.appendMethodBody(getFallbackSort(methodRef)).append("(").append(array).append(",").ws()
+                .append(fromIndex).append(",").ws().append(toIndex).append(");").softNewLine();
+        writer.outdent().append("}").softNewLine();
+    }
+
+    private MethodReference getFallbackSort(MethodReference methodRef) {
+        return new MethodReference(methodRef.getClassName(), new MethodDescriptor("mergeSort",
+                methodRef.getDescriptor().getSignature()));
+    }
+}
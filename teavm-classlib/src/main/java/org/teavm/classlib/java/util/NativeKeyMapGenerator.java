@@ -0,0 +1,53 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.util;
+
+import java.io.IOException;
+import org.teavm.codegen.SourceWriter;
+import org.teavm.javascript.ni.Generator;
+import org.teavm.javascript.ni.GeneratorContext;
+import org.teavm.model.MethodReference;
+
+/**
+ *
+ * @author Alexey Andreev
+ */
+public class NativeKeyMapGenerator implements Generator {
+    @Override
+    public void generate(GeneratorContext context, SourceWriter writer, MethodReference methodRef) throws IOException {
+        switch (methodRef.getName()) {
+            case "createIndex":
+                writer.append("return typeof Map").ws().append("===").ws().append("'function'").ws().append("?")
+                        .ws().append("new Map()").ws().append(":").ws().append("null;").softNewLine();
+                break;
+            case "indexGet":
+                writer.append("var slot").ws().append("=").ws().append(context.getParameterName(1))
+                        .append(".get(").append(context.getParameterName(2)).append(");").softNewLine();
+                writer.append("return slot").ws().append("===").ws().append("undefined").ws().append("?").ws()
+                        .append("-1").ws().append(":").ws().append("slot;").softNewLine();
+                break;
+            case "indexSet":
+                writer.append(context.getParameterName(1)).append(".set(").append(context.getParameterName(2))
+                        .append(",").ws().append(context.getParameterName(3)).append(");").softNewLine();
+                break;
+            case "indexDelete":
+                // Old engines don't allow reserved words as property names after a dot
+                writer.append(context.getParameterName(1)).append("['delete'](")
+                        .append(context.getParameterName(2)).append(");").softNewLine();
+                break;
+        }
+    }
+}
@@ -52,7 +52,7 @@ public class TArrayList<E> extends TAbstractList<E> implements TCloneable, TSeri
 
     public void ensureCapacity(int minCapacity) {
         if (array.length < minCapacity) {
-            array = TArrays.copyOf(array, array.length + TMath.min(5, array.length / 2));
+            array = TArrays.copyOf(array, TMath.max(minCapacity, array.length + TMath.max(5, array.length / 2)));
         }
     }
 
@@ -19,12 +19,16 @@ import java.lang.reflect.Array;
 import java.util.Objects;
 import org.teavm.classlib.java.lang.*;
 import org.teavm.classlib.java.lang.reflect.TArray;
+import org.teavm.dependency.PluggableDependency;
+import org.teavm.javascript.ni.GeneratedBy;
 
 /**
  *
  * @author Alexey Andreev
  */
 public class TArrays extends TObject {
+    private static final int INSERTION_SORT_THRESHOLD = 24;
+
     public static char[] copyOf(char[] array, int length) {
         char[] result = new char[length];
         int sz = TMath.min(length, array.length);
@@ -436,43 +440,54 @@ public class TArrays extends TObject {
     }
 
     public static void sort(int[] a, int fromIndex, int toIndex) {
-        int[] subarray = new int[toIndex - fromIndex];
-        for (int i = fromIndex; i < toIndex; ++i) {
-            subarray[i - fromIndex] = a[i];
-        }
-        sort(subarray);
-        for (int i = fromIndex; i < toIndex; ++i) {
-            a[i] = subarray[i - fromIndex];
-        }
+        checkRange(a.length, fromIndex, toIndex);
+        sortNative(a, fromIndex, toIndex);
     }
 
     public static void sort(int[] a) {
-        if (a.length == 0) {
+        sortNative(a, 0, a.length);
+    }
+
+    @GeneratedBy(ArraysNativeGenerator.class)
+    @PluggableDependency(ArraysNativeGenerator.class)
+    private static native void sortNative(int[] a, int fromIndex, int toIndex);
+
+    private static void mergeSort(int[] a, int fromIndex, int toIndex) {
+        int length = toIndex - fromIndex;
+        if (length < 2) {
             return;
         }
         int[] first = a;
-        int[] second = new int[a.length];
+        int firstOffset = fromIndex;
+        int[] second = new int[length];
+        int secondOffset = 0;
         int chunkSize = 1;
-        while (chunkSize < a.length) {
-            for (int i = 0; i < first.length; i += chunkSize * 2) {
-                merge(first, second, i, Math.min(first.length, i + chunkSize),
-                        Math.min(first.length, i + 2 * chunkSize));
+        while (chunkSize < length) {
+            for (int i = 0; i < length; i += chunkSize * 2) {
+                merge(first, firstOffset, second, secondOffset, i, Math.min(length, i + chunkSize),
+                        Math.min(length, i + 2 * chunkSize));
             }
             int[] tmp = first;
             first = second;
             second = tmp;
+            int tmpOffset = firstOffset;
+            firstOffset = secondOffset;
+            secondOffset = tmpOffset;
             chunkSize *= 2;
         }
         if (first != a) {
-            for (int i = 0; i < first.length; ++i) {
-                second[i] = first[i];
+            for (int i = 0; i < length; ++i) {
+                a[fromIndex + i] = first[i];
             }
         }
     }
 
-    private static void merge(int[] a, int[] b, int from, int split, int to) {
-        int index = from;
-        int from2 = split;
+    private static void merge(int[] a, int aOffset, int[] b, int bOffset, int from, int split, int to) {
+        int index = bOffset + from;
+        int from2 = aOffset + split;
+        split += aOffset;
+        to += aOffset;
+        from += aOffset;
         while (true) {
             if (from == split) {
                 while (from2 < to) {
@@ -498,105 +513,126 @@ public class TArrays extends TObject {
     }
 
     public static void sort(long[] a, int fromIndex, int toIndex) {
-        long[] subarray = new long[toIndex - fromIndex];
-        for (int i = fromIndex; i < toIndex; ++i) {
-            subarray[i - fromIndex] = a[i];
-        }
-        sort(subarray);
-        for (int i = fromIndex; i < toIndex; ++i) {
-            a[i] = subarray[i - fromIndex];
-        }
+        checkRange(a.length, fromIndex, toIndex);
+        quickSort(a, fromIndex, toIndex - 1);
     }
 
     public static void sort(long[] a) {
-        if (a.length == 0) {
-            return;
-        }
-        long[] first = a;
-        long[] second = new long[a.length];
-        int chunkSize = 1;
-        while (chunkSize < a.length) {
-            for (int i = 0; i < first.length; i += chunkSize * 2) {
-                merge(first, second, i, Math.min(first.length, i + chunkSize),
-                        Math.min(first.length, i + 2 * chunkSize));
+        quickSort(a, 0, a.length - 1);
+    }
+
+    // Longs are emulated in JavaScript, so copying them is cheap compared to comparing them. Dual-pivot
+    // quicksort needs fewer comparisons than the merge sort and works in place.
+    private static void quickSort(long[] a, int left, int right) {
+        while (right - left >= INSERTION_SORT_THRESHOLD) {
+            int third = (right - left) / 3;
+            int m1 = left + third;
+            int m2 = right - third;
+            if (a[m1] > a[m2]) {
+                swap(a, m1, m2);
+            }
+            swap(a, left, m1);
+            swap(a, right, m2);
+            long pivot1 = a[left];
+            long pivot2 = a[right];
+
+            int less = left + 1;
+            int great = right - 1;
+            for (int k = less; k <= great; ++k) {
+                long ak = a[k];
+                if (ak < pivot1) {
+                    a[k] = a[less];
+                    a[less++] = ak;
+                } else if (ak > pivot2) {
+                    while (k < great && a[great] > pivot2) {
+                        --great;
+                    }
+                    a[k] = a[great];
+                    a[great--] = ak;
+                    ak = a[k];
+                    if (ak < pivot1) {
+                        a[k] = a[less];
+                        a[less++] = ak;
+                    }
+                }
             }
-            long[] tmp = first;
-            first = second;
-            second = tmp;
-            chunkSize *= 2;
+            a[left] = a[less - 1];
+            a[less - 1] = pivot1;
+            a[right] = a[great + 1];
+            a[great + 1] = pivot2;
+
+            quickSort(a, left, less - 2);
+            if (pivot1 < pivot2) {
+                quickSort(a, less, great);
+            }
+            left = great + 2;
         }
-        if (first != a) {
-            for (int i = 0; i < first.length; ++i) {
-                second[i] = first[i];
+        for (int i = left + 1; i <= right; ++i) {
+            long value = a[i];
+            int j = i - 1;
+            while (j >= left && a[j] > value) {
+                a[j + 1] = a[j];
+                --j;
             }
+            a[j + 1] = value;
         }
     }
 
-    private static void merge(long[] a, long[] b, int from, int split, int to) {
-        int index = from;
-        int from2 = split;
-        while (true) {
-            if (from == split) {
-                while (from2 < to) {
-                    b[index++] = a[from2++];
-                }
-                break;
-            } else if (from2 == to) {
-                while (from < split) {
-                    b[index++] = a[from++];
-                }
-                break;
-            }
-            long p = a[from];
-            long q = a[from2];
-            if (p <= q) {
-                b[index++] = p;
-                ++from;
-            } else {
-                b[index++] = q;
-                ++from2;
-            }
-        }
+    private static void swap(long[] a, int i, int j) {
+        long tmp = a[i];
+        a[i] = a[j];
+        a[j] = tmp;
     }
 
     public static void sort(short[] a, int fromIndex, int toIndex) {
-        short[] subarray = new short[toIndex - fromIndex];
-        for (int i = fromIndex; i < toIndex; ++i) {
-            subarray[i - fromIndex] = a[i];
-        }
-        sort(subarray);
-        for (int i = fromIndex; i < toIndex; ++i) {
-            a[i] = subarray[i - fromIndex];
-        }
+        checkRange(a.length, fromIndex, toIndex);
+        sortNative(a, fromIndex, toIndex);
     }
 
     public static void sort(short[] a) {
-        if (a.length == 0) {
+        sortNative(a, 0, a.length);
+    }
+
+    @GeneratedBy(ArraysNativeGenerator.class)
+    @PluggableDependency(ArraysNativeGenerator.class)
+    private static native void sortNative(short[] a, int fromIndex, int toIndex);
+
+    private static void mergeSort(short[] a, int fromIndex, int toIndex) {
+        int length = toIndex - fromIndex;
+        if (length < 2) {
             return;
         }
         short[] first = a;
-        short[] second = new short[a.length];
+        int firstOffset = fromIndex;
+        short[] second = new short[length];
+        int secondOffset = 0;
         int chunkSize = 1;
-        while (chunkSize < a.length) {
-            for (int i = 0; i < first.length; i += chunkSize * 2) {
-                merge(first, second, i, Math.min(first.length, i + chunkSize),
-                        Math.min(first.length, i + 2 * chunkSize));
+        while (chunkSize < length) {
+            for (int i = 0; i < length; i += chunkSize * 2) {
+                merge(first, firstOffset, second, secondOffset, i, Math.min(length, i + chunkSize),
+                        Math.min(length, i + 2 * chunkSize));
             }
             short[] tmp = first;
             first = second;
             second = tmp;
+            int tmpOffset = firstOffset;
+            firstOffset = secondOffset;
+            secondOffset = tmpOffset;
             chunkSize *= 2;
         }
         if (first != a) {
-            for (int i = 0; i < first.length; ++i) {
-                second[i] = first[i];
+            for (int i = 0; i < length; ++i) {
+                a[fromIndex + i] = first[i];
             }
         }
     }
 
-    private static void merge(short[] a, short[] b, int from, int split, int to) {
-        int index = from;
-        int from2 = split;
+    private static void merge(short[] a, int aOffset, short[] b, int bOffset, int from, int split, int to) {
+        int index = bOffset + from;
+        int from2 = aOffset + split;
+        split += aOffset;
+        to += aOffset;
+        from += aOffset;
         while (true) {
             if (from == split) {
                 while (from2 < to) {
@@ -622,43 +658,54 @@ public class TArrays extends TObject {
     }
 
     public static void sort(char[] a, int fromIndex, int toIndex) {
-        char[] subarray = new char[toIndex - fromIndex];
-        for (int i = fromIndex; i < toIndex; ++i) {
-            subarray[i - fromIndex] = a[i];
-        }
-        sort(subarray);
-        for (int i = fromIndex; i < toIndex; ++i) {
-            a[i] = subarray[i - fromIndex];
-        }
+        checkRange(a.length, fromIndex, toIndex);
+        sortNative(a, fromIndex, toIndex);
     }
 
     public static void sort(char[] a) {
-        if (a.length == 0) {
+        sortNative(a, 0, a.length);
+    }
+
+    @GeneratedBy(ArraysNativeGenerator.class)
+    @PluggableDependency(ArraysNativeGenerator.class)
+    private static native void sortNative(char[] a, int fromIndex, int toIndex);
+
+    private static void mergeSort(char[] a, int fromIndex, int toIndex) {
+        int length = toIndex - fromIndex;
+        if (length < 2) {
             return;
         }
         char[] first = a;
-        char[] second = new char[a.length];
+        int firstOffset = fromIndex;
+        char[] second = new char[length];
+        int secondOffset = 0;
         int chunkSize = 1;
-        while (chunkSize < a.length) {
-            for (int i = 0; i < first.length; i += chunkSize * 2) {
-                merge(first, second, i, Math.min(first.length, i + chunkSize),
-                        Math.min(first.length, i + 2 * chunkSize));
+        while (chunkSize < length) {
+            for (int i = 0; i < length; i += chunkSize * 2) {
+                merge(first, firstOffset, second, secondOffset, i, Math.min(length, i + chunkSize),
+                        Math.min(length, i + 2 * chunkSize));
             }
             char[] tmp = first;
             first = second;
             second = tmp;
+            int tmpOffset = firstOffset;
+            firstOffset = secondOffset;
+            secondOffset = tmpOffset;
             chunkSize *= 2;
         }
         if (first != a) {
-            for (int i = 0; i < first.length; ++i) {
-                second[i] = first[i];
+            for (int i = 0; i < length; ++i) {
+                a[fromIndex + i] = first[i];
             }
         }
     }
 
-    private static void merge(char[] a, char[] b, int from, int split, int to) {
-        int index = from;
-        int from2 = split;
+    private static void merge(char[] a, int aOffset, char[] b, int bOffset, int from, int split, int to) {
+        int index = bOffset + from;
+        int from2 = aOffset + split;
+        split += aOffset;
+        to += aOffset;
+        from += aOffset;
         while (true) {
             if (from == split) {
                 while (from2 < to) {
@@ -684,43 +731,54 @@ public class TArrays extends TObject {
     }
 
     public static void sort(byte[] a, int fromIndex, int toIndex) {
-        byte[] subarray = new byte[toIndex - fromIndex];
-        for (int i = fromIndex; i < toIndex; ++i) {
-            subarray[i - fromIndex] = a[i];
-        }
-        sort(subarray);
-        for (int i = fromIndex; i < toIndex; ++i) {
-            a[i] = subarray[i - fromIndex];
-        }
+        checkRange(a.length, fromIndex, toIndex);
+        sortNative(a, fromIndex, toIndex);
     }
 
     public static void sort(byte[] a) {
-        if (a.length == 0) {
+        sortNative(a, 0, a.length);
+    }
+
+    @GeneratedBy(ArraysNativeGenerator.class)
+    @PluggableDependency(ArraysNativeGenerator.class)
+    private static native void sortNative(byte[] a, int fromIndex, int toIndex);
+
+    private static void mergeSort(byte[] a, int fromIndex, int toIndex) {
+        int length = toIndex - fromIndex;
+        if (length < 2) {
             return;
         }
         byte[] first = a;
-        byte[] second = new byte[a.length];
+        int firstOffset = fromIndex;
+        byte[] second = new byte[length];
+        int secondOffset = 0;
         int chunkSize = 1;
-        while (chunkSize < a.length) {
-            for (int i = 0; i < first.length; i += chunkSize * 2) {
-                merge(first, second, i, Math.min(first.length, i + chunkSize),
-                        Math.min(first.length, i + 2 * chunkSize));
+        while (chunkSize < length) {
+            for (int i = 0; i < length; i += chunkSize * 2) {
+                merge(first, firstOffset, second, secondOffset, i, Math.min(length, i + chunkSize),
+                        Math.min(length, i + 2 * chunkSize));
             }
             byte[] tmp = first;
             first = second;
             second = tmp;
+            int tmpOffset = firstOffset;
+            firstOffset = secondOffset;
+            secondOffset = tmpOffset;
             chunkSize *= 2;
         }
         if (first != a) {
-            for (int i = 0; i < first.length; ++i) {
-                second[i] = first[i];
+            for (int i = 0; i < length; ++i) {
+                a[fromIndex + i] = first[i];
             }
         }
     }
 
-    private static void merge(byte[] a, byte[] b, int from, int split, int to) {
-        int index = from;
-        int from2 = split;
+    private static void merge(byte[] a, int aOffset, byte[] b, int bOffset, int from, int split, int to) {
+        int index = bOffset + from;
+        int from2 = aOffset + split;
+        split += aOffset;
+        to += aOffset;
+        from += aOffset;
         while (true) {
             if (from == split) {
                 while (from2 < to) {
@@ -746,43 +804,54 @@ public class TArrays extends TObject {
     }
 
     public static void sort(float[] a, int fromIndex, int toIndex) {
-        float[] subarray = new float[toIndex - fromIndex];
-        for (int i = fromIndex; i < toIndex; ++i) {
-            subarray[i - fromIndex] = a[i];
-        }
-        sort(subarray);
-        for (int i = fromIndex; i < toIndex; ++i) {
-            a[i] = subarray[i - fromIndex];
-        }
+        checkRange(a.length, fromIndex, toIndex);
+        sortNative(a, fromIndex, toIndex);
     }
 
     public static void sort(float[] a) {
-        if (a.length == 0) {
+        sortNative(a, 0, a.length);
+    }
+
+    @GeneratedBy(ArraysNativeGenerator.class)
+    @PluggableDependency(ArraysNativeGenerator.class)
+    private static native void sortNative(float[] a, int fromIndex, int toIndex);
+
+    private static void mergeSort(float[] a, int fromIndex, int toIndex) {
+        int length = toIndex - fromIndex;
+        if (length < 2) {
             return;
         }
         float[] first = a;
-        float[] second = new float[a.length];
+        int firstOffset = fromIndex;
+        float[] second = new float[length];
+        int secondOffset = 0;
         int chunkSize = 1;
-        while (chunkSize < a.length) {
-            for (int i = 0; i < first.length; i += chunkSize * 2) {
-                merge(first, second, i, Math.min(first.length, i + chunkSize),
-                        Math.min(first.length, i + 2 * chunkSize));
+        while (chunkSize < length) {
+            for (int i = 0; i < length; i += chunkSize * 2) {
+                merge(first, firstOffset, second, secondOffset, i, Math.min(length, i + chunkSize),
+                        Math.min(length, i + 2 * chunkSize));
             }
             float[] tmp = first;
             first = second;
             second = tmp;
+            int tmpOffset = firstOffset;
+            firstOffset = secondOffset;
+            secondOffset = tmpOffset;
             chunkSize *= 2;
         }
         if (first != a) {
-            for (int i = 0; i < first.length; ++i) {
-                second[i] = first[i];
+            for (int i = 0; i < length; ++i) {
+                a[fromIndex + i] = first[i];
             }
         }
     }
 
-    private static void merge(float[] a, float[] b, int from, int split, int to) {
-        int index = from;
-        int from2 = split;
+    private static void merge(float[] a, int aOffset, float[] b, int bOffset, int from, int split, int to) {
+        int index = bOffset + from;
+        int from2 = aOffset + split;
+        split += aOffset;
+        to += aOffset;
+        from += aOffset;
         while (true) {
             if (from == split) {
                 while (from2 < to) {
@@ -797,7 +866,7 @@ public class TArrays extends TObject {
             }
             float p = a[from];
             float q = a[from2];
-            if (p <= q) {
+            if (lessOrEqual(p, q)) {
                 b[index++] = p;
                 ++from;
             } else {
@@ -808,43 +877,54 @@ public class TArrays extends TObject {
     }
 
     public static void sort(double[] a, int fromIndex, int toIndex) {
-        double[] subarray = new double[toIndex - fromIndex];
-        for (int i = fromIndex; i < toIndex; ++i) {
-            subarray[i - fromIndex] = a[i];
-        }
-        sort(subarray);
-        for (int i = fromIndex; i < toIndex; ++i) {
-            a[i] = subarray[i - fromIndex];
-        }
+        checkRange(a.length, fromIndex, toIndex);
+        sortNative(a, fromIndex, toIndex);
     }
 
     public static void sort(double[] a) {
-        if (a.length == 0) {
+        sortNative(a, 0, a.length);
+    }
+
+    @GeneratedBy(ArraysNativeGenerator.class)
+    @PluggableDependency(ArraysNativeGenerator.class)
+    private static native void sortNative(double[] a, int fromIndex, int toIndex);
+
+    private static void mergeSort(double[] a, int fromIndex, int toIndex) {
+        int length = toIndex - fromIndex;
+        if (length < 2) {
             return;
         }
         double[] first = a;
-        double[] second = new double[a.length];
+        int firstOffset = fromIndex;
+        double[] second = new double[length];
+        int secondOffset = 0;
         int chunkSize = 1;
-        while (chunkSize < a.length) {
-            for (int i = 0; i < first.length; i += chunkSize * 2) {
-                merge(first, second, i, Math.min(first.length, i + chunkSize),
-                        Math.min(first.length, i + 2 * chunkSize));
+        while (chunkSize < length) {
+            for (int i = 0; i < length; i += chunkSize * 2) {
+                merge(first, firstOffset, second, secondOffset, i, Math.min(length, i + chunkSize),
+                        Math.min(length, i + 2 * chunkSize));
             }
             double[] tmp = first;
             first = second;
             second = tmp;
+            int tmpOffset = firstOffset;
+            firstOffset = secondOffset;
+            secondOffset = tmpOffset;
             chunkSize *= 2;
         }
         if (first != a) {
-            for (int i = 0; i < first.length; ++i) {
-                second[i] = first[i];
+            for (int i = 0; i < length; ++i) {
+                a[fromIndex + i] = first[i];
             }
         }
     }
 
-    private static void merge(double[] a, double[] b, int from, int split, int to) {
-        int index = from;
-        int from2 = split;
+    private static void merge(double[] a, int aOffset, double[] b, int bOffset, int from, int split, int to) {
+        int index = bOffset + from;
+        int from2 = aOffset + split;
+        split += aOffset;
+        to += aOffset;
+        from += aOffset;
         while (true) {
             if (from == split) {
                 while (from2 < to) {
@@ -859,7 +939,7 @@ public class TArrays extends TObject {
             }
             double p = a[from];
             double q = a[from2];
-            if (p <= q) {
+            if (lessOrEqual(p, q)) {
                 b[index++] = p;
                 ++from;
             } else {
@@ -869,6 +949,28 @@ public class TArrays extends TObject {
         }
     }
 
+    private static void checkRange(int length, int fromIndex, int toIndex) {
+        if (fromIndex > toIndex) {
+            throw new TIllegalArgumentException();
+        }
+        if (fromIndex < 0 || toIndex > length) {
+            throw new TArrayIndexOutOfBoundsException();
+        }
+    }
+
+    // Orders floating point numbers the way Double.compare does: -0.0 goes before 0.0, NaN goes after
+    // everything else
+    private static boolean lessOrEqual(double p, double q) {
+        if (TDouble.isNaN(q)) {
+            return true;
+        } else if (TDouble.isNaN(p)) {
+            return false;
+        } else if (p == 0 && q == 0) {
+            return 1 / p < 0 || 1 / q > 0;
+        }
+        return p <= q;
+    }
+
     public static void sort(Object[] a) {
         sort(a, new NaturalOrder());
     }
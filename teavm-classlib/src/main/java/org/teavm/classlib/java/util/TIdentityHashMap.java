@@ -0,0 +1,57 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.util;
+
+/**
+ * <p>Map that compares keys and values by reference. Keys are found by a native JavaScript
+ * <code>Map</code>, that compares objects exactly the way this map has to.</p>
+ *
+ * @author Alexey Andreev
+ */
+public class TIdentityHashMap<K, V> extends TNativeKeyMap<K, V> implements TMap<K, V> {
+    public TIdentityHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public TIdentityHashMap(int expectedMaxSize) {
+        super(expectedMaxSize);
+    }
+
+    public TIdentityHashMap(TMap<? extends K, ? extends V> map) {
+        this(map.size());
+        putAll(map);
+    }
+
+    @Override
+    int hash(Object key) {
+        return System.identityHashCode(key);
+    }
+
+    @Override
+    boolean sameKeys(Object a, Object b) {
+        return a == b;
+    }
+
+    @Override
+    boolean sameValues(Object a, Object b) {
+        return a == b;
+    }
+
+    @Override
+    public Object clone() {
+        return super.clone();
+    }
+}
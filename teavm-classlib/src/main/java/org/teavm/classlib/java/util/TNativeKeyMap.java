@@ -0,0 +1,441 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.util;
+
+import java.util.Arrays;
+import org.teavm.classlib.java.io.TSerializable;
+import org.teavm.classlib.java.lang.TCloneNotSupportedException;
+import org.teavm.classlib.java.lang.TCloneable;
+import org.teavm.classlib.java.lang.TIllegalArgumentException;
+import org.teavm.classlib.java.lang.TIllegalStateException;
+import org.teavm.javascript.ni.GeneratedBy;
+
+/**
+ * <p>Base class for maps that find keys by means of a native JavaScript <code>Map</code>, which compares
+ * keys by reference.</p>
+ *
+ * <p>Keys and values are kept in parallel arrays in insertion order, the native map only holds slots
+ * of keys. Slots of removed mappings are reclaimed when the arrays are full. The mapping for
+ * <code>null</code> key is kept apart from slots. When the engine does not support <code>Map</code>,
+ * slots are found through a hash table of slot numbers.</p>
+ *
+ * @author Alexey Andreev
+ */
+abstract class TNativeKeyMap<K, V> extends TAbstractMap<K, V> implements TCloneable, TSerializable {
+    static final int DEFAULT_CAPACITY = 8;
+    private transient Object index;
+    private transient int[] table;
+    transient Object[] keys;
+    transient Object[] values;
+    transient int end;
+    transient int elementCount;
+    transient boolean containsNullKey;
+    transient Object nullValue;
+    transient int modCount;
+    private transient TSet<TMap.Entry<K, V>> cachedEntrySet;
+
+    TNativeKeyMap(int capacity) {
+        if (capacity < 0) {
+            throw new TIllegalArgumentException();
+        }
+        allocate(Math.max(capacity, DEFAULT_CAPACITY));
+    }
+
+    /**
+     * Returns the hash code of the given non-null key, used when the engine does not support native maps.
+     */
+    abstract int hash(Object key);
+
+    /**
+     * Compares the given non-null keys, used when the engine does not support native maps.
+     */
+    abstract boolean sameKeys(Object a, Object b);
+
+    abstract boolean sameValues(Object a, Object b);
+
+    private void allocate(int capacity) {
+        keys = new Object[capacity];
+        values = new Object[capacity];
+        end = 0;
+        resetIndex(capacity);
+    }
+
+    private void resetIndex(int capacity) {
+        index = createIndex();
+        if (index == null) {
+            table = new int[Integer.highestOneBit(capacity) << 2];
+        }
+    }
+
+    @Override
+    public int size() {
+        return elementCount;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return elementCount == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key == null ? containsNullKey : findSlot(key) >= 0;
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        if (containsNullKey && sameValues(value, nullValue)) {
+            return true;
+        }
+        for (int i = 0; i < end; ++i) {
+            if (keys[i] != null && sameValues(value, values[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        if (key == null) {
+            return (V)nullValue;
+        }
+        int slot = findSlot(key);
+        return slot >= 0 ? (V)values[slot] : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V put(K key, V value) {
+        Object result;
+        if (key == null) {
+            result = nullValue;
+            if (!containsNullKey) {
+                containsNullKey = true;
+                elementCount++;
+                modCount++;
+            }
+            nullValue = value;
+            return (V)result;
+        }
+        int slot = findSlot(key);
+        if (slot >= 0) {
+            result = values[slot];
+            values[slot] = value;
+            return (V)result;
+        }
+        if (end == keys.length) {
+            rebuild();
+        }
+        slot = end++;
+        keys[slot] = key;
+        values[slot] = value;
+        if (index != null) {
+            indexSet(index, key, slot);
+        } else {
+            tableInsert(hash(key), slot);
+        }
+        elementCount++;
+        modCount++;
+        return null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        Object result;
+        if (key == null) {
+            result = nullValue;
+            if (containsNullKey) {
+                removeNullKey();
+            }
+            return (V)result;
+        }
+        int slot = findSlot(key);
+        if (slot < 0) {
+            return null;
+        }
+        result = values[slot];
+        removeAt(slot);
+        return (V)result;
+    }
+
+    @Override
+    public void clear() {
+        if (elementCount > 0) {
+            containsNullKey = false;
+            nullValue = null;
+            elementCount = 0;
+            modCount++;
+            allocate(keys.length);
+        }
+    }
+
+    @Override
+    public TSet<TMap.Entry<K, V>> entrySet() {
+        if (cachedEntrySet == null) {
+            cachedEntrySet = new EntrySet();
+        }
+        return cachedEntrySet;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected Object clone() throws TCloneNotSupportedException {
+        TNativeKeyMap<K, V> copy = (TNativeKeyMap<K, V>)super.clone();
+        copy.cachedEntrySet = null;
+        copy.keys = keys.clone();
+        copy.values = values.clone();
+        copy.rebuild();
+        return copy;
+    }
+
+    private int findSlot(Object key) {
+        if (index != null) {
+            return indexGet(index, key);
+        }
+        int hash = hash(key);
+        int mask = table.length - 1;
+        int position = hash & mask;
+        while (true) {
+            int entry = table[position];
+            if (entry == 0) {
+                return -1;
+            }
+            if (entry > 0 && sameKeys(key, keys[entry - 1])) {
+                return entry - 1;
+            }
+            position = (position + 1) & mask;
+        }
+    }
+
+    void removeAt(int slot) {
+        Object key = keys[slot];
+        if (index != null) {
+            indexDelete(index, key);
+        } else {
+            int mask = table.length - 1;
+            int position = hash(key) & mask;
+            while (table[position] != slot + 1) {
+                position = (position + 1) & mask;
+            }
+            table[position] = -1;
+        }
+        keys[slot] = null;
+        values[slot] = null;
+        elementCount--;
+        modCount++;
+    }
+
+    void removeNullKey() {
+        containsNullKey = false;
+        nullValue = null;
+        elementCount--;
+        modCount++;
+    }
+
+    private void tableInsert(int hash, int slot) {
+        int mask = table.length - 1;
+        int position = hash & mask;
+        while (table[position] > 0) {
+            position = (position + 1) & mask;
+        }
+        table[position] = slot + 1;
+    }
+
+    /**
+     * Moves all live slots to the beginning of the arrays, which are doubled when more than a half of slots
+     * are live, and fills a new index.
+     */
+    private void rebuild() {
+        Object[] oldKeys = keys;
+        Object[] oldValues = values;
+        int oldEnd = end;
+        int count = containsNullKey ? elementCount - 1 : elementCount;
+        if (count >= oldKeys.length >> 1) {
+            keys = new Object[oldKeys.length << 1];
+            values = new Object[oldKeys.length << 1];
+        }
+        resetIndex(keys.length);
+        end = 0;
+        for (int i = 0; i < oldEnd; ++i) {
+            Object key = oldKeys[i];
+            if (key == null) {
+                continue;
+            }
+            int slot = end++;
+            keys[slot] = key;
+            values[slot] = oldValues[i];
+            if (index != null) {
+                indexSet(index, key, slot);
+            } else {
+                tableInsert(hash(key), slot);
+            }
+        }
+        if (keys == oldKeys) {
+            Arrays.fill(keys, end, oldEnd, null);
+            Arrays.fill(values, end, oldEnd, null);
+        }
+    }
+
+    @GeneratedBy(NativeKeyMapGenerator.class)
+    private static native Object createIndex();
+
+    @GeneratedBy(NativeKeyMapGenerator.class)
+    private static native int indexGet(Object index, Object key);
+
+    @GeneratedBy(NativeKeyMapGenerator.class)
+    private static native void indexSet(Object index, Object key, int slot);
+
+    @GeneratedBy(NativeKeyMapGenerator.class)
+    private static native void indexDelete(Object index, Object key);
+
+    private class EntrySet extends TAbstractSet<TMap.Entry<K, V>> {
+        @Override
+        public int size() {
+            return elementCount;
+        }
+
+        @Override
+        public void clear() {
+            TNativeKeyMap.this.clear();
+        }
+
+        @Override
+        public TIterator<TMap.Entry<K, V>> iterator() {
+            return new EntryIterator();
+        }
+    }
+
+    private class EntryIterator implements TIterator<TMap.Entry<K, V>> {
+        private int nextSlot = -1;
+        private int currentSlot = -2;
+        private boolean nullKeyVisited;
+        private int expectedModCount = modCount;
+
+        EntryIterator() {
+            advance();
+        }
+
+        private void advance() {
+            while (++nextSlot < end) {
+                if (keys[nextSlot] != null) {
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextSlot < end || containsNullKey && !nullKeyVisited;
+        }
+
+        @Override
+        public TMap.Entry<K, V> next() {
+            if (modCount != expectedModCount) {
+                throw new TConcurrentModificationException();
+            }
+            if (!hasNext()) {
+                throw new TNoSuchElementException();
+            }
+            if (nextSlot < end) {
+                currentSlot = nextSlot;
+                advance();
+            } else {
+                currentSlot = -1;
+                nullKeyVisited = true;
+            }
+            return new SlotEntry(currentSlot);
+        }
+
+        @Override
+        public void remove() {
+            if (modCount != expectedModCount) {
+                throw new TConcurrentModificationException();
+            }
+            if (currentSlot < -1) {
+                throw new TIllegalStateException();
+            }
+            if (currentSlot < 0) {
+                removeNullKey();
+            } else {
+                removeAt(currentSlot);
+            }
+            currentSlot = -2;
+            expectedModCount = modCount;
+        }
+    }
+
+    /**
+     * Entry that reads and writes the value of its slot, or of the <code>null</code> key when slot is
+     * <code>-1</code>, while the slot still holds the entry's key.
+     */
+    private class SlotEntry extends TMapEntry<K, V> {
+        private final int slot;
+
+        @SuppressWarnings("unchecked")
+        SlotEntry(int slot) {
+            super(slot >= 0 ? (K)keys[slot] : null, slot >= 0 ? (V)values[slot] : (V)nullValue);
+            this.slot = slot;
+        }
+
+        private boolean isLive() {
+            return slot >= 0 ? keys[slot] == key : containsNullKey;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V getValue() {
+            if (isLive()) {
+                value = slot >= 0 ? (V)values[slot] : (V)nullValue;
+            }
+            return value;
+        }
+
+        @Override
+        public V setValue(V object) {
+            V result = getValue();
+            if (isLive()) {
+                if (slot >= 0) {
+                    values[slot] = object;
+                } else {
+                    nullValue = object;
+                }
+            }
+            value = object;
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            getValue();
+            return super.equals(object);
+        }
+
+        @Override
+        public int hashCode() {
+            getValue();
+            return super.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            getValue();
+            return super.toString();
+        }
+    }
+}
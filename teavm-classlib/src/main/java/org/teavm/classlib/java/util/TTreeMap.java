@@ -363,13 +363,14 @@ public class TTreeMap<K, V> extends TAbstractMap<K, V> implements TCloneable, TS
             while (minDepth > 0) {
                 TreeNode<K, V> node = pathToMin[--minDepth];
                 node.left = right;
-                right = node;
-                node.balance();
+                node.fix();
+                right = node.balance();
             }
             min.right = right;
             min.left = left;
             root = min;
         }
+        root.fix();
         return root.balance();
     }
 
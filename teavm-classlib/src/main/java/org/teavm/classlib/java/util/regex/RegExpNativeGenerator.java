@@ -0,0 +1,104 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.util.regex;
+
+import java.io.IOException;
+import org.teavm.codegen.SourceWriter;
+import org.teavm.javascript.ni.Generator;
+import org.teavm.javascript.ni.GeneratorContext;
+import org.teavm.model.FieldReference;
+import org.teavm.model.MethodReference;
+
+/**
+ *
+ * @author Alexey Andreev
+ */
+public class RegExpNativeGenerator implements Generator {
+    private static final FieldReference NATIVE_STRING = new FieldReference("java.lang.String", "nativeString");
+
+    @Override
+    public void generate(GeneratorContext context, SourceWriter writer, MethodReference methodRef) throws IOException {
+        switch (methodRef.getName()) {
+            case "createRegExp":
+                generateCreateRegExp(context, writer);
+                break;
+            case "exec":
+                generateExec(context, writer);
+                break;
+            case "execGroups":
+                generateExecGroups(context, writer);
+                break;
+            case "start":
+                writer.append("return ").append(context.getParameterName(1)).append(".index;").softNewLine();
+                break;
+            case "end":
+                writer.append("return ").append(context.getParameterName(1)).append(".index").ws().append("+")
+                        .ws().append(context.getParameterName(1)).append("[0].length;").softNewLine();
+                break;
+            case "group":
+                generateGroup(context, writer);
+                break;
+        }
+    }
+
+    private void generateCreateRegExp(GeneratorContext context, SourceWriter writer) throws IOException {
+        // Engines that don't know some of the flags reject the expression
+        writer.append("try").ws().append("{").indent().softNewLine();
+        writer.append("return new RegExp(").append(context.getParameterName(1)).append('.').appendField(NATIVE_STRING)
+                .append(",").ws().append(context.getParameterName(2)).append('.').appendField(NATIVE_STRING)
+                .append(");").softNewLine();
+        writer.outdent().append("}").ws().append("catch").ws().append("(e)").ws().append("{").indent()
+                .softNewLine();
+        writer.append("return null;").softNewLine();
+        writer.outdent().append("}").softNewLine();
+    }
+
+    private void generateExec(GeneratorContext context, SourceWriter writer) throws IOException {
+        String regexp = context.getParameterName(1);
+        writer.append(regexp).append(".lastIndex").ws().append("=").ws().append(context.getParameterName(3))
+                .append(";").softNewLine();
+        writer.append("return ").append(regexp).append(".exec(").append(context.getParameterName(2)).append('.')
+                .appendField(NATIVE_STRING).append(");").softNewLine();
+    }
+
+    private void generateGroup(GeneratorContext context, SourceWriter writer) throws IOException {
+        writer.append("var group").ws().append("=").ws().append(context.getParameterName(1)).append("[")
+                .append(context.getParameterName(2)).append("];").softNewLine();
+        writer.append("return group").ws().append("===").ws().append("undefined").ws().append("?").ws()
+                .append("null").ws().append(":").ws().append("$rt_str(group);").softNewLine();
+    }
+
+    private void generateExecGroups(GeneratorContext context, SourceWriter writer) throws IOException {
+        String regexp = context.getParameterName(1);
+        String bounds = context.getParameterName(4);
+        writer.append(regexp).append(".lastIndex").ws().append("=").ws().append(context.getParameterName(3))
+                .append(";").softNewLine();
+        writer.append("var indices").ws().append("=").ws().append(regexp).append(".exec(")
+                .append(context.getParameterName(2)).append('.').appendField(NATIVE_STRING).append(").indices;")
+                .softNewLine();
+        writer.append("for").ws().append("(var i").ws().append("=").ws().append("0;").ws().append("i")
+                .ws().append("<").ws().append("indices.length;").ws().append("++i)").ws().append("{").indent()
+                .softNewLine();
+        writer.append("var range").ws().append("=").ws().append("indices[i];").softNewLine();
+        writer.append(bounds).append(".data[i").ws().append("*").ws().append("2]").ws().append("=").ws()
+                .append("range").ws().append("?").ws().append("range[0]").ws().append(":").ws().append("-1;")
+                .softNewLine();
+        writer.append(bounds).append(".data[i").ws().append("*").ws().append("2").ws().append("+").ws()
+                .append("1]").ws().append("=").ws().append("range").ws().append("?").ws().append("range[1]")
+                .ws().append(":").ws().append("-1;").softNewLine();
+        writer.outdent().append("}").softNewLine();
+    }
+}
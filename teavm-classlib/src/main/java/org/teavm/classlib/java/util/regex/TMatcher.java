@@ -52,6 +52,12 @@ public final class TMatcher implements TMatchResult {
 
     static int MODE_MATCH = 1 << 1;
 
+    private static final int NATIVE_FIND = 1;
+
+    private static final int NATIVE_LOOKING_AT = 2;
+
+    private static final int NATIVE_MATCH = 3;
+
     private TPattern pat = null;
 
     private TAbstractSet start = null;
@@ -74,6 +80,19 @@ public final class TMatcher implements TMatchResult {
 
     private ArrayList<Object> replacementParts = null;
 
+    // native matching
+    private TNativePattern nativePattern = null;
+
+    private Object nativeMatch = null;
+
+    private int[] nativeBounds = null;
+
+    private int nativeOperation = 0;
+
+    private int nativeStart = -1;
+
+    private boolean groupsPending = false;
+
     /**
      * Appends a literal part of the input plus a replacement for the current
      * match to a given {@link StringBuffer}. The literal part is exactly the
@@ -212,6 +231,8 @@ public final class TMatcher implements TMatchResult {
         appendPos = 0;
         replacement = null;
         matchResult.previousMatch = -1;
+        nativeOperation = 0;
+        groupsPending = false;
         return this;
     }
 
@@ -236,6 +257,8 @@ public final class TMatcher implements TMatchResult {
         matchResult.reset(null, start, end);
         appendPos = 0;
         replacement = null;
+        nativeOperation = 0;
+        groupsPending = false;
 
         return this;
     }
@@ -320,6 +343,9 @@ public final class TMatcher implements TMatchResult {
             throw new IndexOutOfBoundsException("Index " + group + " if out of range [0; " +
                     matchResult.groupCount() + ")");
         }
+        if (groupsPending && group != 0) {
+            return TNativePattern.group(nativeMatch, group);
+        }
         return matchResult.group(group);
     }
 
@@ -352,6 +378,13 @@ public final class TMatcher implements TMatchResult {
             throw new IndexOutOfBoundsException(String.valueOf(start));
         }
 
+        if (canMatchNatively(start)) {
+            return matchNatively(NATIVE_FIND, start);
+        }
+        return findEmulated(start);
+    }
+
+    private boolean findEmulated(int start) {
         start = findAt(start);
         if (start >= 0 && matchResult.isValid()) {
             matchResult.finalizeMatch();
@@ -409,6 +442,9 @@ public final class TMatcher implements TMatchResult {
      */
     @Override
     public int start(int group) {
+        if (group != 0) {
+            resolveGroups();
+        }
         return matchResult.start(group);
     }
 
@@ -425,6 +461,9 @@ public final class TMatcher implements TMatchResult {
      */
     @Override
     public int end(int group) {
+        if (group != 0) {
+            resolveGroups();
+        }
         return matchResult.end(group);
     }
 
@@ -502,12 +541,110 @@ public final class TMatcher implements TMatchResult {
     }
 
     private boolean lookingAt(int startIndex, int mode) {
+        if (canMatchNatively(startIndex)) {
+            return matchNatively(mode == TMatcher.MODE_MATCH ? NATIVE_MATCH : NATIVE_LOOKING_AT, startIndex);
+        }
+        return lookingAtEmulated(startIndex, mode);
+    }
+
+    private boolean lookingAtEmulated(int startIndex, int mode) {
         matchResult.reset();
         matchResult.setMode(mode);
         matchResult.setStartIndex(startIndex);
         return runMatch(start, startIndex, matchResult);
     }
 
+    /*
+     * Native expressions are only used for strings without regions. Since they treat strings as sequences of
+     * code points, they don't start matching in the middle of a surrogate pair.
+     */
+    private boolean canMatchNatively(int startIndex) {
+        if (nativePattern == null || !(string instanceof String) || leftBound != 0
+                || rightBound != string.length()) {
+            return false;
+        }
+        return startIndex == 0 || startIndex == rightBound || !Character.isLowSurrogate(string.charAt(startIndex))
+                || !Character.isHighSurrogate(string.charAt(startIndex - 1));
+    }
+
+    private boolean matchNatively(int operation, int startIndex) {
+        matchResult.reset();
+        matchResult.setMode(operation == NATIVE_MATCH ? TMatcher.MODE_MATCH : TMatcher.MODE_FIND);
+        matchResult.setStartIndex(startIndex);
+        nativeOperation = operation;
+        nativeStart = startIndex;
+        groupsPending = false;
+
+        String input = (String)string;
+        Object match;
+        switch (operation) {
+            case NATIVE_FIND:
+                match = nativePattern.find(input, startIndex);
+                break;
+            case NATIVE_LOOKING_AT:
+                match = nativePattern.lookingAt(input, startIndex);
+                break;
+            default:
+                match = nativePattern.matches(input, startIndex);
+                break;
+        }
+        if (match == null) {
+            if (operation == NATIVE_FIND) {
+                matchResult.startIndex = -1;
+            }
+            return false;
+        }
+        nativeMatch = match;
+        matchResult.setStart(0, TNativePattern.start(match));
+        matchResult.setEnd(0, TNativePattern.end(match));
+        matchResult.setValid();
+        matchResult.finalizeMatch();
+        groupsPending = matchResult.groupCount() > 0;
+        return true;
+    }
+
+    /*
+     * Native matching only reports bounds of the whole match, bounds of groups are found when requested.
+     */
+    private void resolveGroups() {
+        if (!groupsPending) {
+            return;
+        }
+        groupsPending = false;
+        nativePattern.findGroups((String)string, matchResult.getStart(0), nativeOperation == NATIVE_MATCH,
+                nativeBounds);
+        for (int i = 1; i <= matchResult.groupCount(); ++i) {
+            matchResult.setStart(i, nativeBounds[i * 2]);
+            matchResult.setEnd(i, nativeBounds[i * 2 + 1]);
+        }
+    }
+
+    /*
+     * Native expressions don't tell whether matching hit the end of input, so the last operation is repeated
+     * by the emulated engine, which gives the same match.
+     */
+    private void replayEmulated() {
+        int operation = nativeOperation;
+        if (operation == 0) {
+            return;
+        }
+        nativeOperation = 0;
+        groupsPending = false;
+        matchResult.hitEnd = false;
+        matchResult.requireEnd = false;
+        switch (operation) {
+            case NATIVE_FIND:
+                findEmulated(nativeStart);
+                break;
+            case NATIVE_LOOKING_AT:
+                lookingAtEmulated(nativeStart, TMatcher.MODE_FIND);
+                break;
+            default:
+                lookingAtEmulated(nativeStart, TMatcher.MODE_MATCH);
+                break;
+        }
+    }
+
     /**
      * Returns the index of the first character of the text that matched the
      * whole regular expression.
@@ -555,6 +692,7 @@ public final class TMatcher implements TMatchResult {
      *             if no successful match has been made.
      */
     public TMatchResult toMatchResult() {
+        resolveGroups();
         return this.matchResult.cloneImpl();
     }
 
@@ -640,6 +778,7 @@ public final class TMatcher implements TMatchResult {
      *         into an unsuccessful one.
      */
     public boolean requireEnd() {
+        replayEmulated();
         return matchResult.requireEnd;
     }
 
@@ -649,6 +788,7 @@ public final class TMatcher implements TMatchResult {
      * @return true if (and only if) the last match hit the end of the input.
      */
     public boolean hitEnd() {
+        replayEmulated();
         return matchResult.hitEnd;
     }
 
@@ -674,6 +814,10 @@ public final class TMatcher implements TMatchResult {
                 pattern.compCount(), pattern.consCount());
         matchResult.setStartIndex(startIndex);
         matchResult.setMode(mode);
+        nativePattern = pattern.nativePattern;
+        nativeBounds = new int[pattern.groupCount() * 2 + 2];
+        nativeOperation = 0;
+        groupsPending = false;
         return this;
     }
 
@@ -684,6 +828,8 @@ public final class TMatcher implements TMatchResult {
         this.leftBound = 0;
         this.rightBound = string.length();
         matchResult = new TMatchResultImpl(cs, leftBound, rightBound, pat.groupCount(), pat.compCount(), pat.consCount());
+        nativePattern = pat.nativePattern;
+        nativeBounds = new int[pat.groupCount() * 2 + 2];
     }
 
     @Override
@@ -0,0 +1,122 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.util.regex;
+
+import org.teavm.javascript.ni.GeneratedBy;
+
+/**
+ * <p>Matches a pattern by native JavaScript regular expressions built by {@link TRegExpTranslator}.</p>
+ *
+ * <p>Matching only gives contents of groups, since requesting their bounds makes engines match several
+ * times slower. Bounds are found on demand by a sticky expression with the <code>d</code> flag, which is
+ * applied to the position of the match. Matches of the whole rest of input have their own such expression,
+ * since an alternative that matches a shorter prefix may otherwise be chosen.</p>
+ *
+ * @author Alexey Andreev
+ */
+final class TNativePattern {
+    private final Object finder;
+    private final Object prefixMatcher;
+    private final Object matcher;
+    private final Object groupFinder;
+    private final Object groupMatcher;
+
+    private TNativePattern(Object finder, Object prefixMatcher, Object matcher, Object groupFinder,
+            Object groupMatcher) {
+        this.finder = finder;
+        this.prefixMatcher = prefixMatcher;
+        this.matcher = matcher;
+        this.groupFinder = groupFinder;
+        this.groupMatcher = groupMatcher;
+    }
+
+    /**
+     * Returns native pattern for the given pattern, or <code>null</code> if either the pattern can't be
+     * translated or the engine does not support the required flags.
+     */
+    static TNativePattern create(String pattern, int flags, int groupCount) {
+        TRegExpTranslator translator = new TRegExpTranslator(pattern, flags);
+        String source = translator.translate();
+        if (source == null || translator.getGroupCount() != groupCount) {
+            return null;
+        }
+        Object finder = createRegExp(source, "gu");
+        Object prefixMatcher = createRegExp("(?:" + source + ")", "uy");
+        Object matcher = createRegExp("(?:" + source + ")$", "uy");
+        Object groupFinder = null;
+        Object groupMatcher = null;
+        if (groupCount > 0) {
+            groupFinder = createRegExp(source, "duy");
+            groupMatcher = createRegExp("(?:" + source + ")$", "duy");
+            if (groupFinder == null || groupMatcher == null) {
+                return null;
+            }
+        }
+        if (finder == null || prefixMatcher == null || matcher == null) {
+            return null;
+        }
+        return new TNativePattern(finder, prefixMatcher, matcher, groupFinder, groupMatcher);
+    }
+
+    /**
+     * Finds the first match that starts at the given index or after it. Returns <code>null</code> if there
+     * is no such match.
+     */
+    Object find(String string, int from) {
+        return exec(finder, string, from);
+    }
+
+    /**
+     * Matches a prefix of the string that starts at the given index like {@link #find}.
+     */
+    Object lookingAt(String string, int from) {
+        return exec(prefixMatcher, string, from);
+    }
+
+    /**
+     * Matches the whole rest of the string that starts at the given index like {@link #find}.
+     */
+    Object matches(String string, int from) {
+        return exec(matcher, string, from);
+    }
+
+    /**
+     * Stores start and end of every group of the match that starts at the given index, <code>-1</code> for
+     * groups that did not participate in the match. When <code>wholeInput</code> is set, groups are found
+     * for the match of {@link #matches}, otherwise for the match of {@link #find} or {@link #lookingAt}.
+     */
+    void findGroups(String string, int start, boolean wholeInput, int[] bounds) {
+        execGroups(wholeInput ? groupMatcher : groupFinder, string, start, bounds);
+    }
+
+    @GeneratedBy(RegExpNativeGenerator.class)
+    static native int start(Object match);
+
+    @GeneratedBy(RegExpNativeGenerator.class)
+    static native int end(Object match);
+
+    @GeneratedBy(RegExpNativeGenerator.class)
+    static native String group(Object match, int group);
+
+    @GeneratedBy(RegExpNativeGenerator.class)
+    private static native Object createRegExp(String source, String flags);
+
+    @GeneratedBy(RegExpNativeGenerator.class)
+    private static native Object exec(Object regexp, String string, int from);
+
+    @GeneratedBy(RegExpNativeGenerator.class)
+    private static native void execGroups(Object regexp, String string, int from, int[] bounds);
+}
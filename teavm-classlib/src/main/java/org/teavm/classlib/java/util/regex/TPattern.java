@@ -151,6 +151,11 @@ public final class TPattern implements Serializable {
 
     transient TAbstractSet start = null;
 
+    /*
+     * Native regular expressions that match the same strings, null if the pattern can't be matched natively
+     */
+    transient TNativePattern nativePattern = null;
+
     /**
      * Returns a {@link TMatcher} for the {@code Pattern} and a given input. The
      * {@code Matcher} can be used to match the {@code Pattern} against the
@@ -327,6 +332,7 @@ public final class TPattern implements Serializable {
             throw new TPatternSyntaxException("", lexemes.toString(), lexemes.getIndex());
         }
         finalizeCompile();
+        nativePattern = TNativePattern.create(pattern, flags, groupCount());
         return this;
     }
 
@@ -0,0 +1,436 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.util.regex;
+
+/**
+ * <p>Translates patterns into the syntax of JavaScript regular expressions with the <code>u</code> flag.
+ * Only constructs that match exactly the same strings as the emulated engine are translated, any other
+ * construct makes translation fail.</p>
+ *
+ * <p>Among others, the following constructs are not translated: flags other than {@link TPattern#DOTALL} and
+ * {@link TPattern#LITERAL}, back references, word boundaries, Unicode categories, possessive quantifiers,
+ * nested classes, lookbehinds and capturing groups within quantified groups or lookaheads, as JavaScript
+ * resets such groups on each iteration.</p>
+ *
+ * @author Alexey Andreev
+ */
+final class TRegExpTranslator {
+    private static final String SPACES = "\\u{9}-\\u{d}\\u{20}";
+    private static final String END_OF_LINE = "(?=(?:\\u{d}\\u{a}|[\\u{a}\\u{d}\\u{85}\\u{2028}\\u{2029}])?$)";
+    private final String pattern;
+    private final int flags;
+    private final StringBuilder sb = new StringBuilder();
+    private int index;
+    private int groupCount;
+
+    TRegExpTranslator(String pattern, int flags) {
+        this.pattern = pattern;
+        this.flags = flags;
+    }
+
+    /**
+     * Returns source of the regular expression, or <code>null</code> if the pattern contains constructs that
+     * can't be translated. The pattern is expected to be already compiled by the emulated engine.
+     */
+    String translate() {
+        if ((flags & ~(TPattern.DOTALL | TPattern.LITERAL)) != 0) {
+            return null;
+        }
+        if ((flags & TPattern.LITERAL) != 0) {
+            appendQuoted(pattern.length());
+            return sb.toString();
+        }
+        if (!translateAlternatives() || index < pattern.length()) {
+            return null;
+        }
+        return sb.toString();
+    }
+
+    int getGroupCount() {
+        return groupCount;
+    }
+
+    private boolean translateAlternatives() {
+        while (translateSequence()) {
+            if (index == pattern.length() || pattern.charAt(index) != '|') {
+                return true;
+            }
+            sb.append('|');
+            index++;
+        }
+        return false;
+    }
+
+    private boolean translateSequence() {
+        while (index < pattern.length()) {
+            int groupsBefore = groupCount;
+            boolean quantifiable = true;
+            switch (pattern.charAt(index)) {
+                case '|':
+                case ')':
+                    return true;
+                case '(':
+                    if (pattern.startsWith("(?=", index) || pattern.startsWith("(?!", index)) {
+                        sb.append(pattern, index, index + 3);
+                        index += 3;
+                        quantifiable = false;
+                    } else if (pattern.startsWith("(?:", index)) {
+                        sb.append("(?:");
+                        index += 3;
+                    } else if (pattern.startsWith("(?", index)) {
+                        return false;
+                    } else {
+                        sb.append('(');
+                        index++;
+                        groupCount++;
+                    }
+                    if (!translateAlternatives() || index == pattern.length()) {
+                        return false;
+                    }
+                    sb.append(')');
+                    index++;
+                    if (!quantifiable && groupCount > groupsBefore) {
+                        return false;
+                    }
+                    break;
+                case '[':
+                    if (!translateClass()) {
+                        return false;
+                    }
+                    break;
+                case '.':
+                    index++;
+                    sb.append((flags & TPattern.DOTALL) != 0 ? "[^]" : "[^\\u{a}\\u{d}\\u{85}\\u{2028}\\u{2029}]");
+                    break;
+                case '^':
+                    index++;
+                    sb.append('^');
+                    quantifiable = false;
+                    break;
+                case '$':
+                    index++;
+                    sb.append(END_OF_LINE);
+                    quantifiable = false;
+                    break;
+                case '*':
+                case '+':
+                case '?':
+                case '{':
+                    return false;
+                case '\\':
+                    index++;
+                    if (index == pattern.length()) {
+                        return false;
+                    }
+                    switch (pattern.charAt(index)) {
+                        case 'd':
+                        case 'D':
+                        case 'w':
+                        case 'W':
+                            sb.append('\\').append(pattern.charAt(index++));
+                            break;
+                        case 's':
+                            index++;
+                            sb.append('[').append(SPACES).append(']');
+                            break;
+                        case 'S':
+                            index++;
+                            sb.append("[^").append(SPACES).append(']');
+                            break;
+                        case 'A':
+                            index++;
+                            sb.append('^');
+                            quantifiable = false;
+                            break;
+                        case 'z':
+                            index++;
+                            sb.append('$');
+                            quantifiable = false;
+                            break;
+                        case 'Z':
+                            index++;
+                            sb.append(END_OF_LINE);
+                            quantifiable = false;
+                            break;
+                        case 'Q': {
+                            index++;
+                            int end = pattern.indexOf("\\E", index);
+                            sb.append("(?:");
+                            appendQuoted(end >= 0 ? end : pattern.length());
+                            sb.append(')');
+                            if (end >= 0) {
+                                index += 2;
+                            }
+                            break;
+                        }
+                        default: {
+                            int ch = readEscapedChar();
+                            if (ch < 0) {
+                                return false;
+                            }
+                            appendChar(ch);
+                            break;
+                        }
+                    }
+                    break;
+                default: {
+                    int ch = pattern.codePointAt(index);
+                    index += Character.charCount(ch);
+                    appendChar(ch);
+                    break;
+                }
+            }
+            if (!translateQuantifier(quantifiable, groupCount > groupsBefore)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean translateQuantifier(boolean quantifiable, boolean hasGroups) {
+        if (index == pattern.length()) {
+            return true;
+        }
+        int start = index;
+        switch (pattern.charAt(index)) {
+            case '*':
+            case '+':
+            case '?':
+                index++;
+                break;
+            case '{':
+                index++;
+                if (!skipDigits()) {
+                    return false;
+                }
+                if (index < pattern.length() && pattern.charAt(index) == ',') {
+                    index++;
+                    skipDigits();
+                }
+                if (index == pattern.length() || pattern.charAt(index) != '}') {
+                    return false;
+                }
+                index++;
+                break;
+            default:
+                return true;
+        }
+        if (!quantifiable || hasGroups) {
+            return false;
+        }
+        if (index < pattern.length()) {
+            if (pattern.charAt(index) == '+') {
+                return false;
+            } else if (pattern.charAt(index) == '?') {
+                index++;
+            }
+        }
+        sb.append(pattern, start, index);
+        return true;
+    }
+
+    private boolean skipDigits() {
+        int start = index;
+        while (index < pattern.length() && isDigit(pattern.charAt(index))) {
+            index++;
+        }
+        return index > start;
+    }
+
+    private boolean translateClass() {
+        index++;
+        sb.append('[');
+        if (index < pattern.length() && pattern.charAt(index) == '^') {
+            sb.append('^');
+            index++;
+        }
+        boolean first = true;
+        while (index < pattern.length()) {
+            char c = pattern.charAt(index);
+            switch (c) {
+                case ']':
+                    if (first) {
+                        return false;
+                    }
+                    index++;
+                    sb.append(']');
+                    return true;
+                case '[':
+                    return false;
+                case '&':
+                    if (pattern.startsWith("&&", index)) {
+                        return false;
+                    }
+                    break;
+                case '-':
+                    if (!first && !pattern.startsWith("-]", index)) {
+                        return false;
+                    }
+                    break;
+                case '\\':
+                    if (index + 1 == pattern.length()) {
+                        return false;
+                    }
+                    switch (pattern.charAt(index + 1)) {
+                        case 'd':
+                        case 'D':
+                        case 'w':
+                        case 'W':
+                            sb.append(pattern, index, index + 2);
+                            index += 2;
+                            first = false;
+                            continue;
+                        case 's':
+                            sb.append(SPACES);
+                            index += 2;
+                            first = false;
+                            continue;
+                    }
+                    break;
+            }
+            first = false;
+            int ch = readClassChar();
+            if (ch < 0) {
+                return false;
+            }
+            appendChar(ch);
+            if (pattern.startsWith("-", index) && index + 1 < pattern.length() && pattern.charAt(index + 1) != ']') {
+                index++;
+                int last = readClassChar();
+                if (last < ch) {
+                    return false;
+                }
+                sb.append('-');
+                appendChar(last);
+            }
+        }
+        return false;
+    }
+
+    private int readClassChar() {
+        if (index == pattern.length() || pattern.charAt(index) == '[') {
+            return -1;
+        }
+        if (pattern.charAt(index) == '\\') {
+            index++;
+            return index < pattern.length() ? readEscapedChar() : -1;
+        }
+        int ch = pattern.codePointAt(index);
+        index += Character.charCount(ch);
+        return ch;
+    }
+
+    /**
+     * Reads character that follows a backslash. Returns <code>-1</code> if the escape sequence does not stand
+     * for a single character.
+     */
+    private int readEscapedChar() {
+        char c = pattern.charAt(index++);
+        switch (c) {
+            case 't':
+                return '\t';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 'f':
+                return '\f';
+            case 'a':
+                return '\u0007';
+            case 'e':
+                return '\u001B';
+            case '0': {
+                int digits = index < pattern.length() && pattern.charAt(index) > '3' ? 2 : 3;
+                int result = 0;
+                int start = index;
+                while (index - start < digits && index < pattern.length() && pattern.charAt(index) >= '0'
+                        && pattern.charAt(index) <= '7') {
+                    result = result * 8 + (pattern.charAt(index++) - '0');
+                }
+                return index > start ? result : -1;
+            }
+            case 'x':
+                return readHex(2);
+            case 'u':
+                return readUnicodeEscape();
+            default:
+                if (isDigit(c) || (c | 0x20) >= 'a' && (c | 0x20) <= 'z') {
+                    return -1;
+                }
+                index--;
+                int ch = pattern.codePointAt(index);
+                index += Character.charCount(ch);
+                return ch;
+        }
+    }
+
+    /**
+     * Reads <code>\\uXXXX</code> escape sequence, joining an escaped surrogate pair into a single code point,
+     * as Java does. Lone surrogates are not translated, since a native expression in unicode mode never matches
+     * a half of a pair.
+     */
+    private int readUnicodeEscape() {
+        int ch = readHex(4);
+        if (ch < 0 || !Character.isSurrogate((char)ch)) {
+            return ch;
+        }
+        if (Character.isHighSurrogate((char)ch) && pattern.startsWith("\\u", index)) {
+            int start = index;
+            index += 2;
+            int low = readHex(4);
+            if (low >= 0 && Character.isLowSurrogate((char)low)) {
+                return Character.toCodePoint((char)ch, (char)low);
+            }
+            index = start;
+        }
+        return -1;
+    }
+
+    private int readHex(int length) {
+        if (index + length > pattern.length()) {
+            return -1;
+        }
+        int result = 0;
+        for (int i = 0; i < length; ++i) {
+            int digit = Character.digit(pattern.charAt(index++), 16);
+            if (digit < 0) {
+                return -1;
+            }
+            result = result * 16 + digit;
+        }
+        return result;
+    }
+
+    private void appendQuoted(int end) {
+        while (index < end) {
+            int ch = pattern.codePointAt(index);
+            index += Character.charCount(ch);
+            appendChar(ch);
+        }
+    }
+
+    private void appendChar(int ch) {
+        if (isDigit(ch) || (ch | 0x20) >= 'a' && (ch | 0x20) <= 'z') {
+            sb.append((char)ch);
+        } else {
+            sb.append("\\u{").append(Integer.toHexString(ch)).append('}');
+        }
+    }
+
+    private static boolean isDigit(int ch) {
+        return ch >= '0' && ch <= '9';
+    }
+}
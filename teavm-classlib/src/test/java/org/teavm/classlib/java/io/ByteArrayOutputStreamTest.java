@@ -0,0 +1,42 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.io;
+
+import static org.junit.Assert.*;
+import java.io.ByteArrayOutputStream;
+import org.junit.Test;
+
+/**
+ *
+ * @author Alexey Andreev
+ */
+public class ByteArrayOutputStreamTest {
+    @Test
+    public void bufferGrowsToFitLargeWrite() {
+        byte[] data = new byte[100];
+        for (int i = 0; i < data.length; ++i) {
+            data[i] = (byte)(i + 1);
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream(10);
+        output.write(data, 0, data.length);
+        output.write(data, 0, data.length);
+        byte[] result = output.toByteArray();
+        assertEquals(200, result.length);
+        for (int i = 0; i < result.length; ++i) {
+            assertEquals(data[i % data.length], result[i]);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.io;
+
+import static org.junit.Assert.*;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import org.junit.Test;
+
+/**
+ *
+ * @author Alexey Andreev
+ */
+public class FilterOutputStreamTest {
+    @Test
+    public void closePropagatedToUnderlyingStream() throws IOException {
+        final int[] calls = new int[2];
+        OutputStream target = new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+            @Override
+            public void flush() {
+                calls[0]++;
+            }
+            @Override
+            public void close() {
+                calls[1]++;
+            }
+        };
+        FilterOutputStream output = new FilterOutputStream(target);
+        output.write(1);
+        output.close();
+        assertEquals("Underlying stream was not flushed", 1, calls[0]);
+        assertEquals("Underlying stream was not closed", 1, calls[1]);
+    }
+}
@@ -49,6 +49,48 @@ public class DoubleTest {
         assertEquals(0, Double.parseDouble("00000.0000"), 1E-12);
     }
 
+    @Test
+    public void parsedAsCorrectlyRounded() {
+        assertEquals(0.1, Double.parseDouble("0.1"), 0);
+        assertEquals(0.30000000000000004, Double.parseDouble("0.30000000000000004"), 0);
+        assertEquals(9007199254740992.0, Double.parseDouble("9007199254740993"), 0);
+        assertEquals(1E23, Double.parseDouble("1e23"), 0);
+        assertEquals(8.41E21, Double.parseDouble("8.41e21"), 0);
+        assertEquals(Double.MAX_VALUE, Double.parseDouble("1.7976931348623158E308"), 0);
+        assertEquals(Double.POSITIVE_INFINITY, Double.parseDouble("1.7976931348623159E308"), 0);
+        assertEquals(Double.MIN_VALUE, Double.parseDouble("4.9E-324"), 0);
+        assertEquals(Double.MIN_VALUE, Double.parseDouble("2.4703282292062328E-324"), 0);
+        assertEquals(0x1.0p-1022, Double.parseDouble("2.2250738585072014E-308"), 0);
+    }
+
+    @Test
+    public void parsedInAllForms() {
+        assertEquals(0.5, Double.parseDouble(".5"), 0);
+        assertEquals(5, Double.parseDouble("5."), 0);
+        assertEquals(-2.5, Double.parseDouble("-.25e1"), 0);
+        assertEquals(1.5, Double.parseDouble("1.5d"), 0);
+        assertEquals(2, Double.parseDouble("+2F"), 0);
+        assertEquals(42, Double.parseDouble(" 42\n"), 0);
+        assertEquals(Double.POSITIVE_INFINITY, Double.parseDouble("1e400"), 0);
+        assertEquals(Double.POSITIVE_INFINITY, Double.parseDouble("+Infinity"), 0);
+        assertEquals(Double.NEGATIVE_INFINITY, Double.parseDouble("-Infinity"), 0);
+        assertTrue(Double.isNaN(Double.parseDouble("NaN")));
+        assertEquals(Double.NEGATIVE_INFINITY, 1 / Double.parseDouble("-0"), 0);
+    }
+
+    @Test
+    public void malformedNotParsed() {
+        String[] strings = { "", "-", ".", "e5", "1e", "1.5x", "1.5dd", "--1", "0x10", "Infinityd", "NaN1" };
+        for (String string : strings) {
+            try {
+                Double.parseDouble(string);
+                fail("Exception expected parsing " + string);
+            } catch (NumberFormatException e) {
+                // It's expected
+            }
+        }
+    }
+
     @Test
     public void longBitsExtracted() {
         assertEquals(0x41E23456789ABCDEL, Double.doubleToLongBits(0x1.23456789ABCDEP+31));
@@ -87,4 +129,19 @@ public class DoubleTest {
         assertEquals("0x0.8p-1022", Double.toHexString(0x0.8p-1022));
         assertEquals("0x0.001p-1022", Double.toHexString(0x0.001p-1022));
     }
+
+    @Test
+    public void convertedToString() {
+        assertEquals("0.30000000000000004", Double.toString(0.1 + 0.2));
+        assertEquals("123456.789", Double.toString(123456.789));
+        assertEquals("100.0", Double.toString(100));
+        assertEquals("9999999.0", Double.toString(9999999));
+        assertEquals("1.0E7", Double.toString(1E7));
+        assertEquals("0.001", Double.toString(0.001));
+        assertEquals("1.0E-4", Double.toString(1E-4));
+        assertEquals("-1.5E21", Double.toString(-1.5E21));
+        assertEquals("-0.0", Double.toString(-0.0));
+        assertEquals("4.9E-324", Double.toString(Double.MIN_VALUE));
+        assertEquals("1.7976931348623157E308", Double.toString(Double.MAX_VALUE));
+    }
 }
@@ -49,6 +49,37 @@ public class FloatTest {
         assertEquals(0, Double.parseDouble("00000.0000"), 1E-12);
     }
 
+    @Test
+    public void parsedAsCorrectlyRounded() {
+        assertEquals(0x3DCCCCCD, Float.floatToIntBits(Float.parseFloat("0.1")));
+        assertEquals(0x4B800000, Float.floatToIntBits(Float.parseFloat("16777217")));
+        assertEquals(0x4B800002, Float.floatToIntBits(Float.parseFloat("16777219")));
+        assertEquals(0x7F7FFFFF, Float.floatToIntBits(Float.parseFloat("3.4028235E38")));
+        assertEquals(0x7F800000, Float.floatToIntBits(Float.parseFloat("1e39")));
+        assertEquals(0x00800000, Float.floatToIntBits(Float.parseFloat("1.17549435E-38")));
+        assertEquals(1, Float.floatToIntBits(Float.parseFloat("8E-46")));
+        assertEquals(0, Float.floatToIntBits(Float.parseFloat("7E-46")));
+        assertEquals(0x3FC00000, Float.floatToIntBits(Float.parseFloat(" .15e1f ")));
+    }
+
+    @Test
+    public void parsedAsCorrectlyRoundedNearMiddleBetweenFloats() {
+        // The nearest double of each of these decimals lies exactly in the middle between two floats
+        assertEquals(0x3F800001, Float.floatToIntBits(Float.parseFloat("1.00000017881393432617187499")));
+        assertEquals(0x3F800002, Float.floatToIntBits(Float.parseFloat("1.000000178813934326171875")));
+        assertEquals(0x3F800002, Float.floatToIntBits(Float.parseFloat("1.00000017881393432617187501")));
+        assertEquals(0x3F800001, Float.floatToIntBits(Float.parseFloat("1.00000005960464477539062501")));
+        assertEquals(0x3F800000, Float.floatToIntBits(Float.parseFloat("1.000000059604644775390625")));
+        assertEquals(0xBF800001, Float.floatToIntBits(Float.parseFloat("-1.00000005960464477539062501")));
+        assertEquals(0x3F800001, Float.floatToIntBits(Float.parseFloat("100000017881393432617187499e-26f")));
+        assertEquals(0x7F7FFFFF, Float.floatToIntBits(Float.parseFloat("340282356779733661637539395458142568447")));
+        assertEquals(0x7F800000, Float.floatToIntBits(Float.parseFloat("340282356779733661637539395458142568448")));
+        assertEquals(1, Float.floatToIntBits(Float.parseFloat("7.006492321624085354618647916449580656401309709382" +
+                "578858785341419448955413429303007433190941810607910156251E-46")));
+        assertEquals(0, Float.floatToIntBits(Float.parseFloat("7.006492321624085354618647916449580656401309709382" +
+                "578858785341419448955413429303007433190941810607910156249E-46")));
+    }
+
     @Test
     public void floatBitsExtracted() {
         assertEquals(0x4591A2B4, Float.floatToIntBits(0x1.234567p+12f));
@@ -86,4 +117,16 @@ public class FloatTest {
         assertEquals("0x1.0p-126", Float.toHexString((float)Math.pow(2, -126)));
         assertEquals("0x0.001p-126", Float.toHexString(0x0.001p-126f));
     }
+
+    @Test
+    public void convertedToString() {
+        assertEquals("0.1", Float.toString(0.1f));
+        assertEquals("0.33333334", Float.toString(1f / 3));
+        assertEquals("1.6777216E7", Float.toString(16777216f));
+        assertEquals("1.0E10", Float.toString(1E10f));
+        assertEquals("-0.0", Float.toString(-0f));
+        assertEquals("331582.62", Float.toString(331582.625f));
+        assertEquals("1.4E-45", Float.toString(Float.MIN_VALUE));
+        assertEquals("3.4028235E38", Float.toString(Float.MAX_VALUE));
+    }
 }
@@ -46,6 +46,19 @@ public class IntegerTest {
         Integer.parseInt("2147483648", 10);
     }
 
+    @Test
+    public void rejectsOverflowingIntegers() {
+        String[] strings = { "9999999999", "-2147483649", "4294967296", "21474836470" };
+        for (String string : strings) {
+            try {
+                Integer.parseInt(string, 10);
+                fail("Exception expected parsing " + string);
+            } catch (NumberFormatException e) {
+                // It's expected
+            }
+        }
+    }
+
     @Test(expected = NumberFormatException.class)
     public void rejectsIntegerWithDigitsOutOfRadix() {
         Integer.parseInt("99", 8);
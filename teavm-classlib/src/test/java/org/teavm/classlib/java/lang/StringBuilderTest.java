@@ -373,6 +373,14 @@ public class StringBuilderTest {
         assertEquals(-1, sb.lastIndexOf("35"));
     }
 
+    @Test
+    public void convertedToStringThroughCharSequence() {
+        CharSequence builder = new StringBuilder("ab").append(1);
+        CharSequence buffer = new StringBuffer("cd").append(2);
+        assertEquals("ab1", builder.toString());
+        assertEquals("cd2", buffer.toString());
+    }
+
     @Test
     public void substringWithUpperBoundAtEndWorks() {
         assertEquals("23", "123".substring(1, 3));
@@ -286,4 +286,56 @@ public class StringTest {
     public void internsConstants() {
         assertSame("abc", ("a" + "bc").intern());
     }
+
+    @Test
+    public void concatenatesAllTypes() {
+        String nullString = null;
+        Object nullObject = null;
+        long l = -9007199254740993L;
+        String s = "a" + 1 + 'b' + true + l + 1.5f + 0.25 + nullString + nullObject + new StringBuilder("c");
+        assertEquals("a1btrue-90071992547409931.50.25nullnullc", s);
+        l = 4503599627370497L;
+        assertEquals("x4503599627370497", "x" + l);
+    }
+
+    @Test
+    public void concatenatesAcrossBranches() {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < 3; ++i) {
+            String s = "[" + (i % 2 == 0 ? "even" : "odd") + i + "]";
+            result.append(s);
+        }
+        assertEquals("[even0][odd1][even2]", result.toString());
+    }
+
+    @Test
+    public void builderOfNullStringNotConcatenated() {
+        String nullString = null;
+        try {
+            String s = new StringBuilder(nullString).append(1).toString();
+            fail("NullPointerException expected, got " + s);
+        } catch (NullPointerException e) {
+            // ok
+        }
+    }
+
+    @Test
+    public void builderUsedAfterToStringKeepsContent() {
+        StringBuilder sb = new StringBuilder("x");
+        sb.append(1);
+        String first = sb.toString();
+        sb.append(2);
+        assertEquals("x1", first);
+        assertEquals("x12", sb.toString());
+    }
+
+    @Test
+    public void builderAppendedInLoopKeepsContent() {
+        StringBuilder sb = new StringBuilder().append("<");
+        String s = null;
+        for (int i = 0; i < 3; ++i) {
+            s = sb.append(i).toString();
+        }
+        assertEquals("<012", s);
+    }
 }
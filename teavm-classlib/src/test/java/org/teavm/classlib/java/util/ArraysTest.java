@@ -37,6 +37,111 @@ public class ArraysTest {
         assertEquals(Integer.valueOf(7), array[5]);
     }
 
+    @Test
+    public void subrangeSorted() {
+        int[] ints = { 9, 8, 7, 6, 5, 4, 3, 2, 1 };
+        Arrays.sort(ints, 2, 6);
+        assertArrayEquals(new int[] { 9, 8, 4, 5, 6, 7, 3, 2, 1 }, ints);
+
+        long[] longs = { 9, 8, 7, 6, 5, 4, 3, 2, 1 };
+        Arrays.sort(longs, 2, 6);
+        assertArrayEquals(new long[] { 9, 8, 4, 5, 6, 7, 3, 2, 1 }, longs);
+
+        char[] chars = "ihgfedcba".toCharArray();
+        Arrays.sort(chars, 2, 6);
+        assertEquals("ihdefgcba", new String(chars));
+
+        double[] doubles = { 9, 8, 7, 6, 5, 4, 3, 2, 1 };
+        Arrays.sort(doubles, 2, 6);
+        assertEquals("[9.0, 8.0, 4.0, 5.0, 6.0, 7.0, 3.0, 2.0, 1.0]", Arrays.toString(doubles));
+
+        Arrays.sort(ints, 3, 3);
+        assertArrayEquals(new int[] { 9, 8, 4, 5, 6, 7, 3, 2, 1 }, ints);
+    }
+
+    @Test
+    public void sortRangeChecked() {
+        int[] ints = new int[5];
+        try {
+            Arrays.sort(ints, 3, 2);
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException e) {
+            // ok
+        }
+        try {
+            Arrays.sort(ints, -1, 2);
+            fail("ArrayIndexOutOfBoundsException expected");
+        } catch (ArrayIndexOutOfBoundsException e) {
+            // ok
+        }
+        try {
+            Arrays.sort(ints, 0, 6);
+            fail("ArrayIndexOutOfBoundsException expected");
+        } catch (ArrayIndexOutOfBoundsException e) {
+            // ok
+        }
+        try {
+            Arrays.sort(new long[5], 4, 1);
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException e) {
+            // ok
+        }
+        try {
+            Arrays.sort(new double[5], 0, 6);
+            fail("ArrayIndexOutOfBoundsException expected");
+        } catch (ArrayIndexOutOfBoundsException e) {
+            // ok
+        }
+    }
+
+    @Test
+    public void doublesSortedInJavaOrder() {
+        double[] array = { 0.0, Double.NaN, -1.5, -0.0, Double.POSITIVE_INFINITY, 2, 0.0, Double.NaN, -0.0,
+                Double.NEGATIVE_INFINITY };
+        Arrays.sort(array);
+        assertEquals("[-Infinity, -1.5, -0.0, -0.0, 0.0, 0.0, 2.0, Infinity, NaN, NaN]", Arrays.toString(array));
+    }
+
+    @Test
+    public void floatsSortedInJavaOrder() {
+        float[] array = { Float.NaN, 0.0f, -0.0f, 3, -2, Float.NaN, -0.0f, 0.0f };
+        Arrays.sort(array);
+        assertEquals("[-2.0, -0.0, -0.0, 0.0, 0.0, 3.0, NaN, NaN]", Arrays.toString(array));
+    }
+
+    @Test
+    public void longArraySorted() {
+        // values repeat three times, so there are many duplicates
+        long[] expected = new long[300];
+        for (int i = 0; i < expected.length; ++i) {
+            expected[i] = (i / 3 - 50) * 1000000007L;
+        }
+        long[] array = expected.clone();
+        for (int i = array.length - 1; i > 0; --i) {
+            int j = (i * 31 + 17) % (i + 1);
+            long tmp = array[i];
+            array[i] = array[j];
+            array[j] = tmp;
+        }
+        Arrays.sort(array);
+        assertArrayEquals(expected, array);
+
+        Arrays.sort(array);
+        assertArrayEquals(expected, array);
+
+        for (int i = 0; i < array.length; ++i) {
+            array[i] = expected[array.length - i - 1];
+        }
+        Arrays.sort(array);
+        assertArrayEquals(expected, array);
+
+        long[] same = new long[100];
+        Arrays.fill(same, Long.MIN_VALUE);
+        Arrays.sort(same);
+        assertEquals(Long.MIN_VALUE, same[0]);
+        assertEquals(Long.MIN_VALUE, same[99]);
+    }
+
     @Test
     public void binarySearchWorks() {
         Integer[] array = { 2, 4, 6, 8, 10, 12, 14, 16 };
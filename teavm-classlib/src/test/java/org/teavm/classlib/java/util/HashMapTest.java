@@ -0,0 +1,221 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.util;
+
+import static org.junit.Assert.*;
+import java.util.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author Alexey Andreev
+ */
+public class HashMapTest {
+    @Test
+    public void nullKeySupported() {
+        Map<String, String> map = new HashMap<>();
+        assertNull(map.put(null, "a"));
+        map.put("b", "c");
+        assertEquals("a", map.put(null, "d"));
+        assertEquals(2, map.size());
+        assertTrue(map.containsKey(null));
+        assertEquals("d", map.get(null));
+        List<String> keys = new ArrayList<>(map.keySet());
+        assertEquals(2, keys.size());
+        assertTrue(keys.contains(null));
+        assertTrue(keys.contains("b"));
+        assertEquals("d", map.remove(null));
+        assertFalse(map.containsKey(null));
+        assertNull(map.get(null));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void nullKeyDistinctFromNullValue() {
+        Map<String, String> map = new HashMap<>();
+        map.put("a", null);
+        assertTrue(map.containsKey("a"));
+        assertFalse(map.containsKey(null));
+        assertTrue(map.containsValue(null));
+        map.put(null, null);
+        assertTrue(map.containsKey(null));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    public void removesThroughIterator() {
+        Map<Integer, Integer> map = new HashMap<>();
+        for (int i = 0; i < 100; ++i) {
+            map.put(i, i * 2);
+        }
+        map.put(null, -1);
+        for (Iterator<Map.Entry<Integer, Integer>> iter = map.entrySet().iterator(); iter.hasNext();) {
+            Map.Entry<Integer, Integer> entry = iter.next();
+            if (entry.getKey() == null || entry.getKey() % 3 == 0) {
+                iter.remove();
+            }
+        }
+        assertEquals(66, map.size());
+        assertFalse(map.containsKey(null));
+        for (int i = 0; i < 100; ++i) {
+            assertEquals(i % 3 != 0, map.containsKey(i));
+        }
+
+        for (Iterator<Integer> iter = map.values().iterator(); iter.hasNext();) {
+            iter.next();
+            iter.remove();
+        }
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void iteratorRemoveRequiresNext() {
+        Map<Integer, Integer> map = new HashMap<>();
+        map.put(1, 1);
+        Iterator<Integer> iter = map.keySet().iterator();
+        try {
+            iter.remove();
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+            // ok
+        }
+        iter.next();
+        iter.remove();
+        try {
+            iter.remove();
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+            // ok
+        }
+    }
+
+    @Test
+    public void iteratorDetectsConcurrentModification() {
+        Map<Integer, Integer> map = new HashMap<>();
+        map.put(1, 1);
+        map.put(2, 2);
+        Iterator<Integer> iter = map.keySet().iterator();
+        iter.next();
+        map.put(3, 3);
+        try {
+            iter.next();
+            fail("ConcurrentModificationException expected");
+        } catch (ConcurrentModificationException e) {
+            // ok
+        }
+    }
+
+    @Test
+    public void survivesManyPutRemoveCycles() {
+        Map<Integer, Integer> map = new HashMap<>();
+        for (int i = 0; i < 20000; ++i) {
+            map.put(i, i);
+            if (i >= 10) {
+                assertEquals(Integer.valueOf(i - 10), map.remove(i - 10));
+            }
+            assertEquals(Math.min(i + 1, 10), map.size());
+        }
+        for (int i = 0; i < 19990; ++i) {
+            assertFalse(map.containsKey(i));
+        }
+        for (int i = 19990; i < 20000; ++i) {
+            assertEquals(Integer.valueOf(i), map.get(i));
+        }
+        int count = 0;
+        for (Map.Entry<Integer, Integer> entry : map.entrySet()) {
+            assertEquals(entry.getKey(), entry.getValue());
+            ++count;
+        }
+        assertEquals(10, count);
+    }
+
+    @Test
+    public void reinsertsRemovedKeys() {
+        Map<String, Integer> map = new HashMap<>();
+        for (int round = 0; round < 50; ++round) {
+            for (int i = 0; i < 100; ++i) {
+                map.put("k" + i, round);
+            }
+            for (int i = 0; i < 100; i += 2) {
+                map.remove("k" + i);
+            }
+            assertEquals(50, map.size());
+        }
+        for (int i = 0; i < 100; ++i) {
+            assertEquals(i % 2 == 0 ? null : Integer.valueOf(49), map.get("k" + i));
+        }
+    }
+
+    @Test
+    public void keepsMappingsOnResize() {
+        Map<Integer, String> map = new HashMap<>(1);
+        for (int i = 0; i < 5000; ++i) {
+            assertNull(map.put(i * 31, String.valueOf(i)));
+        }
+        map.put(null, "null");
+        assertEquals(5001, map.size());
+        for (int i = 0; i < 5000; ++i) {
+            assertEquals(String.valueOf(i), map.get(i * 31));
+            assertNull(map.get(i * 31 + 1));
+        }
+        assertEquals("null", map.get(null));
+    }
+
+    @Test
+    public void collidingKeysDistinguished() {
+        Map<CollidingKey, Integer> map = new HashMap<>();
+        for (int i = 0; i < 50; ++i) {
+            map.put(new CollidingKey(i), i);
+        }
+        assertEquals(50, map.size());
+        for (int i = 0; i < 50; i += 2) {
+            assertEquals(Integer.valueOf(i), map.remove(new CollidingKey(i)));
+        }
+        for (int i = 0; i < 50; ++i) {
+            assertEquals(i % 2 == 0 ? null : Integer.valueOf(i), map.get(new CollidingKey(i)));
+        }
+    }
+
+    @Test
+    public void entryValueWrittenThrough() {
+        Map<String, Integer> map = new HashMap<>();
+        map.put("a", 1);
+        map.put("b", 2);
+        for (Map.Entry<String, Integer> entry : map.entrySet()) {
+            entry.setValue(entry.getValue() * 10);
+        }
+        assertEquals(Integer.valueOf(10), map.get("a"));
+        assertEquals(Integer.valueOf(20), map.get("b"));
+    }
+
+    private static class CollidingKey {
+        private int value;
+
+        public CollidingKey(int value) {
+            this.value = value;
+        }
+
+        @Override
+        public int hashCode() {
+            return 7;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof CollidingKey && ((CollidingKey)obj).value == value;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.util;
+
+import static org.junit.Assert.*;
+import java.util.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author Alexey Andreev
+ */
+public class IdentityHashMapTest {
+    @Test
+    public void keysComparedByReference() {
+        Map<Object, String> map = new IdentityHashMap<>();
+        Integer first = new Integer(1000);
+        Integer second = new Integer(1000);
+        map.put(first, "first");
+        map.put(second, "second");
+        assertEquals(2, map.size());
+        assertEquals("first", map.get(first));
+        assertEquals("second", map.get(second));
+        assertNull(map.get(new Integer(1000)));
+        assertFalse(map.containsKey(new Integer(1000)));
+    }
+
+    @Test
+    public void valuesComparedByReference() {
+        Map<Object, Object> map = new IdentityHashMap<>();
+        Integer value = new Integer(1000);
+        map.put("key", value);
+        assertTrue(map.containsValue(value));
+        assertFalse(map.containsValue(new Integer(1000)));
+    }
+
+    @Test
+    public void nullKeySupported() {
+        Map<Object, String> map = new IdentityHashMap<>();
+        map.put(null, "null");
+        map.put("a", "a");
+        assertEquals(2, map.size());
+        assertTrue(map.containsKey(null));
+        assertEquals("null", map.get(null));
+        assertEquals("null", map.remove(null));
+        assertFalse(map.containsKey(null));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void grows() {
+        Map<Object, Integer> map = new IdentityHashMap<>();
+        Object[] keys = new Object[1000];
+        for (int i = 0; i < keys.length; ++i) {
+            keys[i] = new Object();
+            map.put(keys[i], i);
+        }
+        for (int i = 0; i < keys.length; i += 2) {
+            map.remove(keys[i]);
+        }
+        assertEquals(500, map.size());
+        for (int i = 0; i < keys.length; ++i) {
+            assertEquals(i % 2 == 0 ? null : Integer.valueOf(i), map.get(keys[i]));
+        }
+    }
+
+    @Test
+    public void iteratorRemovesEntries() {
+        Map<Object, Integer> map = new IdentityHashMap<>();
+        for (int i = 0; i < 10; ++i) {
+            map.put(new Object(), i);
+        }
+        int sum = 0;
+        for (Iterator<Map.Entry<Object, Integer>> iter = map.entrySet().iterator(); iter.hasNext();) {
+            Map.Entry<Object, Integer> entry = iter.next();
+            if (entry.getValue() % 2 == 0) {
+                iter.remove();
+            } else {
+                entry.setValue(entry.getValue() * 10);
+            }
+        }
+        for (int value : map.values()) {
+            sum += value;
+        }
+        assertEquals(5, map.size());
+        assertEquals(250, sum);
+    }
+
+    @Test
+    public void iteratorFailsFast() {
+        Map<Object, Integer> map = new IdentityHashMap<>();
+        map.put(new Object(), 1);
+        map.put(new Object(), 2);
+        Iterator<Object> iter = map.keySet().iterator();
+        iter.next();
+        map.put(new Object(), 3);
+        try {
+            iter.next();
+            fail("ConcurrentModificationException expected");
+        } catch (ConcurrentModificationException e) {
+            // It's expected
+        }
+    }
+}
@@ -500,4 +500,94 @@ public class LinkedHashMapTest {
 		}
 		assertTrue("Entries left to iterate on", !it2.hasNext());
 	}
+
+    @Test
+    public void accessOrderEvictsLeastRecentlyUsed() {
+        LinkedHashMap<Integer, String> cache = new LinkedHashMap<Integer, String>(16, 0.75f, true) {
+            private static final long serialVersionUID = -5373581425733452290L;
+            @Override protected boolean removeEldestEntry(Entry<Integer, String> eldest) {
+                return size() > 3;
+            }
+        };
+        cache.put(1, "a");
+        cache.put(2, "b");
+        cache.put(3, "c");
+        cache.get(1);
+        cache.put(4, "d");
+        assertEquals(Arrays.asList(3, 1, 4), new ArrayList<>(cache.keySet()));
+        cache.put(3, "e");
+        cache.put(5, "f");
+        assertEquals(Arrays.asList(4, 3, 5), new ArrayList<>(cache.keySet()));
+        assertEquals(Arrays.asList("d", "e", "f"), new ArrayList<>(cache.values()));
+        assertNull(cache.get(1));
+        assertEquals(3, cache.size());
+    }
+
+    @Test
+    public void accessOrderKeptOverManyOperations() {
+        LinkedHashMap<Integer, Integer> cache = new LinkedHashMap<Integer, Integer>(4, 0.75f, true) {
+            private static final long serialVersionUID = 1862939521938415377L;
+            @Override protected boolean removeEldestEntry(Entry<Integer, Integer> eldest) {
+                return size() > 100;
+            }
+        };
+        List<Integer> expected = new ArrayList<>();
+        int seed = 1;
+        for (int i = 0; i < 5000; ++i) {
+            seed = seed * 1103515245 + 12345;
+            int key = (seed >>> 16) % 300;
+            if (cache.get(key) == null) {
+                cache.put(key, key);
+            }
+            expected.remove(Integer.valueOf(key));
+            expected.add(key);
+            if (expected.size() > 100) {
+                expected.remove(0);
+            }
+        }
+        assertEquals(expected, new ArrayList<>(cache.keySet()));
+    }
+
+    @Test
+    public void insertionOrderKeptWithNullKeyAndRemovals() {
+        LinkedHashMap<Integer, Integer> map = new LinkedHashMap<>(2);
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 200; ++i) {
+            map.put(i * 17 % 200, i);
+            expected.add(i * 17 % 200);
+        }
+        map.put(null, -1);
+        expected.add(null);
+        map.put(5, 5);
+        for (Iterator<Integer> iter = map.keySet().iterator(); iter.hasNext();) {
+            Integer key = iter.next();
+            if (key != null && key % 2 == 0) {
+                iter.remove();
+            }
+        }
+        for (Iterator<Integer> iter = expected.iterator(); iter.hasNext();) {
+            Integer key = iter.next();
+            if (key != null && key % 2 == 0) {
+                iter.remove();
+            }
+        }
+        assertEquals(expected, new ArrayList<>(map.keySet()));
+        assertEquals(Integer.valueOf(5), map.get(5));
+        assertEquals(Integer.valueOf(-1), map.get(null));
+    }
+
+    @Test
+    public void reinsertedKeyGoesToEnd() {
+        LinkedHashMap<String, Integer> map = new LinkedHashMap<>();
+        for (int round = 0; round < 20; ++round) {
+            for (int i = 0; i < 10; ++i) {
+                map.put("k" + i, i);
+            }
+            map.remove("k3");
+            map.put("k3", round);
+        }
+        assertEquals(Arrays.asList("k0", "k1", "k2", "k4", "k5", "k6", "k7", "k8", "k9", "k3"),
+                new ArrayList<>(map.keySet()));
+        assertEquals(Integer.valueOf(19), map.get("k3"));
+    }
 }
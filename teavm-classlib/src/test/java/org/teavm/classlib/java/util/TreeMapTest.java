@@ -632,6 +632,18 @@ public class TreeMapTest {
         assertEquals("Wrong third element got from iterator", Integer.valueOf(794), keys.next());
     }
 
+    @Test
+    public void sizeUpdatedOnRemove() {
+        TreeMap<Integer, String> map = createMapOfEvenNumbers();
+        for (int i = 0; i < 1000; i += 4) {
+            map.remove(i);
+        }
+        assertEquals("Map is of a wrong size", 250, map.size());
+        assertEquals("Head map is of a wrong size", 125, map.headMap(500).size());
+        assertEquals("First key is wrong", Integer.valueOf(2), map.firstKey());
+        assertEquals("Last key is wrong", Integer.valueOf(998), map.lastKey());
+    }
+
     private TreeMap<Integer, String> createMapOfEvenNumbers() {
         TreeMap<Integer, String> treeMap = new TreeMap<>();
         for (int i = 0; i < 1000; i += 2) {
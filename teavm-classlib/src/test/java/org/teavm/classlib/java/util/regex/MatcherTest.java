@@ -18,6 +18,7 @@
 package org.teavm.classlib.java.util.regex;
 
 import static org.junit.Assert.*;
+import java.util.regex.MatchResult;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.junit.Test;
@@ -701,6 +702,85 @@ public class MatcherTest {
                 "----1 fish 2 fish red fish 5----", false);
     }
 
+    @Test
+    public void testLineTerminators() {
+        assertTrue(Pattern.compile("a$").matcher("a\r\n").find());
+        assertTrue(Pattern.compile("a\\Z").matcher("a\u2028").find());
+        assertFalse(Pattern.compile("a$").matcher("a\n\n").find());
+        assertFalse(Pattern.compile("a\\z").matcher("a\n").find());
+        assertFalse(Pattern.compile("a.").matcher("a\u0085").matches());
+        assertTrue(Pattern.compile("a.", Pattern.DOTALL).matcher("a\u0085").matches());
+        assertFalse(Pattern.compile("\\s").matcher("\u00A0\u2003").find());
+        assertTrue(Pattern.compile("[^\\s]").matcher("\u00A0").matches());
+    }
+
+    @Test
+    public void testGroupsAfterFind() {
+        Matcher m = Pattern.compile("(\\w+)@(\\w+)(\\.com)?").matcher("ab@cd.org, e@fgh.com");
+        assertTrue(m.find());
+        assertEquals(0, m.start());
+        assertEquals(2, m.end(1));
+        assertEquals(3, m.start(2));
+        assertEquals(-1, m.start(3));
+        assertNull(m.group(3));
+        assertTrue(m.find());
+        assertEquals("fgh", m.group(2));
+        assertEquals(16, m.start(3));
+        assertEquals(".com", m.toMatchResult().group(3));
+        assertFalse(m.find());
+    }
+
+    @Test
+    public void testGroupsOfRepeatedGroup() {
+        Matcher m = Pattern.compile("(?:(a)|b)+").matcher("ab");
+        assertTrue(m.matches());
+        assertEquals("a", m.group(1));
+    }
+
+    @Test
+    public void testMatchesWholeInput() {
+        Matcher m = Pattern.compile("a|ab").matcher("ab");
+        assertTrue(m.matches());
+        assertTrue(m.lookingAt());
+        assertEquals(1, m.end());
+        assertFalse(Pattern.compile("a|ab").matcher("abc").matches());
+    }
+
+    @Test
+    public void testGroupsAfterMatches() {
+        Matcher m = Pattern.compile("(a|ab)").matcher("ab");
+        assertTrue(m.matches());
+        assertEquals(0, m.start(1));
+        assertEquals(2, m.end(1));
+        assertEquals("ab", m.group(1));
+        MatchResult result = m.toMatchResult();
+        assertEquals(2, result.end(1));
+        assertEquals("ab", result.group(1));
+    }
+
+    @Test
+    public void testEscapedSurrogatePairs() {
+        Matcher m = Pattern.compile("\\uD83D\\uDE00").matcher("x\uD83D\uDE00");
+        assertTrue(m.find());
+        assertEquals(1, m.start());
+        assertEquals(3, m.end());
+        assertTrue(Pattern.compile("[\\uD83D\\uDE00]x").matcher("\uD83D\uDE00x").matches());
+        assertTrue(Pattern.compile("[a\\uD83D\\uDE00]+").matcher("a\uD83D\uDE00a").matches());
+        assertTrue(Pattern.compile("a\\uD83D\\uDE00+").matcher("a\uD83D\uDE00\uD83D\uDE00").matches());
+        assertFalse(Pattern.compile("\\uD83D\\uDE00").matcher("\uD83D\uDE01").find());
+    }
+
+    @Test
+    public void testSupplementaryCharacters() {
+        Matcher m = Pattern.compile(".").matcher("\uD83D\uDE00x");
+        assertTrue(m.find());
+        assertEquals(2, m.end());
+        assertTrue(m.find(1));
+        assertEquals(1, m.start());
+        assertEquals(2, m.end());
+        assertTrue(Pattern.compile("[\uD83D\uDE00-\uD83D\uDE4F]x").matcher("\uD83D\uDE03x").matches());
+    }
+
     @Test
     public void testToString() {
         String result = Pattern.compile("(\\d{1,3})").matcher("aaaa123456789045").toString();
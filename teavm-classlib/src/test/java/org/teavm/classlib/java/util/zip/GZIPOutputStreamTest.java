@@ -0,0 +1,58 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.util.zip;
+
+import static org.junit.Assert.*;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.junit.Test;
+
+/**
+ *
+ * @author Alexey Andreev <konsoletyper@gmail.com>
+ */
+public class GZIPOutputStreamTest {
+    @Test
+    public void gzipOutputWorks() throws IOException {
+        byte[] data = new byte[1000];
+        for (int i = 0; i < data.length; ++i) {
+            data[i] = (byte)(i % 10 + '0');
+        }
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        GZIPOutputStream output = new GZIPOutputStream(compressed);
+        output.write(data);
+        output.close();
+        assertTrue("Data was not compressed", compressed.size() < data.length);
+
+        GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray()));
+        byte[] uncompressed = new byte[2000];
+        int offset = 0;
+        while (true) {
+            int read = input.read(uncompressed, offset, uncompressed.length - offset);
+            if (read <= 0) {
+                break;
+            }
+            offset += read;
+        }
+        assertEquals(data.length, offset);
+        for (int i = 0; i < data.length; ++i) {
+            assertEquals(data[i], uncompressed[i]);
+        }
+    }
+}
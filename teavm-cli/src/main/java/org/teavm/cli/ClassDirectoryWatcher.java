@@ -0,0 +1,149 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.cli;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Watches directories of the classpath and reports names of classes whose class files were created,
+ * modified or deleted.</p>
+ *
+ * @author Alexey Andreev
+ */
+class ClassDirectoryWatcher {
+    private static final long QUIET_PERIOD = 200;
+    private WatchService watchService;
+    private List<Path> roots = new ArrayList<>();
+    private Map<WatchKey, Path> keyDirectories = new HashMap<>();
+    private Map<WatchKey, Path> keyRoots = new HashMap<>();
+
+    public ClassDirectoryWatcher(Collection<File> directories) throws IOException {
+        watchService = FileSystems.getDefault().newWatchService();
+        for (File directory : directories) {
+            Path root = directory.toPath().toAbsolutePath();
+            roots.add(root);
+            register(root, root);
+        }
+    }
+
+    public static List<File> getClasspathDirectories() {
+        List<File> directories = new ArrayList<>();
+        for (String entry : System.getProperty("java.class.path", "").split(File.pathSeparator)) {
+            File file = new File(entry);
+            if (!entry.isEmpty() && file.isDirectory()) {
+                directories.add(file);
+            }
+        }
+        return directories;
+    }
+
+    /**
+     * <p>Waits until some class files change. Since a compiler usually writes several class files at once,
+     * the method returns only when no more changes happen during a short period of time.</p>
+     *
+     * @return names of changed classes, as they appear in the classpath.
+     */
+    public Set<String> waitForChanges() throws InterruptedException, IOException {
+        Set<String> changedClasses = new HashSet<>();
+        WatchKey key = watchService.take();
+        while (true) {
+            if (!processKey(key, changedClasses)) {
+                for (Path root : roots) {
+                    collectClasses(root, root, changedClasses);
+                }
+            }
+            key = watchService.poll(QUIET_PERIOD, TimeUnit.MILLISECONDS);
+            if (key == null) {
+                if (!changedClasses.isEmpty()) {
+                    return changedClasses;
+                }
+                key = watchService.take();
+            }
+        }
+    }
+
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    private boolean processKey(WatchKey key, Set<String> changedClasses) throws IOException {
+        Path directory = keyDirectories.get(key);
+        Path root = keyRoots.get(key);
+        boolean complete = true;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                complete = false;
+                continue;
+            }
+            Path path = directory.resolve((Path)event.context());
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+                register(root, path);
+                collectClasses(root, path, changedClasses);
+            } else {
+                addClass(root, path, changedClasses);
+            }
+        }
+        if (!key.reset()) {
+            keyDirectories.remove(key);
+            keyRoots.remove(key);
+        }
+        return complete;
+    }
+
+    private void register(final Path root, Path directory) throws IOException {
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+                keyDirectories.put(key, dir);
+                keyRoots.put(key, root);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void collectClasses(final Path root, Path directory, final Set<String> classNames) throws IOException {
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                addClass(root, file, classNames);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void addClass(Path root, Path file, Set<String> classNames) {
+        String fileName = file.getFileName().toString();
+        if (!fileName.endsWith(".class")) {
+            return;
+        }
+        Path relativePath = root.relativize(file);
+        StringBuilder sb = new StringBuilder();
+        for (Path part : relativePath) {
+            if (sb.length() > 0) {
+                sb.append('.');
+            }
+            sb.append(part.toString());
+        }
+        classNames.add(sb.substring(0, sb.length() - ".class".length()));
+    }
+}
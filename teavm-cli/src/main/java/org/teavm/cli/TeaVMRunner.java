@@ -16,6 +16,9 @@
 package org.teavm.cli;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
 import org.apache.commons.cli.*;
 import org.teavm.tooling.RuntimeCopyOperation;
 import org.teavm.tooling.TeaVMTool;
@@ -75,9 +78,19 @@ public final class TeaVMRunner {
                 .create('i'));
         options.addOption(OptionBuilder
                 .withArgName("directory")
+                .hasArg()
                 .withDescription("Incremental build cache directory")
                 .withLongOpt("cachedir")
                 .create('c'));
+        options.addOption(OptionBuilder
+                .withDescription("Report time and memory spent by each build phase")
+                .withLongOpt("profile")
+                .create());
+        options.addOption(OptionBuilder
+                .withDescription("Keep running and rebuild incrementally when classes in classpath directories " +
+                        "change. Implies --incremental")
+                .withLongOpt("watch")
+                .create('w'));
 
         if (args.length == 0) {
             printUsage(options);
@@ -131,9 +144,13 @@ public final class TeaVMRunner {
         if (commandLine.hasOption('S')) {
             tool.setSourceMapsFileGenerated(true);
         }
-        if (commandLine.hasOption('i')) {
+        boolean watch = commandLine.hasOption('w');
+        if (commandLine.hasOption('i') || watch) {
             tool.setIncremental(true);
         }
+        if (commandLine.hasOption("profile")) {
+            tool.setProfiling(true);
+        }
         if (commandLine.hasOption('c')) {
             tool.setCacheDirectory(new File(commandLine.getOptionValue('c')));
         } else {
@@ -150,13 +167,59 @@ public final class TeaVMRunner {
         tool.setLog(new ConsoleTeaVMToolLog());
         tool.getProperties().putAll(System.getProperties());
 
+        if (!watch) {
+            try {
+                tool.generate();
+                tool.checkForMissingItems();
+            } catch (Exception e) {
+                e.printStackTrace(System.err);
+                System.exit(-2);
+            }
+        } else {
+            watch(tool);
+        }
+    }
+
+    private static void watch(TeaVMTool tool) {
+        List<File> directories = ClassDirectoryWatcher.getClasspathDirectories();
+        if (directories.isEmpty()) {
+            System.err.println("There are no directories in classpath to watch");
+            System.exit(-2);
+        }
+        ClassDirectoryWatcher watcher;
+        try {
+            watcher = new ClassDirectoryWatcher(directories);
+        } catch (IOException e) {
+            e.printStackTrace(System.err);
+            System.exit(-2);
+            return;
+        }
+        buildAndReport(tool);
+        while (true) {
+            System.out.println("Waiting for changes in " + directories);
+            Set<String> changedClasses;
+            try {
+                changedClasses = watcher.waitForChanges();
+            } catch (InterruptedException | IOException e) {
+                e.printStackTrace(System.err);
+                break;
+            }
+            System.out.println(changedClasses.size() + " class(es) changed");
+            tool.invalidateClasses(changedClasses);
+            buildAndReport(tool);
+        }
+    }
+
+    private static void buildAndReport(TeaVMTool tool) {
+        long start = System.currentTimeMillis();
         try {
             tool.generate();
             tool.checkForMissingItems();
         } catch (Exception e) {
+            // Keep watching, the user may fix the problem with the next change
             e.printStackTrace(System.err);
-            System.exit(-2);
         }
+        System.out.println("Build took " + (System.currentTimeMillis() - start) + " ms");
     }
 
     private static void printUsage(Options options) {
@@ -22,6 +22,7 @@ import java.util.Arrays;
 import org.apache.commons.cli.*;
 import org.teavm.model.ClassHolderTransformer;
 import org.teavm.testing.TestAdapter;
+import org.teavm.tooling.HeadlessTestRunner;
 import org.teavm.tooling.TeaVMTestTool;
 import org.teavm.tooling.TeaVMToolException;
 
@@ -65,6 +66,23 @@ public final class TeaVMTestRunner {
                 .withDescription("qualified class names of transformers")
                 .withLongOpt("transformers")
                 .create("T"));
+        options.addOption(OptionBuilder
+                .withDescription("runs generated tests without a browser")
+                .withLongOpt("run")
+                .create("r"));
+        options.addOption(OptionBuilder
+                .withArgName("name")
+                .hasArg()
+                .withDescription("JavaScript engine to run tests in: node or a JSR 223 engine (node by default)")
+                .withLongOpt("engine")
+                .create("e"));
+        options.addOption(OptionBuilder
+                .withArgName("directory")
+                .hasArg()
+                .withDescription("a directory where to put JUnit XML reports of the test run " +
+                        "(test-reports in target directory by default)")
+                .withLongOpt("reportdir")
+                .create("R"));
 
         if (args.length == 0) {
             printUsage(options);
@@ -115,6 +133,25 @@ public final class TeaVMTestRunner {
             System.exit(-2);
         }
         System.out.println("Operation took " + (System.currentTimeMillis() - start) + " milliseconds");
+
+        if (commandLine.hasOption("r")) {
+            HeadlessTestRunner runner = new HeadlessTestRunner();
+            runner.setOutputDir(tool.getOutputDir());
+            runner.setReportDir(commandLine.hasOption("R") ? new File(commandLine.getOptionValue("R")) :
+                    new File(tool.getOutputDir(), "test-reports"));
+            runner.setNumThreads(tool.getNumThreads());
+            runner.setEngineName(commandLine.getOptionValue("e", HeadlessTestRunner.NODE));
+            runner.setLog(tool.getLog());
+            try {
+                runner.run();
+            } catch (TeaVMToolException e) {
+                e.printStackTrace(System.err);
+                System.exit(-2);
+            }
+            if (runner.getFailureCount() > 0) {
+                System.exit(-3);
+            }
+        }
     }
 
     private static TestAdapter instantiateAdapter(String adapterName) {
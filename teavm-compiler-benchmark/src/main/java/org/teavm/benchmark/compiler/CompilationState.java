@@ -0,0 +1,164 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.benchmark.compiler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.openjdk.jmh.annotations.*;
+import org.teavm.javascript.Decompiler;
+import org.teavm.model.*;
+import org.teavm.model.util.ModelUtils;
+import org.teavm.model.util.RegisterAllocator;
+import org.teavm.optimization.*;
+import org.teavm.parsing.ClasspathClassHolderSource;
+import org.teavm.vm.TeaVM;
+import org.teavm.vm.TeaVMBuilder;
+import org.teavm.vm.TeaVMPhase;
+import org.teavm.vm.TeaVMProgressFeedback;
+import org.teavm.vm.TeaVMProgressListener;
+
+/**
+ * <p>Compiles the input once and keeps the result of every stage, so that each benchmark
+ * measures only its own stage, taking the result of the previous stage as input.</p>
+ *
+ * @author Alexey Andreev
+ */
+@State(Scope.Benchmark)
+public class CompilationState {
+    @Param({ "SCENE", "CLASSLIB" })
+    CompilerInput input;
+
+    ClassLoader classLoader = CompilationState.class.getClassLoader();
+    ClasspathClassHolderSource classSource;
+    Set<String> classNames;
+    List<ClassNode> asmClasses = new ArrayList<>();
+    TeaVM vm;
+    MutableClassHolderSource linkedClasses;
+    MutableClassHolderSource optimizedClasses;
+    MutableClassHolderSource allocatedClasses;
+    List<String> classOrder;
+    List<org.teavm.javascript.ast.ClassNode> astClasses = new ArrayList<>();
+
+    @Setup
+    public void setUp() throws IOException {
+        classSource = new ClasspathClassHolderSource(classLoader);
+        vm = createVM(TeaVMPhase.DEVIRTUALIZATION);
+        vm.build(new StringBuilder(), null);
+        classNames = new HashSet<>(vm.getClasses());
+        for (String className : classNames) {
+            ClassNode asmClass = readAsmClass(className);
+            if (asmClass != null) {
+                asmClasses.add(asmClass);
+            }
+        }
+
+        linkedClasses = copy(vm.getWrittenClasses());
+        Devirtualization devirtualization = new Devirtualization(vm.getDependencyInfo(), linkedClasses);
+        for (MethodHolder method : methods(linkedClasses)) {
+            devirtualization.apply(method);
+        }
+
+        optimizedClasses = copy(linkedClasses);
+        for (MethodHolder method : methods(optimizedClasses)) {
+            for (MethodOptimization optimization : createOptimizations()) {
+                optimization.optimize(method, method.getProgram());
+            }
+        }
+
+        allocatedClasses = copy(optimizedClasses);
+        for (MethodHolder method : methods(allocatedClasses)) {
+            new RegisterAllocator().allocateRegisters(method, method.getProgram());
+        }
+
+        Decompiler decompiler = new Decompiler(allocatedClasses, classLoader);
+        classOrder = decompiler.getClassOrdering(allocatedClasses.getClassNames());
+        for (String className : classOrder) {
+            astClasses.add(decompiler.decompile(allocatedClasses.get(className)));
+        }
+    }
+
+    /**
+     * <p>Creates TeaVM that is ready to compile the input and stops before the given phase.</p>
+     */
+    TeaVM createVM(final TeaVMPhase stopPhase) {
+        TeaVM vm = new TeaVMBuilder().setClassLoader(classLoader).setClassSource(classSource).build();
+        vm.setMinifying(false);
+        vm.installPlugins();
+        input.addEntryPoints(vm);
+        vm.setProgressListener(new TeaVMProgressListener() {
+            @Override public TeaVMProgressFeedback progressReached(int progress) {
+                return TeaVMProgressFeedback.CONTINUE;
+            }
+            @Override public TeaVMProgressFeedback phaseStarted(TeaVMPhase phase, int count) {
+                return phase == stopPhase ? TeaVMProgressFeedback.CANCEL : TeaVMProgressFeedback.CONTINUE;
+            }
+        });
+        return vm;
+    }
+
+    static List<MethodOptimization> createOptimizations() {
+        return Arrays.<MethodOptimization>asList(new ArrayUnwrapMotion(), new LoopInvariantMotion(),
+                new GlobalValueNumbering(), new UnusedVariableElimination());
+    }
+
+    /**
+     * <p>Returns methods that have non-empty programs.</p>
+     */
+    static List<MethodHolder> methods(ListableClassHolderSource classes) {
+        List<MethodHolder> methods = new ArrayList<>();
+        for (String className : classes.getClassNames()) {
+            for (MethodHolder method : classes.get(className).getMethods()) {
+                if (method.getProgram() != null && method.getProgram().basicBlockCount() > 0) {
+                    methods.add(method);
+                }
+            }
+        }
+        return methods;
+    }
+
+    static MutableClassHolderSource copy(ListableClassReaderSource classes) {
+        MutableClassHolderSource result = new MutableClassHolderSource();
+        for (String className : classes.getClassNames()) {
+            result.putClassHolder(ModelUtils.copyClass(classes.get(className)));
+        }
+        return result;
+    }
+
+    /**
+     * <p>Reads bytecode of a class that is stored under its own name. Classes of the class library, which
+     * TeaVM takes from renamed class files, are skipped.</p>
+     */
+    private ClassNode readAsmClass(String className) throws IOException {
+        try (InputStream input = classLoader.getResourceAsStream(className.replace('.', '/') + ".class")) {
+            if (input == null || className.startsWith("java.")) {
+                return null;
+            }
+            ClassNode node = new ClassNode();
+            new ClassReader(input).accept(node, 0);
+            return node;
+        }
+    }
+
+    List<MethodNode> asmMethods(ClassNode cls) {
+        @SuppressWarnings("unchecked")
+        List<MethodNode> methods = cls.methods;
+        return methods;
+    }
+}
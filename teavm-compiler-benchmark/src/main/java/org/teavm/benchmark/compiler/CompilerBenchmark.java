@@ -0,0 +1,203 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.benchmark.compiler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.teavm.codegen.DefaultAliasProvider;
+import org.teavm.codegen.DefaultNamingStrategy;
+import org.teavm.codegen.SourceWriter;
+import org.teavm.codegen.SourceWriterBuilder;
+import org.teavm.javascript.Decompiler;
+import org.teavm.javascript.Renderer;
+import org.teavm.javascript.RenderingException;
+import org.teavm.model.*;
+import org.teavm.model.util.ProgramUtils;
+import org.teavm.model.util.RegisterAllocator;
+import org.teavm.optimization.MethodOptimization;
+import org.teavm.optimization.UnreachableBasicBlockEliminator;
+import org.teavm.parsing.ClasspathClassHolderSource;
+import org.teavm.parsing.ProgramParser;
+import org.teavm.parsing.SSATransformer;
+import org.teavm.vm.TeaVM;
+import org.teavm.vm.TeaVMPhase;
+
+/**
+ * <p>Measures each stage of TeaVM compiler separately. Every benchmark processes the whole input
+ * once per invocation, so the score is time needed by the stage to process the input.</p>
+ *
+ * <p>Build the module and run <code>java -jar target/benchmarks.jar</code>. Pass a regular expression
+ * to run some of benchmarks only, for example <code>java -jar target/benchmarks.jar optimization</code>.</p>
+ *
+ * @author Alexey Andreev
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class CompilerBenchmark {
+    @Benchmark
+    public void parsing(CompilationState state, Blackhole blackhole) {
+        ClasspathClassHolderSource classSource = new ClasspathClassHolderSource(state.classLoader);
+        for (String className : state.classNames) {
+            blackhole.consume(classSource.get(className));
+        }
+    }
+
+    @Benchmark
+    public void ssaTransformation(UnparsedPrograms programs) {
+        for (int i = 0; i < programs.programs.size(); ++i) {
+            new SSATransformer().transformToSSA(programs.programs.get(i), programs.parsers.get(i),
+                    programs.arguments.get(i));
+        }
+    }
+
+    @Benchmark
+    public int dependencyAnalysis(CompilationState state) throws RenderingException {
+        TeaVM vm = state.createVM(TeaVMPhase.LINKING);
+        vm.build(new StringBuilder(), null);
+        return vm.getClasses().size();
+    }
+
+    @Benchmark
+    public void optimization(LinkedPrograms programs) {
+        for (int i = 0; i < programs.programs.size(); ++i) {
+            programs.optimization.optimize(programs.methods.get(i), programs.programs.get(i));
+        }
+    }
+
+    @Benchmark
+    public void registerAllocation(OptimizedPrograms programs) {
+        RegisterAllocator allocator = new RegisterAllocator();
+        for (int i = 0; i < programs.programs.size(); ++i) {
+            allocator.allocateRegisters(programs.methods.get(i), programs.programs.get(i));
+        }
+    }
+
+    @Benchmark
+    public void decompilation(CompilationState state, Blackhole blackhole) {
+        Decompiler decompiler = new Decompiler(state.allocatedClasses, state.classLoader);
+        for (String className : state.classOrder) {
+            blackhole.consume(decompiler.decompile(state.allocatedClasses.get(className)));
+        }
+    }
+
+    @Benchmark
+    public int rendering(CompilationState state) throws RenderingException {
+        StringBuilder sb = new StringBuilder();
+        DefaultNamingStrategy naming = new DefaultNamingStrategy(new DefaultAliasProvider(),
+                state.vm.getDependencyInfo().getClassSource());
+        naming.setMinifying(false);
+        SourceWriter writer = new SourceWriterBuilder(naming).build(sb);
+        Renderer renderer = new Renderer(writer, state.allocatedClasses, state.classLoader, state.vm);
+        renderer.renderRuntime();
+        for (org.teavm.javascript.ast.ClassNode cls : state.astClasses) {
+            renderer.render(cls);
+        }
+        renderer.renderStringPool();
+        return sb.length();
+    }
+
+    /**
+     * <p>Programs that are just parsed from bytecode and are not in SSA form yet.</p>
+     */
+    @State(Scope.Thread)
+    public static class UnparsedPrograms {
+        List<Program> programs = new ArrayList<>();
+        List<ProgramParser> parsers = new ArrayList<>();
+        List<ValueType[]> arguments = new ArrayList<>();
+
+        @Setup(Level.Invocation)
+        public void setUp(CompilationState state) {
+            programs.clear();
+            parsers.clear();
+            arguments.clear();
+            for (ClassNode cls : state.asmClasses) {
+                String className = cls.name.replace('/', '.');
+                for (MethodNode method : state.asmMethods(cls)) {
+                    if (method.instructions.size() == 0) {
+                        continue;
+                    }
+                    ProgramParser parser = new ProgramParser();
+                    parser.setFileName(cls.sourceFile);
+                    Program program = parser.parse(method, className);
+                    new UnreachableBasicBlockEliminator().optimize(program);
+                    programs.add(program);
+                    parsers.add(parser);
+                    arguments.add(MethodDescriptor.parseSignature(method.desc));
+                }
+            }
+        }
+    }
+
+    /**
+     * <p>Copies of programs after linking and devirtualization, which are input for method optimizations.</p>
+     */
+    @State(Scope.Thread)
+    public static class LinkedPrograms {
+        @Param({ "ArrayUnwrapMotion", "LoopInvariantMotion", "GlobalValueNumbering", "UnusedVariableElimination" })
+        String optimizationName;
+        MethodOptimization optimization;
+        List<MethodHolder> methods;
+        List<Program> programs = new ArrayList<>();
+
+        @Setup(Level.Trial)
+        public void prepare(CompilationState state) {
+            methods = CompilationState.methods(state.linkedClasses);
+            for (MethodOptimization candidate : CompilationState.createOptimizations()) {
+                if (candidate.getClass().getSimpleName().equals(optimizationName)) {
+                    optimization = candidate;
+                }
+            }
+        }
+
+        @Setup(Level.Invocation)
+        public void copyPrograms() {
+            programs.clear();
+            for (MethodHolder method : methods) {
+                programs.add(ProgramUtils.copy(method.getProgram()));
+            }
+        }
+    }
+
+    /**
+     * <p>Copies of optimized programs, which are input for register allocation.</p>
+     */
+    @State(Scope.Thread)
+    public static class OptimizedPrograms {
+        List<MethodHolder> methods;
+        List<Program> programs = new ArrayList<>();
+
+        @Setup(Level.Trial)
+        public void prepare(CompilationState state) {
+            methods = CompilationState.methods(state.optimizedClasses);
+        }
+
+        @Setup(Level.Invocation)
+        public void copyPrograms() {
+            programs.clear();
+            for (MethodHolder method : methods) {
+                programs.add(ProgramUtils.copy(method.getProgram()));
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.benchmark.compiler;
+
+import java.lang.reflect.Method;
+import org.junit.Test;
+import org.teavm.model.MethodReference;
+import org.teavm.model.ValueType;
+import org.teavm.vm.TeaVM;
+
+/**
+ * <p>Programs that are compiled by benchmarks. They are fixed, so that results of different runs
+ * can be compared.</p>
+ *
+ * @author Alexey Andreev
+ */
+public enum CompilerInput {
+    /**
+     * <p>The jbox2d scene of the benchmark sample.</p>
+     */
+    SCENE {
+        @Override
+        public void addEntryPoints(TeaVM vm) {
+            String sceneClass = "org.teavm.samples.benchmark.Scene";
+            vm.entryPoint("createScene", new MethodReference(sceneClass, "<init>", ValueType.VOID));
+            vm.entryPoint("calculate", new MethodReference(sceneClass, "calculate", ValueType.VOID))
+                    .withValue(0, sceneClass);
+        }
+    },
+
+    /**
+     * <p>Tests of the class library that exercise collections and strings.</p>
+     */
+    CLASSLIB {
+        private final String[] testClasses = { "org.teavm.classlib.java.util.ArrayListTest",
+                "org.teavm.classlib.java.util.CollectionsTest", "org.teavm.classlib.java.util.TreeMapTest",
+                "org.teavm.classlib.java.util.LinkedHashMapTest", "org.teavm.classlib.java.lang.StringBuilderTest",
+                "org.teavm.classlib.java.lang.StringTest" };
+
+        @Override
+        public void addEntryPoints(TeaVM vm) {
+            for (String testClass : testClasses) {
+                String alias = testClass.substring(testClass.lastIndexOf('.') + 1);
+                vm.entryPoint("create" + alias, new MethodReference(testClass, "<init>", ValueType.VOID));
+                Class<?> cls;
+                try {
+                    cls = Class.forName(testClass);
+                } catch (ClassNotFoundException e) {
+                    throw new IllegalStateException("Test class not found: " + testClass, e);
+                }
+                for (Method method : cls.getDeclaredMethods()) {
+                    if (method.isAnnotationPresent(Test.class)) {
+                        vm.entryPoint(alias + "_" + method.getName(), new MethodReference(testClass,
+                                method.getName(), ValueType.VOID)).withValue(0, testClass);
+                    }
+                }
+            }
+        }
+    };
+
+    public abstract void addEntryPoints(TeaVM vm);
+}
@@ -0,0 +1,154 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.cache;
+
+import java.io.*;
+import java.net.URL;
+import java.util.*;
+import org.teavm.model.ClassHolder;
+import org.teavm.model.ClassSnapshot;
+
+/**
+ * <p>Stores a {@link ClassSnapshot} in a single file and reads it back. Libraries can put their snapshot
+ * into a JAR file as {@link #RESOURCE_NAME} resource.</p>
+ *
+ * @author Alexey Andreev
+ */
+public final class ClassSnapshotIO {
+    public static final String RESOURCE_NAME = "META-INF/teavm/classes.snapshot";
+    private static final int MAGIC = 0x54564D53;
+    private static final int VERSION = 1;
+
+    private ClassSnapshotIO() {
+    }
+
+    public static void write(ClassSnapshot snapshot, OutputStream stream) throws IOException {
+        InMemorySymbolTable symbolTable = new InMemorySymbolTable();
+        InMemorySymbolTable fileTable = new InMemorySymbolTable();
+        ClassIO classIO = new ClassIO(symbolTable, fileTable);
+        ByteArrayOutputStream classBuffer = new ByteArrayOutputStream();
+        DataOutputStream classOutput = new DataOutputStream(classBuffer);
+        List<ClassHolder> classes = new ArrayList<>(snapshot.getClasses());
+        Collections.sort(classes, new Comparator<ClassHolder>() {
+            @Override public int compare(ClassHolder o1, ClassHolder o2) {
+                return o1.getName().compareTo(o2.getName());
+            }
+        });
+        for (ClassHolder cls : classes) {
+            classOutput.writeUTF(cls.getName());
+            classIO.writeClass(classOutput, cls);
+        }
+        classOutput.flush();
+
+        DataOutputStream output = new DataOutputStream(stream);
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        List<String> transformerNames = new ArrayList<>(snapshot.getTransformerNames());
+        Collections.sort(transformerNames);
+        writeStrings(output, transformerNames);
+        writeStrings(output, symbolTable.symbols);
+        writeStrings(output, fileTable.symbols);
+        output.writeInt(classes.size());
+        classBuffer.writeTo(output);
+        output.flush();
+    }
+
+    public static ClassSnapshot read(InputStream stream) throws IOException {
+        DataInputStream input = new DataInputStream(stream);
+        if (input.readInt() != MAGIC) {
+            throw new IOException("Not a class snapshot");
+        }
+        int version = input.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported class snapshot version: " + version);
+        }
+        List<String> transformerNames = readStrings(input);
+        InMemorySymbolTable symbolTable = new InMemorySymbolTable();
+        symbolTable.symbols.addAll(readStrings(input));
+        InMemorySymbolTable fileTable = new InMemorySymbolTable();
+        fileTable.symbols.addAll(readStrings(input));
+        ClassIO classIO = new ClassIO(symbolTable, fileTable);
+        int classCount = input.readInt();
+        List<ClassHolder> classes = new ArrayList<>(classCount);
+        for (int i = 0; i < classCount; ++i) {
+            String className = input.readUTF();
+            classes.add(classIO.readClass(input, className));
+        }
+        return new ClassSnapshot(classes, transformerNames);
+    }
+
+    /**
+     * <p>Reads all snapshots that are available as {@link #RESOURCE_NAME} resources and combines them.
+     * Snapshots produced by a different set of transformers than the first one are skipped.</p>
+     *
+     * @return combined snapshot or <code>null</code> if there are no snapshots.
+     */
+    public static ClassSnapshot readFromClasspath(ClassLoader classLoader) throws IOException {
+        Enumeration<URL> resources = classLoader.getResources(RESOURCE_NAME);
+        List<ClassHolder> classes = new ArrayList<>();
+        Set<String> transformerNames = null;
+        while (resources.hasMoreElements()) {
+            ClassSnapshot snapshot;
+            try (InputStream input = new BufferedInputStream(resources.nextElement().openStream())) {
+                snapshot = read(input);
+            }
+            if (transformerNames == null) {
+                transformerNames = snapshot.getTransformerNames();
+            } else if (!transformerNames.equals(snapshot.getTransformerNames())) {
+                continue;
+            }
+            classes.addAll(snapshot.getClasses());
+        }
+        return transformerNames != null ? new ClassSnapshot(classes, transformerNames) : null;
+    }
+
+    private static void writeStrings(DataOutput output, List<String> strings) throws IOException {
+        output.writeInt(strings.size());
+        for (String string : strings) {
+            output.writeUTF(string);
+        }
+    }
+
+    private static List<String> readStrings(DataInput input) throws IOException {
+        int count = input.readInt();
+        List<String> strings = new ArrayList<>(count);
+        for (int i = 0; i < count; ++i) {
+            strings.add(input.readUTF());
+        }
+        return strings;
+    }
+
+    static class InMemorySymbolTable implements SymbolTable {
+        List<String> symbols = new ArrayList<>();
+        private Map<String, Integer> symbolMap = new HashMap<>();
+
+        @Override
+        public String at(int index) {
+            return symbols.get(index);
+        }
+
+        @Override
+        public int lookup(String symbol) {
+            Integer index = symbolMap.get(symbol);
+            if (index == null) {
+                index = symbols.size();
+                symbolMap.put(symbol, index);
+                symbols.add(symbol);
+            }
+            return index;
+        }
+    }
+}
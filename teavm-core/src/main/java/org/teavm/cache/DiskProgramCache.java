@@ -19,6 +19,7 @@ import java.io.*;
 import java.util.*;
 import org.teavm.model.*;
 import org.teavm.model.instructions.*;
+import org.teavm.model.util.ProgramUtils;
 import org.teavm.parsing.ClassDateProvider;
 
 /**
@@ -42,6 +43,10 @@ public class DiskProgramCache implements ProgramCache {
     @Override
     public Program get(MethodReference method) {
         Item item = cache.get(method);
+        if (item != null && item.program != null && item.dependencies != null) {
+            // Program was obtained by a previous build, which might have modified it
+            return ProgramUtils.copy(item.program);
+        }
         if (item == null) {
             item = new Item();
             cache.put(method, item);
@@ -51,8 +56,10 @@ public class DiskProgramCache implements ProgramCache {
                     DataInput input = new DataInputStream(stream);
                     int depCount = input.readShort();
                     boolean dependenciesChanged = false;
+                    Set<String> dependencies = new HashSet<>();
                     for (int i = 0; i < depCount; ++i) {
                         String depClass = input.readUTF();
+                        dependencies.add(depClass);
                         Date depDate = classDateProvider.getModificationDate(depClass);
                         if (depDate == null || depDate.after(new Date(file.lastModified()))) {
                             dependenciesChanged = true;
@@ -61,6 +68,7 @@ public class DiskProgramCache implements ProgramCache {
                     }
                     if (!dependenciesChanged) {
                         item.program = programIO.read(stream);
+                        item.dependencies = dependencies;
                     }
                 } catch (IOException e) {
                     // we could not read program, just leave it empty
@@ -83,7 +91,8 @@ public class DiskProgramCache implements ProgramCache {
             File file = getMethodFile(method);
             ProgramDependencyAnalyzer analyzer = new ProgramDependencyAnalyzer();
             analyzer.dependencies.add(method.getClassName());
-            Program program = cache.get(method).program;
+            Item item = cache.get(method);
+            Program program = item.program;
             for (int i = 0; i < program.basicBlockCount(); ++i) {
                 BasicBlock block = program.basicBlockAt(i);
                 for (Instruction insn : block.getInstructions()) {
@@ -99,6 +108,23 @@ public class DiskProgramCache implements ProgramCache {
                 }
                 programIO.write(program, stream);
             }
+            item.dependencies = analyzer.dependencies;
+        }
+        newMethods.clear();
+    }
+
+    /**
+     * <p>Forgets methods that depend on any of the given classes, so that they are checked against
+     * the disk cache again when requested next time.</p>
+     */
+    public void invalidate(Collection<String> classNames) {
+        for (Iterator<Map.Entry<MethodReference, Item>> iter = cache.entrySet().iterator(); iter.hasNext();) {
+            Map.Entry<MethodReference, Item> entry = iter.next();
+            Set<String> dependencies = entry.getValue().dependencies;
+            if (dependencies == null || !Collections.disjoint(dependencies, classNames)) {
+                newMethods.remove(entry.getKey());
+                iter.remove();
+            }
         }
     }
 
@@ -109,6 +135,7 @@ public class DiskProgramCache implements ProgramCache {
 
     static class Item {
         Program program;
+        Set<String> dependencies;
     }
 
     static class ProgramDependencyAnalyzer implements InstructionVisitor {
@@ -52,8 +52,10 @@ public class DiskRegularMethodNodeCache implements RegularMethodNodeCache {
                     DataInput input = new DataInputStream(stream);
                     int depCount = input.readShort();
                     boolean dependenciesChanged = false;
+                    Set<String> dependencies = new HashSet<>();
                     for (int i = 0; i < depCount; ++i) {
                         String depClass = input.readUTF();
+                        dependencies.add(depClass);
                         Date depDate = classDateProvider.getModificationDate(depClass);
                         if (depDate == null || depDate.after(new Date(file.lastModified()))) {
                             dependenciesChanged = true;
@@ -62,6 +64,7 @@ public class DiskRegularMethodNodeCache implements RegularMethodNodeCache {
                     }
                     if (!dependenciesChanged) {
                         item.node = astIO.read(input, methodReference);
+                        item.dependencies = dependencies;
                     }
                 } catch (IOException e) {
                     // we could not read program, just leave it empty
@@ -83,9 +86,11 @@ public class DiskRegularMethodNodeCache implements RegularMethodNodeCache {
         for (MethodReference method : newMethods) {
             File file = getMethodFile(method);
             AstDependencyAnalyzer analyzer = new AstDependencyAnalyzer();
-            RegularMethodNode node = cache.get(method).node;
+            Item item = cache.get(method);
+            RegularMethodNode node = item.node;
             node.getBody().acceptVisitor(analyzer);
             analyzer.dependencies.add(method.getClassName());
+            item.dependencies = analyzer.dependencies;
             try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
                 output.writeShort(analyzer.dependencies.size());
                 for (String dependency : analyzer.dependencies) {
@@ -94,6 +99,22 @@ public class DiskRegularMethodNodeCache implements RegularMethodNodeCache {
                 astIO.write(output, node);
             }
         }
+        newMethods.clear();
+    }
+
+    /**
+     * <p>Forgets methods that depend on any of the given classes, so that they are checked against
+     * the disk cache again when requested next time.</p>
+     */
+    public void invalidate(Collection<String> classNames) {
+        for (Iterator<Map.Entry<MethodReference, Item>> iter = cache.entrySet().iterator(); iter.hasNext();) {
+            Map.Entry<MethodReference, Item> entry = iter.next();
+            Set<String> dependencies = entry.getValue().dependencies;
+            if (dependencies == null || !Collections.disjoint(dependencies, classNames)) {
+                newMethods.remove(entry.getKey());
+                iter.remove();
+            }
+        }
     }
 
     private File getMethodFile(MethodReference method) {
@@ -261,5 +282,6 @@ public class DiskRegularMethodNodeCache implements RegularMethodNodeCache {
 
     static class Item {
         RegularMethodNode node;
+        Set<String> dependencies;
     }
 }
@@ -15,15 +15,21 @@
  */
 package org.teavm.codegen;
 
+import java.util.HashMap;
+import java.util.Map;
 import org.teavm.model.FieldReference;
 import org.teavm.model.MethodReference;
 
 /**
+ * <p>Produces readable aliases that only depend on the element they are given for, so an element gets the
+ * same alias in every build regardless of which other elements exist and in which order they are named.
+ * An alias consists of a readable part and a hash of the full name of the element. Virtual methods
+ * with the same descriptor get the same alias, as the naming strategy expects.</p>
  *
  * @author Alexey Andreev
  */
 public class DefaultAliasProvider implements AliasProvider {
-    private int lastSuffix;
+    private Map<String, String> usedAliases = new HashMap<>();
 
     @Override
     public String getAlias(String cls) {
@@ -44,8 +50,7 @@ public class DefaultAliasProvider implements AliasProvider {
                 lastIndex = index + 1;
             }
         }
-        alias.append(lastSuffix++);
-        return alias.toString();
+        return makeAlias(alias.toString(), "class " + cls);
     }
 
     @Override
@@ -56,11 +61,37 @@ public class DefaultAliasProvider implements AliasProvider {
         } else if (alias.equals("<clinit>")) {
             alias = "$clinit";
         }
-        return alias + lastSuffix++;
+        return makeAlias(alias, "method " + method.getDescriptor());
     }
 
     @Override
     public String getAlias(FieldReference field) {
-        return field.getFieldName() + (lastSuffix++);
+        return makeAlias(field.getFieldName(), "field " + field);
+    }
+
+    private String makeAlias(String readablePart, String key) {
+        String alias = readablePart + "$" + hash(key);
+        int attempt = 0;
+        while (true) {
+            String existingKey = usedAliases.get(alias);
+            if (existingKey == null) {
+                usedAliases.put(alias, key);
+                return alias;
+            } else if (existingKey.equals(key)) {
+                return alias;
+            }
+            // Hashes of different elements happen to be equal. Only in this case the alias depends on
+            // the order of naming.
+            alias = readablePart + "$" + hash(key + "#" + (++attempt));
+        }
+    }
+
+    private static String hash(String key) {
+        int hash = 0x811C9DC5;
+        for (int i = 0; i < key.length(); ++i) {
+            hash ^= key.charAt(i);
+            hash *= 0x01000193;
+        }
+        return Long.toString(hash & 0xFFFFFFFFL, 36);
     }
 }
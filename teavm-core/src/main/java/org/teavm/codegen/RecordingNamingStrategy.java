@@ -0,0 +1,128 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.codegen;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.teavm.model.FieldReference;
+import org.teavm.model.MethodReference;
+
+/**
+ * <p>A naming strategy that delegates to another one and can record requests that were made to it. Recorded
+ * requests can later be replayed, which makes the underlying strategy take the same decisions it would take
+ * when the requests were made again, and tells whether it returned the same names as before.</p>
+ *
+ * @author Alexey Andreev
+ */
+public class RecordingNamingStrategy implements NamingStrategy {
+    private NamingStrategy innerStrategy;
+    private List<NamingRequest> requests;
+
+    public RecordingNamingStrategy(NamingStrategy innerStrategy) {
+        this.innerStrategy = innerStrategy;
+    }
+
+    public NamingStrategy getInnerStrategy() {
+        return innerStrategy;
+    }
+
+    public void startRecording() {
+        requests = new ArrayList<>();
+    }
+
+    public List<NamingRequest> finishRecording() {
+        List<NamingRequest> result = requests;
+        requests = null;
+        return result;
+    }
+
+    /**
+     * <p>Makes all of the given requests to the underlying strategy in the same order they were recorded.
+     * Stops at the first request which gets a different name.</p>
+     *
+     * @return <code>true</code> if all of the requests got the same names as when they were recorded.
+     */
+    public boolean replay(List<NamingRequest> requests) throws NamingException {
+        for (NamingRequest request : requests) {
+            if (!request.name.equals(request.perform(innerStrategy))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String getNameFor(String cls) throws NamingException {
+        return record(new NamingRequest(NamingRequest.CLASS, cls));
+    }
+
+    @Override
+    public String getNameFor(MethodReference method) throws NamingException {
+        return record(new NamingRequest(NamingRequest.METHOD, method));
+    }
+
+    @Override
+    public String getFullNameFor(MethodReference method) throws NamingException {
+        return record(new NamingRequest(NamingRequest.FULL_METHOD, method));
+    }
+
+    @Override
+    public String getNameFor(FieldReference field) throws NamingException {
+        return record(new NamingRequest(NamingRequest.FIELD, field));
+    }
+
+    private String record(NamingRequest request) {
+        String name = request.perform(innerStrategy);
+        if (requests != null) {
+            request.name = name;
+            requests.add(request);
+        }
+        return name;
+    }
+
+    /**
+     * <p>A request to a naming strategy recorded by {@link RecordingNamingStrategy}.</p>
+     */
+    public static final class NamingRequest {
+        static final int CLASS = 0;
+        static final int METHOD = 1;
+        static final int FULL_METHOD = 2;
+        static final int FIELD = 3;
+        final int kind;
+        final Object subject;
+        String name;
+
+        NamingRequest(int kind, Object subject) {
+            this.kind = kind;
+            this.subject = subject;
+        }
+
+        String perform(NamingStrategy strategy) {
+            switch (kind) {
+                case CLASS:
+                    return strategy.getNameFor((String)subject);
+                case METHOD:
+                    return strategy.getNameFor((MethodReference)subject);
+                case FULL_METHOD:
+                    return strategy.getFullNameFor((MethodReference)subject);
+                case FIELD:
+                    return strategy.getNameFor((FieldReference)subject);
+                default:
+                    throw new AssertionError("Unknown naming request kind: " + kind);
+            }
+        }
+    }
+}
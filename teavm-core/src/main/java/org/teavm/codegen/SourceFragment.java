@@ -0,0 +1,57 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.codegen;
+
+/**
+ * <p>A piece of code recorded by {@link SourceWriter} between {@link SourceWriter#startFragment()} and
+ * {@link SourceWriter#finishFragment()}. Besides the code itself, a fragment remembers the state of the writer
+ * it was produced in, since output of the writer depends on the current column and indentation. A fragment
+ * can be appended to a writer that is in the same state as the one it was recorded in.</p>
+ *
+ * @author Alexey Andreev
+ */
+public final class SourceFragment {
+    final String text;
+    final boolean minified;
+    final int startColumn;
+    final int startIndentSize;
+    final boolean startLineStart;
+    final int lineCount;
+    final int endColumn;
+    final int endIndentSize;
+    final boolean endLineStart;
+
+    SourceFragment(String text, boolean minified, int startColumn, int startIndentSize, boolean startLineStart,
+            int lineCount, int endColumn, int endIndentSize, boolean endLineStart) {
+        this.text = text;
+        this.minified = minified;
+        this.startColumn = startColumn;
+        this.startIndentSize = startIndentSize;
+        this.startLineStart = startLineStart;
+        this.lineCount = lineCount;
+        this.endColumn = endColumn;
+        this.endIndentSize = endIndentSize;
+        this.endLineStart = endLineStart;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public int getLineCount() {
+        return lineCount;
+    }
+}
@@ -34,6 +34,7 @@ public class SourceWriter implements Appendable, LocationProvider {
     private int lineWidth;
     private int column;
     private int line;
+    private FragmentRecorder fragmentRecorder;
 
     SourceWriter(NamingStrategy naming, Appendable innerWriter, int lineWidth) {
         this.naming = naming;
@@ -185,6 +186,50 @@ public class SourceWriter implements Appendable, LocationProvider {
         return this;
     }
 
+    /**
+     * <p>Starts recording of a fragment. Everything written until {@link #finishFragment()} is both passed
+     * to the underlying writer and kept in the fragment.</p>
+     */
+    public void startFragment() {
+        if (fragmentRecorder != null) {
+            throw new IllegalStateException("Another fragment is being recorded");
+        }
+        fragmentRecorder = new FragmentRecorder(innerWriter, column, indentSize, lineStart, line);
+        innerWriter = fragmentRecorder;
+    }
+
+    public SourceFragment finishFragment() {
+        if (fragmentRecorder == null) {
+            throw new IllegalStateException("No fragment is being recorded");
+        }
+        FragmentRecorder recorder = fragmentRecorder;
+        fragmentRecorder = null;
+        innerWriter = recorder.innerWriter;
+        return new SourceFragment(recorder.text.toString(), minified, recorder.startColumn,
+                recorder.startIndentSize, recorder.startLineStart, line - recorder.startLine, column, indentSize,
+                lineStart);
+    }
+
+    /**
+     * <p>Tells whether the given fragment would be written by this writer exactly as it was recorded.</p>
+     */
+    public boolean canAppend(SourceFragment fragment) {
+        return fragment.minified == minified && fragment.startColumn == column &&
+                fragment.startIndentSize == indentSize && fragment.startLineStart == lineStart;
+    }
+
+    public SourceWriter append(SourceFragment fragment) throws IOException {
+        if (!canAppend(fragment)) {
+            throw new IllegalArgumentException("Fragment was recorded in a different state of writer");
+        }
+        innerWriter.append(fragment.text);
+        line += fragment.lineCount;
+        column = fragment.endColumn;
+        indentSize = fragment.endIndentSize;
+        lineStart = fragment.endLineStart;
+        return this;
+    }
+
     public NamingStrategy getNaming() {
         return naming;
     }
@@ -198,4 +243,43 @@ public class SourceWriter implements Appendable, LocationProvider {
     public int getLine() {
         return line;
     }
+
+    private static class FragmentRecorder implements Appendable {
+        final Appendable innerWriter;
+        final StringBuilder text = new StringBuilder();
+        final int startColumn;
+        final int startIndentSize;
+        final boolean startLineStart;
+        final int startLine;
+
+        public FragmentRecorder(Appendable innerWriter, int startColumn, int startIndentSize,
+                boolean startLineStart, int startLine) {
+            this.innerWriter = innerWriter;
+            this.startColumn = startColumn;
+            this.startIndentSize = startIndentSize;
+            this.startLineStart = startLineStart;
+            this.startLine = startLine;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq) throws IOException {
+            innerWriter.append(csq);
+            text.append(csq);
+            return this;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) throws IOException {
+            innerWriter.append(csq, start, end);
+            text.append(csq, start, end);
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) throws IOException {
+            innerWriter.append(c);
+            text.append(c);
+            return this;
+        }
+    }
 }
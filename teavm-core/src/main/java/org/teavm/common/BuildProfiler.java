@@ -0,0 +1,251 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.common;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.*;
+import org.teavm.model.MethodReference;
+
+/**
+ * <p>Collects wall time, CPU time and allocated memory spent by each phase of the build and by each
+ * method optimization, as well as the methods that took longest to optimize. Sections may be nested,
+ * for example, class loading happens during dependency analysis, so time of a nested section is also
+ * included into the time of the outer one.</p>
+ *
+ * <p>Profiler is disabled by default, in this case it costs nearly nothing. Call
+ * {@link org.teavm.vm.TeaVM#setProfiling(boolean)} to enable it.</p>
+ *
+ * @author Alexey Andreev
+ */
+public class BuildProfiler {
+    private static final Measurement EMPTY_MEASUREMENT = new Measurement(null, null);
+    private boolean enabled;
+    private ThreadMXBean threadBean;
+    private com.sun.management.ThreadMXBean allocationBean;
+    private Map<String, Section> sections = new LinkedHashMap<>();
+    private Map<MethodReference, Long> methodTimes = new HashMap<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (enabled && threadBean == null) {
+            threadBean = ManagementFactory.getThreadMXBean();
+            if (threadBean.isCurrentThreadCpuTimeSupported() && !threadBean.isThreadCpuTimeEnabled()) {
+                threadBean.setThreadCpuTimeEnabled(true);
+            }
+            try {
+                if (threadBean instanceof com.sun.management.ThreadMXBean) {
+                    allocationBean = (com.sun.management.ThreadMXBean)threadBean;
+                    if (!allocationBean.isThreadAllocatedMemorySupported()) {
+                        allocationBean = null;
+                    } else if (!allocationBean.isThreadAllocatedMemoryEnabled()) {
+                        allocationBean.setThreadAllocatedMemoryEnabled(true);
+                    }
+                }
+            } catch (NoClassDefFoundError e) {
+                allocationBean = null;
+            }
+        }
+    }
+
+    /**
+     * <p>Starts measuring a section. Measurements of a section with the same name are summed up.</p>
+     *
+     * @return measurement which must be stopped when the section ends.
+     */
+    public Measurement start(String sectionName) {
+        if (!enabled) {
+            return EMPTY_MEASUREMENT;
+        }
+        Section section = sections.get(sectionName);
+        if (section == null) {
+            section = new Section(sectionName);
+            sections.put(sectionName, section);
+        }
+        return new Measurement(this, section);
+    }
+
+    /**
+     * <p>Remembers how long it took to process the given method, so that the slowest methods could be
+     * reported.</p>
+     */
+    public void methodProcessed(MethodReference method, long wallTime) {
+        if (!enabled) {
+            return;
+        }
+        Long existing = methodTimes.get(method);
+        methodTimes.put(method, existing != null ? existing + wallTime : wallTime);
+    }
+
+    public Collection<Section> getSections() {
+        return Collections.unmodifiableCollection(sections.values());
+    }
+
+    /**
+     * <p>Returns methods which took longest to process, the slowest first.</p>
+     */
+    public List<MethodTime> getSlowestMethods(int count) {
+        List<MethodTime> result = new ArrayList<>();
+        for (Map.Entry<MethodReference, Long> entry : methodTimes.entrySet()) {
+            result.add(new MethodTime(entry.getKey(), entry.getValue()));
+        }
+        Collections.sort(result, new Comparator<MethodTime>() {
+            @Override public int compare(MethodTime o1, MethodTime o2) {
+                return Long.compare(o2.wallTime, o1.wallTime);
+            }
+        });
+        return result.size() > count ? new ArrayList<>(result.subList(0, count)) : result;
+    }
+
+    /**
+     * <p>Writes a human-readable report, one line per section, followed by the given number of
+     * slowest methods.</p>
+     */
+    public void report(Appendable target, int methodCount) throws IOException {
+        target.append(String.format(Locale.US, "%-40s %10s %10s %12s %8s%n", "Section", "Wall, ms", "CPU, ms",
+                "Alloc, KB", "Count"));
+        for (Section section : sections.values()) {
+            target.append(String.format(Locale.US, "%-40s %10d %10s %12s %8d%n", section.name,
+                    section.wallTime / 1000000, section.cpuTime >= 0 ? section.cpuTime / 1000000 : "n/a",
+                    section.allocatedBytes >= 0 ? section.allocatedBytes / 1024 : "n/a", section.count));
+        }
+        List<MethodTime> slowestMethods = getSlowestMethods(methodCount);
+        if (!slowestMethods.isEmpty()) {
+            target.append("Slowest methods to optimize:").append(String.format("%n"));
+            for (MethodTime method : slowestMethods) {
+                target.append(String.format(Locale.US, "%10.3f ms  %s%n", method.wallTime / 1000000.0,
+                        method.method));
+            }
+        }
+    }
+
+    private long currentCpuTime() {
+        return threadBean.isCurrentThreadCpuTimeSupported() ? threadBean.getCurrentThreadCpuTime() : -1;
+    }
+
+    private long currentAllocatedBytes() {
+        return allocationBean != null ? allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId()) : -1;
+    }
+
+    public static class Section {
+        private String name;
+        private long wallTime;
+        private long cpuTime;
+        private long allocatedBytes;
+        private int count;
+
+        Section(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * <p>Gets wall time of the section in nanoseconds.</p>
+         */
+        public long getWallTime() {
+            return wallTime;
+        }
+
+        /**
+         * <p>Gets CPU time of the section in nanoseconds, or -1 if JVM can't measure it.</p>
+         */
+        public long getCpuTime() {
+            return cpuTime;
+        }
+
+        /**
+         * <p>Gets number of bytes allocated during the section, or -1 if JVM can't measure it.</p>
+         */
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        /**
+         * <p>Gets how many times the section was entered.</p>
+         */
+        public int getCount() {
+            return count;
+        }
+    }
+
+    public static class MethodTime {
+        private MethodReference method;
+        private long wallTime;
+
+        MethodTime(MethodReference method, long wallTime) {
+            this.method = method;
+            this.wallTime = wallTime;
+        }
+
+        public MethodReference getMethod() {
+            return method;
+        }
+
+        /**
+         * <p>Gets wall time spent on the method in nanoseconds.</p>
+         */
+        public long getWallTime() {
+            return wallTime;
+        }
+    }
+
+    public static class Measurement {
+        private BuildProfiler profiler;
+        private Section section;
+        private long startWallTime;
+        private long startCpuTime;
+        private long startAllocatedBytes;
+
+        Measurement(BuildProfiler profiler, Section section) {
+            this.profiler = profiler;
+            this.section = section;
+            if (profiler != null) {
+                startAllocatedBytes = profiler.currentAllocatedBytes();
+                startCpuTime = profiler.currentCpuTime();
+                startWallTime = System.nanoTime();
+            }
+        }
+
+        /**
+         * <p>Stops the measurement and adds measured values to the section.</p>
+         *
+         * @return wall time of this measurement in nanoseconds.
+         */
+        public long stop() {
+            if (profiler == null) {
+                return 0;
+            }
+            long wallTime = System.nanoTime() - startWallTime;
+            long cpuTime = profiler.currentCpuTime();
+            long allocatedBytes = profiler.currentAllocatedBytes();
+            section.wallTime += wallTime;
+            section.cpuTime = cpuTime >= 0 && section.cpuTime >= 0 ? section.cpuTime + cpuTime - startCpuTime : -1;
+            section.allocatedBytes = allocatedBytes >= 0 && section.allocatedBytes >= 0 ?
+                    section.allocatedBytes + allocatedBytes - startAllocatedBytes : -1;
+            section.count++;
+            profiler = null;
+            return wallTime;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.common;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>A {@link FiniteExecutor} on top of a {@link ForkJoinPool}. Tasks submitted from a worker thread go
+ * to the deque of that worker, where idle workers can steal them from, so a few long tasks don't keep
+ * other threads waiting.</p>
+ *
+ * <p>Unlike {@link ThreadPoolFiniteExecutor}, a failed task does not stop {@link #complete()} from
+ * waiting for other tasks. All exceptions are collected, the first one is rethrown and the rest are
+ * attached to it as suppressed exceptions.</p>
+ *
+ * @author Alexey Andreev
+ */
+public class WorkStealingFiniteExecutor implements FiniteExecutor {
+    private ForkJoinPool pool;
+    private AtomicInteger runningTasks = new AtomicInteger();
+    private final Object monitor = new Object();
+    private Queue<Throwable> thrownExceptions = new ConcurrentLinkedQueue<>();
+    private AtomicInteger taskCount = new AtomicInteger();
+    private AtomicLong totalTaskTime = new AtomicLong();
+    private AtomicLong maxTaskTime = new AtomicLong();
+
+    public WorkStealingFiniteExecutor(int numThreads) {
+        pool = new ForkJoinPool(numThreads);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        runningTasks.incrementAndGet();
+        Task task = new Task(command);
+        Thread thread = Thread.currentThread();
+        if (thread instanceof ForkJoinWorkerThread && ((ForkJoinWorkerThread)thread).getPool() == pool) {
+            task.fork();
+        } else {
+            pool.execute(task);
+        }
+    }
+
+    @Override
+    public void executeFast(Runnable runnable) {
+        execute(runnable);
+    }
+
+    @Override
+    public void complete() {
+        synchronized (monitor) {
+            while (runningTasks.get() > 0) {
+                try {
+                    monitor.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+        List<Throwable> exceptions = new ArrayList<>();
+        while (!thrownExceptions.isEmpty()) {
+            exceptions.add(thrownExceptions.remove());
+        }
+        if (exceptions.isEmpty()) {
+            return;
+        }
+        Throwable first = exceptions.get(0);
+        for (Throwable exception : exceptions.subList(1, exceptions.size())) {
+            first.addSuppressed(exception);
+        }
+        if (first instanceof Error) {
+            throw (Error)first;
+        }
+        throw (RuntimeException)first;
+    }
+
+    public void stop() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * <p>Gets the number of tasks that were run by this executor.</p>
+     */
+    public int getTaskCount() {
+        return taskCount.get();
+    }
+
+    /**
+     * <p>Gets the sum of running times of all tasks, in milliseconds.</p>
+     */
+    public long getTotalTaskTime() {
+        return totalTaskTime.get() / 1000000;
+    }
+
+    /**
+     * <p>Gets the running time of the longest task, in milliseconds.</p>
+     */
+    public long getMaxTaskTime() {
+        return maxTaskTime.get() / 1000000;
+    }
+
+    private void taskCompleted(long time) {
+        taskCount.incrementAndGet();
+        totalTaskTime.addAndGet(time);
+        while (true) {
+            long max = maxTaskTime.get();
+            if (time <= max || maxTaskTime.compareAndSet(max, time)) {
+                break;
+            }
+        }
+        if (runningTasks.decrementAndGet() == 0) {
+            synchronized (monitor) {
+                monitor.notifyAll();
+            }
+        }
+    }
+
+    private class Task extends RecursiveAction {
+        private static final long serialVersionUID = -6364426937412306064L;
+        private Runnable command;
+
+        public Task(Runnable command) {
+            this.command = command;
+        }
+
+        @Override
+        protected void compute() {
+            long start = System.nanoTime();
+            try {
+                command.run();
+            } catch (RuntimeException | Error e) {
+                thrownExceptions.add(e);
+            } finally {
+                taskCompleted(System.nanoTime() - start);
+            }
+        }
+    }
+}
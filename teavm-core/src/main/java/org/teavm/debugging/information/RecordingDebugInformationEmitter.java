@@ -0,0 +1,277 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.debugging.information;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.teavm.codegen.LocationProvider;
+import org.teavm.model.MethodDescriptor;
+import org.teavm.model.MethodReference;
+
+/**
+ * <p>A debug information emitter that passes everything to another emitter and can record what it was given,
+ * along with locations in generated code. Locations are recorded relatively to the line where recording
+ * started, so recorded information can be replayed for the same code written at another place.</p>
+ *
+ * @author Alexey Andreev
+ */
+public class RecordingDebugInformationEmitter implements DebugInformationEmitter {
+    private DebugInformationEmitter innerEmitter;
+    private LocationProvider locationProvider;
+    private Recording recording;
+    private int startLine;
+
+    public RecordingDebugInformationEmitter(DebugInformationEmitter innerEmitter) {
+        this.innerEmitter = innerEmitter;
+    }
+
+    public DebugInformationEmitter getInnerEmitter() {
+        return innerEmitter;
+    }
+
+    public void startRecording() {
+        recording = new Recording();
+        startLine = locationProvider.getLine();
+    }
+
+    public Recording finishRecording() {
+        Recording result = recording;
+        recording = null;
+        return result;
+    }
+
+    /**
+     * <p>Passes recorded information to the underlying emitter as if code it was recorded for started
+     * at the current line.</p>
+     */
+    public void replay(Recording recording) {
+        if (!recording.valid) {
+            throw new IllegalArgumentException("Recording is not complete");
+        }
+        ReplayLocationProvider replayLocation = new ReplayLocationProvider();
+        int baseLine = locationProvider.getLine();
+        List<DeferredCallSite> callSites = new ArrayList<>();
+        innerEmitter.setLocationProvider(replayLocation);
+        try {
+            for (Event event : recording.events) {
+                replayLocation.line = baseLine + event.generatedLine;
+                replayLocation.column = event.generatedColumn;
+                event.replay(innerEmitter, callSites);
+            }
+        } finally {
+            innerEmitter.setLocationProvider(locationProvider);
+        }
+    }
+
+    @Override
+    public void setLocationProvider(LocationProvider locationProvider) {
+        this.locationProvider = locationProvider;
+        innerEmitter.setLocationProvider(locationProvider);
+    }
+
+    @Override
+    public void emitLocation(final String fileName, final int line) {
+        innerEmitter.emitLocation(fileName, line);
+        record(new Event() {
+            @Override void replay(DebugInformationEmitter emitter, List<DeferredCallSite> callSites) {
+                emitter.emitLocation(fileName, line);
+            }
+        });
+    }
+
+    @Override
+    public void emitStatementStart() {
+        innerEmitter.emitStatementStart();
+        record(new Event() {
+            @Override void replay(DebugInformationEmitter emitter, List<DeferredCallSite> callSites) {
+                emitter.emitStatementStart();
+            }
+        });
+    }
+
+    @Override
+    public void emitMethod(final MethodDescriptor method) {
+        innerEmitter.emitMethod(method);
+        record(new Event() {
+            @Override void replay(DebugInformationEmitter emitter, List<DeferredCallSite> callSites) {
+                emitter.emitMethod(method);
+            }
+        });
+    }
+
+    @Override
+    public void emitClass(final String className) {
+        innerEmitter.emitClass(className);
+        record(new Event() {
+            @Override void replay(DebugInformationEmitter emitter, List<DeferredCallSite> callSites) {
+                emitter.emitClass(className);
+            }
+        });
+    }
+
+    @Override
+    public void emitVariable(final String[] sourceNames, final String generatedName) {
+        innerEmitter.emitVariable(sourceNames, generatedName);
+        record(new Event() {
+            @Override void replay(DebugInformationEmitter emitter, List<DeferredCallSite> callSites) {
+                emitter.emitVariable(sourceNames, generatedName);
+            }
+        });
+    }
+
+    @Override
+    public DeferredCallSite emitCallSite() {
+        DeferredCallSite callSite = innerEmitter.emitCallSite();
+        if (recording == null) {
+            return callSite;
+        }
+        final int index = recording.callSiteCount++;
+        record(new Event() {
+            @Override void replay(DebugInformationEmitter emitter, List<DeferredCallSite> callSites) {
+                callSites.add(emitter.emitCallSite());
+            }
+        });
+        return new RecordedCallSite(callSite, recording, index);
+    }
+
+    @Override
+    public void addClass(final String className, final String parentName) {
+        innerEmitter.addClass(className, parentName);
+        record(new Event() {
+            @Override void replay(DebugInformationEmitter emitter, List<DeferredCallSite> callSites) {
+                emitter.addClass(className, parentName);
+            }
+        });
+    }
+
+    @Override
+    public void addField(final String fieldName, final String jsName) {
+        innerEmitter.addField(fieldName, jsName);
+        record(new Event() {
+            @Override void replay(DebugInformationEmitter emitter, List<DeferredCallSite> callSites) {
+                emitter.addField(fieldName, jsName);
+            }
+        });
+    }
+
+    @Override
+    public void addSuccessors(final SourceLocation location, final SourceLocation[] successors) {
+        innerEmitter.addSuccessors(location, successors);
+        record(new Event() {
+            @Override void replay(DebugInformationEmitter emitter, List<DeferredCallSite> callSites) {
+                emitter.addSuccessors(location, successors);
+            }
+        });
+    }
+
+    private void record(Event event) {
+        if (recording == null) {
+            return;
+        }
+        event.generatedLine = locationProvider.getLine() - startLine;
+        event.generatedColumn = locationProvider.getColumn();
+        recording.events.add(event);
+    }
+
+    /**
+     * <p>Debug information recorded by {@link RecordingDebugInformationEmitter}.</p>
+     */
+    public static final class Recording {
+        List<Event> events = new ArrayList<>();
+        int callSiteCount;
+        boolean valid = true;
+
+        /**
+         * <p>Tells whether the recording can be replayed. A recording can't be replayed when a call site
+         * emitted during the recording was modified after the recording had finished.</p>
+         */
+        public boolean isValid() {
+            return valid;
+        }
+    }
+
+    static abstract class Event {
+        int generatedLine;
+        int generatedColumn;
+
+        abstract void replay(DebugInformationEmitter emitter, List<DeferredCallSite> callSites);
+    }
+
+    private class RecordedCallSite implements DeferredCallSite {
+        private DeferredCallSite innerCallSite;
+        private Recording owner;
+        private final int index;
+
+        public RecordedCallSite(DeferredCallSite innerCallSite, Recording owner, int index) {
+            this.innerCallSite = innerCallSite;
+            this.owner = owner;
+            this.index = index;
+        }
+
+        @Override
+        public void setVirtualMethod(final MethodReference method) {
+            innerCallSite.setVirtualMethod(method);
+            record(new Event() {
+                @Override void replay(DebugInformationEmitter emitter, List<DeferredCallSite> callSites) {
+                    callSites.get(index).setVirtualMethod(method);
+                }
+            });
+        }
+
+        @Override
+        public void setStaticMethod(final MethodReference method) {
+            innerCallSite.setStaticMethod(method);
+            record(new Event() {
+                @Override void replay(DebugInformationEmitter emitter, List<DeferredCallSite> callSites) {
+                    callSites.get(index).setStaticMethod(method);
+                }
+            });
+        }
+
+        @Override
+        public void clean() {
+            innerCallSite.clean();
+            record(new Event() {
+                @Override void replay(DebugInformationEmitter emitter, List<DeferredCallSite> callSites) {
+                    callSites.get(index).clean();
+                }
+            });
+        }
+
+        private void record(Event event) {
+            if (recording == owner) {
+                RecordingDebugInformationEmitter.this.record(event);
+            } else {
+                owner.valid = false;
+            }
+        }
+    }
+
+    static class ReplayLocationProvider implements LocationProvider {
+        int line;
+        int column;
+
+        @Override
+        public int getLine() {
+            return line;
+        }
+
+        @Override
+        public int getColumn() {
+            return column;
+        }
+    }
+}
@@ -181,6 +181,25 @@ public class DependencyChecker implements DependencyInfo, DependencyAgent {
         classSource.addTransformer(transformer);
     }
 
+    public List<ClassHolderTransformer> getClassTransformers() {
+        return classSource.getTransformers();
+    }
+
+    /**
+     * <p>Makes dependency checker take classes from the given snapshot instead of its class source,
+     * when possible. See {@link ClassSnapshot} for details.</p>
+     */
+    public void setClassSnapshot(ClassSnapshot snapshot) {
+        classSource.setSnapshot(snapshot);
+    }
+
+    /**
+     * <p>Sets a profiler which measures time spent on parsing and transforming classes.</p>
+     */
+    public void setProfiler(BuildProfiler profiler) {
+        classSource.setProfiler(profiler);
+    }
+
     public void addEntryPoint(MethodReference methodRef, String... argumentTypes) {
         ValueType[] parameters = methodRef.getDescriptor().getParameterTypes();
         if (parameters.length + 1 != argumentTypes.length) {
@@ -17,15 +17,20 @@ package org.teavm.dependency;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import org.teavm.common.BuildProfiler;
 import org.teavm.common.CachedMapper;
 import org.teavm.common.Mapper;
 import org.teavm.model.ClassHolder;
 import org.teavm.model.ClassHolderTransformer;
 import org.teavm.model.ClassReader;
 import org.teavm.model.ClassReaderSource;
+import org.teavm.model.ClassSnapshot;
 import org.teavm.model.util.ModelUtils;
 
 /**
@@ -36,10 +41,18 @@ class DependencyClassSource implements ClassReaderSource {
     private ClassReaderSource innerSource;
     private ConcurrentMap<String, ClassHolder> generatedClasses = new ConcurrentHashMap<>();
     private List<ClassHolderTransformer> transformers = new ArrayList<>();
+    private ClassSnapshot snapshot;
+    private List<ClassHolderTransformer> snapshotTransformers;
+    private BuildProfiler profiler = new BuildProfiler();
     private CachedMapper<String, ClassReader> cache = new CachedMapper<>(
             new Mapper<String, ClassReader>() {
         @Override public ClassReader map(String preimage) {
-            return findAndTransformClass(preimage);
+            BuildProfiler.Measurement measurement = profiler.start("Class loading");
+            try {
+                return findAndTransformClass(preimage);
+            } finally {
+                measurement.stop();
+            }
         }
     });
 
@@ -62,6 +75,12 @@ class DependencyClassSource implements ClassReaderSource {
     }
 
     private ClassReader findAndTransformClass(String name) {
+        if (snapshot != null) {
+            ClassReader snapshotClass = snapshot.get(name);
+            if (snapshotClass != null && getSnapshotTransformers() != null) {
+                return transformSnapshotClass(snapshotClass);
+            }
+        }
         ClassHolder cls = findClass(name);
         if (cls != null && !transformers.isEmpty()) {
             for (ClassHolderTransformer transformer : transformers) {
@@ -72,6 +91,41 @@ class DependencyClassSource implements ClassReaderSource {
         return cls;
     }
 
+    private ClassReader transformSnapshotClass(ClassReader snapshotClass) {
+        if (snapshotTransformers.isEmpty()) {
+            return snapshotClass;
+        }
+        ClassHolder cls = ModelUtils.copyClass(snapshotClass);
+        for (ClassHolderTransformer transformer : snapshotTransformers) {
+            transformer.transformClass(cls, innerSource);
+        }
+        return ModelUtils.copyClass(cls);
+    }
+
+    /**
+     * <p>Returns transformers that still have to be applied to classes taken from the snapshot, or
+     * <code>null</code> when the snapshot was produced by a transformer which is missing here.</p>
+     */
+    private List<ClassHolderTransformer> getSnapshotTransformers() {
+        if (snapshotTransformers == null) {
+            Set<String> installedNames = new HashSet<>();
+            List<ClassHolderTransformer> remaining = new ArrayList<>();
+            for (ClassHolderTransformer transformer : transformers) {
+                String transformerName = transformer.getClass().getName();
+                installedNames.add(transformerName);
+                if (!snapshot.getTransformerNames().contains(transformerName)) {
+                    remaining.add(transformer);
+                }
+            }
+            if (!installedNames.containsAll(snapshot.getTransformerNames())) {
+                snapshot = null;
+                return null;
+            }
+            snapshotTransformers = remaining;
+        }
+        return snapshotTransformers;
+    }
+
     private ClassHolder findClass(String name) {
         ClassReader cls = innerSource.get(name);
         if (cls != null) {
@@ -86,5 +140,19 @@ class DependencyClassSource implements ClassReaderSource {
 
     public void addTransformer(ClassHolderTransformer transformer) {
         transformers.add(transformer);
+        snapshotTransformers = null;
+    }
+
+    public List<ClassHolderTransformer> getTransformers() {
+        return Collections.unmodifiableList(transformers);
+    }
+
+    public void setProfiler(BuildProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    public void setSnapshot(ClassSnapshot snapshot) {
+        this.snapshot = snapshot;
+        snapshotTransformers = null;
     }
 }
@@ -0,0 +1,78 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.javascript;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.teavm.model.*;
+import org.teavm.model.instructions.EmptyInstruction;
+import org.teavm.model.instructions.ExitInstruction;
+import org.teavm.model.instructions.JumpInstruction;
+
+/**
+ * <p>Finds out which classes have to be initialized at run time. A class needs no initialization when it
+ * has no static initializer, or when its static initializer does nothing. Initial values of static fields
+ * are rendered along with the class declaration, so such a class is effectively initialized as soon as
+ * it is declared.</p>
+ *
+ * @author Alexey Andreev
+ */
+class ClassInitializerAnalysis {
+    private static final MethodDescriptor CLINIT = new MethodDescriptor("<clinit>", ValueType.VOID);
+    private ClassHolderSource classSource;
+    private Map<String, Boolean> cache = new HashMap<>();
+
+    public ClassInitializerAnalysis(ClassHolderSource classSource) {
+        this.classSource = classSource;
+    }
+
+    public boolean isInitializerNeeded(String className) {
+        Boolean result = cache.get(className);
+        if (result == null) {
+            result = compute(className);
+            cache.put(className, result);
+        }
+        return result;
+    }
+
+    private boolean compute(String className) {
+        ClassHolder cls = classSource.get(className);
+        if (cls == null) {
+            return true;
+        }
+        MethodHolder clinit = cls.getMethod(CLINIT);
+        if (clinit == null) {
+            return false;
+        }
+        Program program = clinit.getProgram();
+        if (program == null) {
+            return true;
+        }
+        for (int i = 0; i < program.basicBlockCount(); ++i) {
+            BasicBlock block = program.basicBlockAt(i);
+            if (block == null) {
+                continue;
+            }
+            for (Instruction insn : block.getInstructions()) {
+                if (!(insn instanceof EmptyInstruction) && !(insn instanceof JumpInstruction) &&
+                        !(insn instanceof ExitInstruction)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
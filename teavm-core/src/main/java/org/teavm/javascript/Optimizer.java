@@ -36,6 +36,8 @@ public class Optimizer {
         method.getVariables().subList(unusedEliminator.lastIndex, method.getVariables().size()).clear();
         RedundantLabelEliminator labelEliminator = new RedundantLabelEliminator();
         method.getBody().acceptVisitor(labelEliminator);
+        RedundantClassInitEliminator classInitEliminator = new RedundantClassInitEliminator();
+        method.getBody().acceptVisitor(classInitEliminator);
         for (int i = 0; i < method.getVariables().size(); ++i) {
             method.getVariables().set(i, i);
         }
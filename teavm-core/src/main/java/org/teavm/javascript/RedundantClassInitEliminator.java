@@ -0,0 +1,124 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.javascript;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import org.teavm.javascript.ast.*;
+
+/**
+ * <p>Removes class initialization statements that are dominated by an initialization of the same class
+ * within a method body.</p>
+ *
+ * <p>The analysis is conservative: classes initialized inside a compound statement are only known after
+ * that statement when it is a conditional and both branches initialize them.</p>
+ *
+ * @author Alexey Andreev
+ */
+class RedundantClassInitEliminator implements StatementVisitor {
+    private Set<String> initializedClasses = new HashSet<>();
+
+    void visitSequence(List<Statement> statements) {
+        for (Iterator<Statement> iter = statements.iterator(); iter.hasNext();) {
+            Statement statement = iter.next();
+            if (statement instanceof InitClassStatement) {
+                String className = ((InitClassStatement)statement).getClassName();
+                if (!initializedClasses.add(className)) {
+                    iter.remove();
+                }
+            } else {
+                statement.acceptVisitor(this);
+            }
+        }
+    }
+
+    private Set<String> visitBranch(List<Statement> statements, Set<String> entryState) {
+        initializedClasses = new HashSet<>(entryState);
+        visitSequence(statements);
+        return initializedClasses;
+    }
+
+    private void visitNested(List<Statement> statements) {
+        Set<String> entryState = initializedClasses;
+        visitBranch(statements, entryState);
+        initializedClasses = entryState;
+    }
+
+    @Override
+    public void visit(AssignmentStatement statement) {
+    }
+
+    @Override
+    public void visit(SequentialStatement statement) {
+        visitSequence(statement.getSequence());
+    }
+
+    @Override
+    public void visit(ConditionalStatement statement) {
+        Set<String> entryState = initializedClasses;
+        Set<String> consequentState = visitBranch(statement.getConsequent(), entryState);
+        Set<String> alternativeState = visitBranch(statement.getAlternative(), entryState);
+        consequentState.retainAll(alternativeState);
+        initializedClasses = consequentState;
+    }
+
+    @Override
+    public void visit(SwitchStatement statement) {
+        for (SwitchClause clause : statement.getClauses()) {
+            visitNested(clause.getBody());
+        }
+        visitNested(statement.getDefaultClause());
+    }
+
+    @Override
+    public void visit(WhileStatement statement) {
+        visitNested(statement.getBody());
+    }
+
+    @Override
+    public void visit(BlockStatement statement) {
+        visitNested(statement.getBody());
+    }
+
+    @Override
+    public void visit(BreakStatement statement) {
+    }
+
+    @Override
+    public void visit(ContinueStatement statement) {
+    }
+
+    @Override
+    public void visit(ReturnStatement statement) {
+    }
+
+    @Override
+    public void visit(ThrowStatement statement) {
+    }
+
+    @Override
+    public void visit(InitClassStatement statement) {
+        initializedClasses.add(statement.getClassName());
+    }
+
+    @Override
+    public void visit(TryCatchStatement statement) {
+        visitNested(statement.getProtectedBody());
+        visitNested(statement.getHandler());
+    }
+}
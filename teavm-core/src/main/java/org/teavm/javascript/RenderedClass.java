@@ -0,0 +1,62 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.javascript;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.teavm.codegen.RecordingNamingStrategy.NamingRequest;
+import org.teavm.codegen.SourceFragment;
+import org.teavm.debugging.information.RecordingDebugInformationEmitter;
+import org.teavm.javascript.ast.MethodNode;
+
+/**
+ * <p>Code of a class produced by {@link Renderer} along with everything this code was derived from. Besides
+ * the class itself, that is names given by the naming strategy, indexes in the string pool and a few facts
+ * about other classes. The renderer reuses the code only when all of them are the same.</p>
+ *
+ * @author Alexey Andreev
+ */
+public final class RenderedClass {
+    static final int STRING_INDEX = 0;
+    static final int INITIALIZER_NEEDED = 1;
+    static final int INSTANCE_OF_CLASS = 2;
+    static final int INJECTED = 3;
+    String signature;
+    List<MethodNode> methods;
+    SourceFragment fragment;
+    List<NamingRequest> namingRequests;
+    List<Fact> facts = new ArrayList<>();
+    RecordingDebugInformationEmitter.Recording debugRecording;
+
+    RenderedClass() {
+    }
+
+    public SourceFragment getFragment() {
+        return fragment;
+    }
+
+    static class Fact {
+        final int kind;
+        final Object subject;
+        final Object value;
+
+        Fact(int kind, Object subject, Object value) {
+            this.kind = kind;
+            this.subject = subject;
+            this.value = value;
+        }
+    }
+}
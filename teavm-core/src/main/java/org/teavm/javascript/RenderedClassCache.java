@@ -0,0 +1,28 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.javascript;
+
+/**
+ * <p>Keeps code that {@link Renderer} produced for classes, so that classes which did not change since
+ * the previous build can be written without rendering them again.</p>
+ *
+ * @author Alexey Andreev
+ */
+public interface RenderedClassCache {
+    RenderedClass get(String className);
+
+    void store(String className, RenderedClass renderedClass);
+}
@@ -21,11 +21,13 @@ import java.lang.reflect.InvocationTargetException;
 import java.util.*;
 import org.teavm.codegen.NamingException;
 import org.teavm.codegen.NamingStrategy;
+import org.teavm.codegen.RecordingNamingStrategy;
 import org.teavm.codegen.SourceWriter;
 import org.teavm.common.ServiceRepository;
 import org.teavm.debugging.information.DebugInformationEmitter;
 import org.teavm.debugging.information.DeferredCallSite;
 import org.teavm.debugging.information.DummyDebugInformationEmitter;
+import org.teavm.debugging.information.RecordingDebugInformationEmitter;
 import org.teavm.javascript.ast.*;
 import org.teavm.javascript.ni.GeneratorContext;
 import org.teavm.javascript.ni.InjectedBy;
@@ -39,9 +41,11 @@ import org.teavm.model.*;
  */
 public class Renderer implements ExprVisitor, StatementVisitor, RenderingContext {
     private static final String variableNames = "abcdefghijkmnopqrstuvwxyz";
+    private static final String NATIVE_STRING_FIELD = "nativeString";
     private NamingStrategy naming;
     private SourceWriter writer;
     private ListableClassHolderSource classSource;
+    private ClassInitializerAnalysis classInitializerAnalysis;
     private ClassLoader classLoader;
     private boolean minifying;
     private Map<MethodReference, InjectorHolder> injectorMap = new HashMap<>();
@@ -53,6 +57,8 @@ public class Renderer implements ExprVisitor, StatementVisitor, RenderingContext
     private Deque<LocationStackEntry> locationStack = new ArrayDeque<>();
     private DeferredCallSite lastCallSite;
     private DeferredCallSite prevCallSite;
+    private RenderedClassCache renderedClassCache;
+    private RenderedClass renderedClass;
 
     private static class InjectorHolder {
         public final Injector injector;
@@ -125,6 +131,25 @@ public class Renderer implements ExprVisitor, StatementVisitor, RenderingContext
         this.debugEmitter = debugEmitter;
     }
 
+    public RenderedClassCache getRenderedClassCache() {
+        return renderedClassCache;
+    }
+
+    /**
+     * <p>Sets a cache where the renderer puts code of classes and takes it back from in subsequent builds
+     * instead of rendering classes again. Naming strategy of the writer must be a
+     * {@link RecordingNamingStrategy}. To reuse debug information along with code, the debug emitter must be
+     * a {@link RecordingDebugInformationEmitter}, otherwise the cache is used only when debug information
+     * is not emitted at all.</p>
+     */
+    public void setRenderedClassCache(RenderedClassCache renderedClassCache) {
+        if (renderedClassCache != null && !(naming instanceof RecordingNamingStrategy)) {
+            throw new IllegalStateException("Rendered class cache requires " +
+                    RecordingNamingStrategy.class.getName());
+        }
+        this.renderedClassCache = renderedClassCache;
+    }
+
     public void setProperties(Properties properties) {
         this.properties.clear();
         this.properties.putAll(properties);
@@ -198,32 +223,73 @@ public class Renderer implements ExprVisitor, StatementVisitor, RenderingContext
         writer.outdent().append("}").newLine();
     }
 
+    private ClassInitializerAnalysis getClassInitializerAnalysis() {
+        if (classInitializerAnalysis == null) {
+            classInitializerAnalysis = new ClassInitializerAnalysis(classSource);
+        }
+        return classInitializerAnalysis;
+    }
+
+    private boolean isInitializerNeeded(String className) {
+        boolean result = getClassInitializerAnalysis().isInitializerNeeded(className);
+        addFact(RenderedClass.INITIALIZER_NEEDED, className, result);
+        return result;
+    }
+
+    private boolean isStringNative() {
+        return classSource.get("java.lang.String").getField(NATIVE_STRING_FIELD) != null;
+    }
+
     private void renderRuntimeString() throws IOException {
+        if (isStringNative()) {
+            renderRuntimeNativeString();
+            return;
+        }
         MethodReference stringCons = new MethodReference(String.class, "<init>", char[].class, void.class);
         writer.append("function $rt_str(str) {").indent().softNewLine();
-        writer.append("var characters = $rt_createCharArray(str.length);").softNewLine();
+        writer.append("var sz = str.length;").softNewLine();
+        writer.append("var characters = $rt_createCharArray(sz);").softNewLine();
         writer.append("var charsBuffer = characters.data;").softNewLine();
-        writer.append("for (var i = 0; i < str.length; i = (i + 1) | 0) {").indent().softNewLine();
-        writer.append("charsBuffer[i] = str.charCodeAt(i) & 0xFFFF;").softNewLine();
+        writer.append("for (var i = 0; i < sz; i = (i + 1) | 0) {").indent().softNewLine();
+        writer.append("charsBuffer[i] = str.charCodeAt(i);").softNewLine();
         writer.outdent().append("}").softNewLine();
         writer.append("return ").appendClass("java.lang.String").append(".")
                 .appendMethod(stringCons).append("(characters);").softNewLine();
         writer.outdent().append("}").newLine();
     }
 
+    private void renderRuntimeNativeString() throws IOException {
+        MethodReference objectCons = new MethodReference(Object.class, "<init>", void.class);
+        writer.append("function $rt_str(str) {").indent().softNewLine();
+        writer.append("if (str === null) {").indent().softNewLine();
+        writer.append("return null;").softNewLine();
+        writer.outdent().append("}").softNewLine();
+        writer.appendClass("java.lang.String").append("_$clinit();").softNewLine();
+        writer.append("var result = new ").appendClass("java.lang.String").append("();").softNewLine();
+        writer.appendMethodBody(objectCons).append("(result);").softNewLine();
+        writer.append("result.").appendField(new FieldReference("java.lang.String", NATIVE_STRING_FIELD))
+                .append(" = str;").softNewLine();
+        writer.append("return result;").softNewLine();
+        writer.outdent().append("}").newLine();
+    }
+
     private void renderRuntimeUnwrapString() throws IOException {
+        if (isStringNative()) {
+            writer.append("function $rt_ustr(str) {").indent().softNewLine();
+            writer.append("return str !== null ? str.")
+                    .appendField(new FieldReference("java.lang.String", NATIVE_STRING_FIELD))
+                    .append(" : null;").softNewLine();
+            writer.outdent().append("}").newLine();
+            return;
+        }
         MethodReference stringLen = new MethodReference(String.class, "length", int.class);
         MethodReference getChars = new MethodReference(String.class, "getChars", int.class, int.class,
                 char[].class, int.class, void.class);
         writer.append("function $rt_ustr(str) {").indent().softNewLine();
-        writer.append("var result = \"\";").softNewLine();
         writer.append("var sz = ").appendMethodBody(stringLen).append("(str);").softNewLine();
         writer.append("var array = $rt_createCharArray(sz);").softNewLine();
         writer.appendMethodBody(getChars).append("(str, 0, sz, array, 0);").softNewLine();
-        writer.append("for (var i = 0; i < sz; i = (i + 1) | 0) {").indent().softNewLine();
-        writer.append("result += String.fromCharCode(array.data[i]);").softNewLine();
-        writer.outdent().append("}").softNewLine();
-        writer.append("return result;").softNewLine();
+        writer.append("return $rt_charsToString(array.data, 0, sz);").softNewLine();
         writer.outdent().append("}").newLine();
     }
 
@@ -250,6 +316,129 @@ public class Renderer implements ExprVisitor, StatementVisitor, RenderingContext
     }
 
     public void render(ClassNode cls) throws RenderingException {
+        boolean debugRecorded = debugEmitter instanceof RecordingDebugInformationEmitter;
+        if (renderedClassCache == null || !debugRecorded && !(debugEmitter instanceof DummyDebugInformationEmitter)) {
+            renderClass(cls);
+            return;
+        }
+        String signature = getSignature(cls);
+        RenderedClass cachedClass = renderedClassCache.get(cls.getName());
+        if (cachedClass != null && reuse(cls, signature, cachedClass)) {
+            return;
+        }
+
+        RecordingNamingStrategy recordingNaming = (RecordingNamingStrategy)naming;
+        RecordingDebugInformationEmitter recordingEmitter = debugRecorded ?
+                (RecordingDebugInformationEmitter)debugEmitter : null;
+        renderedClass = new RenderedClass();
+        renderedClass.signature = signature;
+        renderedClass.methods = new ArrayList<>(cls.getMethods());
+        writer.startFragment();
+        recordingNaming.startRecording();
+        if (recordingEmitter != null) {
+            recordingEmitter.startRecording();
+        }
+        RenderedClass result = renderedClass;
+        try {
+            renderClass(cls);
+        } finally {
+            renderedClass = null;
+            result.fragment = writer.finishFragment();
+            result.namingRequests = recordingNaming.finishRecording();
+            if (recordingEmitter != null) {
+                result.debugRecording = recordingEmitter.finishRecording();
+            }
+        }
+        if (result.methods != null) {
+            renderedClassCache.store(cls.getName(), result);
+        }
+    }
+
+    private boolean reuse(ClassNode cls, String signature, RenderedClass cachedClass) {
+        if (!cachedClass.signature.equals(signature) || !writer.canAppend(cachedClass.fragment)) {
+            return false;
+        }
+        if (cachedClass.methods.size() != cls.getMethods().size()) {
+            return false;
+        }
+        for (int i = 0; i < cachedClass.methods.size(); ++i) {
+            if (cachedClass.methods.get(i) != cls.getMethods().get(i)) {
+                return false;
+            }
+        }
+        RecordingDebugInformationEmitter recordingEmitter = null;
+        if (debugEmitter instanceof RecordingDebugInformationEmitter) {
+            if (cachedClass.debugRecording == null || !cachedClass.debugRecording.isValid()) {
+                return false;
+            }
+            recordingEmitter = (RecordingDebugInformationEmitter)debugEmitter;
+        }
+
+        // Replaying makes the naming strategy and the string pool to take the same decisions they would take
+        // if the class was rendered again. When some of the decisions differ, the class is rendered anyway,
+        // which only wastes a few names and strings.
+        for (RenderedClass.Fact fact : cachedClass.facts) {
+            if (!fact.value.equals(getFact(fact.kind, fact.subject))) {
+                return false;
+            }
+        }
+        if (!((RecordingNamingStrategy)naming).replay(cachedClass.namingRequests)) {
+            return false;
+        }
+        if (recordingEmitter != null) {
+            recordingEmitter.replay(cachedClass.debugRecording);
+        }
+        try {
+            writer.append(cachedClass.fragment);
+        } catch (IOException e) {
+            throw new RenderingException("IO error occured", e);
+        }
+        return true;
+    }
+
+    private Object getFact(int kind, Object subject) {
+        switch (kind) {
+            case RenderedClass.STRING_INDEX:
+                return getStringIndex((String)subject);
+            case RenderedClass.INITIALIZER_NEEDED:
+                return getClassInitializerAnalysis().isInitializerNeeded((String)subject);
+            case RenderedClass.INSTANCE_OF_CLASS:
+                return isInstanceOfClass((String)subject);
+            case RenderedClass.INJECTED:
+                return getInjector((MethodReference)subject) != null;
+            default:
+                throw new AssertionError("Unknown fact kind: " + kind);
+        }
+    }
+
+    private void addFact(int kind, Object subject, Object value) {
+        if (renderedClass != null) {
+            renderedClass.facts.add(new RenderedClass.Fact(kind, subject, value));
+        }
+    }
+
+    private void preventCaching() {
+        if (renderedClass != null) {
+            renderedClass.methods = null;
+        }
+    }
+
+    private static String getSignature(ClassNode cls) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(cls.getName()).append(':').append(cls.getParentName()).append(':').append(cls.getModifiers())
+                .append(':').append(cls.getInterfaces());
+        for (FieldNode field : cls.getFields()) {
+            sb.append(';').append(field.getName()).append(':').append(field.getModifiers()).append(':')
+                    .append(field.getType()).append(':');
+            Object value = field.getInitialValue();
+            if (value != null) {
+                sb.append(value.getClass().getName()).append(':').append(value);
+            }
+        }
+        return sb.toString();
+    }
+
+    private void renderClass(ClassNode cls) throws RenderingException {
         debugEmitter.emitClass(cls.getName());
         debugEmitter.addClass(cls.getName(), cls.getParentName());
         try {
@@ -257,6 +446,8 @@ public class Renderer implements ExprVisitor, StatementVisitor, RenderingContext
                     .indent().softNewLine();
             if (cls.getParentName() != null) {
                 writer.appendClass(cls.getParentName()).append(".call(this);").softNewLine();
+            } else {
+                writer.append("this.$id").ws().append("=").ws().append("0;").softNewLine();
             }
             for (FieldNode field : cls.getFields()) {
                 if (field.getModifiers().contains(NodeModifier.STATIC)) {
@@ -317,27 +508,36 @@ public class Renderer implements ExprVisitor, StatementVisitor, RenderingContext
             List<MethodNode> nonInitMethods = new ArrayList<>();
             List<MethodNode> virtualMethods = new ArrayList<>();
 
+            boolean initializerNeeded = isInitializerNeeded(cls.getName());
             writer.append("function ").appendClass(cls.getName()).append("_$clinit()").ws()
                     .append("{").softNewLine().indent();
-            writer.appendClass(cls.getName()).append("_$clinit").ws().append("=").ws()
-                    .append("function(){};").newLine();
             List<String> stubNames = new ArrayList<>();
+            List<MethodNode> staticMethods = new ArrayList<>();
+            if (initializerNeeded) {
+                writer.appendClass(cls.getName()).append("_$clinit").ws().append("=").ws()
+                        .append("function(){};").newLine();
+            }
             for (MethodNode method : cls.getMethods()) {
                 if (!method.getModifiers().contains(NodeModifier.STATIC) &&
                         !method.getReference().getName().equals("<init>")) {
                     nonInitMethods.add(method);
-                } else {
+                } else if (initializerNeeded) {
                     renderBody(method, true);
                     stubNames.add(naming.getFullNameFor(method.getReference()));
+                } else {
+                    staticMethods.add(method);
                 }
             }
-            MethodHolder methodHolder = classSource.get(cls.getName()).getMethod(
-                    new MethodDescriptor("<clinit>", ValueType.VOID));
-            if (methodHolder != null) {
+            if (initializerNeeded) {
+                MethodHolder methodHolder = classSource.get(cls.getName()).getMethod(
+                        new MethodDescriptor("<clinit>", ValueType.VOID));
                 writer.appendMethodBody(new MethodReference(cls.getName(), methodHolder.getDescriptor()))
                         .append("();").softNewLine();
             }
             writer.outdent().append("}").newLine();
+            for (MethodNode method : staticMethods) {
+                renderBody(method, false);
+            }
             if (!cls.getModifiers().contains(NodeModifier.INTERFACE)) {
                 for (MethodNode method : cls.getMethods()) {
                     cls.getMethods();
@@ -521,6 +721,7 @@ public class Renderer implements ExprVisitor, StatementVisitor, RenderingContext
     private class MethodBodyRenderer implements MethodNodeVisitor, GeneratorContext {
         @Override
         public void visit(NativeMethodNode methodNode) {
+            preventCaching();
             try {
                 methodNode.getGenerator().generate(this, writer, methodNode.getReference());
             } catch (IOException e) {
@@ -868,7 +1069,9 @@ public class Renderer implements ExprVisitor, StatementVisitor, RenderingContext
             if (statement.getLocation() != null) {
                 pushLocation(statement.getLocation());
             }
-            writer.appendClass(statement.getClassName()).append("_$clinit();").softNewLine();
+            if (isInitializerNeeded(statement.getClassName())) {
+                writer.appendClass(statement.getClassName()).append("_$clinit();").softNewLine();
+            }
             if (statement.getLocation() != null) {
                 popLocation();
             }
@@ -1145,6 +1348,16 @@ public class Renderer implements ExprVisitor, StatementVisitor, RenderingContext
         }
     }
 
+    private int getStringIndex(String string) {
+        Integer index = stringPoolMap.get(string);
+        if (index == null) {
+            index = stringPool.size();
+            stringPool.add(string);
+            stringPoolMap.put(string, index);
+        }
+        return index;
+    }
+
     public String constantToString(Object cst) {
         if (cst == null) {
             return "null";
@@ -1154,12 +1367,8 @@ public class Renderer implements ExprVisitor, StatementVisitor, RenderingContext
             return "$rt_cls(" + typeToClsString(naming, type) + ")";
         } else if (cst instanceof String) {
             String string = (String)cst;
-            Integer index = stringPoolMap.get(string);
-            if (index == null) {
-                index = stringPool.size();
-                stringPool.add(string);
-                stringPoolMap.put(string, index);
-            }
+            int index = getStringIndex(string);
+            addFact(RenderedClass.STRING_INDEX, string, index);
             return "$rt_s(" + index + ")";
         } else if (cst instanceof Long) {
             long value = (Long)cst;
@@ -1327,7 +1536,10 @@ public class Renderer implements ExprVisitor, StatementVisitor, RenderingContext
                 pushLocation(expr.getLocation());
             }
             Injector injector = getInjector(expr.getMethod());
+            addFact(RenderedClass.INJECTED, expr.getMethod(), injector != null);
             if (injector != null) {
+                // Injectors may produce code that depends on anything
+                preventCaching();
                 injector.generate(new InjectorContextImpl(expr.getArguments()), expr.getMethod());
             } else {
                 if (expr.getType() == InvocationType.DYNAMIC) {
@@ -1571,8 +1783,9 @@ public class Renderer implements ExprVisitor, StatementVisitor, RenderingContext
             }
             if (expr.getType() instanceof ValueType.Object) {
                 String clsName = ((ValueType.Object)expr.getType()).getClassName();
-                ClassHolder cls = classSource.get(clsName);
-                if (cls != null && !cls.getModifiers().contains(ElementModifier.INTERFACE)) {
+                boolean instanceOfClass = isInstanceOfClass(clsName);
+                addFact(RenderedClass.INSTANCE_OF_CLASS, clsName, instanceOfClass);
+                if (instanceOfClass) {
                     writer.append("(");
                     expr.getExpr().acceptVisitor(this);
                     writer.append(" instanceof ").appendClass(clsName).append(")");
@@ -1651,6 +1864,11 @@ public class Renderer implements ExprVisitor, StatementVisitor, RenderingContext
         }
     }
 
+    private boolean isInstanceOfClass(String className) {
+        ClassHolder cls = classSource.get(className);
+        return cls != null && !cls.getModifiers().contains(ElementModifier.INTERFACE);
+    }
+
     private Injector getInjector(MethodReference ref) {
         InjectorHolder holder = injectorMap.get(ref);
         if (holder == null) {
@@ -0,0 +1,103 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.model;
+
+import java.util.*;
+import org.teavm.model.util.ModelUtils;
+
+/**
+ * <p>An immutable set of classes that were already parsed and processed by class transformers. A snapshot
+ * can be shared by any number of {@link org.teavm.vm.TeaVM} instances, including ones running concurrently.
+ * Classes of a snapshot are handed out to dependency analysis as they are, without copying, since nobody
+ * is allowed to modify them.</p>
+ *
+ * <p>A snapshot remembers which transformers were applied to its classes. TeaVM uses a snapshot only
+ * when it has all of these transformers installed, and applies the rest of its transformers to copies
+ * of snapshot classes.</p>
+ *
+ * @author Alexey Andreev
+ */
+public final class ClassSnapshot implements ListableClassReaderSource {
+    private final Map<String, ClassHolder> classes;
+    private final Set<String> transformerNames;
+
+    /**
+     * <p>Creates a snapshot of the given classes. The snapshot takes ownership of class holders, so
+     * they must not be modified afterwards.</p>
+     *
+     * @param classes classes to include into the snapshot.
+     * @param transformerNames qualified class names of transformers that were applied to the classes.
+     */
+    public ClassSnapshot(Collection<ClassHolder> classes, Collection<String> transformerNames) {
+        Map<String, ClassHolder> classMap = new HashMap<>();
+        for (ClassHolder cls : classes) {
+            classMap.put(cls.getName(), cls);
+        }
+        this.classes = Collections.unmodifiableMap(classMap);
+        this.transformerNames = Collections.unmodifiableSet(new HashSet<>(transformerNames));
+    }
+
+    /**
+     * <p>Takes classes from the given source and applies transformers to them.</p>
+     *
+     * @param classSource a source of classes that are not transformed yet.
+     * @param classNames names of classes to include. Names of classes that are missing from the source
+     * are ignored.
+     * @param transformers transformers to apply.
+     */
+    public static ClassSnapshot create(ClassReaderSource classSource, Collection<String> classNames,
+            List<ClassHolderTransformer> transformers) {
+        List<ClassHolder> classes = new ArrayList<>();
+        for (String className : classNames) {
+            ClassReader original = classSource.get(className);
+            if (original == null) {
+                continue;
+            }
+            ClassHolder cls = ModelUtils.copyClass(original);
+            for (ClassHolderTransformer transformer : transformers) {
+                transformer.transformClass(cls, classSource);
+            }
+            classes.add(ModelUtils.copyClass(cls));
+        }
+        List<String> transformerNames = new ArrayList<>();
+        for (ClassHolderTransformer transformer : transformers) {
+            transformerNames.add(transformer.getClass().getName());
+        }
+        return new ClassSnapshot(classes, transformerNames);
+    }
+
+    @Override
+    public ClassReader get(String name) {
+        return classes.get(name);
+    }
+
+    @Override
+    public Set<String> getClassNames() {
+        return classes.keySet();
+    }
+
+    public Set<String> getTransformerNames() {
+        return transformerNames;
+    }
+
+    /**
+     * <p>Returns classes of the snapshot. Only intended to serialize the snapshot, returned classes
+     * must not be modified.</p>
+     */
+    public Collection<ClassHolder> getClasses() {
+        return classes.values();
+    }
+}
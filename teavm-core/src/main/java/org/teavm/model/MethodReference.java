@@ -91,7 +91,7 @@ public class MethodReference {
     @Override
     public boolean equals(Object obj) {
         if (this == obj) {
-            return false;
+            return true;
         }
         if (!(obj instanceof MethodReference)) {
             return false;
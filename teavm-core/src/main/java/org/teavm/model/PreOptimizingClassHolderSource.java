@@ -48,4 +48,8 @@ public class PreOptimizingClassHolderSource implements ClassHolderSource {
         }
         return cls;
     }
+
+    public void invalidate(String name) {
+        cache.remove(name);
+    }
 }
@@ -15,34 +15,63 @@
  */
 package org.teavm.optimization;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.*;
 import org.teavm.dependency.DependencyInfo;
 import org.teavm.dependency.MethodDependencyInfo;
 import org.teavm.dependency.ValueDependencyInfo;
 import org.teavm.model.*;
-import org.teavm.model.instructions.InvocationType;
-import org.teavm.model.instructions.InvokeInstruction;
+import org.teavm.model.instructions.*;
 
 /**
+ * <p>Replaces virtual calls with direct ones where dependency analysis proves the set of possible
+ * implementations to be small. Monomorphic call sites are turned into plain special invocations.
+ * Bimorphic call sites are split into a guarded direct call to one of the implementations and a virtual
+ * call as a fallback, as long as there is a class that tells the implementations apart.</p>
  *
  * @author Alexey Andreev <konsoletyper@gmail.com>
  */
 public class Devirtualization {
     private DependencyInfo dependency;
     private ClassReaderSource classSource;
+    private int virtualCallSites;
+    private int monomorphicCallSites;
+    private int guardedCallSites;
 
     public Devirtualization(DependencyInfo dependency, ClassReaderSource classSource) {
         this.dependency = dependency;
         this.classSource = classSource;
     }
 
+    /**
+     * <p>Gets the number of virtual call sites that were examined.</p>
+     */
+    public int getVirtualCallSites() {
+        return virtualCallSites;
+    }
+
+    /**
+     * <p>Gets the number of call sites that were replaced with an unconditional direct call.</p>
+     */
+    public int getMonomorphicCallSites() {
+        return monomorphicCallSites;
+    }
+
+    /**
+     * <p>Gets the number of call sites that were replaced with a type check guarding a direct call.</p>
+     */
+    public int getGuardedCallSites() {
+        return guardedCallSites;
+    }
+
     public void apply(MethodHolder method) {
         MethodDependencyInfo methodDep = dependency.getMethod(method.getReference());
         if (methodDep == null) {
             return;
         }
         Program program = method.getProgram();
+        List<InvokeInstruction> bimorphicCalls = new ArrayList<>();
+        List<String> guards = new ArrayList<>();
+        List<MethodReference> guardedImplementations = new ArrayList<>();
         for (int i = 0; i < program.basicBlockCount(); ++i) {
             BasicBlock block = program.basicBlockAt(i);
             for (Instruction insn : block.getInstructions()) {
@@ -53,15 +82,127 @@ public class Devirtualization {
                 if (invoke.getType() != InvocationType.VIRTUAL) {
                     continue;
                 }
+                ++virtualCallSites;
                 ValueDependencyInfo var = methodDep.getVariable(invoke.getInstance().getIndex());
-                Set<MethodReference> implementations = getImplementations(var.getTypes(),
-                        invoke.getMethod());
+                String[] types = var.getTypes();
+                Set<MethodReference> implementations = getImplementations(types, invoke.getMethod());
                 if (implementations.size() == 1) {
                     invoke.setType(InvocationType.SPECIAL);
                     invoke.setMethod(implementations.iterator().next());
+                    ++monomorphicCallSites;
+                } else if (implementations.size() == 2 && block.getTryCatchBlocks().isEmpty()) {
+                    for (MethodReference implementation : implementations) {
+                        if (isGuardSufficient(types, invoke.getMethod(), implementation)) {
+                            bimorphicCalls.add(invoke);
+                            guards.add(implementation.getClassName());
+                            guardedImplementations.add(implementation);
+                            break;
+                        }
+                    }
                 }
             }
         }
+        for (int i = 0; i < bimorphicCalls.size(); ++i) {
+            insertGuard(program, bimorphicCalls.get(i), guards.get(i), guardedImplementations.get(i));
+            ++guardedCallSites;
+        }
+    }
+
+    private boolean isGuardSufficient(String[] classNames, MethodReference ref, MethodReference implementation) {
+        ClassReader guard = classSource.get(implementation.getClassName());
+        if (guard == null || guard.hasModifier(ElementModifier.INTERFACE)) {
+            return false;
+        }
+        for (String className : classNames) {
+            if (className.startsWith("[")) {
+                className = "java.lang.Object";
+            }
+            ClassReader cls = classSource.get(className);
+            if (cls == null || !isAssignable(ref.getClassName(), cls)) {
+                continue;
+            }
+            MethodDependencyInfo methodDep = dependency.getMethod(new MethodReference(className, ref.getDescriptor()));
+            if (methodDep == null) {
+                continue;
+            }
+            boolean passesGuard = isAssignable(guard.getName(), cls);
+            if (passesGuard != methodDep.getReference().equals(implementation)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void insertGuard(Program program, InvokeInstruction invoke, String guard,
+            MethodReference implementation) {
+        BasicBlock block = invoke.getBasicBlock();
+        BasicBlock directBlock = program.createBasicBlock();
+        BasicBlock virtualBlock = program.createBasicBlock();
+        BasicBlock joint = program.createBasicBlock();
+
+        List<Instruction> instructions = block.getInstructions();
+        int index = instructions.indexOf(invoke);
+        List<Instruction> tail = new ArrayList<>(instructions.subList(index + 1, instructions.size()));
+        instructions.subList(index, instructions.size()).clear();
+        joint.getInstructions().addAll(tail);
+        for (int i = 0; i < program.basicBlockCount(); ++i) {
+            BasicBlock successor = program.basicBlockAt(i);
+            if (successor == null) {
+                continue;
+            }
+            for (Phi phi : successor.getPhis()) {
+                for (Incoming incoming : phi.getIncomings()) {
+                    if (incoming.getSource() == block) {
+                        incoming.setSource(joint);
+                    }
+                }
+            }
+        }
+
+        IsInstanceInstruction guardInsn = new IsInstanceInstruction();
+        guardInsn.setValue(invoke.getInstance());
+        guardInsn.setType(ValueType.object(guard));
+        guardInsn.setReceiver(program.createVariable());
+        guardInsn.setLocation(invoke.getLocation());
+        instructions.add(guardInsn);
+        BranchingInstruction branch = new BranchingInstruction(BranchingCondition.NOT_EQUAL);
+        branch.setOperand(guardInsn.getReceiver());
+        branch.setConsequent(directBlock);
+        branch.setAlternative(virtualBlock);
+        branch.setLocation(invoke.getLocation());
+        instructions.add(branch);
+
+        InvokeInstruction directInvoke = new InvokeInstruction();
+        directInvoke.setType(InvocationType.SPECIAL);
+        directInvoke.setMethod(implementation);
+        directInvoke.setInstance(invoke.getInstance());
+        directInvoke.getArguments().addAll(invoke.getArguments());
+        directInvoke.setLocation(invoke.getLocation());
+        directBlock.getInstructions().add(directInvoke);
+        virtualBlock.getInstructions().add(invoke);
+
+        if (invoke.getReceiver() != null) {
+            Phi phi = new Phi();
+            phi.setReceiver(invoke.getReceiver());
+            directInvoke.setReceiver(program.createVariable());
+            invoke.setReceiver(program.createVariable());
+            Incoming directIncoming = new Incoming();
+            directIncoming.setSource(directBlock);
+            directIncoming.setValue(directInvoke.getReceiver());
+            phi.getIncomings().add(directIncoming);
+            Incoming virtualIncoming = new Incoming();
+            virtualIncoming.setSource(virtualBlock);
+            virtualIncoming.setValue(invoke.getReceiver());
+            phi.getIncomings().add(virtualIncoming);
+            joint.getPhis().add(phi);
+        }
+
+        JumpInstruction directJump = new JumpInstruction();
+        directJump.setTarget(joint);
+        directBlock.getInstructions().add(directJump);
+        JumpInstruction virtualJump = new JumpInstruction();
+        virtualJump.setTarget(joint);
+        virtualBlock.getInstructions().add(virtualJump);
     }
 
     private Set<MethodReference> getImplementations(String[] classNames, MethodReference ref) {
@@ -46,8 +46,28 @@ public class ClasspathClassHolderSource implements ClassHolderSource, ClassDateP
         return innerClassSource.get(name);
     }
 
+    /**
+     * <p>Returns the name under which the given class is visible to TeaVM. Classes that emulate
+     * Java class library are renamed according to <code>META-INF/teavm.properties</code>, other
+     * classes keep their names.</p>
+     */
+    public String mapClassName(String className) {
+        return classPathMapper.renameClass(className);
+    }
+
     @Override
     public Date getModificationDate(String className) {
         return classPathMapper.getModificationDate(className);
     }
+
+    /**
+     * <p>Forgets the parsed class and its modification date, so that the class is read from the classpath
+     * again when requested next time.</p>
+     *
+     * @param name name of the class as visible to TeaVM, see {@link #mapClassName(String)}.
+     */
+    public void invalidate(String name) {
+        innerClassSource.invalidate(name);
+        classPathMapper.invalidate(name);
+    }
 }
@@ -110,7 +110,7 @@ public class ClasspathResourceMapper implements Mapper<String, ClassHolder>, Cla
         return innerMapper.map(name);
     }
 
-    private String renameClass(String name) {
+    String renameClass(String name) {
         for (Transformation transformation : transformations) {
             if (name.startsWith(transformation.fullPrefix)) {
                 int index = name.lastIndexOf('.');
@@ -189,6 +189,10 @@ public class ClasspathResourceMapper implements Mapper<String, ClassHolder>, Cla
         }
     }
 
+    void invalidate(String className) {
+        modificationDates.remove(className);
+    }
+
     static class ModificationDate {
         Date date;
     }
@@ -0,0 +1,124 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.tooling;
+
+import java.io.*;
+import java.util.*;
+import org.teavm.cache.ClassSnapshotIO;
+import org.teavm.model.ClassSnapshot;
+import org.teavm.parsing.ClasspathClassHolderSource;
+import org.teavm.vm.TeaVM;
+import org.teavm.vm.TeaVMBuilder;
+
+/**
+ * <p>Parses and transforms all classes of a directory once and stores them as a {@link ClassSnapshot},
+ * so that later builds can skip this work. The snapshot is usually written to
+ * {@link ClassSnapshotIO#RESOURCE_NAME} to be packaged together with the classes.</p>
+ *
+ * @author Alexey Andreev
+ */
+public class ClassSnapshotTool {
+    private File classesDirectory;
+    private File targetFile;
+    private ClassLoader classLoader = ClassSnapshotTool.class.getClassLoader();
+    private Properties properties = new Properties();
+    private TeaVMToolLog log = new EmptyTeaVMToolLog();
+
+    public File getClassesDirectory() {
+        return classesDirectory;
+    }
+
+    public void setClassesDirectory(File classesDirectory) {
+        this.classesDirectory = classesDirectory;
+    }
+
+    public File getTargetFile() {
+        return targetFile;
+    }
+
+    public void setTargetFile(File targetFile) {
+        this.targetFile = targetFile;
+    }
+
+    public ClassLoader getClassLoader() {
+        return classLoader;
+    }
+
+    public void setClassLoader(ClassLoader classLoader) {
+        this.classLoader = classLoader;
+    }
+
+    public Properties getProperties() {
+        return properties;
+    }
+
+    public TeaVMToolLog getLog() {
+        return log;
+    }
+
+    public void setLog(TeaVMToolLog log) {
+        this.log = log;
+    }
+
+    public void generate() throws TeaVMToolException {
+        log.info("Building class snapshot");
+        ClasspathClassHolderSource classSource = new ClasspathClassHolderSource(classLoader);
+        Set<String> classNames = new HashSet<>();
+        findClasses(classesDirectory, "", classSource, classNames);
+        TeaVM vm = new TeaVMBuilder().setClassLoader(classLoader).setClassSource(classSource).build();
+        vm.setProperties(properties);
+        vm.installPlugins();
+        ClassSnapshot snapshot = vm.createClassSnapshot(classNames);
+        targetFile.getParentFile().mkdirs();
+        try (OutputStream output = new BufferedOutputStream(new FileOutputStream(targetFile))) {
+            ClassSnapshotIO.write(snapshot, output);
+        } catch (IOException e) {
+            throw new TeaVMToolException("Error writing class snapshot to " + targetFile, e);
+        }
+        log.info("Class snapshot of " + snapshot.getClassNames().size() + " classes written to " + targetFile);
+    }
+
+    static ClassSnapshot load(ClassLoader classLoader, TeaVMToolLog log) throws TeaVMToolException {
+        ClassSnapshot snapshot;
+        try {
+            snapshot = ClassSnapshotIO.readFromClasspath(classLoader);
+        } catch (IOException e) {
+            throw new TeaVMToolException("Error reading class snapshot", e);
+        }
+        if (snapshot == null) {
+            log.info("No class snapshot found in classpath");
+        } else {
+            log.info("Using class snapshot of " + snapshot.getClassNames().size() + " classes");
+        }
+        return snapshot;
+    }
+
+    private void findClasses(File directory, String packageName, ClasspathClassHolderSource classSource,
+            Set<String> classNames) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.isDirectory()) {
+                findClasses(file, packageName + file.getName() + ".", classSource, classNames);
+            } else if (file.getName().endsWith(".class")) {
+                String simpleName = file.getName().substring(0, file.getName().length() - ".class".length());
+                classNames.add(classSource.mapClassName(packageName + simpleName));
+            }
+        }
+    }
+}
@@ -0,0 +1,580 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.tooling;
+
+import java.io.*;
+import java.net.URLDecoder;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.script.*;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.teavm.common.FiniteExecutor;
+import org.teavm.common.SimpleFiniteExecutor;
+import org.teavm.common.WorkStealingFiniteExecutor;
+
+/**
+ * <p>Runs tests produced by {@link TeaVMTestTool} without a browser. Every test case is executed in a fresh
+ * global scope, which emulates the frame that <code>junit.html</code> would create for it. Test cases are
+ * distributed among worker threads, each of them owning its own engine. When a report directory is
+ * specified, results are written there as JUnit XML reports, one file per test class.</p>
+ *
+ * <p>By default tests run in <code>node</code> executable found in <code>PATH</code>. Every worker thread
+ * starts its own Node.js process, which creates a new <code>vm</code> context for each test case.</p>
+ *
+ * <p>Any other engine name is looked up as an embedded JSR 223 engine. The only one known to work is
+ * Nashorn of Java 9 to 14, or the standalone <code>org.openjdk.nashorn:nashorn-core</code> put on classpath
+ * of later versions. Nashorn of Java 8 can't run generated code correctly. The runner checks the engine
+ * before running tests and fails with an explanation if it is not suitable. Even a suitable Nashorn fails
+ * to compile declarations of classes with more than about a hundred virtual methods, so tests of such
+ * classes are reported as errors.</p>
+ *
+ * @author Alexey Andreev
+ */
+public class HeadlessTestRunner {
+    public static final String NODE = "node";
+    private static final String RESOURCE_PREFIX = "org/teavm/tooling/test/headless/";
+    private static final String[] NODE_RESOURCES = { "node-runner.js", "client.js", "reader.js" };
+    private File outputDir = new File(".");
+    private File reportDir;
+    private int numThreads = 1;
+    private String engineName = NODE;
+    private TeaVMToolLog log = new EmptyTeaVMToolLog();
+    private Map<String, String> scripts = new ConcurrentHashMap<>();
+    private ThreadLocal<EngineHolder> engines = new ThreadLocal<>();
+    private File nodeResourceDir;
+    private ThreadLocal<NodeProcess> nodeProcesses = new ThreadLocal<>();
+    private List<NodeProcess> startedNodeProcesses = Collections.synchronizedList(new ArrayList<NodeProcess>());
+    private List<TestResult> results = new ArrayList<>();
+
+    /**
+     * <p>Returns the directory where {@link TeaVMTestTool} has put generated tests.</p>
+     */
+    public File getOutputDir() {
+        return outputDir;
+    }
+
+    public void setOutputDir(File outputDir) {
+        this.outputDir = outputDir;
+    }
+
+    public File getReportDir() {
+        return reportDir;
+    }
+
+    public void setReportDir(File reportDir) {
+        this.reportDir = reportDir;
+    }
+
+    public int getNumThreads() {
+        return numThreads;
+    }
+
+    public void setNumThreads(int numThreads) {
+        this.numThreads = numThreads;
+    }
+
+    public String getEngineName() {
+        return engineName;
+    }
+
+    /**
+     * <p>Sets an engine to run tests in: {@link #NODE} or a name of a JSR 223 engine.</p>
+     */
+    public void setEngineName(String engineName) {
+        this.engineName = engineName;
+    }
+
+    public TeaVMToolLog getLog() {
+        return log;
+    }
+
+    public void setLog(TeaVMToolLog log) {
+        this.log = log;
+    }
+
+    public List<TestResult> getResults() {
+        return results;
+    }
+
+    public int getFailureCount() {
+        int count = 0;
+        for (TestResult result : results) {
+            if (result.getStatus() != TestStatus.PASSED) {
+                ++count;
+            }
+        }
+        return count;
+    }
+
+    public void run() throws TeaVMToolException {
+        if (isNode()) {
+            prepareNode();
+            try {
+                runTests();
+            } finally {
+                stopNode();
+            }
+        } else {
+            ScriptEngine engine = createEngine();
+            if (engine == null) {
+                throw new TeaVMToolException("JavaScript engine " + engineName + " is not available. Use " +
+                        NODE + " or Nashorn, which is shipped with Java 9 to 14 and is available as " +
+                        "org.openjdk.nashorn:nashorn-core for later versions");
+            }
+            JavaScriptEngines.check(engine, engineName);
+            runTests();
+        }
+    }
+
+    private boolean isNode() {
+        return engineName.equals(NODE);
+    }
+
+    private void runTests() throws TeaVMToolException {
+        List<TestCase> testCases = readTests();
+        log.info("Running " + testCases.size() + " test(s)");
+        final TestResult[] resultArray = new TestResult[testCases.size()];
+        FiniteExecutor executor = new SimpleFiniteExecutor();
+        WorkStealingFiniteExecutor threadedExecutor = null;
+        if (numThreads != 1) {
+            int threads = numThreads != 0 ? numThreads : Runtime.getRuntime().availableProcessors();
+            threadedExecutor = new WorkStealingFiniteExecutor(threads);
+            executor = threadedExecutor;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            for (int i = 0; i < testCases.size(); ++i) {
+                final int index = i;
+                final TestCase testCase = testCases.get(i);
+                executor.execute(new Runnable() {
+                    @Override public void run() {
+                        TestResult result = runTest(testCase);
+                        if (result.getStatus() != TestStatus.PASSED) {
+                            log.warning("Test failed: " + testCase.className + "." + testCase.methodName);
+                        }
+                        resultArray[index] = result;
+                    }
+                });
+            }
+            executor.complete();
+        } finally {
+            if (threadedExecutor != null) {
+                threadedExecutor.stop();
+            }
+        }
+        results = new ArrayList<>(Arrays.asList(resultArray));
+        log.info("Tests run: " + results.size() + ", failures: " + getFailureCount() + ", time spent: " +
+                (System.currentTimeMillis() - start) + " ms");
+        if (reportDir != null) {
+            writeReports();
+        }
+    }
+
+    private ScriptEngine createEngine() {
+        // Optimistic types make Nashorn recompile functions on every type deoptimization, which costs
+        // far more than it gains for code that is run only once per global scope.
+        return JavaScriptEngines.create(engineName, log, "--optimistic-types=false");
+    }
+
+    private List<TestCase> readTests() throws TeaVMToolException {
+        if (isNode()) {
+            return readTestsInNode();
+        }
+        EngineHolder engine = getEngine();
+        Bindings bindings = engine.engine.createBindings();
+        TestCollector collector = new TestCollector();
+        bindings.put("$testCollector", collector);
+        try {
+            engine.eval(bindings, RESOURCE_PREFIX + "reader.js", getResource("reader.js"));
+            engine.eval(bindings, "tests/all.js", getScript("tests/all.js"));
+            engine.engine.eval("prepare();", bindings);
+        } catch (IOException | ScriptException e) {
+            throw new TeaVMToolException("Error reading test list from " + outputDir, e);
+        }
+        return collector.testCases;
+    }
+
+    private TestResult runTest(TestCase testCase) {
+        long start = System.currentTimeMillis();
+        TestCallback callback = new TestCallback();
+        try {
+            if (isNode()) {
+                runTestInNode(testCase, callback);
+            } else {
+                runTestInEngine(testCase, callback);
+            }
+        } catch (IOException | ScriptException | RuntimeException | AssertionError | StackOverflowError e) {
+            // Besides failures of test code, engines may fail to compile some generated scripts
+            StringWriter buffer = new StringWriter();
+            e.printStackTrace(new PrintWriter(buffer));
+            callback.complete("exception", null, buffer.toString());
+        }
+        long timeSpent = System.currentTimeMillis() - start;
+
+        TestStatus status;
+        String stack = callback.stack;
+        if (callback.status == null) {
+            status = TestStatus.ERROR;
+            stack = "Test did not report its result";
+        } else if (callback.status.equals("ok")) {
+            if (testCase.expectedExceptions.isEmpty()) {
+                status = TestStatus.PASSED;
+            } else {
+                status = TestStatus.FAILED;
+                stack = "Expected exception not thrown";
+            }
+        } else if (callback.exception != null && testCase.expectedExceptions.contains(callback.exception)) {
+            status = TestStatus.PASSED;
+            stack = null;
+        } else if (callback.exception != null && isAssertionFailure(callback.exception)) {
+            status = TestStatus.FAILED;
+        } else {
+            status = TestStatus.ERROR;
+        }
+        return new TestResult(testCase.className, testCase.methodName, status, callback.exception, stack,
+                callback.output.toString(), timeSpent);
+    }
+
+    private void runTestInEngine(TestCase testCase, TestCallback callback) throws IOException, ScriptException {
+        EngineHolder engine = getEngine();
+        Bindings bindings = engine.engine.createBindings();
+        bindings.put("$testCallback", callback);
+        engine.eval(bindings, RESOURCE_PREFIX + "client.js", getResource("client.js"));
+        for (String script : getTestScripts(testCase)) {
+            engine.eval(bindings, script, getScript(script));
+        }
+        engine.engine.eval("$testListener({ data : \"" + testCase.entryPoint + "\" });", bindings);
+    }
+
+    private static List<String> getTestScripts(TestCase testCase) {
+        List<String> testScripts = new ArrayList<>();
+        testScripts.add("res/junit-support.js");
+        testScripts.add("res/runtime.js");
+        testScripts.addAll(testCase.additionalScripts);
+        testScripts.add(testCase.script);
+        return testScripts;
+    }
+
+    private void prepareNode() throws TeaVMToolException {
+        try {
+            runNode(Arrays.asList(NODE, "--version"));
+        } catch (IOException e) {
+            throw new TeaVMToolException("Could not run " + NODE + ", make sure Node.js is installed " +
+                    "and is available in PATH", e);
+        }
+        try {
+            nodeResourceDir = Files.createTempDirectory("teavm-test").toFile();
+            for (String name : NODE_RESOURCES) {
+                FileUtils.writeStringToFile(new File(nodeResourceDir, name), getResource(name), "UTF-8");
+            }
+        } catch (IOException e) {
+            throw new TeaVMToolException("Error preparing scripts to run tests in " + NODE, e);
+        }
+    }
+
+    private void stopNode() {
+        synchronized (startedNodeProcesses) {
+            for (NodeProcess process : startedNodeProcesses) {
+                process.stop();
+            }
+            startedNodeProcesses.clear();
+        }
+        if (nodeResourceDir != null) {
+            FileUtils.deleteQuietly(nodeResourceDir);
+            nodeResourceDir = null;
+        }
+    }
+
+    private List<String> getNodeCommand(String mode) {
+        return Arrays.asList(NODE, new File(nodeResourceDir, "node-runner.js").getPath(), nodeResourceDir.getPath(),
+                outputDir.getAbsolutePath(), mode);
+    }
+
+    private List<TestCase> readTestsInNode() throws TeaVMToolException {
+        String output;
+        try {
+            output = runNode(getNodeCommand("list"));
+        } catch (IOException e) {
+            throw new TeaVMToolException("Error reading test list from " + outputDir, e);
+        }
+        TestCollector collector = new TestCollector();
+        for (String line : output.split("\n")) {
+            String[] parts = line.split("\t", -1);
+            if (parts[0].equals("test") && parts.length == 5) {
+                collector.add(parts[1], parts[2], parts[3], parts[4]);
+            } else if (parts[0].equals("expected") && parts.length == 2) {
+                collector.addExpectedException(parts[1]);
+            } else if (parts[0].equals("script") && parts.length == 2) {
+                collector.addAdditionalScript(parts[1]);
+            } else if (!line.isEmpty()) {
+                throw new TeaVMToolException("Unexpected output of " + NODE + " reading test list: " + line);
+            }
+        }
+        return collector.testCases;
+    }
+
+    private void runTestInNode(TestCase testCase, TestCallback callback) throws IOException {
+        StringBuilder request = new StringBuilder(testCase.entryPoint);
+        for (String script : getTestScripts(testCase)) {
+            request.append('\t').append(script);
+        }
+        String response = getNodeProcess().request(request.toString());
+        String[] parts = response.split(" ", -1);
+        if (parts.length != 4) {
+            throw new IOException("Unexpected response of " + NODE + ": " + response);
+        }
+        String output = decode(parts[3]);
+        if (output != null) {
+            callback.output.append(output);
+        }
+        String status = decode(parts[0]);
+        if (status != null) {
+            callback.complete(status, decode(parts[1]), decode(parts[2]));
+        }
+    }
+
+    private static String decode(String value) throws UnsupportedEncodingException {
+        // Values are encoded with encodeURIComponent, which never produces '+', so URL decoding restores them
+        return !value.isEmpty() ? URLDecoder.decode(value, "UTF-8") : null;
+    }
+
+    private NodeProcess getNodeProcess() throws IOException {
+        NodeProcess process = nodeProcesses.get();
+        if (process == null || process.terminated) {
+            process = new NodeProcess(getNodeCommand("run"));
+            startedNodeProcesses.add(process);
+            nodeProcesses.set(process);
+        }
+        return process;
+    }
+
+    private static String runNode(List<String> command) throws IOException {
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String output;
+        try (InputStream input = process.getInputStream()) {
+            output = IOUtils.toString(input, "UTF-8");
+        }
+        int exitCode;
+        try {
+            exitCode = process.waitFor();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for " + command.get(0));
+        }
+        if (exitCode != 0) {
+            throw new IOException(command.get(0) + " exited with code " + exitCode + ":\n" + output);
+        }
+        return output;
+    }
+
+    private static boolean isAssertionFailure(String exception) {
+        return exception.equals("java.lang.AssertionError") ||
+                exception.equals("junit.framework.AssertionFailedError") ||
+                exception.equals("org.junit.ComparisonFailure");
+    }
+
+    private EngineHolder getEngine() {
+        EngineHolder engine = engines.get();
+        if (engine == null) {
+            engine = new EngineHolder(createEngine());
+            engines.set(engine);
+        }
+        return engine;
+    }
+
+    private String getScript(String path) throws IOException {
+        String script = scripts.get(path);
+        if (script == null) {
+            try (InputStream input = new FileInputStream(new File(outputDir, path))) {
+                script = IOUtils.toString(input, "UTF-8");
+            }
+            scripts.put(path, script);
+        }
+        return script;
+    }
+
+    private String getResource(String name) throws IOException {
+        String script = scripts.get(RESOURCE_PREFIX + name);
+        if (script == null) {
+            ClassLoader classLoader = HeadlessTestRunner.class.getClassLoader();
+            try (InputStream input = classLoader.getResourceAsStream(RESOURCE_PREFIX + name)) {
+                script = IOUtils.toString(input, "UTF-8");
+            }
+            scripts.put(RESOURCE_PREFIX + name, script);
+        }
+        return script;
+    }
+
+    private void writeReports() throws TeaVMToolException {
+        reportDir.mkdirs();
+        Map<String, List<TestResult>> resultsByClass = new LinkedHashMap<>();
+        for (TestResult result : results) {
+            List<TestResult> classResults = resultsByClass.get(result.getClassName());
+            if (classResults == null) {
+                classResults = new ArrayList<>();
+                resultsByClass.put(result.getClassName(), classResults);
+            }
+            classResults.add(result);
+        }
+        JUnitReportWriter reportWriter = new JUnitReportWriter();
+        for (Map.Entry<String, List<TestResult>> entry : resultsByClass.entrySet()) {
+            File file = new File(reportDir, "TEST-" + entry.getKey() + ".xml");
+            try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8")) {
+                reportWriter.write(entry.getKey(), entry.getValue(), writer);
+            } catch (IOException e) {
+                throw new TeaVMToolException("Error writing test report " + file, e);
+            }
+        }
+        log.info("Test reports written to " + reportDir);
+    }
+
+    /**
+     * <p>Keeps a worker's engine along with scripts it has already compiled. A compiled script can be
+     * evaluated in any number of global scopes, so every test does not have to parse and compile
+     * the whole runtime and its test class again.</p>
+     */
+    static class EngineHolder {
+        private static final int MAX_CACHED_SCRIPTS = 16;
+        final ScriptEngine engine;
+        private Map<String, CompiledScript> compiledScripts = new LinkedHashMap<String, CompiledScript>(16, 0.75f,
+                true) {
+            private static final long serialVersionUID = -3370366735587005624L;
+            @Override protected boolean removeEldestEntry(Map.Entry<String, CompiledScript> eldest) {
+                return size() > MAX_CACHED_SCRIPTS;
+            }
+        };
+
+        EngineHolder(ScriptEngine engine) {
+            this.engine = engine;
+        }
+
+        void eval(Bindings bindings, String name, String script) throws ScriptException {
+            bindings.put(ScriptEngine.FILENAME, name);
+            if (!(engine instanceof Compilable)) {
+                engine.eval(script, bindings);
+                return;
+            }
+            CompiledScript compiledScript = compiledScripts.get(name);
+            if (compiledScript == null) {
+                engine.put(ScriptEngine.FILENAME, name);
+                compiledScript = ((Compilable)engine).compile(script);
+                compiledScripts.put(name, compiledScript);
+            }
+            compiledScript.eval(bindings);
+        }
+    }
+
+    /**
+     * <p>A Node.js process that runs tests of a worker thread one by one. Each request is a line with
+     * an entry point and scripts to load, and the process answers with a line describing the outcome.</p>
+     */
+    static class NodeProcess {
+        private final Process process;
+        private final Writer input;
+        private final BufferedReader output;
+        volatile boolean terminated;
+
+        NodeProcess(List<String> command) throws IOException {
+            process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+            input = new OutputStreamWriter(process.getOutputStream(), "UTF-8");
+            output = new BufferedReader(new InputStreamReader(process.getInputStream(), "UTF-8"));
+        }
+
+        String request(String request) throws IOException {
+            String response;
+            try {
+                input.write(request);
+                input.write('\n');
+                input.flush();
+                response = output.readLine();
+            } catch (IOException e) {
+                terminated = true;
+                throw e;
+            }
+            if (response == null) {
+                terminated = true;
+                throw new IOException(NODE + " process terminated unexpectedly");
+            }
+            return response;
+        }
+
+        void stop() {
+            terminated = true;
+            IOUtils.closeQuietly(input);
+            IOUtils.closeQuietly(output);
+            process.destroy();
+        }
+    }
+
+    static class TestCase {
+        String className;
+        String methodName;
+        String script;
+        String entryPoint;
+        List<String> expectedExceptions = new ArrayList<>();
+        List<String> additionalScripts = new ArrayList<>();
+    }
+
+    /**
+     * <p>Receives test descriptions from <code>tests/all.js</code>. Only intended to be called from
+     * JavaScript.</p>
+     */
+    public static class TestCollector {
+        List<TestCase> testCases = new ArrayList<>();
+
+        public void add(String className, String methodName, String script, String entryPoint) {
+            TestCase testCase = new TestCase();
+            testCase.className = className;
+            testCase.methodName = methodName;
+            testCase.script = script;
+            testCase.entryPoint = entryPoint;
+            testCases.add(testCase);
+        }
+
+        public void addExpectedException(String exception) {
+            testCases.get(testCases.size() - 1).expectedExceptions.add(exception);
+        }
+
+        public void addAdditionalScript(String script) {
+            testCases.get(testCases.size() - 1).additionalScripts.add(script);
+        }
+    }
+
+    /**
+     * <p>Receives output and the outcome of a running test. Only intended to be called from
+     * JavaScript.</p>
+     */
+    public static class TestCallback {
+        String status;
+        String exception;
+        String stack;
+        StringBuilder output = new StringBuilder();
+
+        public void output(String text) {
+            output.append(text).append('\n');
+        }
+
+        public void complete(String status, String exception, String stack) {
+            if (this.status == null) {
+                this.status = status;
+                this.exception = exception;
+                this.stack = stack;
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.tooling;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * <p>Writes test results of a single test class in the XML format produced by Ant and Surefire, which
+ * is understood by most continuous integration servers.</p>
+ *
+ * @author Alexey Andreev
+ */
+class JUnitReportWriter {
+    public void write(String className, List<TestResult> results, Writer writer) throws IOException {
+        int failures = 0;
+        int errors = 0;
+        long timeSpent = 0;
+        for (TestResult result : results) {
+            if (result.getStatus() == TestStatus.FAILED) {
+                ++failures;
+            } else if (result.getStatus() == TestStatus.ERROR) {
+                ++errors;
+            }
+            timeSpent += result.getTimeSpent();
+        }
+        writer.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        writer.append("<testsuite name=\"");
+        escape(className, writer);
+        writer.append("\" tests=\"" + results.size() + "\" failures=\"" + failures + "\" errors=\"" + errors +
+                "\" skipped=\"0\" time=\"" + formatTime(timeSpent) + "\">\n");
+        for (TestResult result : results) {
+            writer.append("  <testcase classname=\"");
+            escape(className, writer);
+            writer.append("\" name=\"");
+            escape(result.getMethodName(), writer);
+            writer.append("\" time=\"" + formatTime(result.getTimeSpent()) + "\"");
+            boolean empty = result.getStatus() == TestStatus.PASSED && result.getOutput().isEmpty();
+            if (empty) {
+                writer.append("/>\n");
+                continue;
+            }
+            writer.append(">\n");
+            if (result.getStatus() != TestStatus.PASSED) {
+                String tag = result.getStatus() == TestStatus.FAILED ? "failure" : "error";
+                String stack = result.getStack() != null ? result.getStack() : "";
+                String message = stack.contains("\n") ? stack.substring(0, stack.indexOf('\n')) : stack;
+                writer.append("    <" + tag + " message=\"");
+                escape(message, writer);
+                writer.append("\"");
+                if (result.getException() != null) {
+                    writer.append(" type=\"");
+                    escape(result.getException(), writer);
+                    writer.append("\"");
+                }
+                writer.append(">");
+                escape(stack, writer);
+                writer.append("</" + tag + ">\n");
+            }
+            if (!result.getOutput().isEmpty()) {
+                writer.append("    <system-out>");
+                escape(result.getOutput(), writer);
+                writer.append("</system-out>\n");
+            }
+            writer.append("  </testcase>\n");
+        }
+        writer.append("</testsuite>\n");
+    }
+
+    private static String formatTime(long millis) {
+        return String.format(Locale.US, "%.3f", millis / 1000.0);
+    }
+
+    private static void escape(String text, Writer writer) throws IOException {
+        for (int i = 0; i < text.length(); ++i) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '<':
+                    writer.append("&lt;");
+                    break;
+                case '>':
+                    writer.append("&gt;");
+                    break;
+                case '&':
+                    writer.append("&amp;");
+                    break;
+                case '"':
+                    writer.append("&quot;");
+                    break;
+                case '\n':
+                case '\r':
+                case '\t':
+                    writer.append(c);
+                    break;
+                default:
+                    writer.append(c >= ' ' ? c : '?');
+                    break;
+            }
+        }
+    }
+}
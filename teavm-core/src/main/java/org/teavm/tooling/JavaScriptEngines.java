@@ -0,0 +1,79 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.tooling;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineFactory;
+import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
+
+/**
+ * <p>Creates JavaScript engines of the JVM to run generated code without a browser.</p>
+ *
+ * @author Alexey Andreev
+ */
+public final class JavaScriptEngines {
+    private JavaScriptEngines() {
+    }
+
+    /**
+     * <p>Creates an engine by name.</p>
+     *
+     * @param nashornOptions options to pass to engine if it is Nashorn. Other engines ignore them.
+     * @return new engine or <code>null</code> if there is no such engine.
+     */
+    public static ScriptEngine create(String engineName, TeaVMToolLog log, String... nashornOptions) {
+        ScriptEngineManager manager = new ScriptEngineManager();
+        ScriptEngine engine = manager.getEngineByName(engineName);
+        if (engine == null) {
+            return null;
+        }
+        ScriptEngineFactory factory = engine.getFactory();
+        if (nashornOptions.length > 0 && factory.getClass().getName().endsWith(".NashornScriptEngineFactory")) {
+            try {
+                Method method = factory.getClass().getMethod("getScriptEngine", String[].class);
+                engine = (ScriptEngine)method.invoke(factory, (Object)nashornOptions);
+            } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+                log.debug("Could not configure Nashorn, using default settings", e);
+            }
+        }
+        return engine;
+    }
+
+    /**
+     * <p>Ensures that the engine is able to run code produced by TeaVM.</p>
+     */
+    public static void check(ScriptEngine engine, String engineName) throws TeaVMToolException {
+        if (engine == null) {
+            throw new TeaVMToolException("JavaScript engine " + engineName + " is not available");
+        }
+        // Generated code relies on leaving labeled blocks with break, which some engines fail to compile
+        // properly. For example, Nashorn shipped with Java 8 returns undefined from this function.
+        Object probe;
+        try {
+            probe = engine.eval("(function(x) { block: { if (x) { break block; } return 0; } return 1; })(true)");
+        } catch (ScriptException e) {
+            throw new TeaVMToolException("JavaScript engine " + engineName + " is not operational", e);
+        }
+        if (!(probe instanceof Number) || ((Number)probe).intValue() != 1) {
+            throw new TeaVMToolException("JavaScript engine " + engineName + " (" +
+                    engine.getFactory().getEngineName() + " " + engine.getFactory().getEngineVersion() + ") " +
+                    "does not execute generated code correctly. Consider using a newer JVM");
+        }
+    }
+}
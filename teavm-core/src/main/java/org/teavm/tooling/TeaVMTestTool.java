@@ -20,7 +20,7 @@ import java.util.*;
 import org.apache.commons.io.IOUtils;
 import org.teavm.common.FiniteExecutor;
 import org.teavm.common.SimpleFiniteExecutor;
-import org.teavm.common.ThreadPoolFiniteExecutor;
+import org.teavm.common.WorkStealingFiniteExecutor;
 import org.teavm.debugging.information.DebugInformation;
 import org.teavm.debugging.information.DebugInformationBuilder;
 import org.teavm.javascript.EmptyRegularMethodNodeCache;
@@ -41,6 +41,7 @@ import org.teavm.vm.TeaVMBuilder;
 public class TeaVMTestTool {
     private Map<String, List<MethodReference>> groupedMethods = new HashMap<>();
     private Map<MethodReference, String> fileNames = new HashMap<>();
+    private Map<MethodReference, String> entryPointNames = new HashMap<>();
     private List<MethodReference> testMethods = new ArrayList<>();
     private File outputDir = new File(".");
     private boolean minifying = true;
@@ -57,6 +58,9 @@ public class TeaVMTestTool {
     private boolean sourceMapsGenerated;
     private boolean sourceFilesCopied;
     private boolean incremental;
+    private boolean bundledByClass;
+    private boolean classSnapshotUsed;
+    private ClassSnapshot classSnapshot;
     private List<SourceFileProvider> sourceFileProviders = new ArrayList<>();
     private RegularMethodNodeCache astCache;
     private ProgramCache programCache;
@@ -134,6 +138,32 @@ public class TeaVMTestTool {
         this.incremental = incremental;
     }
 
+    /**
+     * <p>Enables reusing classes from {@link org.teavm.cache.ClassSnapshotIO#RESOURCE_NAME} snapshots found
+     * in the classpath instead of parsing and transforming them again. Snapshots are not used in
+     * incremental mode, which keeps its own cache of classes.</p>
+     */
+    public boolean isClassSnapshotUsed() {
+        return classSnapshotUsed;
+    }
+
+    public void setClassSnapshotUsed(boolean classSnapshotUsed) {
+        this.classSnapshotUsed = classSnapshotUsed;
+    }
+
+    /**
+     * <p>Returns whether all test methods of a test class are compiled into a single JavaScript file.
+     * In this mode dependency analysis, optimization and rendering are performed once per test class
+     * instead of once per test method. Each test still runs in a fresh environment.</p>
+     */
+    public boolean isBundledByClass() {
+        return bundledByClass;
+    }
+
+    public void setBundledByClass(boolean bundledByClass) {
+        this.bundledByClass = bundledByClass;
+    }
+
     public boolean isDebugInformationGenerated() {
         return debugInformationGenerated;
     }
@@ -163,7 +193,7 @@ public class TeaVMTestTool {
     }
 
     public void generate() throws TeaVMToolException {
-        Runnable finalizer = null;
+        WorkStealingFiniteExecutor threadedExecutor = null;
         try {
             new File(outputDir, "tests").mkdirs();
             new File(outputDir, "res").mkdirs();
@@ -183,6 +213,8 @@ public class TeaVMTestTool {
             ClassHolderSource classSource = new ClasspathClassHolderSource(classLoader);
             if (incremental) {
                 classSource = new PreOptimizingClassHolderSource(classSource);
+            } else if (classSnapshotUsed) {
+                classSnapshot = ClassSnapshotTool.load(classLoader, log);
             }
             for (String testClass : testClasses) {
                 ClassHolder classHolder = classSource.get(testClass);
@@ -214,15 +246,25 @@ public class TeaVMTestTool {
                     first = false;
                     allTestsWriter.append("\n        { name : \"").append(testClass).append("\", methods : [");
                     boolean firstMethod = true;
+                    int methodIndex = 0;
                     for (MethodReference methodRef : methods) {
-                        String scriptName = "tests/" + fileNames.size() + ".js";
+                        String scriptName;
+                        String entryPointName;
+                        if (bundledByClass) {
+                            scriptName = "tests/" + testClass + ".js";
+                            entryPointName = "runTest" + methodIndex++;
+                        } else {
+                            scriptName = "tests/" + fileNames.size() + ".js";
+                            entryPointName = "runTest";
+                        }
                         fileNames.put(methodRef, scriptName);
+                        entryPointNames.put(methodRef, entryPointName);
                         if (!firstMethod) {
                             allTestsWriter.append(",");
                         }
                         firstMethod = false;
                         allTestsWriter.append("\n            { name : \"" + methodRef.getName() + "\", script : \"" +
-                                scriptName + "\", expected : [");
+                                scriptName + "\", entryPoint : \"" + entryPointName + "\", expected : [");
                         MethodHolder methodHolder = classSource.get(testClass).getMethod(
                                 methodRef.getDescriptor());
                         boolean firstException = true;
@@ -253,30 +295,44 @@ public class TeaVMTestTool {
             FiniteExecutor executor = new SimpleFiniteExecutor();
             if (numThreads != 1) {
                 int threads = numThreads != 0 ? numThreads : Runtime.getRuntime().availableProcessors();
-                final ThreadPoolFiniteExecutor threadedExecutor = new ThreadPoolFiniteExecutor(threads);
-                finalizer = new Runnable() {
-                    @Override public void run() {
-                        threadedExecutor.stop();
-                    }
-                };
+                threadedExecutor = new WorkStealingFiniteExecutor(threads);
                 executor = threadedExecutor;
             }
-            for (final MethodReference method : testMethods) {
+            List<List<MethodReference>> batches = new ArrayList<>();
+            if (bundledByClass) {
+                for (String testClass : testClasses) {
+                    List<MethodReference> methods = groupedMethods.get(testClass);
+                    if (methods != null) {
+                        batches.add(methods);
+                    }
+                }
+            } else {
+                for (MethodReference method : testMethods) {
+                    batches.add(Arrays.asList(method));
+                }
+            }
+            for (final List<MethodReference> batch : batches) {
                 final ClassHolderSource builderClassSource = classSource;
                 executor.execute(new Runnable() {
                     @Override public void run() {
-                        log.debug("Building test for " + method);
+                        log.debug("Building test for " + (batch.size() == 1 ? batch.get(0) :
+                                batch.get(0).getClassName()));
                         try {
-                            decompileClassesForTest(classLoader, new CopyClassHolderSource(builderClassSource), method,
-                                    fileNames.get(method));
+                            decompileClassesForTest(classLoader, new CopyClassHolderSource(builderClassSource), batch,
+                                    fileNames.get(batch.get(0)));
                         } catch (IOException e) {
                             log.error("Error generating JavaScript", e);
                         }
                     }
                 });
-                ++methodsGenerated;
+                methodsGenerated += batch.size();
             }
             executor.complete();
+            if (threadedExecutor != null) {
+                log.info("Test files were built by " + threadedExecutor.getTaskCount() + " task(s) taking " +
+                        threadedExecutor.getTotalTaskTime() + " ms in total, the longest one took " +
+                        threadedExecutor.getMaxTaskTime() + " ms");
+            }
             if (sourceFilesCopied) {
                 sourceFilesCopier.copy(new File(new File(outputDir, "tests"), "src"));
             }
@@ -284,8 +340,8 @@ public class TeaVMTestTool {
         } catch (IOException e) {
             throw new TeaVMToolException("IO error occured generating JavaScript files", e);
         } finally {
-            if (finalizer != null) {
-                finalizer.run();
+            if (threadedExecutor != null) {
+                threadedExecutor.stop();
             }
         }
     }
@@ -338,10 +394,11 @@ public class TeaVMTestTool {
     }
 
     private void decompileClassesForTest(ClassLoader classLoader, ClassHolderSource classSource,
-            MethodReference methodRef, String targetName) throws IOException {
+            List<MethodReference> methods, String targetName) throws IOException {
         TeaVM vm = new TeaVMBuilder()
                 .setClassLoader(classLoader)
                 .setClassSource(classSource)
+                .setClassSnapshot(classSnapshot)
                 .build();
         vm.setIncremental(incremental);
         vm.setAstCache(astCache);
@@ -357,11 +414,14 @@ public class TeaVMTestTool {
         DebugInformationBuilder debugInfoBuilder = sourceMapsGenerated || debugInformationGenerated ?
                 new DebugInformationBuilder() : null;
         try (Writer innerWriter = new OutputStreamWriter(new FileOutputStream(file), "UTF-8")) {
-            MethodReference cons = new MethodReference(methodRef.getClassName(), "<init>", ValueType.VOID);
+            String testClass = methods.get(0).getClassName();
+            MethodReference cons = new MethodReference(testClass, "<init>", ValueType.VOID);
             MethodReference exceptionMsg = new MethodReference(ExceptionHelper.class, "showException",
                     Throwable.class, String.class);
             vm.entryPoint("initInstance", cons);
-            vm.entryPoint("runTest", methodRef).withValue(0, cons.getClassName());
+            for (MethodReference methodRef : methods) {
+                vm.entryPoint(entryPointNames.get(methodRef), methodRef).withValue(0, testClass);
+            }
             vm.entryPoint("extractException", exceptionMsg);
             vm.exportType("TestClass", cons.getClassName());
             vm.setDebugEmitter(debugInfoBuilder);
@@ -379,7 +439,7 @@ public class TeaVMTestTool {
                 vm.showMissingItems(sb);
                 escapeStringLiteral(sb.toString(), innerWriter);
                 innerWriter.append(");");
-                log.warning("Error building test " + methodRef);
+                log.warning("Error building test " + (methods.size() == 1 ? methods.get(0) : testClass));
                 log.warning(sb.toString());
             }
         }
@@ -25,8 +25,10 @@ import org.teavm.cache.FileSymbolTable;
 import org.teavm.debugging.information.DebugInformation;
 import org.teavm.debugging.information.DebugInformationBuilder;
 import org.teavm.dependency.DependencyViolations;
+import org.teavm.javascript.InMemoryRenderedClassCache;
 import org.teavm.javascript.RenderingContext;
 import org.teavm.model.*;
+import org.teavm.optimization.Devirtualization;
 import org.teavm.parsing.ClasspathClassHolderSource;
 import org.teavm.vm.*;
 import org.teavm.vm.spi.AbstractRendererListener;
@@ -36,6 +38,7 @@ import org.teavm.vm.spi.AbstractRendererListener;
  * @author Alexey Andreev <konsoletyper@gmail.com>
  */
 public class TeaVMTool {
+    private static final int PROFILED_METHOD_COUNT = 20;
     private File targetDirectory = new File(".");
     private String targetFileName = "classes.js";
     private boolean minifying = true;
@@ -48,15 +51,20 @@ public class TeaVMTool {
     private boolean sourceMapsFileGenerated;
     private boolean sourceFilesCopied;
     private boolean incremental;
+    private boolean classSnapshotUsed;
+    private boolean profiling;
     private File cacheDirectory = new File("./teavm-cache");
     private List<ClassHolderTransformer> transformers = new ArrayList<>();
     private List<ClassAlias> classAliases = new ArrayList<>();
     private List<MethodAlias> methodAliases = new ArrayList<>();
     private TeaVMToolLog log = new EmptyTeaVMToolLog();
     private ClassLoader classLoader = TeaVMTool.class.getClassLoader();
+    private ClasspathClassHolderSource incrementalClassSource;
+    private PreOptimizingClassHolderSource preOptimizedClassSource;
     private DiskCachedClassHolderSource cachedClassSource;
     private DiskProgramCache programCache;
     private DiskRegularMethodNodeCache astCache;
+    private InMemoryRenderedClassCache renderedClassCache;
     private FileSymbolTable symbolTable;
     private FileSymbolTable fileTable;
     private boolean cancelled;
@@ -96,6 +104,30 @@ public class TeaVMTool {
         this.incremental = incremental;
     }
 
+    /**
+     * <p>Enables reusing classes from {@link org.teavm.cache.ClassSnapshotIO#RESOURCE_NAME} snapshots found
+     * in the classpath instead of parsing and transforming them again. Snapshots are not used in
+     * incremental mode, which keeps its own cache of classes.</p>
+     */
+    public boolean isClassSnapshotUsed() {
+        return classSnapshotUsed;
+    }
+
+    public void setClassSnapshotUsed(boolean classSnapshotUsed) {
+        this.classSnapshotUsed = classSnapshotUsed;
+    }
+
+    public boolean isProfiling() {
+        return profiling;
+    }
+
+    /**
+     * <p>Enables reporting of time and memory spent by each build phase into the log.</p>
+     */
+    public void setProfiling(boolean profiling) {
+        this.profiling = profiling;
+    }
+
     public String getMainClass() {
         return mainClass;
     }
@@ -142,6 +174,7 @@ public class TeaVMTool {
 
     public void setCacheDirectory(File cacheDirectory) {
         this.cacheDirectory = cacheDirectory;
+        cachedClassSource = null;
     }
 
     public boolean isSourceMapsFileGenerated() {
@@ -190,6 +223,7 @@ public class TeaVMTool {
 
     public void setClassLoader(ClassLoader classLoader) {
         this.classLoader = classLoader;
+        cachedClassSource = null;
     }
 
     public void setProgressListener(TeaVMProgressListener progressListener) {
@@ -214,24 +248,15 @@ public class TeaVMTool {
             log.info("Building JavaScript file");
             TeaVMBuilder vmBuilder = new TeaVMBuilder();
             if (incremental) {
-                cacheDirectory.mkdirs();
-                symbolTable = new FileSymbolTable(new File(cacheDirectory, "symbols"));
-                fileTable = new FileSymbolTable(new File(cacheDirectory, "files"));
-                ClasspathClassHolderSource innerClassSource = new ClasspathClassHolderSource(classLoader);
-                ClassHolderSource classSource = new PreOptimizingClassHolderSource(innerClassSource);
-                cachedClassSource = new DiskCachedClassHolderSource(cacheDirectory, symbolTable, fileTable,
-                        classSource, innerClassSource);
-                programCache = new DiskProgramCache(cacheDirectory, symbolTable, fileTable, innerClassSource);
-                astCache = new DiskRegularMethodNodeCache(cacheDirectory, symbolTable, fileTable, innerClassSource);
-                try {
-                    symbolTable.update();
-                    fileTable.update();
-                } catch (IOException e) {
-                    log.info("Cache was not read");
+                if (cachedClassSource == null) {
+                    createIncrementalCaches();
                 }
                 vmBuilder.setClassLoader(classLoader).setClassSource(cachedClassSource);
             } else {
                 vmBuilder.setClassLoader(classLoader).setClassSource(new ClasspathClassHolderSource(classLoader));
+                if (classSnapshotUsed) {
+                    vmBuilder.setClassSnapshot(ClassSnapshotTool.load(classLoader, log));
+                }
             }
             vm = vmBuilder.build();
             if (progressListener != null) {
@@ -244,9 +269,11 @@ public class TeaVMTool {
                     new DebugInformationBuilder() : null;
             vm.setDebugEmitter(debugEmitter);
             vm.setIncremental(incremental);
+            vm.setProfiling(profiling);
             if (incremental) {
                 vm.setAstCache(astCache);
                 vm.setProgramCache(programCache);
+                vm.setRenderedClassCache(renderedClassCache);
             }
             vm.installPlugins();
             for (ClassHolderTransformer transformer : transformers) {
@@ -295,6 +322,17 @@ public class TeaVMTool {
                     return;
                 }
                 log.info("JavaScript file successfully built");
+                if (profiling) {
+                    StringBuilder report = new StringBuilder();
+                    vm.getProfiler().report(report, PROFILED_METHOD_COUNT);
+                    log.info("Build profile:\n" + report);
+                }
+                Devirtualization devirtualization = vm.getDevirtualization();
+                if (devirtualization != null) {
+                    log.info("Devirtualized " + devirtualization.getMonomorphicCallSites() + " and guarded " +
+                            devirtualization.getGuardedCallSites() + " of " + devirtualization.getVirtualCallSites() +
+                            " virtual call sites");
+                }
                 if (debugInformationGenerated) {
                     DebugInformation debugInfo = debugEmitter.getDebugInformation();
                     try (OutputStream debugInfoOut = new FileOutputStream(new File(targetDirectory,
@@ -345,6 +383,51 @@ public class TeaVMTool {
         }
     }
 
+    private void createIncrementalCaches() {
+        cacheDirectory.mkdirs();
+        symbolTable = new FileSymbolTable(new File(cacheDirectory, "symbols"));
+        fileTable = new FileSymbolTable(new File(cacheDirectory, "files"));
+        incrementalClassSource = new ClasspathClassHolderSource(classLoader);
+        preOptimizedClassSource = new PreOptimizingClassHolderSource(incrementalClassSource);
+        cachedClassSource = new DiskCachedClassHolderSource(cacheDirectory, symbolTable, fileTable,
+                preOptimizedClassSource, incrementalClassSource);
+        programCache = new DiskProgramCache(cacheDirectory, symbolTable, fileTable, incrementalClassSource);
+        astCache = new DiskRegularMethodNodeCache(cacheDirectory, symbolTable, fileTable, incrementalClassSource);
+        renderedClassCache = new InMemoryRenderedClassCache();
+        try {
+            symbolTable.update();
+            fileTable.update();
+        } catch (IOException e) {
+            log.info("Cache was not read");
+        }
+    }
+
+    /**
+     * <p>Tells that class files were modified, added or removed since the last build. In incremental mode
+     * the tool keeps parsed classes and compiled methods in memory between calls to {@link #generate()},
+     * and this method drops the ones that depend on the given classes. Without a call to this method
+     * the next build may not notice the changes.</p>
+     *
+     * @param classFileNames names of classes as they appear in the classpath, for example
+     * <code>org.teavm.classlib.java.lang.TString</code> rather than <code>java.lang.String</code>.
+     */
+    public void invalidateClasses(Collection<String> classFileNames) {
+        if (cachedClassSource == null) {
+            return;
+        }
+        Set<String> classNames = new HashSet<>();
+        for (String classFileName : classFileNames) {
+            classNames.add(incrementalClassSource.mapClassName(classFileName));
+        }
+        for (String className : classNames) {
+            incrementalClassSource.invalidate(className);
+            preOptimizedClassSource.invalidate(className);
+            cachedClassSource.invalidate(className);
+        }
+        programCache.invalidate(classNames);
+        astCache.invalidate(classNames);
+    }
+
     public DependencyViolations getDependencyViolations() {
         return vm.getDependencyViolations();
     }
@@ -0,0 +1,81 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.tooling;
+
+/**
+ * <p>Outcome of a single generated test case executed by {@link HeadlessTestRunner}.</p>
+ *
+ * @author Alexey Andreev
+ */
+public class TestResult {
+    private String className;
+    private String methodName;
+    private TestStatus status;
+    private String exception;
+    private String stack;
+    private String output;
+    private long timeSpent;
+
+    public TestResult(String className, String methodName, TestStatus status, String exception, String stack,
+            String output, long timeSpent) {
+        this.className = className;
+        this.methodName = methodName;
+        this.status = status;
+        this.exception = exception;
+        this.stack = stack;
+        this.output = output;
+        this.timeSpent = timeSpent;
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+
+    public TestStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * <p>Returns the name of the Java exception that caused the test to fail, or <code>null</code> when
+     * there was no Java exception (for example, the test did not throw an expected exception, or the
+     * failure happened in JavaScript code).</p>
+     */
+    public String getException() {
+        return exception;
+    }
+
+    public String getStack() {
+        return stack;
+    }
+
+    /**
+     * <p>Returns everything the test has written to standard output and standard error.</p>
+     */
+    public String getOutput() {
+        return output;
+    }
+
+    /**
+     * <p>Returns time in milliseconds spent to load and to run the test.</p>
+     */
+    public long getTimeSpent() {
+        return timeSpent;
+    }
+}
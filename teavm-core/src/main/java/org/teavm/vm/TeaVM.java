@@ -18,8 +18,10 @@ package org.teavm.vm;
 import java.io.*;
 import java.util.*;
 import org.teavm.codegen.*;
+import org.teavm.common.BuildProfiler;
 import org.teavm.common.ServiceRepository;
 import org.teavm.debugging.information.DebugInformationEmitter;
+import org.teavm.debugging.information.RecordingDebugInformationEmitter;
 import org.teavm.debugging.information.SourceLocation;
 import org.teavm.dependency.*;
 import org.teavm.javascript.*;
@@ -82,15 +84,22 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
     private DebugInformationEmitter debugEmitter;
     private ProgramCache programCache;
     private RegularMethodNodeCache astCache = new EmptyRegularMethodNodeCache();
+    private RenderedClassCache renderedClassCache;
     private boolean incremental;
     private TeaVMProgressListener progressListener;
     private boolean cancelled;
     private ListableClassHolderSource writtenClasses;
+    private Devirtualization devirtualization;
+    private BuildProfiler profiler = new BuildProfiler();
 
-    TeaVM(ClassReaderSource classSource, ClassLoader classLoader) {
+    TeaVM(ClassReaderSource classSource, ClassSnapshot classSnapshot, ClassLoader classLoader) {
         this.classSource = classSource;
         this.classLoader = classLoader;
         dependencyChecker = new DependencyChecker(this.classSource, classLoader, this);
+        dependencyChecker.setProfiler(profiler);
+        if (classSnapshot != null) {
+            dependencyChecker.setClassSnapshot(classSnapshot);
+        }
         progressListener = new TeaVMProgressListener() {
             @Override public TeaVMProgressFeedback progressReached(int progress) {
                 return TeaVMProgressFeedback.CONTINUE;
@@ -184,6 +193,19 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
         this.astCache = methodAstCache;
     }
 
+    public RenderedClassCache getRenderedClassCache() {
+        return renderedClassCache;
+    }
+
+    /**
+     * <p>Sets a cache of rendered classes. In incremental mode classes that did not change since the build
+     * that filled the cache are copied from the cache instead of being rendered again. The cache is only
+     * useful along with an AST cache that keeps method nodes in memory between builds.</p>
+     */
+    public void setRenderedClassCache(RenderedClassCache renderedClassCache) {
+        this.renderedClassCache = renderedClassCache;
+    }
+
     public ProgramCache getProgramCache() {
         return programCache;
     }
@@ -277,6 +299,22 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
         dependencyChecker.linkClass(className, DependencyStack.ROOT).initClass(DependencyStack.ROOT);
     }
 
+    public boolean isProfiling() {
+        return profiler.isEnabled();
+    }
+
+    /**
+     * <p>Enables collecting time and memory spent by each build phase and each method optimization.
+     * Results are available via {@link #getProfiler()} after the build.</p>
+     */
+    public void setProfiling(boolean profiling) {
+        profiler.setEnabled(profiling);
+    }
+
+    public BuildProfiler getProfiler() {
+        return profiler;
+    }
+
     /**
      * Gets a {@link ClassReaderSource} which is used by this TeaVM instance. It is exactly what was
      * passed to {@link TeaVMBuilder#setClassSource(ClassHolderSource)}.
@@ -285,6 +323,20 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
         return classSource;
     }
 
+    /**
+     * <p>Takes the given classes from the class source of this TeaVM instance and applies all installed
+     * class transformers to them. The resulting snapshot can be passed to
+     * {@link TeaVMBuilder#setClassSnapshot(ClassSnapshot)} to share these classes among many TeaVM
+     * instances.</p>
+     *
+     * <p>Transformers that register something in TeaVM when they meet a class (like generators or
+     * dependency listeners) won't be called again for snapshot classes, so only classes that don't trigger
+     * such transformers should be included.</p>
+     */
+    public ClassSnapshot createClassSnapshot(Collection<String> classNames) {
+        return ClassSnapshot.create(classSource, classNames, dependencyChecker.getClassTransformers());
+    }
+
     /**
      * <p>After building indicates whether build has failed due to some missing items (classes, methods and fields)
      * in the classpath. This can happen when you forgot some items in class path or when your code uses unimplemented
@@ -321,6 +373,15 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
         return writtenClasses;
     }
 
+    /**
+     * <p>Gets devirtualization performed during the last build. Useful to learn how many virtual call
+     * sites were replaced with direct calls. Returns <code>null</code> if devirtualization was not
+     * performed, for example, in incremental mode.</p>
+     */
+    public Devirtualization getDevirtualization() {
+        return devirtualization;
+    }
+
     /**
      * <p>After building checks whether the build has failed due to some missing items (classes, methods and fields).
      * If it has failed, throws exception, containing report on all missing items.
@@ -362,6 +423,7 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
                 return progressListener.progressReached(0) == TeaVMProgressFeedback.CONTINUE;
             }
         });
+        BuildProfiler.Measurement measurement = profiler.start("Dependency analysis");
         dependencyChecker.linkMethod(new MethodReference(Class.class, "createNew", Class.class),
                 DependencyStack.ROOT).use();
         dependencyChecker.linkMethod(new MethodReference(String.class, "<init>", char[].class, void.class),
@@ -377,6 +439,7 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
         dependencyChecker.linkMethod(new MethodReference(Object.class, "clone", Object.class),
                 DependencyStack.ROOT).use();
         dependencyChecker.processDependencies();
+        measurement.stop();
         if (wasCancelled() || hasMissingItems()) {
             return;
         }
@@ -386,7 +449,9 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
         if (wasCancelled()) {
             return;
         }
+        measurement = profiler.start("Linking");
         ListableClassHolderSource classSet = link(dependencyChecker);
+        measurement.stop();
         writtenClasses = classSet;
         if (wasCancelled()) {
             return;
@@ -394,7 +459,9 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
 
         // Optimize and allocate registers
         if (!incremental) {
+            measurement = profiler.start("Devirtualization");
             devirtualize(classSet, dependencyChecker);
+            measurement.stop();
             if (wasCancelled()) {
                 return;
             }
@@ -407,9 +474,12 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
         if (wasCancelled()) {
             return;
         }
+        measurement = profiler.start("Rendering");
         DefaultNamingStrategy naming = new DefaultNamingStrategy(aliasProvider, dependencyChecker.getClassSource());
         naming.setMinifying(minifying);
-        SourceWriterBuilder builder = new SourceWriterBuilder(naming);
+        boolean renderedClassCacheUsed = incremental && renderedClassCache != null;
+        SourceWriterBuilder builder = new SourceWriterBuilder(renderedClassCacheUsed ?
+                new RecordingNamingStrategy(naming) : naming);
         builder.setMinified(minifying);
         SourceWriter sourceWriter = builder.build(writer);
         Renderer renderer = new Renderer(sourceWriter, classSet, classLoader, this);
@@ -424,10 +494,15 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
                 }
                 reportProgress(++classIndex);
                 if (wasCancelled()) {
+                    measurement.stop();
                     return;
                 }
             }
-            renderer.setDebugEmitter(debugEmitter);
+            renderer.setDebugEmitter(renderedClassCacheUsed ? new RecordingDebugInformationEmitter(debugEmitter) :
+                    debugEmitter);
+        }
+        if (renderedClassCacheUsed) {
+            renderer.setRenderedClassCache(renderedClassCache);
         }
         renderer.getDebugEmitter().setLocationProvider(sourceWriter);
         for (Map.Entry<MethodReference, Injector> entry : methodInjectors.entrySet()) {
@@ -463,6 +538,8 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
             }
         } catch (IOException e) {
             throw new RenderingException("IO Error occured", e);
+        } finally {
+            measurement.stop();
         }
     }
 
@@ -519,7 +596,7 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
         if (wasCancelled()) {
             return;
         }
-        final Devirtualization devirtualization = new Devirtualization(dependency, classes);
+        devirtualization = new Devirtualization(dependency, classes);
         int index = 0;
         for (String className : classes.getClassNames()) {
             ClassHolder cls = classes.get(className);
@@ -559,7 +636,9 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
                         logMethodBytecode(bytecodeLogger, method);
                     }
                 }
+                BuildProfiler.Measurement measurement = profiler.start("Decompilation");
                 classNodes.add(decompiler.decompile(cls));
+                measurement.stop();
                 progressListener.progressReached(++index);
             }
         } catch (UnsupportedEncodingException e) {
@@ -575,14 +654,21 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
         Program optimizedProgram = incremental && programCache != null ?
                 programCache.get(method.getReference()) : null;
         if (optimizedProgram == null) {
+            long start = System.nanoTime();
             optimizedProgram = ProgramUtils.copy(method.getProgram());
             if (optimizedProgram.basicBlockCount() > 0) {
                 for (MethodOptimization optimization : getOptimizations()) {
+                    BuildProfiler.Measurement measurement = profiler.start("Optimization: " +
+                            optimization.getClass().getSimpleName());
                     optimization.optimize(method, optimizedProgram);
+                    measurement.stop();
                 }
+                BuildProfiler.Measurement measurement = profiler.start("Register allocation");
                 RegisterAllocator allocator = new RegisterAllocator();
                 allocator.allocateRegisters(method, optimizedProgram);
+                measurement.stop();
             }
+            profiler.methodProcessed(method.getReference(), System.nanoTime() - start);
             if (incremental && programCache != null) {
                 programCache.store(method.getReference(), optimizedProgram);
             }
@@ -16,6 +16,7 @@
 package org.teavm.vm;
 
 import org.teavm.model.ClassHolderSource;
+import org.teavm.model.ClassSnapshot;
 import org.teavm.parsing.ClasspathClassHolderSource;
 
 /**
@@ -24,6 +25,7 @@ import org.teavm.parsing.ClasspathClassHolderSource;
  */
 public class TeaVMBuilder {
     ClassHolderSource classSource;
+    ClassSnapshot classSnapshot;
     ClassLoader classLoader;
 
     public TeaVMBuilder() {
@@ -40,6 +42,19 @@ public class TeaVMBuilder {
         return this;
     }
 
+    public ClassSnapshot getClassSnapshot() {
+        return classSnapshot;
+    }
+
+    /**
+     * <p>Sets a snapshot of pre-transformed classes, which TeaVM prefers to its class source.
+     * Unlike class sources, a snapshot can be shared between TeaVM instances.</p>
+     */
+    public TeaVMBuilder setClassSnapshot(ClassSnapshot classSnapshot) {
+        this.classSnapshot = classSnapshot;
+        return this;
+    }
+
     public ClassLoader getClassLoader() {
         return classLoader;
     }
@@ -50,6 +65,6 @@ public class TeaVMBuilder {
     }
 
     public TeaVM build() {
-        return new TeaVM(classSource, classLoader);
+        return new TeaVM(classSource, classSnapshot, classLoader);
     }
 }
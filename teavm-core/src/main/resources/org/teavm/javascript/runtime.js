@@ -16,7 +16,16 @@
 "use strict";
 var $rt_lastObjectId = 0;
 function $rt_nextId() {
-    return $rt_lastObjectId++;
+    $rt_lastObjectId = ($rt_lastObjectId + 1) | 0;
+    return $rt_lastObjectId;
+}
+function $rt_objectId(obj) {
+    var id = obj.$id;
+    if (!id) {
+        id = $rt_nextId();
+        obj.$id = id;
+    }
+    return id;
 }
 function $rt_compare(a, b) {
     return a > b ? 1 : a < b ? -1 : 0;
@@ -72,25 +81,25 @@ if (ArrayBuffer) {
         return new ($rt_arraycls(cls))(nativeArray);
     };
     $rt_createCharArray = function(sz) {
-        return $rt_createNumericArray($rt_charcls(), new Uint16Array(new ArrayBuffer(sz << 1)), 0);
+        return $rt_createNumericArray($rt_charcls(), new Uint16Array(sz), 0);
     };
     $rt_createByteArray = function(sz) {
-        return $rt_createNumericArray($rt_bytecls(), new Int8Array(new ArrayBuffer(sz)), 0);
+        return $rt_createNumericArray($rt_bytecls(), new Int8Array(sz), 0);
     };
     $rt_createShortArray = function(sz) {
-        return $rt_createNumericArray($rt_shortcls(), new Int16Array(new ArrayBuffer(sz << 1)), 0);
+        return $rt_createNumericArray($rt_shortcls(), new Int16Array(sz), 0);
     };
     $rt_createIntArray = function(sz) {
-        return $rt_createNumericArray($rt_intcls(), new Int32Array(new ArrayBuffer(sz << 2)), 0);
+        return $rt_createNumericArray($rt_intcls(), new Int32Array(sz), 0);
     };
     $rt_createBooleanArray = function(sz) {
-        return $rt_createNumericArray($rt_booleancls(), new Int8Array(new ArrayBuffer(sz)), 0);
+        return $rt_createNumericArray($rt_booleancls(), new Int8Array(sz), 0);
     };
     $rt_createFloatArray = function(sz) {
-        return $rt_createNumericArray($rt_floatcls(), new Float32Array(new ArrayBuffer(sz << 2)), 0);
+        return $rt_createNumericArray($rt_floatcls(), new Float32Array(sz), 0);
     };
     $rt_createDoubleArray = function(sz) {
-        return $rt_createNumericArray($rt_doublecls(), new Float64Array(new ArrayBuffer(sz << 3)), 0);
+        return $rt_createNumericArray($rt_doublecls(), new Float64Array(sz), 0);
     };
 } else {
     $rt_createNumericArray = function(cls, sz) {
@@ -112,8 +121,8 @@ if (ArrayBuffer) {
 function $rt_arraycls(cls) {
     if (typeof cls.$array === 'undefined') {
         var arraycls = function(data) {
+            this.$id = 0;
             this.data = data;
-            this.$id = $rt_nextId();
         };
         arraycls.prototype = new ($rt_objcls())();
         arraycls.prototype.constructor = arraycls;
@@ -223,9 +232,7 @@ function $rt_voidcls() {
 }
 function $rt_clinit(cls) {
     if (cls.$clinit) {
-        var f = cls.$clinit;
-        delete cls.$clinit;
-        f();
+        cls.$clinit();
     }
     return cls;
 }
@@ -350,6 +357,39 @@ function $rt_methodStubs(clinit, names) {
         })(names[i]);
     }
 }
+var $rt_utf16Decoder = null;
+if (typeof TextDecoder !== 'undefined' && typeof Uint16Array !== 'undefined'
+        && new Uint8Array(new Uint16Array([1]).buffer)[0] === 1) {
+    try {
+        $rt_utf16Decoder = new TextDecoder("utf-16le", { fatal : true, ignoreBOM : true });
+    } catch (e) {
+        $rt_utf16Decoder = null;
+    }
+}
+function $rt_charsToString(data, start, end) {
+    var result = "";
+    var sz = (end - start) | 0;
+    if (sz < 16) {
+        for (; start < end; start = (start + 1) | 0) {
+            result += String.fromCharCode(data[start]);
+        }
+        return result;
+    }
+    if ($rt_utf16Decoder !== null && data.subarray && sz > 128) {
+        try {
+            return $rt_utf16Decoder.decode(data.subarray(start, end));
+        } catch (e) {
+            // Unpaired surrogates are rejected by the decoder, fall back to fromCharCode
+        }
+    }
+    while (start < end) {
+        var next = Math.min(end, (start + 8192) | 0);
+        result += String.fromCharCode.apply(null, data.subarray ? data.subarray(start, next)
+                : data.slice(start, next));
+        start = next;
+    }
+    return result;
+}
 var $rt_stdoutBuffer = "";
 function $rt_putStdout(ch) {
     if (ch == 0xA) {
@@ -0,0 +1,39 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+window = this;
+document = {};
+console = {
+    info : function(message) {
+        $testCallback.output(String(message));
+    },
+    log : function(message) {
+        $testCallback.output(String(message));
+    },
+    error : function(message) {
+        $testCallback.output(String(message));
+    }
+};
+addEventListener = function(type, listener) {
+    $testListener = listener;
+}
+removeEventListener = function() {
+}
+parent = {
+    postMessage : function(data) {
+        var message = JSON.parse(data);
+        $testCallback.complete(message.status, message.exception || null, message.stack || null);
+    }
+};
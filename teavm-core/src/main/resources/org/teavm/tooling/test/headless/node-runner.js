@@ -0,0 +1,111 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+// Usage: node node-runner.js <resource dir> <test dir> list|run
+//
+// In list mode prints test cases from tests/all.js, one tab-separated record per line.
+// In run mode reads requests from stdin, one per line: entry point followed by scripts to load, separated
+// by tabs. For every request prints a line with status, exception, stack and output of the test, each
+// encoded with encodeURIComponent, null as an empty string, separated by spaces.
+var fs = require("fs");
+var path = require("path");
+var readline = require("readline");
+var vm = require("vm");
+
+var resourceDir = process.argv[2];
+var testDir = process.argv[3];
+var mode = process.argv[4];
+var maxCachedScripts = 16;
+var scripts = new Map();
+
+function getScript(file, dir) {
+    var fullPath = path.resolve(dir, file);
+    var script = scripts.get(fullPath);
+    if (script) {
+        scripts.delete(fullPath);
+    } else {
+        script = new vm.Script(fs.readFileSync(fullPath, "utf8"), { filename : file });
+        if (scripts.size >= maxCachedScripts) {
+            scripts.delete(scripts.keys().next().value);
+        }
+    }
+    scripts.set(fullPath, script);
+    return script;
+}
+
+function listTests() {
+    var lines = [];
+    var context = vm.createContext({
+        $testCollector : {
+            add : function(className, methodName, script, entryPoint) {
+                lines.push(["test", className, methodName, script, entryPoint].join("\t"));
+            },
+            addExpectedException : function(exception) {
+                lines.push(["expected", exception].join("\t"));
+            },
+            addAdditionalScript : function(script) {
+                lines.push(["script", script].join("\t"));
+            }
+        }
+    });
+    getScript("reader.js", resourceDir).runInContext(context);
+    getScript("tests/all.js", testDir).runInContext(context);
+    vm.runInContext("prepare();", context);
+    process.stdout.write(lines.map(function(line) { return line + "\n"; }).join(""));
+}
+
+function runTest(entryPoint, testScripts) {
+    var result = { status : null, exception : null, stack : null, output : "" };
+    // Every test gets a fresh global object, just like an iframe that junit.html creates for it
+    var context = vm.createContext({
+        $testCallback : {
+            output : function(text) {
+                result.output += text + "\n";
+            },
+            complete : function(status, exception, stack) {
+                if (result.status === null) {
+                    result.status = status;
+                    result.exception = exception;
+                    result.stack = stack;
+                }
+            }
+        }
+    });
+    if (typeof TextDecoder !== "undefined") {
+        context.TextDecoder = TextDecoder;
+    }
+    try {
+        getScript("client.js", resourceDir).runInContext(context);
+        for (var i = 0; i < testScripts.length; ++i) {
+            getScript(testScripts[i], testDir).runInContext(context);
+        }
+        vm.runInContext("$testListener({ data : " + JSON.stringify(entryPoint) + " });", context);
+    } catch (e) {
+        context.$testCallback.complete("exception", null, e && e.stack ? String(e.stack) : String(e));
+    }
+    return [result.status, result.exception, result.stack, result.output].map(function(value) {
+        return value !== null ? encodeURIComponent(value) : "";
+    }).join(" ");
+}
+
+if (mode === "list") {
+    listTests();
+} else {
+    var input = readline.createInterface({ input : process.stdin, terminal : false });
+    input.on("line", function(line) {
+        var parts = line.split("\t");
+        process.stdout.write(runTest(parts[0], parts.slice(1)) + "\n");
+    });
+}
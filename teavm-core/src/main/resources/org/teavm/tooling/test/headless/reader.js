@@ -0,0 +1,36 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+document = {};
+JUnitServer = function() {
+}
+JUnitServer.prototype.readTests = function(tests) {
+    for (var i = 0; i < tests.length; ++i) {
+        var test = tests[i];
+        for (var j = 0; j < test.methods.length; ++j) {
+            var method = test.methods[j];
+            $testCollector.add(test.name, method.name, method.script, method.entryPoint || "runTest");
+            for (var k = 0; k < method.expected.length; ++k) {
+                $testCollector.addExpectedException(method.expected[k]);
+            }
+            if (method.additionalScripts) {
+                for (var k = 0; k < method.additionalScripts.length; ++k) {
+                    $testCollector.addAdditionalScript(method.additionalScripts[k]);
+                }
+            }
+        }
+    }
+    return this;
+}
@@ -121,7 +121,7 @@ JUnitServer.prototype.runTest = function(node, callback) {
                 self.handleEvent(JSON.parse(event.data), callback);
             };
             window.addEventListener("message", messageHandler);
-            self.frame.contentWindow.postMessage("runTest", "*");
+            self.frame.contentWindow.postMessage(node.testCase.entryPoint || "runTest", "*");
         });
     } else {
         var self = this;
@@ -369,13 +369,13 @@ TreeNode.prototype.select = function() {
 
 JUnitClient = {};
 JUnitClient.run = function() {
-    var handler = window.addEventListener("message", function() {
+    var handler = window.addEventListener("message", function(event) {
         window.removeEventListener("message", handler);
         var message = {};
         try {
             var instance = new TestClass();
             initInstance(instance);
-            runTest(instance);
+            window[event.data](instance);
             message.status = "ok";
         } catch (e) {
             message.status = "exception";
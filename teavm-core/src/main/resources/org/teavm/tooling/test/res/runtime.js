@@ -216,9 +216,7 @@ $rt_equals = function(a, b) {
 }
 $rt_clinit = function(cls) {
     if (cls.$clinit) {
-        var f = cls.$clinit;
-        delete cls.$clinit;
-        f();
+        cls.$clinit();
     }
     return cls;
 }
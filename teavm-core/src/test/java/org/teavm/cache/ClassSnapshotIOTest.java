@@ -0,0 +1,235 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.cache;
+
+import static org.junit.Assert.*;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.*;
+import org.junit.Test;
+import org.teavm.model.*;
+import org.teavm.model.instructions.*;
+import org.teavm.model.util.ListingBuilder;
+
+/**
+ *
+ * @author Alexey Andreev
+ */
+public class ClassSnapshotIOTest {
+    @Test
+    public void classesPreserved() {
+        ClassHolder cls = new ClassHolder("org.test.Foo");
+        cls.setLevel(AccessLevel.PUBLIC);
+        cls.getModifiers().add(ElementModifier.FINAL);
+        cls.setParent("org.test.Base");
+        cls.setOwnerName("org.test.Outer");
+        cls.getInterfaces().add("java.lang.Runnable");
+        cls.getInterfaces().add("java.io.Serializable");
+        AnnotationHolder annot = new AnnotationHolder("org.test.Marker");
+        annot.getValues().put("bool", new AnnotationValue(true));
+        annot.getValues().put("byte", new AnnotationValue((byte)1));
+        annot.getValues().put("short", new AnnotationValue((short)2));
+        annot.getValues().put("int", new AnnotationValue(3));
+        annot.getValues().put("long", new AnnotationValue(4L));
+        annot.getValues().put("float", new AnnotationValue(5.5f));
+        annot.getValues().put("double", new AnnotationValue(6.25));
+        annot.getValues().put("string", new AnnotationValue("foo"));
+        annot.getValues().put("class", new AnnotationValue(ValueType.parse("[Ljava/lang/String;")));
+        annot.getValues().put("enum", new AnnotationValue(new FieldReference("org.test.Color", "RED")));
+        annot.getValues().put("list", new AnnotationValue(Arrays.asList(new AnnotationValue(7),
+                new AnnotationValue(8))));
+        AnnotationHolder nested = new AnnotationHolder("org.test.Nested");
+        nested.getValues().put("value", new AnnotationValue("bar"));
+        annot.getValues().put("annotation", new AnnotationValue(nested));
+        cls.getAnnotations().add(annot);
+
+        cls.addField(createField("intConst", ValueType.INTEGER, 23));
+        cls.addField(createField("longConst", ValueType.LONG, 1L << 40));
+        cls.addField(createField("floatConst", ValueType.FLOAT, 3.14f));
+        cls.addField(createField("doubleConst", ValueType.DOUBLE, 2.718281828));
+        cls.addField(createField("stringConst", ValueType.object("java.lang.String"), "baz"));
+        FieldHolder field = createField("plain", ValueType.object("org.test.Foo"), null);
+        field.getModifiers().remove(ElementModifier.FINAL);
+        field.getModifiers().add(ElementModifier.VOLATILE);
+        field.getAnnotations().add(new AnnotationHolder("org.test.FieldMarker"));
+        cls.addField(field);
+
+        MethodHolder method = new MethodHolder("add", ValueType.INTEGER, ValueType.INTEGER, ValueType.INTEGER);
+        method.setLevel(AccessLevel.PUBLIC);
+        method.getModifiers().add(ElementModifier.STATIC);
+        method.getAnnotations().add(new AnnotationHolder("org.test.MethodMarker"));
+        Program program = new Program();
+        program.createVariable();
+        Variable a = program.createVariable();
+        Variable b = program.createVariable();
+        BasicBlock block = program.createBasicBlock();
+        BinaryInstruction add = new BinaryInstruction(BinaryOperation.ADD, NumericOperandType.INT);
+        add.setFirstOperand(a);
+        add.setSecondOperand(b);
+        add.setReceiver(program.createVariable());
+        block.getInstructions().add(add);
+        ExitInstruction exit = new ExitInstruction();
+        exit.setValueToReturn(add.getReceiver());
+        block.getInstructions().add(exit);
+        method.setProgram(program);
+        cls.addMethod(method);
+
+        MethodHolder nativeMethod = new MethodHolder("now", ValueType.LONG);
+        nativeMethod.setLevel(AccessLevel.PRIVATE);
+        nativeMethod.getModifiers().add(ElementModifier.NATIVE);
+        cls.addMethod(nativeMethod);
+
+        ClassHolder other = new ClassHolder("org.test.Base");
+        other.setLevel(AccessLevel.PACKAGE_PRIVATE);
+        other.getModifiers().add(ElementModifier.ABSTRACT);
+        other.setParent("java.lang.Object");
+
+        ClassSnapshot snapshot = new ClassSnapshot(Arrays.asList(cls, other),
+                Arrays.asList("org.test.FirstTransformer", "org.test.SecondTransformer"));
+        ClassSnapshot copy = inputOutput(snapshot);
+
+        assertEquals(snapshot.getTransformerNames(), copy.getTransformerNames());
+        assertEquals(snapshot.getClassNames(), copy.getClassNames());
+        for (String className : snapshot.getClassNames()) {
+            assertClassEquals(snapshot.get(className), copy.get(className));
+        }
+    }
+
+    @Test
+    public void emptySnapshotPreserved() {
+        ClassSnapshot copy = inputOutput(new ClassSnapshot(Collections.<ClassHolder>emptyList(),
+                Collections.<String>emptyList()));
+        assertTrue(copy.getClassNames().isEmpty());
+        assertTrue(copy.getTransformerNames().isEmpty());
+    }
+
+    @Test(expected = IOException.class)
+    public void foreignDataRejected() throws IOException {
+        ClassSnapshotIO.read(new ByteArrayInputStream(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 }));
+    }
+
+    private FieldHolder createField(String name, ValueType type, Object value) {
+        FieldHolder field = new FieldHolder(name);
+        field.setType(type);
+        field.setLevel(AccessLevel.PRIVATE);
+        field.getModifiers().add(ElementModifier.STATIC);
+        field.getModifiers().add(ElementModifier.FINAL);
+        field.setInitialValue(value);
+        return field;
+    }
+
+    private ClassSnapshot inputOutput(ClassSnapshot snapshot) {
+        try (ByteArrayOutputStream output = new ByteArrayOutputStream()) {
+            ClassSnapshotIO.write(snapshot, output);
+            try (ByteArrayInputStream input = new ByteArrayInputStream(output.toByteArray())) {
+                return ClassSnapshotIO.read(input);
+            }
+        } catch (IOException e) {
+            throw new AssertionError("This exception should not be thrown", e);
+        }
+    }
+
+    private void assertClassEquals(ClassReader expected, ClassReader actual) {
+        assertNotNull(actual);
+        assertEquals(expected.getLevel(), actual.getLevel());
+        assertEquals(expected.readModifiers(), actual.readModifiers());
+        assertEquals(expected.getParent(), actual.getParent());
+        assertEquals(expected.getOwnerName(), actual.getOwnerName());
+        assertEquals(expected.getInterfaces(), actual.getInterfaces());
+        assertEquals(describe(expected.getAnnotations()), describe(actual.getAnnotations()));
+
+        assertEquals(expected.getFields().size(), actual.getFields().size());
+        for (FieldReader expectedField : expected.getFields()) {
+            FieldReader actualField = actual.getField(expectedField.getName());
+            assertNotNull(actualField);
+            assertEquals(expectedField.getType(), actualField.getType());
+            assertEquals(expectedField.getLevel(), actualField.getLevel());
+            assertEquals(expectedField.readModifiers(), actualField.readModifiers());
+            assertEquals(expectedField.getInitialValue(), actualField.getInitialValue());
+            assertEquals(describe(expectedField.getAnnotations()), describe(actualField.getAnnotations()));
+        }
+
+        assertEquals(expected.getMethods().size(), actual.getMethods().size());
+        for (MethodReader expectedMethod : expected.getMethods()) {
+            MethodReader actualMethod = actual.getMethod(expectedMethod.getDescriptor());
+            assertNotNull(actualMethod);
+            assertEquals(expectedMethod.getLevel(), actualMethod.getLevel());
+            assertEquals(expectedMethod.readModifiers(), actualMethod.readModifiers());
+            assertEquals(describe(expectedMethod.getAnnotations()), describe(actualMethod.getAnnotations()));
+            if (expectedMethod.getProgram() == null) {
+                assertNull(actualMethod.getProgram());
+            } else {
+                assertNotNull(actualMethod.getProgram());
+                ListingBuilder listingBuilder = new ListingBuilder();
+                assertEquals(listingBuilder.buildListing(expectedMethod.getProgram(), ""),
+                        listingBuilder.buildListing(actualMethod.getProgram(), ""));
+            }
+        }
+    }
+
+    private Set<String> describe(AnnotationContainerReader annotations) {
+        Set<String> result = new HashSet<>();
+        for (AnnotationReader annot : annotations.all()) {
+            result.add(describe(annot));
+        }
+        return result;
+    }
+
+    private String describe(AnnotationReader annot) {
+        Map<String, String> values = new TreeMap<>();
+        for (String field : annot.getAvailableFields()) {
+            values.put(field, describe(annot.getValue(field)));
+        }
+        return "@" + annot.getType() + values;
+    }
+
+    private String describe(AnnotationValue value) {
+        switch (value.getType()) {
+            case AnnotationValue.BOOLEAN:
+                return String.valueOf(value.getBoolean());
+            case AnnotationValue.BYTE:
+                return "(byte)" + value.getByte();
+            case AnnotationValue.SHORT:
+                return "(short)" + value.getShort();
+            case AnnotationValue.INT:
+                return String.valueOf(value.getInt());
+            case AnnotationValue.LONG:
+                return value.getLong() + "L";
+            case AnnotationValue.FLOAT:
+                return value.getFloat() + "f";
+            case AnnotationValue.DOUBLE:
+                return String.valueOf(value.getDouble());
+            case AnnotationValue.STRING:
+                return "\"" + value.getString() + "\"";
+            case AnnotationValue.CLASS:
+                return value.getJavaClass() + ".class";
+            case AnnotationValue.ENUM:
+                return value.getEnumValue().toString();
+            case AnnotationValue.ANNOTATION:
+                return describe(value.getAnnotation());
+            case AnnotationValue.LIST: {
+                List<String> items = new ArrayList<>();
+                for (AnnotationValue item : value.getList()) {
+                    items.add(describe(item));
+                }
+                return items.toString();
+            }
+            default:
+                throw new AssertionError("Unknown annotation value type: " + value.getType());
+        }
+    }
+}
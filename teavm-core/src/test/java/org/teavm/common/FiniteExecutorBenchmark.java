@@ -0,0 +1,82 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.common;
+
+import java.util.Random;
+
+/**
+ * <p>Compares {@link ThreadPoolFiniteExecutor} with {@link WorkStealingFiniteExecutor} on a workload
+ * that resembles test generation: many short tasks and a few long ones, where long tasks spawn
+ * more work with {@link FiniteExecutor#executeFast(Runnable)}. Run it with the number of threads
+ * as an optional argument.</p>
+ *
+ * @author Alexey Andreev
+ */
+public final class FiniteExecutorBenchmark {
+    private static final int TASK_COUNT = 2000;
+    private static final int ITERATIONS = 10;
+    private static volatile long sink;
+
+    private FiniteExecutorBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        System.out.println("Threads: " + threads);
+        for (int i = 0; i < ITERATIONS; ++i) {
+            ThreadPoolFiniteExecutor threadPool = new ThreadPoolFiniteExecutor(threads);
+            long threadPoolTime = measure(threadPool);
+            threadPool.stop();
+            WorkStealingFiniteExecutor workStealing = new WorkStealingFiniteExecutor(threads);
+            long workStealingTime = measure(workStealing);
+            workStealing.stop();
+            System.out.println("Iteration " + i + ": thread pool " + threadPoolTime + " ms, work stealing " +
+                    workStealingTime + " ms");
+        }
+    }
+
+    private static long measure(final FiniteExecutor executor) {
+        Random random = new Random(0);
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < TASK_COUNT; ++i) {
+            final boolean large = random.nextInt(50) == 0;
+            executor.execute(new Runnable() {
+                @Override public void run() {
+                    work(large ? 200000 : 2000);
+                    if (large) {
+                        for (int j = 0; j < 100; ++j) {
+                            executor.executeFast(new Runnable() {
+                                @Override public void run() {
+                                    work(5000);
+                                }
+                            });
+                        }
+                    }
+                }
+            });
+        }
+        executor.complete();
+        return System.currentTimeMillis() - start;
+    }
+
+    private static void work(int amount) {
+        long hash = 0;
+        for (int i = 0; i < amount; ++i) {
+            hash = hash * 31 + (i ^ (hash >>> 7));
+        }
+        sink += hash;
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.common;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ *
+ * @author Alexey Andreev
+ */
+public class WorkStealingFiniteExecutorTest {
+    private WorkStealingFiniteExecutor executor = new WorkStealingFiniteExecutor(4);
+
+    @After
+    public void stop() {
+        executor.stop();
+    }
+
+    @Test
+    public void runsNestedTasks() {
+        final AtomicInteger counter = new AtomicInteger();
+        for (int i = 0; i < 10; ++i) {
+            executor.execute(new Runnable() {
+                @Override public void run() {
+                    for (int j = 0; j < 10; ++j) {
+                        executor.executeFast(new Runnable() {
+                            @Override public void run() {
+                                counter.incrementAndGet();
+                            }
+                        });
+                    }
+                    counter.incrementAndGet();
+                }
+            });
+        }
+        executor.complete();
+        assertThat(counter.get(), is(110));
+        assertThat(executor.getTaskCount(), is(110));
+    }
+
+    @Test
+    public void reportsAllExceptions() {
+        final RuntimeException first = new IllegalStateException();
+        final RuntimeException second = new IllegalArgumentException();
+        final AtomicInteger counter = new AtomicInteger();
+        executor.execute(throwing(first));
+        for (int i = 0; i < 20; ++i) {
+            executor.execute(new Runnable() {
+                @Override public void run() {
+                    counter.incrementAndGet();
+                }
+            });
+        }
+        executor.execute(throwing(second));
+        try {
+            executor.complete();
+            fail("Exception expected");
+        } catch (RuntimeException e) {
+            assertThat(e.getSuppressed().length, is(1));
+            if (e == first) {
+                assertThat(e.getSuppressed()[0], sameInstance((Throwable)second));
+            } else {
+                assertThat(e, sameInstance(second));
+                assertThat(e.getSuppressed()[0], sameInstance((Throwable)first));
+            }
+        }
+        assertThat(counter.get(), is(20));
+
+        executor.execute(new Runnable() {
+            @Override public void run() {
+                counter.incrementAndGet();
+            }
+        });
+        executor.complete();
+        assertThat(counter.get(), is(21));
+    }
+
+    private static Runnable throwing(final RuntimeException exception) {
+        return new Runnable() {
+            @Override public void run() {
+                throw exception;
+            }
+        };
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.javascript;
+
+import static org.junit.Assert.*;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import org.teavm.codegen.*;
+import org.teavm.javascript.ast.*;
+import org.teavm.model.*;
+import org.teavm.model.instructions.ExitInstruction;
+import org.teavm.model.instructions.IntegerConstantInstruction;
+
+/**
+ *
+ * @author Alexey Andreev
+ */
+public class RenderedClassCacheTest {
+    private static final MethodReference A_FIRST = new MethodReference("A", "first", ValueType.object("String"));
+    private static final MethodReference A_ZERO = new MethodReference("A", "zero", ValueType.object("String"));
+    private static final MethodReference A_CLINIT = new MethodReference("A", "<clinit>", ValueType.VOID);
+    private static final MethodReference B_SECOND = new MethodReference("B", "second", ValueType.object("String"));
+    private static final MethodReference C_THIRD = new MethodReference("C", "third", ValueType.INTEGER);
+
+    @Test
+    public void rendersAgainWhenInitializerBecomesNeeded() {
+        MethodNode first = method(A_FIRST, Statement.exitFunction(Expr.constant("first")));
+        SequentialStatement secondBody = new SequentialStatement();
+        secondBody.getSequence().add(Statement.initClass("A"));
+        secondBody.getSequence().add(Statement.exitFunction(Expr.constant("second")));
+        ClassNode b = classNode("B", method(B_SECOND, secondBody));
+        ClassNode c = classNode("C", method(C_THIRD, Statement.exitFunction(Expr.constant(3))));
+
+        InMemoryRenderedClassCache cache = new InMemoryRenderedClassCache();
+        MutableClassHolderSource classSource = classSource(classHolder("A", A_FIRST));
+        render(classSource, Arrays.asList(classNode("A", first), b, c), cache);
+        RenderedClass renderedB = cache.get("B");
+        RenderedClass renderedC = cache.get("C");
+
+        // A gets a static initializer, so B has to initialize A before calling into it
+        ClassHolder changedA = classHolder("A", A_FIRST, A_CLINIT);
+        Program clinitProgram = new Program();
+        BasicBlock block = clinitProgram.createBasicBlock();
+        IntegerConstantInstruction constant = new IntegerConstantInstruction();
+        constant.setConstant(1);
+        constant.setReceiver(clinitProgram.createVariable());
+        block.getInstructions().add(constant);
+        block.getInstructions().add(new ExitInstruction());
+        changedA.getMethod(A_CLINIT.getDescriptor()).setProgram(clinitProgram);
+        classSource = classSource(changedA);
+        List<ClassNode> classes = Arrays.asList(classNode("A", first,
+                method(A_CLINIT, Statement.exitFunction(null))), b, c);
+
+        assertEquals(render(classSource, classes, null), render(classSource, classes, cache));
+        assertNotSame(renderedB, cache.get("B"));
+        assertSame(renderedC, cache.get("C"));
+    }
+
+    @Test
+    public void rendersAgainWhenStringIndexChanges() {
+        MethodNode first = method(A_FIRST, Statement.exitFunction(Expr.constant("first")));
+        ClassNode b = classNode("B", method(B_SECOND, Statement.exitFunction(Expr.constant("second"))));
+        ClassNode c = classNode("C", method(C_THIRD, Statement.exitFunction(Expr.constant(3))));
+
+        InMemoryRenderedClassCache cache = new InMemoryRenderedClassCache();
+        MutableClassHolderSource classSource = classSource(classHolder("A", A_FIRST));
+        render(classSource, Arrays.asList(classNode("A", first), b, c), cache);
+        RenderedClass renderedB = cache.get("B");
+        RenderedClass renderedC = cache.get("C");
+
+        // A takes one more string before B does, so the string of B moves in the pool
+        classSource = classSource(classHolder("A", A_ZERO, A_FIRST));
+        List<ClassNode> classes = Arrays.asList(classNode("A",
+                method(A_ZERO, Statement.exitFunction(Expr.constant("zero"))), first), b, c);
+
+        assertEquals(render(classSource, classes, null), render(classSource, classes, cache));
+        assertNotSame(renderedB, cache.get("B"));
+        assertSame(renderedC, cache.get("C"));
+    }
+
+    @Test
+    public void reusesUnchangedClasses() {
+        List<ClassNode> classes = Arrays.asList(
+                classNode("A", method(A_FIRST, Statement.exitFunction(Expr.constant("first")))),
+                classNode("B", method(B_SECOND, Statement.exitFunction(Expr.constant("second")))),
+                classNode("C", method(C_THIRD, Statement.exitFunction(Expr.constant(3)))));
+        MutableClassHolderSource classSource = classSource(classHolder("A", A_FIRST));
+
+        InMemoryRenderedClassCache cache = new InMemoryRenderedClassCache();
+        String expected = render(classSource, classes, cache);
+        RenderedClass renderedA = cache.get("A");
+        RenderedClass renderedB = cache.get("B");
+
+        assertEquals(expected, render(classSource, classes, cache));
+        assertSame(renderedA, cache.get("A"));
+        assertSame(renderedB, cache.get("B"));
+    }
+
+    private String render(ListableClassHolderSource classSource, List<ClassNode> classes,
+            RenderedClassCache cache) {
+        // Minified names depend on the order they are requested in, so they would make C to be rendered again
+        DefaultNamingStrategy naming = new DefaultNamingStrategy(new DefaultAliasProvider(), classSource);
+        SourceWriterBuilder builder = new SourceWriterBuilder(cache != null ? new RecordingNamingStrategy(naming) :
+                naming);
+        StringBuilder sb = new StringBuilder();
+        SourceWriter writer = builder.build(sb);
+        Renderer renderer = new Renderer(writer, classSource, RenderedClassCacheTest.class.getClassLoader(), null);
+        renderer.setRenderedClassCache(cache);
+        for (ClassNode cls : classes) {
+            renderer.render(cls);
+        }
+        renderer.renderStringPool();
+        return sb.toString();
+    }
+
+    private static MutableClassHolderSource classSource(ClassHolder a) {
+        MutableClassHolderSource classSource = new MutableClassHolderSource();
+        classSource.putClassHolder(a);
+        classSource.putClassHolder(classHolder("B", B_SECOND));
+        classSource.putClassHolder(classHolder("C", C_THIRD));
+        return classSource;
+    }
+
+    private static ClassHolder classHolder(String name, MethodReference... methods) {
+        ClassHolder cls = new ClassHolder(name);
+        for (MethodReference method : methods) {
+            MethodHolder methodHolder = new MethodHolder(method.getDescriptor());
+            methodHolder.getModifiers().add(ElementModifier.STATIC);
+            cls.addMethod(methodHolder);
+        }
+        return cls;
+    }
+
+    private static ClassNode classNode(String name, MethodNode... methods) {
+        ClassNode cls = new ClassNode(name, null);
+        cls.getMethods().addAll(Arrays.asList(methods));
+        return cls;
+    }
+
+    private static MethodNode method(MethodReference reference, Statement body) {
+        RegularMethodNode method = new RegularMethodNode(reference);
+        method.getModifiers().add(NodeModifier.STATIC);
+        method.getVariables().add(0);
+        method.setBody(body);
+        return method;
+    }
+}
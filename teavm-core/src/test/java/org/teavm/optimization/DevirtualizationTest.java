@@ -0,0 +1,346 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.optimization;
+
+import static org.junit.Assert.*;
+import java.util.*;
+import org.junit.Test;
+import org.teavm.common.DominatorTree;
+import org.teavm.common.Graph;
+import org.teavm.common.GraphUtils;
+import org.teavm.dependency.*;
+import org.teavm.model.*;
+import org.teavm.model.instructions.*;
+import org.teavm.model.util.DefinitionExtractor;
+import org.teavm.model.util.ProgramUtils;
+import org.teavm.model.util.UsageExtractor;
+
+/**
+ *
+ * @author Alexey Andreev
+ */
+public class DevirtualizationTest {
+    private static final MethodDescriptor FOO = new MethodDescriptor("foo", ValueType.INTEGER);
+    private MutableClassHolderSource classSource = new MutableClassHolderSource();
+    private TestDependencyInfo dependency = new TestDependencyInfo();
+
+    @Test
+    public void guardsBimorphicCallWhoseSuccessorHasPhis() {
+        declareClass("Base", "java.lang.Object");
+        declareClass("A", "Base");
+        declareClass("B", "Base");
+        dependency.methods.put(new MethodReference("A", FOO), new TestMethodDependencyInfo(
+                new MethodReference("A", FOO)));
+        dependency.methods.put(new MethodReference("B", FOO), new TestMethodDependencyInfo(
+                new MethodReference("B", FOO)));
+
+        // int test(Base base, boolean flag) { return flag ? base.foo() : 2; }
+        Program program = new Program();
+        program.createVariable();
+        Variable base = program.createVariable();
+        Variable flag = program.createVariable();
+        BasicBlock entry = program.createBasicBlock();
+        BasicBlock callBlock = program.createBasicBlock();
+        BasicBlock constBlock = program.createBasicBlock();
+        BasicBlock exitBlock = program.createBasicBlock();
+
+        BranchingInstruction branch = new BranchingInstruction(BranchingCondition.NOT_EQUAL);
+        branch.setOperand(flag);
+        branch.setConsequent(callBlock);
+        branch.setAlternative(constBlock);
+        entry.getInstructions().add(branch);
+
+        InvokeInstruction invoke = new InvokeInstruction();
+        invoke.setType(InvocationType.VIRTUAL);
+        invoke.setMethod(new MethodReference("Base", FOO));
+        invoke.setInstance(base);
+        invoke.setReceiver(program.createVariable());
+        callBlock.getInstructions().add(invoke);
+        callBlock.getInstructions().add(jump(exitBlock));
+
+        IntegerConstantInstruction constant = new IntegerConstantInstruction();
+        constant.setConstant(2);
+        constant.setReceiver(program.createVariable());
+        constBlock.getInstructions().add(constant);
+        constBlock.getInstructions().add(jump(exitBlock));
+
+        Phi phi = new Phi();
+        phi.setReceiver(program.createVariable());
+        phi.getIncomings().add(incoming(callBlock, invoke.getReceiver()));
+        phi.getIncomings().add(incoming(constBlock, constant.getReceiver()));
+        exitBlock.getPhis().add(phi);
+        ExitInstruction exit = new ExitInstruction();
+        exit.setValueToReturn(phi.getReceiver());
+        exitBlock.getInstructions().add(exit);
+
+        MethodHolder method = new MethodHolder("test", ValueType.object("Base"), ValueType.BOOLEAN,
+                ValueType.INTEGER);
+        method.setProgram(program);
+        ClassHolder mainClass = declareClass("Main", "java.lang.Object");
+        mainClass.addMethod(method);
+        TestMethodDependencyInfo methodDep = new TestMethodDependencyInfo(method.getReference());
+        methodDep.variableTypes.put(base.getIndex(), new String[] { "A", "B" });
+        dependency.methods.put(method.getReference(), methodDep);
+
+        Devirtualization devirtualization = new Devirtualization(dependency, classSource);
+        devirtualization.apply(method);
+
+        assertEquals(1, devirtualization.getVirtualCallSites());
+        assertEquals(0, devirtualization.getMonomorphicCallSites());
+        assertEquals(1, devirtualization.getGuardedCallSites());
+        assertValidSsa(program);
+
+        Instruction guard = callBlock.getInstructions().get(0);
+        assertTrue(guard instanceof IsInstanceInstruction);
+        String guardClass = ((ValueType.Object)((IsInstanceInstruction)guard).getType()).getClassName();
+        BranchingInstruction guardBranch = (BranchingInstruction)callBlock.getLastInstruction();
+        InvokeInstruction directInvoke = (InvokeInstruction)guardBranch.getConsequent().getInstructions().get(0);
+        InvokeInstruction virtualInvoke = (InvokeInstruction)guardBranch.getAlternative().getInstructions().get(0);
+        assertEquals(InvocationType.SPECIAL, directInvoke.getType());
+        assertEquals(new MethodReference(guardClass, FOO), directInvoke.getMethod());
+        assertEquals(InvocationType.VIRTUAL, virtualInvoke.getType());
+        assertEquals(new MethodReference("Base", FOO), virtualInvoke.getMethod());
+        assertSame(base, directInvoke.getInstance());
+        assertSame(base, virtualInvoke.getInstance());
+
+        // Both results reach the phi of the original successor through the joint block
+        BasicBlock joint = ((JumpInstruction)guardBranch.getConsequent().getLastInstruction()).getTarget();
+        assertSame(joint, ((JumpInstruction)guardBranch.getAlternative().getLastInstruction()).getTarget());
+        assertEquals(1, joint.getPhis().size());
+        Phi resultPhi = joint.getPhis().get(0);
+        Set<Variable> results = new HashSet<>();
+        for (Incoming resultIncoming : resultPhi.getIncomings()) {
+            results.add(resultIncoming.getValue());
+        }
+        assertEquals(new HashSet<>(Arrays.asList(directInvoke.getReceiver(), virtualInvoke.getReceiver())),
+                results);
+        assertSame(exitBlock, ((JumpInstruction)joint.getLastInstruction()).getTarget());
+        assertSame(joint, phi.getIncomings().get(0).getSource());
+        assertSame(resultPhi.getReceiver(), phi.getIncomings().get(0).getValue());
+    }
+
+    private ClassHolder declareClass(String name, String parent) {
+        ClassHolder cls = new ClassHolder(name);
+        cls.setParent(parent);
+        classSource.putClassHolder(cls);
+        return cls;
+    }
+
+    private static JumpInstruction jump(BasicBlock target) {
+        JumpInstruction insn = new JumpInstruction();
+        insn.setTarget(target);
+        return insn;
+    }
+
+    private static Incoming incoming(BasicBlock source, Variable value) {
+        Incoming incoming = new Incoming();
+        incoming.setSource(source);
+        incoming.setValue(value);
+        return incoming;
+    }
+
+    private static void assertValidSsa(Program program) {
+        Graph cfg = ProgramUtils.buildControlFlowGraph(program);
+        DominatorTree domTree = GraphUtils.buildDominatorTree(cfg);
+        int[] definedIn = new int[program.variableCount()];
+        Arrays.fill(definedIn, -1);
+        for (int i = 0; i < program.basicBlockCount(); ++i) {
+            BasicBlock block = program.basicBlockAt(i);
+            for (Phi phi : block.getPhis()) {
+                define(definedIn, phi.getReceiver(), i);
+            }
+            DefinitionExtractor defExtractor = new DefinitionExtractor();
+            for (Instruction insn : block.getInstructions()) {
+                insn.acceptVisitor(defExtractor);
+                for (Variable var : defExtractor.getDefinedVariables()) {
+                    define(definedIn, var, i);
+                }
+            }
+        }
+
+        for (int i = 0; i < program.basicBlockCount(); ++i) {
+            BasicBlock block = program.basicBlockAt(i);
+            Set<Integer> predecessors = new HashSet<>();
+            for (int predecessor : cfg.incomingEdges(i)) {
+                predecessors.add(predecessor);
+            }
+            for (Phi phi : block.getPhis()) {
+                Set<Integer> sources = new HashSet<>();
+                for (Incoming incoming : phi.getIncomings()) {
+                    int source = incoming.getSource().getIndex();
+                    assertTrue("Duplicate incoming from block " + source, sources.add(source));
+                    assertUsable(definedIn, domTree, incoming.getValue(), source);
+                }
+                assertEquals("Phi incomings of block " + i, predecessors, sources);
+            }
+            UsageExtractor useExtractor = new UsageExtractor();
+            for (Instruction insn : block.getInstructions()) {
+                insn.acceptVisitor(useExtractor);
+                for (Variable var : useExtractor.getUsedVariables()) {
+                    assertUsable(definedIn, domTree, var, i);
+                }
+            }
+        }
+    }
+
+    private static void define(int[] definedIn, Variable var, int block) {
+        assertEquals("Variable " + var.getIndex() + " is defined twice", -1, definedIn[var.getIndex()]);
+        definedIn[var.getIndex()] = block;
+    }
+
+    private static void assertUsable(int[] definedIn, DominatorTree domTree, Variable var, int block) {
+        int definition = definedIn[var.getIndex()];
+        if (definition < 0) {
+            // Method parameters are defined on entry
+            assertTrue("Variable " + var.getIndex() + " is not defined", var.getIndex() < 3);
+            return;
+        }
+        assertTrue("Definition of variable " + var.getIndex() + " does not dominate its use in block " + block,
+                domTree.dominates(definition, block));
+    }
+
+    static class TestDependencyInfo implements DependencyInfo {
+        Map<MethodReference, MethodDependencyInfo> methods = new HashMap<>();
+
+        @Override
+        public ClassReaderSource getClassSource() {
+            return null;
+        }
+
+        @Override
+        public ClassLoader getClassLoader() {
+            return null;
+        }
+
+        @Override
+        public Collection<MethodReference> getAchievableMethods() {
+            return methods.keySet();
+        }
+
+        @Override
+        public Collection<FieldReference> getAchievableFields() {
+            return Collections.emptySet();
+        }
+
+        @Override
+        public Collection<String> getAchievableClasses() {
+            return Collections.emptySet();
+        }
+
+        @Override
+        public FieldDependencyInfo getField(FieldReference fieldRef) {
+            return null;
+        }
+
+        @Override
+        public MethodDependencyInfo getMethod(MethodReference methodRef) {
+            return methods.get(methodRef);
+        }
+
+        @Override
+        public ClassDependencyInfo getClass(String className) {
+            return null;
+        }
+    }
+
+    static class TestMethodDependencyInfo implements MethodDependencyInfo {
+        MethodReference reference;
+        Map<Integer, String[]> variableTypes = new HashMap<>();
+
+        TestMethodDependencyInfo(MethodReference reference) {
+            this.reference = reference;
+        }
+
+        @Override
+        public ValueDependencyInfo[] getVariables() {
+            return null;
+        }
+
+        @Override
+        public int getVariableCount() {
+            return 0;
+        }
+
+        @Override
+        public ValueDependencyInfo getVariable(int index) {
+            String[] types = variableTypes.get(index);
+            return new TestValueDependencyInfo(types != null ? types : new String[0]);
+        }
+
+        @Override
+        public int getParameterCount() {
+            return reference.parameterCount() + 1;
+        }
+
+        @Override
+        public DependencyNode getResult() {
+            return null;
+        }
+
+        @Override
+        public DependencyNode getThrown() {
+            return null;
+        }
+
+        @Override
+        public MethodReference getReference() {
+            return reference;
+        }
+
+        @Override
+        public boolean isUsed() {
+            return true;
+        }
+
+        @Override
+        public boolean isMissing() {
+            return false;
+        }
+
+        @Override
+        public DependencyStack getStack() {
+            return null;
+        }
+    }
+
+    static class TestValueDependencyInfo implements ValueDependencyInfo {
+        String[] types;
+
+        TestValueDependencyInfo(String[] types) {
+            this.types = types;
+        }
+
+        @Override
+        public String[] getTypes() {
+            return types;
+        }
+
+        @Override
+        public boolean hasType(String type) {
+            return Arrays.asList(types).contains(type);
+        }
+
+        @Override
+        public boolean hasArrayType() {
+            return false;
+        }
+
+        @Override
+        public DependencyNode getArrayItem() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.tooling;
+
+import static org.junit.Assert.*;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+/**
+ *
+ * @author Alexey Andreev
+ */
+public class JUnitReportWriterTest {
+    private static final String CLASS_NAME = "org.example.FooTest";
+
+    @Test
+    public void writesPassedFailedAndErroneousTests() throws Exception {
+        List<TestResult> results = Arrays.asList(
+                new TestResult(CLASS_NAME, "passes", TestStatus.PASSED, null, null, "", 1500),
+                new TestResult(CLASS_NAME, "fails", TestStatus.FAILED, "java.lang.AssertionError",
+                        "java.lang.AssertionError: expected:<1> but was:<2>\n    at FooTest.fails", "", 20),
+                new TestResult(CLASS_NAME, "crashes", TestStatus.ERROR, "java.lang.NullPointerException",
+                        "java.lang.NullPointerException\n    at FooTest.crashes", "some output", 5));
+        Element suite = write(results);
+
+        assertEquals("testsuite", suite.getTagName());
+        assertEquals(CLASS_NAME, suite.getAttribute("name"));
+        assertEquals("3", suite.getAttribute("tests"));
+        assertEquals("1", suite.getAttribute("failures"));
+        assertEquals("1", suite.getAttribute("errors"));
+        assertEquals("0", suite.getAttribute("skipped"));
+        assertEquals("1.525", suite.getAttribute("time"));
+
+        NodeList testCases = suite.getElementsByTagName("testcase");
+        assertEquals(3, testCases.getLength());
+
+        Element passed = (Element)testCases.item(0);
+        assertEquals(CLASS_NAME, passed.getAttribute("classname"));
+        assertEquals("passes", passed.getAttribute("name"));
+        assertEquals("1.500", passed.getAttribute("time"));
+        assertEquals(0, passed.getChildNodes().getLength());
+
+        Element failed = (Element)testCases.item(1);
+        assertEquals("fails", failed.getAttribute("name"));
+        assertEquals(0, failed.getElementsByTagName("error").getLength());
+        Element failure = single(failed, "failure");
+        assertEquals("java.lang.AssertionError", failure.getAttribute("type"));
+        assertEquals("java.lang.AssertionError: expected:<1> but was:<2>", failure.getAttribute("message"));
+        assertEquals("java.lang.AssertionError: expected:<1> but was:<2>\n    at FooTest.fails",
+                failure.getTextContent());
+
+        Element erroneous = (Element)testCases.item(2);
+        assertEquals("crashes", erroneous.getAttribute("name"));
+        assertEquals(0, erroneous.getElementsByTagName("failure").getLength());
+        Element error = single(erroneous, "error");
+        assertEquals("java.lang.NullPointerException", error.getAttribute("type"));
+        assertEquals("java.lang.NullPointerException", error.getAttribute("message"));
+        assertEquals("some output", single(erroneous, "system-out").getTextContent());
+    }
+
+    @Test
+    public void writesErrorWithoutException() throws Exception {
+        Element suite = write(Collections.singletonList(new TestResult(CLASS_NAME, "hangs", TestStatus.ERROR,
+                null, "Test did not report its result", "", 0)));
+        Element error = single((Element)suite.getElementsByTagName("testcase").item(0), "error");
+        assertFalse(error.hasAttribute("type"));
+        assertEquals("Test did not report its result", error.getAttribute("message"));
+    }
+
+    @Test
+    public void escapesSpecialCharacters() throws Exception {
+        String stack = "expected:<\"a&b\"> but was:<'c'>\u0001";
+        Element suite = write(Collections.singletonList(new TestResult("Foo<T>", "m&n", TestStatus.FAILED,
+                "org.junit.ComparisonFailure", stack, "<output>", 0)));
+        assertEquals("Foo<T>", suite.getAttribute("name"));
+        Element testCase = (Element)suite.getElementsByTagName("testcase").item(0);
+        assertEquals("m&n", testCase.getAttribute("name"));
+        Element failure = single(testCase, "failure");
+        assertEquals("expected:<\"a&b\"> but was:<'c'>?", failure.getAttribute("message"));
+        assertEquals("expected:<\"a&b\"> but was:<'c'>?", failure.getTextContent());
+        assertEquals("<output>", single(testCase, "system-out").getTextContent());
+    }
+
+    private static Element write(List<TestResult> results) throws IOException, ParserConfigurationException,
+            SAXException {
+        StringWriter writer = new StringWriter();
+        new JUnitReportWriter().write(results.get(0).getClassName(), results, writer);
+        Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                .parse(new InputSource(new StringReader(writer.toString())));
+        return document.getDocumentElement();
+    }
+
+    private static Element single(Element parent, String tagName) {
+        NodeList elements = parent.getElementsByTagName(tagName);
+        assertEquals("Number of <" + tagName + "> elements", 1, elements.getLength());
+        return (Element)elements.item(0);
+    }
+}
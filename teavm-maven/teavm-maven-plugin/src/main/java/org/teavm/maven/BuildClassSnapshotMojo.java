@@ -0,0 +1,120 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.maven;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.*;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Component;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
+import org.teavm.cache.ClassSnapshotIO;
+import org.teavm.tooling.ClassSnapshotTool;
+import org.teavm.tooling.TeaVMToolException;
+
+/**
+ * <p>Stores all classes of the project, already parsed and transformed, as a class snapshot that is packaged
+ * together with the classes. Builds that enable <code>classSnapshotUsed</code> take these classes from the
+ * snapshot.</p>
+ *
+ * @author Alexey Andreev
+ */
+@Mojo(name = "build-class-snapshot", defaultPhase = LifecyclePhase.PROCESS_CLASSES,
+        requiresDependencyResolution = ResolutionScope.COMPILE,
+        requiresDependencyCollection = ResolutionScope.COMPILE)
+public class BuildClassSnapshotMojo extends AbstractMojo {
+    private static Set<String> compileScopes = new HashSet<>(Arrays.asList(
+            Artifact.SCOPE_COMPILE, Artifact.SCOPE_PROVIDED, Artifact.SCOPE_SYSTEM));
+
+    @Component
+    private MavenProject project;
+
+    @Parameter(defaultValue = "${project.build.outputDirectory}")
+    private File classFiles;
+
+    @Parameter(defaultValue = "${project.build.outputDirectory}/" + ClassSnapshotIO.RESOURCE_NAME)
+    private File targetFile;
+
+    @Parameter
+    private Properties properties;
+
+    public void setProject(MavenProject project) {
+        this.project = project;
+    }
+
+    public File getClassFiles() {
+        return classFiles;
+    }
+
+    public void setClassFiles(File classFiles) {
+        this.classFiles = classFiles;
+    }
+
+    public File getTargetFile() {
+        return targetFile;
+    }
+
+    public void setTargetFile(File targetFile) {
+        this.targetFile = targetFile;
+    }
+
+    public void setProperties(Properties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    public void execute() throws MojoExecutionException {
+        ClassSnapshotTool tool = new ClassSnapshotTool();
+        tool.setLog(new MavenTeaVMToolLog(getLog()));
+        tool.setClassLoader(prepareClassLoader());
+        tool.setClassesDirectory(classFiles);
+        tool.setTargetFile(targetFile);
+        if (properties != null) {
+            tool.getProperties().putAll(properties);
+        }
+        try {
+            tool.generate();
+        } catch (RuntimeException e) {
+            throw new MojoExecutionException("Unexpected error occured", e);
+        } catch (TeaVMToolException e) {
+            throw new MojoExecutionException("IO error occured", e);
+        }
+    }
+
+    private ClassLoader prepareClassLoader() throws MojoExecutionException {
+        try {
+            List<URL> urls = new ArrayList<>();
+            for (Artifact artifact : project.getArtifacts()) {
+                if (compileScopes.contains(artifact.getScope())) {
+                    urls.add(artifact.getFile().toURI().toURL());
+                }
+            }
+            urls.add(classFiles.toURI().toURL());
+            return new URLClassLoader(urls.toArray(new URL[urls.size()]),
+                    BuildClassSnapshotMojo.class.getClassLoader());
+        } catch (MalformedURLException e) {
+            throw new MojoExecutionException("Error gathering classpath information", e);
+        }
+    }
+}
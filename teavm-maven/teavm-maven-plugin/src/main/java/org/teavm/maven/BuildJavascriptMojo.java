@@ -100,6 +100,12 @@ public class BuildJavascriptMojo extends AbstractMojo {
     @Parameter
     private boolean incremental;
 
+    @Parameter
+    private boolean classSnapshotUsed;
+
+    @Parameter
+    private boolean profiling;
+
     @Parameter(defaultValue = "${project.build.directory}/teavm-cache")
     private File cacheDirectory;
 
@@ -198,6 +204,22 @@ public class BuildJavascriptMojo extends AbstractMojo {
         this.incremental = incremental;
     }
 
+    public boolean isClassSnapshotUsed() {
+        return classSnapshotUsed;
+    }
+
+    public void setClassSnapshotUsed(boolean classSnapshotUsed) {
+        this.classSnapshotUsed = classSnapshotUsed;
+    }
+
+    public boolean isProfiling() {
+        return profiling;
+    }
+
+    public void setProfiling(boolean profiling) {
+        this.profiling = profiling;
+    }
+
     public File getCacheDirectory() {
         return cacheDirectory;
     }
@@ -243,6 +265,8 @@ public class BuildJavascriptMojo extends AbstractMojo {
             }
             tool.setCacheDirectory(cacheDirectory);
             tool.setIncremental(incremental);
+            tool.setClassSnapshotUsed(classSnapshotUsed);
+            tool.setProfiling(profiling);
             tool.setDebugInformationGenerated(debugInformationGenerated);
             tool.setSourceMapsFileGenerated(sourceMapsGenerated);
             tool.setSourceFilesCopied(sourceFilesCopied);
@@ -116,6 +116,12 @@ public class BuildJavascriptTestMojo extends AbstractMojo {
     @Parameter
     private boolean sourceFilesCopied;
 
+    @Parameter
+    private boolean bundledByClass;
+
+    @Parameter
+    private boolean classSnapshotUsed;
+
     private TeaVMTestTool tool = new TeaVMTestTool();
 
     public void setProject(MavenProject project) {
@@ -190,6 +196,22 @@ public class BuildJavascriptTestMojo extends AbstractMojo {
         this.sourceFilesCopied = sourceFilesCopied;
     }
 
+    public boolean isBundledByClass() {
+        return bundledByClass;
+    }
+
+    public void setBundledByClass(boolean bundledByClass) {
+        this.bundledByClass = bundledByClass;
+    }
+
+    public boolean isClassSnapshotUsed() {
+        return classSnapshotUsed;
+    }
+
+    public void setClassSnapshotUsed(boolean classSnapshotUsed) {
+        this.classSnapshotUsed = classSnapshotUsed;
+    }
+
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException {
         if (System.getProperty("maven.test.skip", "false").equals("true") ||
@@ -215,6 +237,8 @@ public class BuildJavascriptTestMojo extends AbstractMojo {
             tool.setDebugInformationGenerated(debugInformationGenerated);
             tool.setSourceMapsGenerated(sourceMapsGenerated);
             tool.setSourceFilesCopied(sourceFilesCopied);
+            tool.setBundledByClass(bundledByClass);
+            tool.setClassSnapshotUsed(classSnapshotUsed);
             if (sourceFilesCopied) {
                 MavenSourceFileProviderLookup lookup = new MavenSourceFileProviderLookup();
                 lookup.setMavenProject(project);
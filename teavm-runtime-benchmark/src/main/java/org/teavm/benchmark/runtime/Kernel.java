@@ -0,0 +1,54 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.benchmark.runtime;
+
+import org.teavm.benchmark.runtime.kernels.*;
+
+/**
+ * <p>Lists kernels measured by {@link RuntimeBenchmark}. A kernel is a class with
+ * <code>public static int run()</code> method, which performs one operation. Result of the method
+ * must not depend on how many times it was called before, and must be the same in JVM and in JavaScript,
+ * so that the benchmark can tell that the generated code is correct.</p>
+ *
+ * @author Alexey Andreev
+ */
+public enum Kernel {
+    SCENE(SceneKernel.class),
+    BIG_INTEGER(BigIntegerKernel.class),
+    BIG_INTEGER_ARITHMETIC(BigIntegerArithmeticKernel.class),
+    BIG_DECIMAL(BigDecimalKernel.class),
+    PATTERN(PatternKernel.class),
+    HASH_MAP(HashMapKernel.class),
+    LINKED_HASH_MAP(LinkedHashMapKernel.class),
+    STRING_MAP(StringMapKernel.class),
+    TREE_MAP(TreeMapKernel.class),
+    STRING_BUILDER(StringBuilderKernel.class),
+    STRING_CONCATENATION(StringConcatenationKernel.class),
+    NUMBER_TO_STRING(NumberToStringKernel.class),
+    NUMBER_PARSE(NumberParseKernel.class),
+    GZIP(GZIPKernel.class),
+    SORT(SortKernel.class);
+
+    private Class<?> kernelClass;
+
+    private Kernel(Class<?> kernelClass) {
+        this.kernelClass = kernelClass;
+    }
+
+    public Class<?> getKernelClass() {
+        return kernelClass;
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.benchmark.runtime;
+
+import java.io.IOException;
+import java.io.InputStream;
+import org.apache.commons.io.IOUtils;
+import org.teavm.javascript.RenderingException;
+import org.teavm.model.MethodReference;
+import org.teavm.model.ValueType;
+import org.teavm.parsing.ClasspathClassHolderSource;
+import org.teavm.vm.TeaVM;
+import org.teavm.vm.TeaVMBuilder;
+
+/**
+ * <p>Compiles a kernel into a script that can be evaluated in a global scope of a JavaScript engine.
+ * The script includes TeaVM runtime and exposes <code>run</code> method of the kernel as
+ * {@link #ENTRY_POINT} function.</p>
+ *
+ * @author Alexey Andreev
+ */
+class KernelCompiler {
+    public static final String ENTRY_POINT = "runKernel";
+    private ClassLoader classLoader;
+    private ClasspathClassHolderSource classSource;
+    private String runtime;
+
+    public KernelCompiler(ClassLoader classLoader) {
+        this.classLoader = classLoader;
+        classSource = new ClasspathClassHolderSource(classLoader);
+    }
+
+    public String compile(Class<?> kernelClass) throws RenderingException {
+        TeaVM vm = new TeaVMBuilder().setClassLoader(classLoader).setClassSource(classSource).build();
+        vm.setMinifying(true);
+        vm.installPlugins();
+        vm.entryPoint(ENTRY_POINT, new MethodReference(kernelClass.getName(), "run", ValueType.INTEGER));
+        StringBuilder sb = new StringBuilder();
+        sb.append(getRuntime()).append('\n');
+        vm.build(sb, null);
+        if (vm.hasMissingItems()) {
+            StringBuilder message = new StringBuilder("Kernel " + kernelClass.getName() + " can't be compiled\n");
+            try {
+                vm.showMissingItems(message);
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+            throw new RenderingException(message.toString());
+        }
+        return sb.toString();
+    }
+
+    private String getRuntime() throws RenderingException {
+        if (runtime == null) {
+            try (InputStream input = classLoader.getResourceAsStream("org/teavm/javascript/runtime.js")) {
+                if (input == null) {
+                    throw new RenderingException("TeaVM runtime was not found in classpath");
+                }
+                runtime = IOUtils.toString(input, "UTF-8");
+            } catch (IOException e) {
+                throw new RenderingException("Error reading TeaVM runtime", e);
+            }
+        }
+        return runtime;
+    }
+}
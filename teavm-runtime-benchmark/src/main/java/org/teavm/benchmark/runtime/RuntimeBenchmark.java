@@ -0,0 +1,331 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.benchmark.runtime;
+
+import java.io.*;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import javax.script.Invocable;
+import javax.script.ScriptEngine;
+import javax.script.ScriptException;
+import org.apache.commons.cli.*;
+import org.apache.commons.io.IOUtils;
+import org.teavm.javascript.RenderingException;
+import org.teavm.tooling.EmptyTeaVMToolLog;
+import org.teavm.tooling.JavaScriptEngines;
+import org.teavm.tooling.TeaVMToolException;
+
+/**
+ * <p>Compiles each {@link Kernel} with TeaVM, runs it in a JavaScript engine and reports
+ * how many operations per second the generated code performs. Results can be written to a file and used
+ * as a baseline for another run, for example, with a different version of TeaVM, to see how performance
+ * of generated code changed.</p>
+ *
+ * <p>By default kernels run in <code>node</code> executable found in <code>PATH</code>, in a separate
+ * process per kernel. Any other engine name is looked up as an embedded JSR 223 engine, for example,
+ * <code>nashorn</code> on JDK 8 to 14.</p>
+ *
+ * @author Alexey Andreev
+ */
+public final class RuntimeBenchmark {
+    private static final String NODE = "node";
+    private String engineName = NODE;
+    private long warmupTime = 5000;
+    private long measurementTime = 10000;
+    private KernelCompiler compiler = new KernelCompiler(RuntimeBenchmark.class.getClassLoader());
+
+    private RuntimeBenchmark() {
+    }
+
+    @SuppressWarnings("static-access")
+    public static void main(String[] args) throws IOException {
+        Options options = new Options();
+        options.addOption(OptionBuilder
+                .withArgName("name")
+                .hasArg()
+                .withDescription("JavaScript engine to run kernels in: node or a JSR 223 engine (node by default)")
+                .withLongOpt("engine")
+                .create('e'));
+        options.addOption(OptionBuilder
+                .withArgName("seconds")
+                .hasArg()
+                .withDescription("how long to run each kernel before measurement (5 by default)")
+                .withLongOpt("warmup")
+                .create('w'));
+        options.addOption(OptionBuilder
+                .withArgName("seconds")
+                .hasArg()
+                .withDescription("how long to measure each kernel (10 by default)")
+                .withLongOpt("time")
+                .create('t'));
+        options.addOption(OptionBuilder
+                .withArgName("file")
+                .hasArg()
+                .withDescription("a file where to write results")
+                .withLongOpt("output")
+                .create('o'));
+        options.addOption(OptionBuilder
+                .withArgName("file")
+                .hasArg()
+                .withDescription("a file with results of a previous run to compare with")
+                .withLongOpt("baseline")
+                .create('b'));
+
+        CommandLineParser parser = new PosixParser();
+        CommandLine commandLine;
+        try {
+            commandLine = parser.parse(options, args);
+        } catch (ParseException e) {
+            printUsage(options);
+            return;
+        }
+
+        RuntimeBenchmark benchmark = new RuntimeBenchmark();
+        List<Kernel> kernels = new ArrayList<>();
+        try {
+            if (commandLine.hasOption('e')) {
+                benchmark.engineName = commandLine.getOptionValue('e');
+            }
+            if (commandLine.hasOption('w')) {
+                benchmark.warmupTime = Long.parseLong(commandLine.getOptionValue('w')) * 1000;
+            }
+            if (commandLine.hasOption('t')) {
+                benchmark.measurementTime = Long.parseLong(commandLine.getOptionValue('t')) * 1000;
+            }
+            for (String kernelName : commandLine.getArgs()) {
+                kernels.add(Kernel.valueOf(kernelName.toUpperCase(Locale.ENGLISH)));
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            printUsage(options);
+            return;
+        }
+        if (kernels.isEmpty()) {
+            kernels.addAll(Arrays.asList(Kernel.values()));
+        }
+
+        Properties baseline = null;
+        if (commandLine.hasOption('b')) {
+            baseline = new Properties();
+            try (InputStream input = new FileInputStream(commandLine.getOptionValue('b'))) {
+                baseline.load(input);
+            }
+        }
+
+        try {
+            benchmark.checkEngine();
+        } catch (TeaVMToolException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        Properties results = new Properties();
+        boolean failed = false;
+        System.out.println(String.format(Locale.US, "%-16s %14s %14s %9s", "Kernel", "ops/s", "baseline", "change"));
+        for (Kernel kernel : kernels) {
+            double opsPerSecond;
+            try {
+                opsPerSecond = benchmark.measure(kernel);
+            } catch (BenchmarkException e) {
+                System.out.println(String.format(Locale.US, "%-16s %s", kernel.name(), e.getMessage()));
+                if (e.getCause() != null) {
+                    e.getCause().printStackTrace(System.out);
+                }
+                failed = true;
+                continue;
+            }
+            results.setProperty(kernel.name(), String.valueOf(opsPerSecond));
+            String baselineValue = baseline != null ? baseline.getProperty(kernel.name()) : null;
+            if (baselineValue != null) {
+                double baselineOps = Double.parseDouble(baselineValue);
+                System.out.println(String.format(Locale.US, "%-16s %14.2f %14.2f %+8.1f%%", kernel.name(),
+                        opsPerSecond, baselineOps, (opsPerSecond / baselineOps - 1) * 100));
+            } else {
+                System.out.println(String.format(Locale.US, "%-16s %14.2f", kernel.name(), opsPerSecond));
+            }
+        }
+
+        if (commandLine.hasOption('o')) {
+            try (OutputStream output = new FileOutputStream(commandLine.getOptionValue('o'))) {
+                results.store(output, "TeaVM runtime benchmark, engine " + benchmark.engineName);
+            }
+        }
+        if (failed) {
+            System.exit(1);
+        }
+    }
+
+    private static void printUsage(Options options) {
+        HelpFormatter formatter = new HelpFormatter();
+        formatter.printHelp("java " + RuntimeBenchmark.class.getName() + " [OPTIONS] [KERNEL]...", options);
+        System.out.println("Available kernels: " + Arrays.toString(Kernel.values()));
+    }
+
+    private void checkEngine() throws TeaVMToolException {
+        if (engineName.equals(NODE)) {
+            try {
+                runNode(Arrays.asList(NODE, "--version"));
+            } catch (IOException | InterruptedException e) {
+                throw new TeaVMToolException("Could not run " + NODE + ", make sure Node.js is installed " +
+                        "and is available in PATH", e);
+            }
+        } else {
+            JavaScriptEngines.check(createEngine(), engineName);
+        }
+    }
+
+    private ScriptEngine createEngine() {
+        return JavaScriptEngines.create(engineName, new EmptyTeaVMToolLog());
+    }
+
+    private double measure(Kernel kernel) throws BenchmarkException {
+        int expected = runInJvm(kernel);
+        String script;
+        try {
+            script = compiler.compile(kernel.getKernelClass());
+        } catch (RenderingException e) {
+            throw new BenchmarkException("compilation failed", e);
+        }
+
+        return engineName.equals(NODE) ? measureInNode(script, expected) : measureInEngine(script, expected);
+    }
+
+    private double measureInEngine(String script, int expected) throws BenchmarkException {
+        // Each kernel gets its own engine, so that code compiled by the engine for one kernel
+        // does not affect another one.
+        ScriptEngine engine = createEngine();
+        Invocable invocable = (Invocable)engine;
+        try {
+            engine.eval("var window = this;");
+            engine.eval(script);
+            int actual = invoke(invocable);
+            if (actual != expected) {
+                throw new BenchmarkException("wrong result: " + actual + ", expected " + expected);
+            }
+            long end = System.currentTimeMillis() + warmupTime;
+            while (System.currentTimeMillis() < end) {
+                invoke(invocable);
+            }
+            int operations = 0;
+            long start = System.nanoTime();
+            long elapsed;
+            do {
+                invoke(invocable);
+                ++operations;
+                elapsed = System.nanoTime() - start;
+            } while (elapsed < measurementTime * 1000000);
+            return operations * 1E9 / elapsed;
+        } catch (ScriptException | NoSuchMethodException e) {
+            throw new BenchmarkException("error running generated code", e);
+        } catch (StackOverflowError e) {
+            throw new BenchmarkException("stack overflow in generated code");
+        }
+    }
+
+    private double measureInNode(String script, int expected) throws BenchmarkException {
+        // The same measurement loop as in measureInEngine, but driven by the script itself, so that
+        // calls between Java and JavaScript do not affect results.
+        StringBuilder sb = new StringBuilder();
+        sb.append("var window = global;\n");
+        sb.append(script).append('\n');
+        sb.append("(function() {\n");
+        sb.append("    var actual = " + KernelCompiler.ENTRY_POINT + "();\n");
+        sb.append("    if (actual !== " + expected + ") {\n");
+        sb.append("        console.log('wrong result: ' + actual + ', expected " + expected + "');\n");
+        sb.append("        return;\n");
+        sb.append("    }\n");
+        sb.append("    var end = Date.now() + " + warmupTime + ";\n");
+        sb.append("    while (Date.now() < end) {\n");
+        sb.append("        " + KernelCompiler.ENTRY_POINT + "();\n");
+        sb.append("    }\n");
+        sb.append("    var operations = 0;\n");
+        sb.append("    var start = process.hrtime();\n");
+        sb.append("    var elapsed;\n");
+        sb.append("    do {\n");
+        sb.append("        " + KernelCompiler.ENTRY_POINT + "();\n");
+        sb.append("        ++operations;\n");
+        sb.append("        var time = process.hrtime(start);\n");
+        sb.append("        elapsed = time[0] * 1E9 + time[1];\n");
+        sb.append("    } while (elapsed < " + measurementTime * 1000000 + ");\n");
+        sb.append("    console.log('ops/s ' + operations * 1E9 / elapsed);\n");
+        sb.append("})();\n");
+
+        File file = null;
+        try {
+            file = File.createTempFile("teavm-kernel", ".js");
+            try (OutputStream output = new FileOutputStream(file)) {
+                output.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            String result = runNode(Arrays.asList(NODE, file.getPath())).trim();
+            if (!result.startsWith("ops/s ")) {
+                throw new BenchmarkException(result);
+            }
+            return Double.parseDouble(result.substring("ops/s ".length()));
+        } catch (IOException e) {
+            throw new BenchmarkException("error running generated code", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BenchmarkException("interrupted");
+        } finally {
+            if (file != null) {
+                file.delete();
+            }
+        }
+    }
+
+    private static String runNode(List<String> command) throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String output;
+        try (InputStream input = process.getInputStream()) {
+            output = IOUtils.toString(input, StandardCharsets.UTF_8);
+        }
+        int exitCode = process.waitFor();
+        if (exitCode != 0) {
+            throw new IOException(command.get(0) + " exited with code " + exitCode + ":\n" + output);
+        }
+        return output;
+    }
+
+    private static int invoke(Invocable invocable) throws ScriptException, NoSuchMethodException {
+        return ((Number)invocable.invokeFunction(KernelCompiler.ENTRY_POINT)).intValue();
+    }
+
+    private static int runInJvm(Kernel kernel) throws BenchmarkException {
+        try {
+            Method method = kernel.getKernelClass().getMethod("run");
+            return (Integer)method.invoke(null);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new BenchmarkException("kernel has no accessible run method", e);
+        } catch (InvocationTargetException e) {
+            throw new BenchmarkException("kernel failed in JVM", e.getCause());
+        }
+    }
+
+    static class BenchmarkException extends Exception {
+        private static final long serialVersionUID = 7185463306437018962L;
+
+        public BenchmarkException(String message) {
+            super(message);
+        }
+
+        public BenchmarkException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.benchmark.runtime.kernels;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+/**
+ * @author Alexey Andreev
+ */
+public final class BigDecimalKernel {
+    private BigDecimalKernel() {
+    }
+
+    public static int run() {
+        MathContext context = new MathContext(60);
+        BigDecimal two = BigDecimal.valueOf(2);
+        BigDecimal root = BigDecimal.ONE;
+        for (int i = 0; i < 10; ++i) {
+            root = root.add(two.divide(root, context)).divide(two, context);
+        }
+        BigDecimal harmonic = BigDecimal.ZERO;
+        for (int i = 1; i <= 100; ++i) {
+            harmonic = harmonic.add(BigDecimal.ONE.divide(BigDecimal.valueOf(i), context), context);
+        }
+        BigDecimal product = root.multiply(harmonic).setScale(40, BigDecimal.ROUND_HALF_EVEN);
+        return root.unscaledValue().intValue() ^ harmonic.unscaledValue().intValue() ^
+                product.toString().hashCode();
+    }
+}
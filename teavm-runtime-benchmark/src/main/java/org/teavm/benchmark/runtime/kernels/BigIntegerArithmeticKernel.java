@@ -0,0 +1,53 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.benchmark.runtime.kernels;
+
+import java.math.BigInteger;
+
+/**
+ * <p>Multiplies and divides numbers of a few thousand bits, which are grown from operands of
+ * <code>BigIntegerDivideTest</code> and <code>BigIntegerModPowTest</code>.</p>
+ *
+ * @author Alexey Andreev
+ */
+public final class BigIntegerArithmeticKernel {
+    private static final byte[] DIVIDEND = { 2, -3, -4, -5, -1, -5, -4, -3, -2, -1, 0, 1, 2, 3, 4, 5 };
+    private static final byte[] DIVISOR = { -127, 100, 56, 7, 98, -1, 39, -128, 127, 1, 2, 3, 4, 5 };
+    private static final byte[] MODULUS = { -15, 24, 123, 56, -11, -112, -34, -98, 8, 10, 12, 14, 25, 125, -15,
+            28, -127 };
+
+    private BigIntegerArithmeticKernel() {
+    }
+
+    public static int run() {
+        BigInteger dividend = new BigInteger(1, DIVIDEND);
+        BigInteger divisor = new BigInteger(1, DIVISOR);
+        BigInteger modulus = new BigInteger(1, MODULUS);
+        BigInteger a = dividend.pow(24).add(divisor);
+        BigInteger b = divisor.pow(16).subtract(dividend);
+        int result = 0;
+        for (int i = 0; i < 10; ++i) {
+            BigInteger product = a.multiply(b).add(BigInteger.valueOf(i));
+            BigInteger[] quotientAndRemainder = product.divideAndRemainder(b);
+            BigInteger square = quotientAndRemainder[0].multiply(quotientAndRemainder[0]);
+            BigInteger rest = square.remainder(a.add(BigInteger.valueOf(i)));
+            result = result * 31 + quotientAndRemainder[1].intValue() + rest.intValue();
+            a = a.add(rest);
+        }
+        BigInteger power = dividend.modPow(divisor, modulus.pow(8));
+        return result ^ power.intValue() ^ a.toString().length();
+    }
+}
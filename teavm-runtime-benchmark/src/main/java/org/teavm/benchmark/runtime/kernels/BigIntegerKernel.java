@@ -0,0 +1,39 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.benchmark.runtime.kernels;
+
+import java.math.BigInteger;
+
+/**
+ * @author Alexey Andreev
+ */
+public final class BigIntegerKernel {
+    private BigIntegerKernel() {
+    }
+
+    public static int run() {
+        BigInteger factorial = BigInteger.ONE;
+        for (int i = 2; i <= 300; ++i) {
+            factorial = factorial.multiply(BigInteger.valueOf(i));
+        }
+        BigInteger modulus = BigInteger.valueOf(1000000007);
+        BigInteger power = BigInteger.valueOf(31).modPow(factorial, modulus);
+        BigInteger quotient = factorial.divide(BigInteger.valueOf(3).pow(100));
+        BigInteger gcd = factorial.gcd(quotient.add(BigInteger.ONE));
+        return factorial.bitLength() ^ power.intValue() ^ quotient.intValue() ^ gcd.intValue() ^
+                factorial.toString().length();
+    }
+}
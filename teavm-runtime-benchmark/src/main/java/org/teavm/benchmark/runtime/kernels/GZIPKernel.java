@@ -0,0 +1,84 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.benchmark.runtime.kernels;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * <p>Compresses and decompresses a block of text. Only decompressed data contributes to the result, since
+ * the compressed form may legally differ between implementations of deflate.</p>
+ *
+ * @author Alexey Andreev
+ */
+public final class GZIPKernel {
+    private static final String[] WORDS = { "lorem", "ipsum", "dolor", "sit", "amet", "consectetur",
+            "adipiscing", "elit" };
+    private static byte[] data;
+
+    private GZIPKernel() {
+    }
+
+    public static int run() throws IOException {
+        if (data == null) {
+            data = createData();
+        }
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream output = new GZIPOutputStream(compressed)) {
+            output.write(data);
+        }
+        int result = 0;
+        int length = 0;
+        byte[] buffer = new byte[4096];
+        try (InputStream input = new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray()))) {
+            while (true) {
+                int read = input.read(buffer);
+                if (read < 0) {
+                    break;
+                }
+                for (int i = 0; i < read; ++i) {
+                    result = result * 31 + buffer[i];
+                }
+                length += read;
+            }
+        }
+        return result + length;
+    }
+
+    private static byte[] createData() {
+        byte[] result = new byte[65536];
+        int seed = 12345;
+        int index = 0;
+        while (index < result.length) {
+            seed ^= seed << 13;
+            seed ^= seed >>> 17;
+            seed ^= seed << 5;
+            String word = WORDS[(seed >>> 8) % WORDS.length];
+            for (int i = 0; i < word.length() && index < result.length; ++i) {
+                result[index++] = (byte)word.charAt(i);
+            }
+            if (index < result.length) {
+                result[index++] = ' ';
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.benchmark.runtime.kernels;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @author Alexey Andreev
+ */
+public final class HashMapKernel {
+    private HashMapKernel() {
+    }
+
+    public static int run() {
+        Map<Integer, Integer> map = new HashMap<>();
+        for (int i = 0; i < 10000; ++i) {
+            map.put((i * 7919) % 20011, i);
+        }
+        int result = 0;
+        for (int i = 0; i < 20011; ++i) {
+            Integer value = map.get(i);
+            if (value != null) {
+                result += value;
+            }
+        }
+        for (int i = 0; i < 20011; i += 2) {
+            map.remove(i);
+        }
+        for (Map.Entry<Integer, Integer> entry : map.entrySet()) {
+            result ^= entry.getKey() * 31 + entry.getValue();
+        }
+        Map<String, Integer> stringMap = new HashMap<>();
+        for (int i = 0; i < 2000; ++i) {
+            String key = "key" + (i % 500);
+            Integer count = stringMap.get(key);
+            stringMap.put(key, count != null ? count + 1 : 1);
+        }
+        return result + map.size() + stringMap.size();
+    }
+}
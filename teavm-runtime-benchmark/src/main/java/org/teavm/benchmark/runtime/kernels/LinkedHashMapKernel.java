@@ -0,0 +1,65 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.benchmark.runtime.kernels;
+
+import java.util.*;
+
+/**
+ * @author Alexey Andreev
+ */
+public final class LinkedHashMapKernel {
+    private static final int CACHE_SIZE = 1000;
+
+    private LinkedHashMapKernel() {
+    }
+
+    public static int run() {
+        Map<Integer, String> cache = new LinkedHashMap<Integer, String>(16, 0.75f, true) {
+            private static final long serialVersionUID = 4129528513566428036L;
+            @Override protected boolean removeEldestEntry(Map.Entry<Integer, String> eldest) {
+                return size() > CACHE_SIZE;
+            }
+        };
+        int result = 0;
+        int seed = 12345;
+        for (int i = 0; i < 20000; ++i) {
+            seed ^= seed << 13;
+            seed ^= seed >>> 17;
+            seed ^= seed << 5;
+            int key = (seed >>> 1) % 3000;
+            String value = cache.get(key);
+            if (value == null) {
+                cache.put(key, "v" + key);
+            } else {
+                result += value.length();
+            }
+        }
+        for (Map.Entry<Integer, String> entry : cache.entrySet()) {
+            result = result * 31 + entry.getKey();
+        }
+
+        Set<String> words = new HashSet<>();
+        for (int i = 0; i < 5000; ++i) {
+            words.add("w" + (i * 7 % 1500));
+        }
+        for (Iterator<String> iter = words.iterator(); iter.hasNext();) {
+            if (iter.next().length() == 3) {
+                iter.remove();
+            }
+        }
+        return result + words.size();
+    }
+}
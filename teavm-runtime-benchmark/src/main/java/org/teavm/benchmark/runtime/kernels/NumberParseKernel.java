@@ -0,0 +1,54 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.benchmark.runtime.kernels;
+
+/**
+ * @author Alexey Andreev
+ */
+public final class NumberParseKernel {
+    private static final int COUNT = 2000;
+    private static String[] doubles;
+    private static String[] floats;
+    private static String[] integers;
+
+    private NumberParseKernel() {
+    }
+
+    public static int run() {
+        if (doubles == null) {
+            createStrings();
+        }
+        int result = 0;
+        for (int i = 0; i < COUNT; ++i) {
+            result = result * 31 + (int)(Double.parseDouble(doubles[i]) * 16);
+            result = result * 31 + (int)(Float.parseFloat(floats[i]) * 4);
+            result = result * 31 + Integer.parseInt(integers[i]);
+        }
+        return result;
+    }
+
+    private static void createStrings() {
+        doubles = new String[COUNT];
+        floats = new String[COUNT];
+        integers = new String[COUNT];
+        for (int i = 0; i < COUNT; ++i) {
+            String sign = i % 5 == 0 ? "-" : "";
+            doubles[i] = sign + i % 1000 + "." + i * 7919 % 100000 + "E" + (i % 9 - 4);
+            floats[i] = sign + i * 31 % 10000 + "." + i % 100 + "f";
+            integers[i] = sign + (i * 104729 + 12345);
+        }
+    }
+}
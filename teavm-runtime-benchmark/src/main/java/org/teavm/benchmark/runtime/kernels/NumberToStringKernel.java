@@ -0,0 +1,48 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.benchmark.runtime.kernels;
+
+/**
+ * @author Alexey Andreev
+ */
+public final class NumberToStringKernel {
+    private NumberToStringKernel() {
+    }
+
+    public static int run() {
+        StringBuilder sb = new StringBuilder();
+        int result = 0;
+        double value = 0.5;
+        for (int i = 0; i < 2000; ++i) {
+            value = value * 1.37 + i / 7.0;
+            if (value > 1E100) {
+                value /= 1E120;
+            }
+            sb.setLength(0);
+            result = result * 31 + shape(sb.append(value));
+            sb.setLength(0);
+            result = result * 31 + shape(sb.append((float)value));
+            sb.setLength(0);
+            result = result * 31 + shape(sb.append(i * 0.01));
+        }
+        return result;
+    }
+
+    private static int shape(StringBuilder sb) {
+        // Older JDKs do not always print the shortest digits, so only magnitude and notation are counted
+        return sb.indexOf(".") * 2 + (sb.indexOf("E") >= 0 ? 1 : 0);
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.benchmark.runtime.kernels;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * @author Alexey Andreev
+ */
+public final class PatternKernel {
+    private static final String[] NAMES = { "alice", "bob", "carol", "dave", "eve" };
+    private static final String[] DOMAINS = { "example", "teavm", "mail" };
+    private static String text;
+
+    private PatternKernel() {
+    }
+
+    public static int run() {
+        if (text == null) {
+            text = createText();
+        }
+        int result = 0;
+        Matcher matcher = Pattern.compile("([a-z]+)@([a-z]+)\\.(com|org)").matcher(text);
+        while (matcher.find()) {
+            result += matcher.group(1).length() * 31 + matcher.group(3).length();
+        }
+        String[] parts = text.split("[,;] *");
+        result += parts.length;
+        Matcher entry = Pattern.compile("\\d+ [a-z]+@[a-z]+\\.(?:com|org)").matcher("");
+        for (String part : parts) {
+            if (entry.reset(part).matches()) {
+                result++;
+            }
+        }
+        result += text.replaceAll("\\d+", "#").length();
+        return result;
+    }
+
+    private static String createText() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1000; ++i) {
+            sb.append(NAMES[i % NAMES.length]).append('@').append(DOMAINS[i % DOMAINS.length])
+                    .append(i % 2 == 0 ? ".com" : ".org").append(i % 3 == 0 ? ", " : "; ").append(i).append(' ');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.benchmark.runtime.kernels;
+
+import org.jbox2d.dynamics.World;
+import org.teavm.samples.benchmark.Scene;
+
+/**
+ * <p>Simulates first 0.2 seconds of the scene of TeaVM benchmark sample. Simulation runs with a fixed
+ * time step, so that each operation performs exactly the same amount of work.</p>
+ *
+ * @author Alexey Andreev
+ */
+public final class SceneKernel {
+    private SceneKernel() {
+    }
+
+    public static int run() {
+        World world = new Scene().getWorld();
+        for (int i = 0; i < 20; ++i) {
+            world.step(0.01f, 20, 40);
+        }
+        return world.getBodyCount();
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.benchmark.runtime.kernels;
+
+import java.util.Arrays;
+
+/**
+ * @author Alexey Andreev
+ */
+public final class SortKernel {
+    private static final int SIZE = 20000;
+
+    private SortKernel() {
+    }
+
+    public static int run() {
+        int[] ints = new int[SIZE];
+        long[] longs = new long[SIZE];
+        char[] chars = new char[SIZE];
+        double[] doubles = new double[SIZE];
+        int seed = 12345;
+        for (int i = 0; i < SIZE; ++i) {
+            seed ^= seed << 13;
+            seed ^= seed >>> 17;
+            seed ^= seed << 5;
+            ints[i] = seed;
+            longs[i] = ((long)seed << 20) ^ i;
+            chars[i] = (char)seed;
+            if (i % 1000 == 0) {
+                doubles[i] = Double.NaN;
+            } else if (i % 1000 == 1) {
+                doubles[i] = (seed & 1) == 0 ? 0.0 : -0.0;
+            } else {
+                doubles[i] = seed / 1024.0;
+            }
+        }
+        Arrays.sort(ints);
+        Arrays.sort(longs);
+        Arrays.sort(chars, SIZE / 4, SIZE * 3 / 4);
+        Arrays.sort(doubles);
+
+        int result = 0;
+        for (int i = 0; i < SIZE; ++i) {
+            result = (result << 1 | result >>> 31) ^ ints[i];
+            result = (result << 1 | result >>> 31) ^ (int)(longs[i] >>> 16);
+            result = (result << 1 | result >>> 31) ^ chars[i];
+            double d = doubles[i];
+            int doubleHash = Double.isNaN(d) ? 7 : d == 0 ? (1 / d < 0 ? 3 : 5) : (int)d;
+            result = (result << 1 | result >>> 31) ^ doubleHash;
+        }
+        return result;
+    }
+}
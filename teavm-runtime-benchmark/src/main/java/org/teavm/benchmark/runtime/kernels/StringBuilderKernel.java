@@ -0,0 +1,41 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.benchmark.runtime.kernels;
+
+/**
+ * @author Alexey Andreev
+ */
+public final class StringBuilderKernel {
+    private StringBuilderKernel() {
+    }
+
+    public static int run() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 5000; ++i) {
+            sb.append("item").append(i).append(':').append(i * 31L).append(i % 2 == 0).append('\n');
+        }
+        sb.insert(0, "header\n").reverse().reverse();
+        String text = sb.toString();
+        int result = text.length() + text.hashCode();
+        String joined = "";
+        for (int i = 0; i < 300; ++i) {
+            joined += i;
+        }
+        result ^= joined.hashCode();
+        result += text.indexOf("item4999") + text.lastIndexOf("item1:") + text.substring(100, 200).hashCode();
+        return result + text.toUpperCase().replace('I', 'i').hashCode();
+    }
+}
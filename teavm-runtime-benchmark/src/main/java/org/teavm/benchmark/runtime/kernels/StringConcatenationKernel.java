@@ -0,0 +1,36 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.benchmark.runtime.kernels;
+
+/**
+ * @author Alexey Andreev
+ */
+public final class StringConcatenationKernel {
+    private static final String[] NAMES = { "alpha", "beta", "gamma" };
+
+    private StringConcatenationKernel() {
+    }
+
+    public static int run() {
+        int result = 0;
+        for (int i = 0; i < 5000; ++i) {
+            String name = NAMES[i % NAMES.length];
+            String s = name + "[" + i + "]=" + (i % 2 == 0 ? "even" : "odd") + ':' + i * 31L + ';' + i * 0.5;
+            result = result * 31 + s.length() + s.charAt(s.length() / 2);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ *  Copyright 2014 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.benchmark.runtime.kernels;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * @author Alexey Andreev
+ */
+public final class StringMapKernel {
+    private StringMapKernel() {
+    }
+
+    public static int run() {
+        String[] words = new String[1000];
+        for (int i = 0; i < words.length; ++i) {
+            words[i] = "word" + (i * 7919) % 1009;
+        }
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 20; ++i) {
+            for (String word : words) {
+                Integer count = counts.get(word);
+                counts.put(word, count != null ? count + 1 : 1);
+            }
+        }
+        int result = 0;
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            result += entry.getKey().length() * entry.getValue();
+        }
+        Map<Object, Integer> identities = new IdentityHashMap<>();
+        Object[] objects = new Object[2000];
+        for (int i = 0; i < objects.length; ++i) {
+            objects[i] = new Object();
+            identities.put(objects[i], i);
+        }
+        for (int i = 0; i < 10; ++i) {
+            for (int j = 0; j < objects.length; j += 3) {
+                result += identities.get(objects[j]);
+            }
+        }
+        return result + counts.size() + identities.size();
+    }
+}